@@ -0,0 +1,106 @@
+package com.example.inventarioapiad.carga;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Parámetros de la prueba de carga (propiedades de sistema carga.*, que
+// pasa la tarea pruebaCarga desde -Pcarga.*):
+//
+//   carga.tasa            peticiones por segundo que llegan (modelo abierto)
+//   carga.concurrencia    peticiones en curso como máximo (hilos cliente)
+//   carga.duracion        segundos medidos
+//   carga.calentamiento   segundos previos sin medir (JIT, cachés, pool)
+//   carga.escrituras      fracción de escrituras en la mezcla (0..1)
+//   carga.excluir         operaciones fuera de la mezcla, separadas por comas
+//   carga.timeout-ms      tiempo máximo de cada petición
+//   carga.cola-maxima     llegadas esperando hilo; por encima se descartan
+//   carga.semilla         semilla de las llegadas y de la mezcla
+//   carga.perfiles        perfiles de Spring de la API (dev por defecto)
+//   carga.h2              true: BD H2 en memoria; false: la del perfil
+//   carga.base            informe.json con el que comparar (por defecto el
+//                         de la ejecución anterior)
+//   carga.datos.*         tamaño de los datos generados (generador.*)
+final class ConfiguracionCarga {
+
+    final double tasa;
+    final int concurrencia;
+    final int duracion;
+    final int calentamiento;
+    final double escrituras;
+    final Set<String> excluir;
+    final Duration timeout;
+    final int colaMaxima;
+    final long semilla;
+    final String perfiles;
+    final boolean h2;
+    final Path informes;
+    final Path base;
+    final Map<String, String> datos = new LinkedHashMap<>();
+
+    private ConfiguracionCarga(Properties p) {
+        tasa = Double.parseDouble(p.getProperty("carga.tasa", "100"));
+        concurrencia = Integer.parseInt(p.getProperty("carga.concurrencia", "32"));
+        duracion = Integer.parseInt(p.getProperty("carga.duracion", "60"));
+        calentamiento = Integer.parseInt(p.getProperty("carga.calentamiento", "15"));
+        escrituras = Double.parseDouble(p.getProperty("carga.escrituras", "0.2"));
+        excluir = Arrays.stream(p.getProperty("carga.excluir", "").split(","))
+                .map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toSet());
+        timeout = Duration.ofMillis(Long.parseLong(p.getProperty("carga.timeout-ms", "30000")));
+        colaMaxima = Integer.parseInt(p.getProperty("carga.cola-maxima", "10000"));
+        semilla = Long.parseLong(p.getProperty("carga.semilla", "42"));
+        perfiles = p.getProperty("carga.perfiles", "dev");
+        h2 = Boolean.parseBoolean(p.getProperty("carga.h2", "true"));
+        informes = Path.of(p.getProperty("carga.informes", "build/reports/carga"));
+        String rutaBase = p.getProperty("carga.base");
+        base = rutaBase != null && !rutaBase.isBlank() ? Path.of(rutaBase) : null;
+
+        // Datos pequeños por defecto: la prueba mide la API, no la carga inicial
+        datos.put("productos", "2000");
+        datos.put("clientes", "5000");
+        datos.put("proveedores", "100");
+        datos.put("almacenes", "10");
+        datos.put("ventas", "20000");
+        datos.put("compras", "6000");
+        datos.put("meses", "12");
+        for (String nombre : p.stringPropertyNames()) {
+            if (nombre.startsWith("carga.datos.")) {
+                datos.put(nombre.substring("carga.datos.".length()), p.getProperty(nombre));
+            }
+        }
+
+        if (tasa <= 0 || concurrencia <= 0 || duracion <= 0 || calentamiento < 0 || colaMaxima <= 0) {
+            throw new IllegalArgumentException("carga.tasa, concurrencia, duracion y cola-maxima deben ser mayor a 0");
+        }
+        if (escrituras < 0 || escrituras > 1) {
+            throw new IllegalArgumentException("carga.escrituras debe estar entre 0 y 1");
+        }
+    }
+
+    static ConfiguracionCarga desde(Properties propiedades) {
+        return new ConfiguracionCarga(propiedades);
+    }
+
+    // Lo que va al informe para saber con qué se midió
+    Map<String, Object> comoMapa() {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        mapa.put("tasa", tasa);
+        mapa.put("concurrencia", concurrencia);
+        mapa.put("duracion", duracion);
+        mapa.put("calentamiento", calentamiento);
+        mapa.put("escrituras", escrituras);
+        mapa.put("excluir", excluir);
+        mapa.put("timeoutMs", timeout.toMillis());
+        mapa.put("colaMaxima", colaMaxima);
+        mapa.put("semilla", semilla);
+        mapa.put("perfiles", perfiles);
+        mapa.put("h2", h2);
+        mapa.put("datos", datos);
+        return mapa;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.inventarioapiad.carga;
+
+import com.example.inventarioapiad.generador.Zipf;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// La mezcla de operaciones: lecturas y escrituras de los controladores de
+// negocio con su peso relativo. Los ids salen de la BD ya cargada; los
+// productos se eligen con Zipf, como en los datos generados, así que los
+// populares se leen y se venden más. Los endpoints de administración
+// (archivo, repreciado, exportación, JFR, cachés...) se quedan fuera: son
+// tareas puntuales, no tráfico.
+//
+// Los pesos de lectura y de escritura se escalan para que las escrituras
+// sean la fracción carga.escrituras de las peticiones.
+final class Escenario {
+
+    record Peticion(String metodo, String ruta, String cuerpo) {
+    }
+
+    record Operacion(String nombre, String metodo, String plantilla, boolean escritura, double peso,
+                     Function<Escenario, Peticion> peticion) {
+    }
+
+    private final List<Operacion> operaciones = new ArrayList<>();
+    private final double[] acumulada;
+
+    private final long[] productos;
+    private final String[] skus;
+    private final Zipf popularidad;
+    private final long[] almacenes;
+    private final long[] clientes;
+    private final long[] proveedores;
+    private final long[] ventas;
+    private final long[] compras;
+    // (producto, almacén) con unidades de sobra para traspasar
+    private final long[][] stock;
+    private final AtomicLong secuencia = new AtomicLong();
+    private final String marca = Long.toString(System.currentTimeMillis(), 36).toUpperCase(Locale.ROOT);
+
+    Escenario(JdbcTemplate jdbc, ConfiguracionCarga configuracion) {
+        List<Map<String, Object>> filas = jdbc.queryForList(
+                "SELECT id, sku FROM productos WHERE activo = TRUE ORDER BY id LIMIT 20000");
+        productos = new long[filas.size()];
+        skus = new String[filas.size()];
+        for (int i = 0; i < filas.size(); i++) {
+            productos[i] = ((Number) filas.get(i).get("id")).longValue();
+            skus[i] = (String) filas.get(i).get("sku");
+        }
+        almacenes = ids(jdbc, "SELECT id FROM almacenes WHERE activo = TRUE ORDER BY id");
+        clientes = ids(jdbc, "SELECT id FROM clientes WHERE activo = TRUE ORDER BY id LIMIT 20000");
+        proveedores = ids(jdbc, "SELECT id FROM proveedores WHERE activo = TRUE ORDER BY id");
+        ventas = ids(jdbc, "SELECT id FROM ventas ORDER BY id DESC LIMIT 20000");
+        compras = ids(jdbc, "SELECT id FROM compras ORDER BY id DESC LIMIT 20000");
+        stock = jdbc.query("SELECT producto_id, almacen_id FROM stock_almacen WHERE cantidad > 20 LIMIT 5000",
+                (rs, n) -> new long[] {rs.getLong(1), rs.getLong(2)}).toArray(new long[0][]);
+        if (productos.length == 0 || almacenes.length < 2 || clientes.length == 0 || proveedores.length == 0) {
+            throw new IllegalStateException("Faltan datos para la prueba: hacen falta productos, clientes, "
+                    + "proveedores y al menos dos almacenes");
+        }
+        popularidad = new Zipf(productos.length, 1.0);
+
+        definir();
+        operaciones.removeIf(o -> configuracion.excluir.contains(o.nombre())
+                || (o.nombre().equals("traspasos.crear") && stock.length == 0)
+                || (o.nombre().startsWith("ventas.") && !o.escritura() && ventas.length == 0)
+                || (o.nombre().startsWith("compras.") && !o.escritura() && compras.length == 0));
+        double lecturas = operaciones.stream().filter(o -> !o.escritura()).mapToDouble(Operacion::peso).sum();
+        double escrituras = operaciones.stream().filter(Operacion::escritura).mapToDouble(Operacion::peso).sum();
+        acumulada = new double[operaciones.size()];
+        double suma = 0;
+        for (int i = 0; i < operaciones.size(); i++) {
+            Operacion o = operaciones.get(i);
+            double peso = o.escritura()
+                    ? (escrituras == 0 ? 0 : o.peso() / escrituras * configuracion.escrituras)
+                    : (lecturas == 0 ? 0 : o.peso() / lecturas * (1 - configuracion.escrituras));
+            suma += peso;
+            acumulada[i] = suma;
+        }
+        if (suma == 0) {
+            throw new IllegalStateException("La mezcla de operaciones está vacía");
+        }
+    }
+
+    private void definir() {
+        // Lecturas por id: el grueso del tráfico
+        lectura("productos.porId", "/api/productos/{id}", 20, e -> "/api/productos/" + e.producto());
+        lectura("productos.porSku", "/api/productos/sku/{sku}", 5, e -> "/api/productos/sku/" + e.sku());
+        lectura("almacenes.porId", "/api/almacenes/{id}", 6, e -> "/api/almacenes/" + e.de(e.almacenes));
+        lectura("clientes.porId", "/api/clientes/{id}", 6, e -> "/api/clientes/" + e.de(e.clientes));
+        lectura("proveedores.porId", "/api/proveedores/{id}", 3, e -> "/api/proveedores/" + e.de(e.proveedores));
+        lectura("ventas.porId", "/api/ventas/{id}", 8, e -> "/api/ventas/" + e.de(e.ventas));
+        lectura("compras.porId", "/api/compras/{id}", 4, e -> "/api/compras/" + e.de(e.compras));
+        lectura("stock.porProducto", "/api/stock-almacen?productoId={id}", 4,
+                e -> "/api/stock-almacen?productoId=" + e.producto());
+        lectura("prevision.producto", "/api/productos/{id}/prevision", 2,
+                e -> "/api/productos/" + e.producto() + "/prevision");
+        lectura("valoracion.almacen", "/api/almacenes/{id}/valoracion", 1,
+                e -> "/api/almacenes/" + e.de(e.almacenes) + "/valoracion");
+
+        // Listados y filtros (los filtros cargan la tabla entera y filtran en memoria)
+        lectura("productos.filtro", "/api/productos?nombre={texto}", 4,
+                e -> "/api/productos?nombre=" + e.uno("Tornillo", "Cable", "Taladro", "Pintura", "Grifo"));
+        lectura("almacenes.listar", "/api/almacenes", 2, e -> "/api/almacenes");
+        lectura("almacenesV2.pagina", "/api/v2/almacenes?page=0&size=10", 2,
+                e -> "/api/v2/almacenes?page=0&size=10");
+        lectura("clientes.filtro", "/api/clientes?ciudad={ciudad}", 1,
+                e -> "/api/clientes?ciudad=" + e.uno("Huesca", "Teruel", "Vigo", "Oviedo"));
+        lectura("proveedores.filtro", "/api/proveedores?diasEntrega={dias}", 1,
+                e -> "/api/proveedores?diasEntrega=" + (1 + ThreadLocalRandom.current().nextInt(10)));
+        lectura("ventas.filtro", "/api/ventas?estado=PENDIENTE", 0.5, e -> "/api/ventas?estado=PENDIENTE");
+        lectura("compras.filtro", "/api/compras?estado=PENDIENTE", 0.5, e -> "/api/compras?estado=PENDIENTE");
+        lectura("traspasos.enTransito", "/api/traspasos/en-transito", 1, e -> "/api/traspasos/en-transito");
+
+        // Analítica y planificación
+        lectura("analitica.topProductos", "/api/analytics/top-productos?ventana=24h&n=10", 2,
+                e -> "/api/analytics/top-productos?ventana=24h&n=10");
+        lectura("analitica.clientesDistintos", "/api/analytics/clientes-distintos?productoId={id}", 1,
+                e -> "/api/analytics/clientes-distintos?productoId=" + e.producto());
+        lectura("alertas.listar", "/api/alertas/stock?limite=20", 1, e -> "/api/alertas/stock?limite=20");
+        lectura("asignacion.mejor", "/api/asignacion/mejor?cantidad={n}", 1,
+                e -> "/api/asignacion/mejor?cantidad=" + (1 + ThreadLocalRandom.current().nextInt(50)));
+        lectura("valoracion.global", "/api/valoracion", 0.5, e -> "/api/valoracion");
+        lectura("sugerencias.resumen", "/api/sugerencias-compra/resumen", 0.5, e -> "/api/sugerencias-compra/resumen");
+        lectura("clasificacionAbc", "/api/clasificacion-abc", 0.5, e -> "/api/clasificacion-abc");
+
+        // Escrituras
+        escritura("ventas.crear", "POST", "/api/ventas", 8, e -> new Peticion("POST", "/api/ventas", e.venta()));
+        escritura("compras.crear", "POST", "/api/compras", 3, e -> new Peticion("POST", "/api/compras", e.compra()));
+        escritura("productos.patch", "PATCH", "/api/productos/{id}", 2, e -> new Peticion("PATCH",
+                "/api/productos/" + e.producto(), "{\"precioVenta\": " + e.precio(5, 200) + "}"));
+        escritura("clientes.crear", "POST", "/api/clientes", 1, e -> new Peticion("POST", "/api/clientes",
+                "{\"nombre\": \"Cliente carga\", \"email\": \"carga." + e.siguiente() + "@example.com\", "
+                        + "\"ciudad\": \"Zaragoza\"}"));
+        escritura("traspasos.crear", "POST", "/api/traspasos", 1, e -> new Peticion("POST", "/api/traspasos",
+                e.traspaso()));
+        // BCrypt: cada login cuesta CPU de verdad
+        escritura("auth.login", "POST", "/api/auth/login", 0.5, e -> new Peticion("POST", "/api/auth/login",
+                "{\"username\": \"" + PruebaCarga.USUARIO + "\", \"password\": \"" + PruebaCarga.CLAVE + "\"}"));
+    }
+
+    private void lectura(String nombre, String plantilla, double peso, Function<Escenario, String> ruta) {
+        operaciones.add(new Operacion(nombre, "GET", plantilla, false, peso,
+                e -> new Peticion("GET", ruta.apply(e), null)));
+    }
+
+    private void escritura(String nombre, String metodo, String plantilla, double peso,
+                           Function<Escenario, Peticion> peticion) {
+        operaciones.add(new Operacion(nombre, metodo, plantilla, true, peso, peticion));
+    }
+
+    List<Operacion> operaciones() {
+        return operaciones;
+    }
+
+    Operacion elegir(SplittableRandom azar) {
+        double u = azar.nextDouble() * acumulada[acumulada.length - 1];
+        for (int i = 0; i < acumulada.length; i++) {
+            if (u < acumulada[i]) {
+                return operaciones.get(i);
+            }
+        }
+        return operaciones.get(operaciones.size() - 1);
+    }
+
+    // ----- Datos de cada petición (se llaman desde los hilos cliente) -----
+
+    private long producto() {
+        return productos[popularidad.muestra(ThreadLocalRandom.current())];
+    }
+
+    private String sku() {
+        return skus[popularidad.muestra(ThreadLocalRandom.current())];
+    }
+
+    private long de(long[] ids) {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private String uno(String... valores) {
+        return valores[ThreadLocalRandom.current().nextInt(valores.length)];
+    }
+
+    private long siguiente() {
+        return secuencia.incrementAndGet();
+    }
+
+    private String precio(double min, double max) {
+        return String.format(Locale.ROOT, "%.2f", min + ThreadLocalRandom.current().nextDouble() * (max - min));
+    }
+
+    private String venta() {
+        return "{\"cliente\": {\"id\": " + de(clientes) + "}, \"producto\": {\"id\": " + producto() + "}, "
+                + "\"almacen\": {\"id\": " + de(almacenes) + "}, "
+                + "\"cantidad\": " + (1 + ThreadLocalRandom.current().nextInt(5)) + ", "
+                + "\"precioUnitario\": " + precio(5, 100) + ", "
+                + "\"fechaVenta\": \"" + LocalDateTime.now().withNano(0) + "\", "
+                + "\"numeroPedido\": \"CARGA-" + marca + "-" + siguiente() + "\"}";
+    }
+
+    private String compra() {
+        return "{\"proveedor\": {\"id\": " + de(proveedores) + "}, \"producto\": {\"id\": " + producto() + "}, "
+                + "\"almacen\": {\"id\": " + de(almacenes) + "}, "
+                + "\"cantidad\": " + (10 + ThreadLocalRandom.current().nextInt(40)) + ", "
+                + "\"precioUnitario\": " + precio(1, 50) + ", "
+                + "\"fechaCompra\": \"" + LocalDateTime.now().withNano(0) + "\", "
+                + "\"numeroFactura\": \"CARGA-" + marca + "-" + siguiente() + "\", \"estado\": \"RECIBIDA\"}";
+    }
+
+    private String traspaso() {
+        long[] origen = stock[ThreadLocalRandom.current().nextInt(stock.length)];
+        long destino = de(almacenes);
+        while (destino == origen[1]) {
+            destino = de(almacenes);
+        }
+        return "{\"productoId\": " + origen[0] + ", \"almacenOrigenId\": " + origen[1] + ", "
+                + "\"almacenDestinoId\": " + destino + ", \"cantidad\": 1, \"enTransito\": false}";
+    }
+
+    private static long[] ids(JdbcTemplate jdbc, String sql) {
+        return jdbc.queryForList(sql, Long.class).stream().mapToLong(Long::longValue).toArray();
+    }
+}
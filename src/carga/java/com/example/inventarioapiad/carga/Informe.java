@@ -0,0 +1,250 @@
+package com.example.inventarioapiad.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Informe de una ejecución en <carga.informes>/<fecha>/:
+//   informe.json - configuración, totales y por operación: peticiones/s,
+//                  estados, percentiles en ms (respuesta y servicio) y el
+//                  histograma completo comprimido en base64 (HdrHistogram),
+//                  para recalcular cualquier percentil más tarde
+//   informe.html - tabla con la diferencia frente a la base y la curva de
+//                  percentiles de la respuesta en SVG
+// Además copia el JSON a <carga.informes>/ultimo.json, que es la base por
+// defecto de la siguiente ejecución.
+final class Informe {
+
+    private static final Logger log = LoggerFactory.getLogger(Informe.class);
+
+    static final int VERSION = 1;
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    // Puntos de la curva: 0, 50, 75, 87.5... hasta 99.999
+    private static final int PUNTOS_CURVA = 17;
+
+    private final ObjectMapper json = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final ConfiguracionCarga configuracion;
+
+    Informe(ConfiguracionCarga configuracion) {
+        this.configuracion = configuracion;
+    }
+
+    Path escribir(Mediciones mediciones, double segundosMedidos) throws IOException {
+        Path ultimo = configuracion.informes.resolve("ultimo.json");
+        JsonNode base = leerBase(configuracion.base != null ? configuracion.base : ultimo);
+
+        Map<String, Object> informe = new LinkedHashMap<>();
+        informe.put("version", VERSION);
+        informe.put("fecha", LocalDateTime.now().withNano(0).toString());
+        informe.put("configuracion", configuracion.comoMapa());
+        informe.put("segundosMedidos", segundosMedidos);
+        informe.put("total", operacion(mediciones.global(), segundosMedidos, false));
+        Map<String, Object> operaciones = new LinkedHashMap<>();
+        mediciones.porOperacion().forEach((nombre, medida) -> {
+            if (medida.total() > 0 || medida.descartadas.sum() > 0) {
+                operaciones.put(nombre, operacion(medida, segundosMedidos, true));
+            }
+        });
+        informe.put("operaciones", operaciones);
+
+        Path directorio = configuracion.informes.resolve(
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        Files.createDirectories(directorio);
+        Path ficheroJson = directorio.resolve("informe.json");
+        json.writeValue(ficheroJson.toFile(), informe);
+        Files.writeString(directorio.resolve("informe.html"),
+                html(json.valueToTree(informe), base, mediciones), StandardCharsets.UTF_8);
+        Files.copy(ficheroJson, ultimo, StandardCopyOption.REPLACE_EXISTING);
+        return directorio;
+    }
+
+    private Map<String, Object> operacion(Mediciones.PorOperacion medida, double segundos, boolean histograma) {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("peticiones", medida.total());
+        datos.put("porSegundo", redondear(medida.total() / segundos));
+        datos.put("errores", medida.errores.sum());
+        datos.put("timeouts", medida.timeouts.sum());
+        datos.put("rechazadas", medida.rechazadas.sum());
+        datos.put("descartadas", medida.descartadas.sum());
+        Map<String, Long> estados = new TreeMap<>();
+        medida.estados.forEach((estado, n) -> estados.put(estado == 0 ? "sinRespuesta" : estado.toString(), n.sum()));
+        datos.put("estados", estados);
+        datos.put("respuestaMs", percentiles(medida.respuesta));
+        datos.put("servicioMs", percentiles(medida.servicio));
+        if (histograma) {
+            datos.put("histogramaRespuesta", comprimido(medida.respuesta));
+        }
+        return datos;
+    }
+
+    private static Map<String, Object> percentiles(Histogram histograma) {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        if (histograma.getTotalCount() == 0) {
+            return datos;
+        }
+        for (double p : PERCENTILES) {
+            datos.put("p" + (p == Math.rint(p) ? String.valueOf((int) p) : String.valueOf(p)),
+                    ms(histograma.getValueAtPercentile(p)));
+        }
+        datos.put("max", ms(histograma.getMaxValue()));
+        datos.put("media", redondear(histograma.getMean() / 1000));
+        return datos;
+    }
+
+    private static String comprimido(Histogram histograma) {
+        ByteBuffer buffer = ByteBuffer.allocate(histograma.getNeededByteBufferCapacity());
+        int longitud = histograma.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), longitud));
+    }
+
+    private JsonNode leerBase(Path ruta) {
+        if (!Files.isRegularFile(ruta)) {
+            return null;
+        }
+        try {
+            return json.readTree(ruta.toFile());
+        } catch (IOException e) {
+            log.warn("No se pudo leer el informe base {}: {}", ruta, e.getMessage());
+            return null;
+        }
+    }
+
+    // ----- HTML -----
+
+    private String html(JsonNode actual, JsonNode base, Mediciones mediciones) {
+        StringBuilder h = new StringBuilder();
+        h.append("<!DOCTYPE html><html lang=\"es\"><head><meta charset=\"utf-8\"><title>Prueba de carga ")
+                .append(escapar(actual.path("fecha").asText())).append("</title><style>")
+                .append("body{font-family:sans-serif;margin:2em}table{border-collapse:collapse}")
+                .append("td,th{border:1px solid #ccc;padding:4px 8px;text-align:right}td:first-child,th:first-child{text-align:left}")
+                .append(".peor{color:#b00}.mejor{color:#070}small{color:#666}</style></head><body>")
+                .append("<h1>Prueba de carga</h1><p>").append(escapar(actual.path("fecha").asText()))
+                .append(" &middot; ").append(escapar(actual.path("configuracion").toString())).append("</p>");
+        if (base != null) {
+            h.append("<p>Comparada con la ejecución del ").append(escapar(base.path("fecha").asText()))
+                    .append(" <small>(diferencias entre paréntesis; en rojo si empeora más de un 10 %)</small></p>");
+        } else {
+            h.append("<p><small>Sin informe base para comparar.</small></p>");
+        }
+
+        h.append("<table><tr><th>Operación</th><th>pet/s</th><th>errores</th><th>4xx</th><th>descartadas</th>")
+                .append("<th>p50 ms</th><th>p90 ms</th><th>p99 ms</th><th>p99.9 ms</th><th>máx ms</th>")
+                .append("<th>p99 servicio ms</th></tr>");
+        fila(h, "TOTAL", actual.path("total"), base == null ? null : base.path("total"));
+        actual.path("operaciones").fields().forEachRemaining(e -> fila(h, e.getKey(), e.getValue(),
+                base == null ? null : base.path("operaciones").path(e.getKey())));
+        h.append("</table>");
+
+        h.append("<h2>Curva de percentiles (respuesta)</h2>").append(curva(mediciones.global().respuesta));
+        h.append("</body></html>");
+        return h.toString();
+    }
+
+    private static void fila(StringBuilder h, String nombre, JsonNode actual, JsonNode base) {
+        JsonNode anterior = base == null || base.isMissingNode() ? null : base;
+        h.append("<tr><td>").append(escapar(nombre)).append("</td>");
+        celda(h, actual.path("porSegundo"), anterior == null ? null : anterior.path("porSegundo"), false);
+        celda(h, actual.path("errores"), anterior == null ? null : anterior.path("errores"), true);
+        celda(h, actual.path("rechazadas"), null, true);
+        celda(h, actual.path("descartadas"), anterior == null ? null : anterior.path("descartadas"), true);
+        for (String p : new String[] {"p50", "p90", "p99", "p99.9", "max"}) {
+            celda(h, actual.path("respuestaMs").path(p),
+                    anterior == null ? null : anterior.path("respuestaMs").path(p), true);
+        }
+        celda(h, actual.path("servicioMs").path("p99"),
+                anterior == null ? null : anterior.path("servicioMs").path("p99"), true);
+        h.append("</tr>");
+    }
+
+    // menorEsMejor: latencias y errores; para pet/s es al revés
+    private static void celda(StringBuilder h, JsonNode valor, JsonNode base, boolean menorEsMejor) {
+        if (valor.isMissingNode()) {
+            h.append("<td>-</td>");
+            return;
+        }
+        double actual = valor.asDouble();
+        h.append("<td>").append(numero(actual));
+        if (base != null && !base.isMissingNode()) {
+            double anterior = base.asDouble();
+            double cambio = anterior == 0 ? (actual == 0 ? 0 : 1) : (actual - anterior) / anterior;
+            boolean peor = menorEsMejor ? cambio > 0.10 : cambio < -0.10;
+            boolean mejor = menorEsMejor ? cambio < -0.10 : cambio > 0.10;
+            h.append(" <small class=\"").append(peor ? "peor" : mejor ? "mejor" : "").append("\">(")
+                    .append(actual - anterior >= 0 ? "+" : "").append(numero(actual - anterior)).append(")</small>");
+        }
+        h.append("</td>");
+    }
+
+    // Eje x logarítmico en 1/(1-p), como los gráficos de HdrHistogram
+    private static String curva(Histogram histograma) {
+        if (histograma.getTotalCount() == 0) {
+            return "<p>Sin datos.</p>";
+        }
+        int ancho = 720;
+        int alto = 320;
+        int margen = 50;
+        double maximo = Math.max(0.001, histograma.getMaxValue() / 1000.0);
+        StringBuilder puntos = new StringBuilder();
+        StringBuilder etiquetas = new StringBuilder();
+        for (int i = 0; i < PUNTOS_CURVA; i++) {
+            double percentil = 100 * (1 - Math.pow(0.5, i));
+            if (i == PUNTOS_CURVA - 1) {
+                percentil = 100;
+            }
+            double ms = histograma.getValueAtPercentile(percentil) / 1000.0;
+            double x = margen + (ancho - 2 * margen) * i / (double) (PUNTOS_CURVA - 1);
+            double y = alto - margen - (alto - 2 * margen) * ms / maximo;
+            puntos.append(String.format(Locale.ROOT, "%.1f,%.1f ", x, y));
+            if (i % 4 == 0 || i == PUNTOS_CURVA - 1) {
+                etiquetas.append(String.format(Locale.ROOT,
+                        "<text x=\"%.1f\" y=\"%d\" font-size=\"11\" text-anchor=\"middle\">p%s</text>",
+                        x, alto - margen + 16, numero(percentil)));
+            }
+        }
+        return "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + ancho + "\" height=\"" + alto + "\">"
+                + "<line x1=\"" + margen + "\" y1=\"" + (alto - margen) + "\" x2=\"" + (ancho - margen)
+                + "\" y2=\"" + (alto - margen) + "\" stroke=\"#999\"/>"
+                + "<line x1=\"" + margen + "\" y1=\"" + margen + "\" x2=\"" + margen + "\" y2=\""
+                + (alto - margen) + "\" stroke=\"#999\"/>"
+                + "<text x=\"4\" y=\"" + (margen - 8) + "\" font-size=\"11\">" + numero(maximo) + " ms</text>"
+                + etiquetas
+                + "<polyline fill=\"none\" stroke=\"#1565c0\" stroke-width=\"2\" points=\"" + puntos + "\"/></svg>";
+    }
+
+    private static double ms(long microsegundos) {
+        return redondear(microsegundos / 1000.0);
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 1000) / 1000.0;
+    }
+
+    private static String numero(double valor) {
+        return valor == Math.rint(valor) && Math.abs(valor) < 1e15
+                ? String.valueOf((long) valor)
+                : String.format(Locale.ROOT, "%.3f", valor).replaceAll("0+$", "");
+    }
+
+    private static String escapar(String texto) {
+        return texto.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.inventarioapiad.carga;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lo medido por operación. Dos histogramas en microsegundos:
+//   respuesta - desde el instante en que la petición DEBÍA salir según el
+//               calendario de llegadas, hasta la respuesta. Incluye la cola
+//               del cliente, así que no esconde las esperas cuando el
+//               servidor se atasca (omisión coordinada).
+//   servicio  - desde que la petición sale de verdad hasta la respuesta.
+// Si respuesta y servicio se separan, el sistema no da abasto con la tasa.
+final class Mediciones {
+
+    // Una hora en µs: más que cualquier timeout razonable
+    private static final long MAXIMO_US = 3_600_000_000L;
+
+    static final class PorOperacion {
+        final Histogram respuesta = new ConcurrentHistogram(MAXIMO_US, 3);
+        final Histogram servicio = new ConcurrentHistogram(MAXIMO_US, 3);
+        final Map<Integer, LongAdder> estados = new ConcurrentHashMap<>();
+        // 5xx, timeouts y fallos de conexión
+        final LongAdder errores = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        // 4xx: datos de la prueba que el servidor rechaza (stock insuficiente...)
+        final LongAdder rechazadas = new LongAdder();
+        // No llegaron a salir: la cola del cliente estaba llena
+        final LongAdder descartadas = new LongAdder();
+
+        long total() {
+            return respuesta.getTotalCount();
+        }
+    }
+
+    private final Map<String, PorOperacion> operaciones = new LinkedHashMap<>();
+
+    Mediciones(List<Escenario.Operacion> definidas) {
+        definidas.forEach(o -> operaciones.put(o.nombre(), new PorOperacion()));
+    }
+
+    void respuesta(String operacion, int estado, long respuestaNanos, long servicioNanos) {
+        PorOperacion medida = operaciones.get(operacion);
+        medida.respuesta.recordValue(Math.min(MAXIMO_US, Math.max(1, respuestaNanos / 1000)));
+        medida.servicio.recordValue(Math.min(MAXIMO_US, Math.max(1, servicioNanos / 1000)));
+        medida.estados.computeIfAbsent(estado, e -> new LongAdder()).increment();
+        if (estado >= 500) {
+            medida.errores.increment();
+        } else if (estado >= 400) {
+            medida.rechazadas.increment();
+        }
+    }
+
+    // Sin respuesta: cuenta como error y su tiempo entra en el histograma,
+    // que un timeout de 30 s es latencia que el usuario sí ve
+    void fallo(String operacion, boolean timeout, long respuestaNanos, long servicioNanos) {
+        PorOperacion medida = operaciones.get(operacion);
+        medida.respuesta.recordValue(Math.min(MAXIMO_US, Math.max(1, respuestaNanos / 1000)));
+        medida.servicio.recordValue(Math.min(MAXIMO_US, Math.max(1, servicioNanos / 1000)));
+        medida.estados.computeIfAbsent(0, e -> new LongAdder()).increment();
+        medida.errores.increment();
+        if (timeout) {
+            medida.timeouts.increment();
+        }
+    }
+
+    void descartada(String operacion) {
+        operaciones.get(operacion).descartadas.increment();
+    }
+
+    Map<String, PorOperacion> porOperacion() {
+        return operaciones;
+    }
+
+    // Todas las operaciones juntas
+    PorOperacion global() {
+        PorOperacion suma = new PorOperacion();
+        operaciones.values().forEach(o -> {
+            suma.respuesta.add(o.respuesta);
+            suma.servicio.add(o.servicio);
+            o.estados.forEach((estado, n) -> suma.estados.computeIfAbsent(estado, e -> new LongAdder())
+                    .add(n.sum()));
+            suma.errores.add(o.errores.sum());
+            suma.timeouts.add(o.timeouts.sum());
+            suma.rechazadas.add(o.rechazadas.sum());
+            suma.descartadas.add(o.descartadas.sum());
+        });
+        return suma;
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.inventarioapiad.carga;
+
+import com.example.inventarioapiad.InventarioApiAdApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Prueba de carga de extremo a extremo: arranca la API en un puerto libre
+// (H2 en memoria salvo carga.h2=false), la llena con el perfil generador,
+// y le lanza la mezcla de Escenario por HTTP durante carga.calentamiento +
+// carga.duracion segundos. Al terminar escribe el Informe y cierra la API.
+//
+// Modelo abierto: las llegadas siguen un proceso de Poisson a carga.tasa
+// peticiones/s y NO esperan a que termine la anterior, como los usuarios de
+// verdad. Cada petición tiene su instante previsto de salida y la latencia
+// se mide desde ahí (ver Mediciones); si los hilos cliente no dan abasto
+// las peticiones esperan en la cola, y si la cola se llena se descartan y
+// se cuentan.
+//
+//   ./gradlew pruebaCarga -Pcarga.tasa=200 -Pcarga.duracion=120
+public final class PruebaCarga {
+
+    private static final Logger log = LoggerFactory.getLogger(PruebaCarga.class);
+
+    static final String USUARIO = "carga";
+    static final String CLAVE = "carga-secreta";
+
+    private final ConfiguracionCarga configuracion;
+    private final HttpClient http;
+    private final ObjectMapper json = new ObjectMapper();
+    private String base;
+    private String token;
+
+    private PruebaCarga(ConfiguracionCarga configuracion) {
+        this.configuracion = configuracion;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(configuracion.timeout)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfiguracionCarga configuracion = ConfiguracionCarga.desde(System.getProperties());
+        ConfigurableApplicationContext contexto = SpringApplication.run(InventarioApiAdApplication.class,
+                argumentos(configuracion, args));
+        int salida = 0;
+        try {
+            Path directorio = new PruebaCarga(configuracion).ejecutar(contexto);
+            log.info("Informe en {}", directorio.toAbsolutePath());
+        } catch (Exception e) {
+            log.error("La prueba de carga ha fallado", e);
+            salida = 1;
+        } finally {
+            SpringApplication.exit(contexto);
+        }
+        System.exit(salida);
+    }
+
+    private static String[] argumentos(ConfiguracionCarga configuracion, String[] extra) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.profiles.active=" + configuracion.perfiles + ",generador");
+        if (configuracion.h2) {
+            args.add("--spring.datasource.url=jdbc:h2:mem:carga;MODE=MariaDB;DB_CLOSE_DELAY=-1");
+            args.add("--spring.datasource.driver-class-name=org.h2.Driver");
+            args.add("--spring.datasource.username=sa");
+            args.add("--spring.datasource.password=");
+            args.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+            args.add("--datasource.replicas.urls=");
+        }
+        args.add("--spring.jpa.show-sql=false");
+        args.add("--server.port=0");
+        // Solo los avisos de la API: el log de cada petición también cuesta
+        args.add("--logging.level.root=WARN");
+        args.add("--logging.level.com.example.inventarioapiad.carga=INFO");
+        configuracion.datos.forEach((nombre, valor) -> args.add("--generador." + nombre + "=" + valor));
+        args.add("--generador.solo-si-vacia=false");
+        args.add("--generador.salir=false");
+        args.addAll(List.of(extra));
+        return args.toArray(new String[0]);
+    }
+
+    private Path ejecutar(ConfigurableApplicationContext contexto) throws Exception {
+        int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+        base = "http://localhost:" + puerto;
+        token = autenticar();
+        Escenario escenario = new Escenario(contexto.getBean(JdbcTemplate.class), configuracion);
+        Mediciones mediciones = new Mediciones(escenario.operaciones());
+        log.info("API en {}; {} operaciones, {} pet/s durante {} s (+{} s de calentamiento)", base,
+                escenario.operaciones().size(), configuracion.tasa, configuracion.duracion,
+                configuracion.calentamiento);
+
+        AtomicInteger hilo = new AtomicInteger();
+        ThreadPoolExecutor clientes = new ThreadPoolExecutor(configuracion.concurrencia,
+                configuracion.concurrencia, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(configuracion.colaMaxima),
+                r -> {
+                    Thread t = new Thread(r, "carga-" + hilo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        clientes.prestartAllCoreThreads();
+
+        SplittableRandom azar = new SplittableRandom(configuracion.semilla);
+        double mediaNanos = 1e9 / configuracion.tasa;
+        long inicio = System.nanoTime();
+        long medirDesde = inicio + TimeUnit.SECONDS.toNanos(configuracion.calentamiento);
+        long fin = medirDesde + TimeUnit.SECONDS.toNanos(configuracion.duracion);
+        long prevista = inicio;
+        long siguienteAviso = medirDesde;
+        while (true) {
+            // Intervalo exponencial: llegadas de Poisson
+            prevista += (long) (-Math.log(1 - azar.nextDouble()) * mediaNanos);
+            if (prevista >= fin) {
+                break;
+            }
+            long espera = prevista - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+            }
+            Escenario.Operacion operacion = escenario.elegir(azar);
+            boolean medida = prevista >= medirDesde;
+            long salida = prevista;
+            try {
+                clientes.execute(new Envio(operacion, salida, medida,
+                        () -> lanzar(escenario, operacion, salida, medida, mediciones)));
+            } catch (RejectedExecutionException e) {
+                if (medida) {
+                    mediciones.descartada(operacion.nombre());
+                }
+            }
+            if (prevista >= siguienteAviso) {
+                log.info("{} s medidos, {} en cola", (prevista - medirDesde) / 1_000_000_000L,
+                        clientes.getQueue().size());
+                siguienteAviso += TimeUnit.SECONDS.toNanos(10);
+            }
+        }
+        clientes.shutdown();
+        if (!clientes.awaitTermination(configuracion.timeout.toMillis() + 10_000, TimeUnit.MILLISECONDS)) {
+            // La API no da abasto con la tasa: lo que ni siquiera salió cuenta
+            // como descartado y lo que estaba en vuelo como sin respuesta
+            List<Runnable> pendientes = clientes.shutdownNow();
+            log.warn("La API no da abasto con {} pet/s: {} peticiones sin enviar al cerrar", configuracion.tasa,
+                    pendientes.size());
+            pendientes.stream().map(Envio.class::cast).filter(Envio::medida)
+                    .forEach(e -> mediciones.descartada(e.operacion().nombre()));
+            clientes.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        Mediciones.PorOperacion total = mediciones.global();
+        log.info("{} peticiones medidas: p50 {} ms, p99 {} ms, {} errores, {} descartadas", total.total(),
+                total.respuesta.getValueAtPercentile(50) / 1000.0, total.respuesta.getValueAtPercentile(99) / 1000.0,
+                total.errores.sum(), total.descartadas.sum());
+        return new Informe(configuracion).escribir(mediciones, configuracion.duracion);
+    }
+
+    private void lanzar(Escenario escenario, Escenario.Operacion operacion, long prevista, boolean medida,
+                        Mediciones mediciones) {
+        long salida = System.nanoTime();
+        try {
+            Escenario.Peticion peticion = operacion.peticion().apply(escenario);
+            HttpResponse<Void> respuesta = http.send(peticion(peticion), HttpResponse.BodyHandlers.discarding());
+            long ahora = System.nanoTime();
+            if (medida) {
+                mediciones.respuesta(operacion.nombre(), respuesta.statusCode(), ahora - prevista, ahora - salida);
+            }
+        } catch (HttpTimeoutException e) {
+            long ahora = System.nanoTime();
+            if (medida) {
+                mediciones.fallo(operacion.nombre(), true, ahora - prevista, ahora - salida);
+            }
+        } catch (InterruptedException e) {
+            long ahora = System.nanoTime();
+            if (medida) {
+                mediciones.fallo(operacion.nombre(), false, ahora - prevista, ahora - salida);
+            }
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            long ahora = System.nanoTime();
+            if (medida) {
+                mediciones.fallo(operacion.nombre(), false, ahora - prevista, ahora - salida);
+            }
+            log.debug("{}: {}", operacion.nombre(), e.toString());
+        }
+    }
+
+    // Una petición en la cola de los hilos cliente
+    private record Envio(Escenario.Operacion operacion, long prevista, boolean medida, Runnable tarea)
+            implements Runnable {
+        @Override
+        public void run() {
+            tarea.run();
+        }
+    }
+
+    private HttpRequest peticion(Escenario.Peticion peticion) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + peticion.ruta()))
+                .timeout(configuracion.timeout)
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", "application/json");
+        if (peticion.cuerpo() == null) {
+            return builder.method(peticion.metodo(), HttpRequest.BodyPublishers.noBody()).build();
+        }
+        return builder.header("Content-Type", "application/json")
+                .method(peticion.metodo(), HttpRequest.BodyPublishers.ofString(peticion.cuerpo()))
+                .build();
+    }
+
+    // Registra el usuario de la prueba y se queda con su token
+    private String autenticar() throws Exception {
+        String credenciales = "{\"username\": \"" + USUARIO + "\", \"password\": \"" + CLAVE + "\"}";
+        HttpResponse<String> respuesta = enviar("/api/auth/register", credenciales);
+        if (respuesta.statusCode() != 200) {
+            // Ya existía (carga.h2=false contra una BD con datos)
+            respuesta = enviar("/api/auth/login", credenciales);
+        }
+        if (respuesta.statusCode() != 200) {
+            throw new IllegalStateException("No se pudo autenticar el usuario de carga: "
+                    + respuesta.statusCode() + " " + respuesta.body());
+        }
+        return json.readTree(respuesta.body()).path("token").asText();
+    }
+
+    private HttpResponse<String> enviar(String ruta, String cuerpo) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create(base + ruta))
+                        .timeout(configuracion.timeout)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,456 @@
+package com.example.inventarioapiad.catalogo;
+
+import com.example.inventarioapiad.entity.Producto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+// Catálogo de productos en un fichero mapeado en memoria con formato fijo,
+// para servir GET por id y por SKU sin ir a la BD y casi sin heap (los
+// datos viven en la caché de páginas del sistema, no en objetos Java).
+//
+//   cabecera (64 bytes)
+//   índice por id   huecos x 16 bytes: id (long, 0 = libre) | registro (int, -1 = ir a la BD)
+//   índice por SKU  huecos x 16 bytes: hash (long, 0 = libre) | registro (int)
+//   registros       capacidad x tamanoRegistro bytes
+//
+// Registro (los textos en UTF-8 a continuación de los campos fijos):
+//   0 seq | 4 precioVenta | 8 id | 16 precioCosto | 20 stockTotal |
+//   24 fechaCreacion (µs) | 32 activo | 33 claseAbc | 34 nombre | 36 sku |
+//   38 descripcion (longitudes, -1 = null) | 40 textos
+//
+// Los índices son de direccionamiento abierto y solo crecen: un producto
+// que ya no cabe en su registro (descripción larga) queda con registro -1
+// (y el registro con id 0) y se lee de la BD; al cambiar el SKU la entrada vieja se queda apuntando
+// a un registro cuyo SKU ya no coincide y se salta. Cuando se llena algo,
+// escribir() devuelve false y hay que reconstruir el fichero.
+//
+// Escribe un solo hilo a la vez (métodos synchronized) y se lee sin
+// bloqueos: cada registro lleva un seqlock (impar mientras se escribe; el
+// lector repite si lo ve impar o si ha cambiado al terminar) y las
+// entradas del índice se publican con escritura release después de
+// escribir el registro al que apuntan.
+public final class CatalogoMapeado implements Closeable {
+
+    private static final int MAGIA = 0x43415431;  // "CAT1"
+    private static final int VERSION = 1;
+    private static final int CABECERA = 64;
+    private static final int ENTRADA = 16;
+    private static final int CAMPOS = 40;
+    private static final short NULO = -1;
+
+    // Cabecera
+    private static final int H_MAGIA = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_TAMANO_REGISTRO = 8;
+    private static final int H_CAPACIDAD = 12;
+    private static final int H_HUECOS = 16;
+    private static final int H_REGISTROS = 20;
+    private static final int H_ENTRADAS_ID = 24;
+    private static final int H_ENTRADAS_SKU = 28;
+    private static final int H_MARCA = 32;
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel canal;
+    private final MappedByteBuffer buffer;
+    private final int tamanoRegistro;
+    private final int capacidad;
+    private final int huecos;
+    private final long inicioIndiceSku;
+    private final long inicioRegistros;
+    private int registros;
+    private int entradasId;
+    private int entradasSku;
+
+    private CatalogoMapeado(FileChannel canal, MappedByteBuffer buffer) {
+        this.canal = canal;
+        this.buffer = buffer;
+        this.tamanoRegistro = buffer.getInt(H_TAMANO_REGISTRO);
+        this.capacidad = buffer.getInt(H_CAPACIDAD);
+        this.huecos = buffer.getInt(H_HUECOS);
+        this.registros = buffer.getInt(H_REGISTROS);
+        this.entradasId = buffer.getInt(H_ENTRADAS_ID);
+        this.entradasSku = buffer.getInt(H_ENTRADAS_SKU);
+        this.inicioIndiceSku = CABECERA + (long) huecos * ENTRADA;
+        this.inicioRegistros = inicioIndiceSku + (long) huecos * ENTRADA;
+    }
+
+    // Crea un fichero vacío (lo sobrescribe si existe)
+    public static CatalogoMapeado crear(Path fichero, int capacidad, int tamanoRegistro) throws IOException {
+        if (tamanoRegistro < 128 || tamanoRegistro > 32768 || tamanoRegistro % 8 != 0) {
+            throw new IllegalArgumentException("El tamaño de registro debe ser múltiplo de 8 entre 128 y 32768");
+        }
+        int huecos = Integer.highestOneBit(Math.max(16, capacidad * 2) - 1) << 1;
+        long tamano = CABECERA + 2L * huecos * ENTRADA + (long) capacidad * tamanoRegistro;
+        if (tamano > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Catálogo demasiado grande para un solo fichero mapeado: " + tamano + " bytes");
+        }
+        FileChannel canal = FileChannel.open(fichero, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        MappedByteBuffer buffer = mapear(canal, tamano);
+        buffer.putInt(H_MAGIA, MAGIA);
+        buffer.putInt(H_VERSION, VERSION);
+        buffer.putInt(H_TAMANO_REGISTRO, tamanoRegistro);
+        buffer.putInt(H_CAPACIDAD, capacidad);
+        buffer.putInt(H_HUECOS, huecos);
+        return new CatalogoMapeado(canal, buffer);
+    }
+
+    // Abre un fichero existente; null si no es válido (otra versión, otro
+    // tamaño de registro o un registro a medio escribir tras una caída)
+    public static CatalogoMapeado abrir(Path fichero, int tamanoRegistro) throws IOException {
+        FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (canal.size() < CABECERA || canal.size() > Integer.MAX_VALUE) {
+            canal.close();
+            return null;
+        }
+        MappedByteBuffer buffer = mapear(canal, canal.size());
+        if (buffer.getInt(H_MAGIA) != MAGIA || buffer.getInt(H_VERSION) != VERSION
+                || buffer.getInt(H_TAMANO_REGISTRO) != tamanoRegistro) {
+            canal.close();
+            return null;
+        }
+        CatalogoMapeado catalogo = new CatalogoMapeado(canal, buffer);
+        if (catalogo.inicioRegistros + (long) catalogo.capacidad * tamanoRegistro != canal.size()) {
+            canal.close();
+            return null;
+        }
+        for (int r = 0; r < catalogo.registros; r++) {
+            if ((buffer.getInt((int) catalogo.posicion(r)) & 1) != 0) {
+                canal.close();
+                return null;
+            }
+        }
+        return catalogo;
+    }
+
+    private static MappedByteBuffer mapear(FileChannel canal, long tamano) throws IOException {
+        MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamano);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    // ------------------------------------------------------------------
+    // Lectura
+
+    public Producto buscarPorId(long id) {
+        int mascara = huecos - 1;
+        for (int h = mezclar(id) & mascara; ; h = (h + 1) & mascara) {
+            int entrada = CABECERA + h * ENTRADA;
+            long clave = (long) LONG.getAcquire(buffer, entrada);
+            if (clave == 0) {
+                return null;
+            }
+            if (clave == id) {
+                int registro = (int) INT.getAcquire(buffer, entrada + 8);
+                return registro < 0 ? null : leer(registro, id, null);
+            }
+        }
+    }
+
+    public Producto buscarPorSku(String sku) {
+        byte[] utf8 = sku.getBytes(StandardCharsets.UTF_8);
+        long hash = hashSku(utf8);
+        int mascara = huecos - 1;
+        for (int h = mezclar(hash) & mascara; ; h = (h + 1) & mascara) {
+            int entrada = (int) inicioIndiceSku + h * ENTRADA;
+            long clave = (long) LONG.getAcquire(buffer, entrada);
+            if (clave == 0) {
+                return null;
+            }
+            if (clave == hash) {
+                int registro = (int) INT.getAcquire(buffer, entrada + 8);
+                Producto producto = registro < 0 ? null : leer(registro, 0, utf8);
+                if (producto != null) {
+                    return producto;
+                }
+            }
+        }
+    }
+
+    // Lee el registro con el seqlock; null si no es el producto esperado
+    // (id distinto o SKU distinto)
+    private Producto leer(int registro, long idEsperado, byte[] skuEsperado) {
+        int base = (int) posicion(registro);
+        while (true) {
+            int seq = (int) INT.getAcquire(buffer, base);
+            if ((seq & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long id = buffer.getLong(base + 8);
+            int longNombre = buffer.getShort(base + 34);
+            int longSku = buffer.getShort(base + 36);
+            int longDescripcion = buffer.getShort(base + 38);
+            int textos = Math.max(0, longNombre) + Math.max(0, longSku) + Math.max(0, longDescripcion);
+            if (textos > tamanoRegistro - CAMPOS) {
+                // Lectura a medias de un registro que se está reescribiendo
+                VarHandle.acquireFence();
+                if ((int) INT.getVolatile(buffer, base) == seq) {
+                    throw new IllegalStateException("Registro " + registro + " del catálogo corrupto");
+                }
+                continue;
+            }
+            byte[] texto = new byte[textos];
+            buffer.get(base + CAMPOS, texto);
+            float precioVenta = buffer.getFloat(base + 4);
+            float precioCosto = buffer.getFloat(base + 16);
+            int stockTotal = buffer.getInt(base + 20);
+            long fechaCreacion = buffer.getLong(base + 24);
+            byte activo = buffer.get(base + 32);
+            byte claseAbc = buffer.get(base + 33);
+            VarHandle.acquireFence();
+            if ((int) INT.getVolatile(buffer, base) != seq) {
+                continue;
+            }
+
+            if (id == 0 || (idEsperado != 0 && id != idEsperado)) {
+                return null;
+            }
+            int desplazamiento = Math.max(0, longNombre);
+            if (skuEsperado != null && (longSku != skuEsperado.length
+                    || !Arrays.equals(texto, desplazamiento, desplazamiento + longSku, skuEsperado, 0, skuEsperado.length))) {
+                return null;
+            }
+            Producto producto = new Producto();
+            producto.setId(id);
+            producto.setNombre(longNombre < 0 ? null : new String(texto, 0, longNombre, StandardCharsets.UTF_8));
+            producto.setSku(longSku < 0 ? null : new String(texto, desplazamiento, longSku, StandardCharsets.UTF_8));
+            desplazamiento += Math.max(0, longSku);
+            producto.setDescripcion(longDescripcion < 0 ? null
+                    : new String(texto, desplazamiento, longDescripcion, StandardCharsets.UTF_8));
+            producto.setPrecioVenta(Float.isNaN(precioVenta) ? null : precioVenta);
+            producto.setPrecioCosto(Float.isNaN(precioCosto) ? null : precioCosto);
+            producto.setStockTotal(stockTotal == Integer.MIN_VALUE ? null : stockTotal);
+            producto.setFechaCreacion(fechaCreacion == Long.MIN_VALUE ? null : desdeMicros(fechaCreacion));
+            producto.setActivo(activo == 2 ? null : activo == 1);
+            producto.setClaseAbc(claseAbc == 0 ? null : String.valueOf((char) claseAbc));
+            return producto;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Escritura
+
+    // Guarda (o sustituye) el producto. Devuelve false si no hay sitio en
+    // los registros o los índices: el producto queda pendiente de la BD y
+    // hay que reconstruir.
+    public synchronized boolean escribir(Producto producto) {
+        long id = producto.getId();
+        byte[] nombre = utf8(producto.getNombre());
+        byte[] sku = utf8(producto.getSku());
+        byte[] descripcion = utf8(producto.getDescripcion());
+        int textos = longitud(nombre) + longitud(sku) + longitud(descripcion);
+
+        int entrada = buscarEntradaId(id);
+        int registro = entrada < 0 ? -1 : buffer.getInt(entrada + 8);
+        if (textos > tamanoRegistro - CAMPOS) {
+            // No cabe: se deja en la BD
+            if (registro >= 0) {
+                INT.setRelease(buffer, entrada + 8, -1);
+                // Id 0 = registro abandonado (para el índice por SKU)
+                int base = (int) posicion(registro);
+                int seq = buffer.getInt(base);
+                INT.setVolatile(buffer, base, seq + 1);
+                VarHandle.storeStoreFence();
+                buffer.putLong(base + 8, 0L);
+                INT.setRelease(buffer, base, seq + 2);
+            }
+            return true;
+        }
+        if (entrada < 0 && entradasId >= huecos * 3 / 4) {
+            return false;
+        }
+        if (registro < 0) {
+            if (registros == capacidad) {
+                return false;
+            }
+            registro = registros++;
+            buffer.putInt(H_REGISTROS, registros);
+        }
+
+        int base = (int) posicion(registro);
+        int seq = buffer.getInt(base);
+        INT.setVolatile(buffer, base, seq + 1);
+        VarHandle.storeStoreFence();
+        buffer.putLong(base + 8, id);
+        buffer.putFloat(base + 4, producto.getPrecioVenta() == null ? Float.NaN : producto.getPrecioVenta());
+        buffer.putFloat(base + 16, producto.getPrecioCosto() == null ? Float.NaN : producto.getPrecioCosto());
+        buffer.putInt(base + 20, producto.getStockTotal() == null ? Integer.MIN_VALUE : producto.getStockTotal());
+        buffer.putLong(base + 24, producto.getFechaCreacion() == null ? Long.MIN_VALUE : micros(producto.getFechaCreacion()));
+        buffer.put(base + 32, (byte) (producto.getActivo() == null ? 2 : producto.getActivo() ? 1 : 0));
+        String clase = producto.getClaseAbc();
+        buffer.put(base + 33, (byte) (clase == null || clase.isEmpty() ? 0 : clase.charAt(0)));
+        buffer.putShort(base + 34, nombre == null ? NULO : (short) nombre.length);
+        buffer.putShort(base + 36, sku == null ? NULO : (short) sku.length);
+        buffer.putShort(base + 38, descripcion == null ? NULO : (short) descripcion.length);
+        int desplazamiento = base + CAMPOS;
+        for (byte[] texto : new byte[][]{nombre, sku, descripcion}) {
+            if (texto != null) {
+                buffer.put(desplazamiento, texto);
+                desplazamiento += texto.length;
+            }
+        }
+        INT.setRelease(buffer, base, seq + 2);
+
+        // Publicar en los índices después de escribir el registro
+        if (entrada < 0) {
+            entrada = insertarEntrada(CABECERA, id, registro);
+            buffer.putInt(H_ENTRADAS_ID, ++entradasId);
+        } else {
+            INT.setRelease(buffer, entrada + 8, registro);
+        }
+        if (sku != null && !indexadoSku(sku, registro)) {
+            if (entradasSku >= huecos * 3 / 4) {
+                return false;
+            }
+            insertarEntrada(inicioIndiceSku, hashSku(sku), registro);
+            buffer.putInt(H_ENTRADAS_SKU, ++entradasSku);
+        }
+        return true;
+    }
+
+    // Solo stock y activo (lo que llega con StockCambiadoEvent). Devuelve
+    // false si el producto no está en el fichero.
+    public synchronized boolean actualizarStock(long id, int stockTotal, boolean activo) {
+        int entrada = buscarEntradaId(id);
+        int registro = entrada < 0 ? -1 : buffer.getInt(entrada + 8);
+        if (registro < 0) {
+            return false;
+        }
+        int base = (int) posicion(registro);
+        int seq = buffer.getInt(base);
+        INT.setVolatile(buffer, base, seq + 1);
+        VarHandle.storeStoreFence();
+        buffer.putInt(base + 20, stockTotal);
+        buffer.put(base + 32, (byte) (activo ? 1 : 0));
+        INT.setRelease(buffer, base, seq + 2);
+        return true;
+    }
+
+    // fecha_modificacion hasta la que está sincronizado el fichero
+    public synchronized void guardarMarca(LocalDateTime marca) {
+        buffer.putLong(H_MARCA, micros(marca));
+    }
+
+    public LocalDateTime marca() {
+        long micros = buffer.getLong(H_MARCA);
+        return micros == 0 ? null : desdeMicros(micros);
+    }
+
+    public synchronized void forzar() {
+        buffer.force();
+    }
+
+    public int registros() {
+        return registros;
+    }
+
+    public int capacidad() {
+        return capacidad;
+    }
+
+    public long bytes() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // El mapeo sigue válido hasta que el GC recoja el buffer, así que
+        // los lectores que aún tengan esta instancia no fallan
+        forzar();
+        canal.close();
+    }
+
+    // ------------------------------------------------------------------
+
+    private int buscarEntradaId(long id) {
+        int mascara = huecos - 1;
+        for (int h = mezclar(id) & mascara; ; h = (h + 1) & mascara) {
+            int entrada = CABECERA + h * ENTRADA;
+            long clave = buffer.getLong(entrada);
+            if (clave == 0) {
+                return -1;
+            }
+            if (clave == id) {
+                return entrada;
+            }
+        }
+    }
+
+    private boolean indexadoSku(byte[] sku, int registro) {
+        long hash = hashSku(sku);
+        int mascara = huecos - 1;
+        for (int h = mezclar(hash) & mascara; ; h = (h + 1) & mascara) {
+            int entrada = (int) inicioIndiceSku + h * ENTRADA;
+            long clave = buffer.getLong(entrada);
+            if (clave == 0) {
+                return false;
+            }
+            if (clave == hash && buffer.getInt(entrada + 8) == registro) {
+                return true;
+            }
+        }
+    }
+
+    private int insertarEntrada(long inicio, long clave, int registro) {
+        int mascara = huecos - 1;
+        for (int h = mezclar(clave) & mascara; ; h = (h + 1) & mascara) {
+            int entrada = (int) inicio + h * ENTRADA;
+            if (buffer.getLong(entrada) == 0) {
+                buffer.putInt(entrada + 8, registro);
+                LONG.setRelease(buffer, entrada, clave);
+                return entrada;
+            }
+        }
+    }
+
+    private long posicion(int registro) {
+        return inicioRegistros + (long) registro * tamanoRegistro;
+    }
+
+    private static byte[] utf8(String texto) {
+        return texto == null ? null : texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int longitud(byte[] texto) {
+        return texto == null ? 0 : texto.length;
+    }
+
+    // FNV-1a de 64 bits; 0 está reservado para hueco libre
+    private static long hashSku(byte[] sku) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : sku) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static int mezclar(long clave) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long micros(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + fecha.getNano() / 1000;
+    }
+
+    private static LocalDateTime desdeMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.inventarioapiad.coalescencia;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// Single-flight para lecturas: si llegan a la vez varias peticiones con la
+// misma clave, solo la primera (la "líder") hace la carga y las demás
+// esperan y se llevan su resultado. Se comparte la llamada en vuelo, no es
+// una caché: al terminar sale del mapa y la siguiente petición vuelve a leer.
+//
+// Las entidades son mutables y hay quien modifica lo que recibe (p. ej. el
+// PUT de la V2 de almacenes), así que nadie comparte instancia:
+//   - si nadie se ha unido, la líder se queda el objeto cargado;
+//   - si alguien se ha unido, el cargado queda solo para copiar: cada una
+//     (líder incluida) recibe su copia.
+// Para decidirlo sin bloqueos cada vuelo lleva un contador de seguidoras
+// que la líder "cierra" (CERRADO) al terminar; una que llega a unirse justo
+// después del cierre no se queda esperando: hace su propia carga.
+public class Coalescedor<K, V> {
+
+    private static final int CERRADO = -1;
+
+    private static final class Vuelo<V> {
+        final CompletableFuture<V> resultado = new CompletableFuture<>();
+        final AtomicInteger seguidoras = new AtomicInteger();
+    }
+
+    private final ConcurrentHashMap<K, Vuelo<V>> enVuelo = new ConcurrentHashMap<>();
+    private final UnaryOperator<V> copia;
+
+    private final LongAdder peticiones = new LongAdder();
+    private final LongAdder cargas = new LongAdder();
+    private final LongAdder coalescidas = new LongAdder();
+
+    public Coalescedor(UnaryOperator<V> copia) {
+        this.copia = copia;
+    }
+
+    public V ejecutar(K clave, Supplier<V> carga) {
+        peticiones.increment();
+        Vuelo<V> nuevo = new Vuelo<>();
+        Vuelo<V> existente = enVuelo.putIfAbsent(clave, nuevo);
+        if (existente != null && unirse(existente)) {
+            coalescidas.increment();
+            return copia.apply(esperar(existente));
+        }
+        if (existente != null) {
+            // La líder ya había cerrado: carga propia, sin registrarla
+            cargas.increment();
+            return carga.get();
+        }
+
+        cargas.increment();
+        V valor;
+        try {
+            valor = carga.get();
+        } catch (RuntimeException | Error e) {
+            enVuelo.remove(clave, nuevo);
+            nuevo.seguidoras.set(CERRADO);
+            nuevo.resultado.completeExceptionally(e);
+            throw e;
+        }
+        enVuelo.remove(clave, nuevo);
+        int seguidoras = nuevo.seguidoras.getAndSet(CERRADO);
+        nuevo.resultado.complete(valor);
+        return seguidoras == 0 ? valor : copia.apply(valor);
+    }
+
+    public Map<String, Object> estadisticas() {
+        long total = peticiones.sum();
+        long unidas = coalescidas.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("peticiones", total);
+        stats.put("cargas", cargas.sum());
+        stats.put("coalescidas", unidas);
+        stats.put("ratioCoalescencia", total == 0 ? 0.0 : Math.round(1000.0 * unidas / total) / 1000.0);
+        stats.put("enVuelo", enVuelo.size());
+        return stats;
+    }
+
+    private static boolean unirse(Vuelo<?> vuelo) {
+        while (true) {
+            int actuales = vuelo.seguidoras.get();
+            if (actuales == CERRADO) {
+                return false;
+            }
+            if (vuelo.seguidoras.compareAndSet(actuales, actuales + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Las seguidoras ven la misma excepción que la líder (p. ej. el
+    // RuntimeException de "no encontrado", que el controller pasa a 404)
+    private static <V> V esperar(Vuelo<V> vuelo) {
+        try {
+            return vuelo.resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.inventarioapiad.compresion;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+// Hace que server.compression.min-response-size sirva para algo: Tomcat solo
+// lo mira si la respuesta trae Content-Length, y Jackson escribe sin él, así
+// que comprimía hasta un GET por id de 800 bytes. Este filtro retiene los
+// primeros bytes del cuerpo hasta el umbral:
+//   - si la respuesta termina antes, pone Content-Length y la escribe
+//     (Tomcat ve que es pequeña y no la comprime);
+//   - si lo pasa, suelta lo retenido y sigue en streaming como siempre.
+// Las peticiones asíncronas (SSE) pasan directas en cuanto hacen
+// flushBuffer() o sale el hilo del filtro, para no retener eventos. En las
+// síncronas flushBuffer() no suelta nada: Spring lo llama al final de cada
+// ResponseEntity y eso confirmaría la respuesta sin Content-Length.
+// Se registra en CompresionConfig.
+public class UmbralCompresionFilter extends OncePerRequestFilter {
+
+    private final int umbral;
+
+    public UmbralCompresionFilter(int umbral) {
+        this.umbral = umbral;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        RespuestaRetenida retenida = new RespuestaRetenida(request, response, umbral);
+        try {
+            filterChain.doFilter(request, retenida);
+        } finally {
+            if (request.isAsyncStarted()) {
+                retenida.soltar();
+            } else {
+                retenida.terminar();
+            }
+        }
+    }
+
+    private static final class RespuestaRetenida extends HttpServletResponseWrapper {
+
+        private final HttpServletRequest request;
+        private final int umbral;
+        private final ByteArrayOutputStream retenido;
+        private ServletOutputStream salida;
+        private PrintWriter escritor;
+        // false: los bytes van directos a la respuesta
+        private boolean reteniendo = true;
+
+        RespuestaRetenida(HttpServletRequest request, HttpServletResponse response, int umbral) {
+            super(response);
+            this.request = request;
+            this.umbral = umbral;
+            this.retenido = new ByteArrayOutputStream(Math.min(umbral, 1024));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (escritor != null) {
+                throw new IllegalStateException("getWriter() ya se ha llamado en esta respuesta");
+            }
+            if (salida == null) {
+                salida = new Salida(super.getOutputStream());
+            }
+            return salida;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (escritor == null) {
+                if (salida != null) {
+                    throw new IllegalStateException("getOutputStream() ya se ha llamado en esta respuesta");
+                }
+                salida = new Salida(super.getOutputStream());
+                escritor = new PrintWriter(new OutputStreamWriter(salida, getCharacterEncoding()));
+            }
+            return escritor;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (escritor != null) {
+                escritor.flush();
+            }
+            if (request.isAsyncStarted()) {
+                soltar();
+                super.flushBuffer();
+            }
+        }
+
+        // Fin de la petición: si todo cupo en el umbral, con Content-Length
+        void terminar() throws IOException {
+            if (escritor != null) {
+                escritor.flush();
+            }
+            if (reteniendo && retenido.size() > 0) {
+                reteniendo = false;
+                if (!isCommitted()) {
+                    setContentLength(retenido.size());
+                }
+                retenido.writeTo(getResponse().getOutputStream());
+            }
+            reteniendo = false;
+        }
+
+        // A partir de aquí todo va directo
+        void soltar() throws IOException {
+            if (reteniendo) {
+                reteniendo = false;
+                if (retenido.size() > 0) {
+                    retenido.writeTo(getResponse().getOutputStream());
+                }
+            }
+        }
+
+        private final class Salida extends ServletOutputStream {
+
+            private final ServletOutputStream destino;
+
+            Salida(ServletOutputStream destino) {
+                this.destino = destino;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                if (reteniendo && retenido.size() + 1 <= umbral) {
+                    retenido.write(b);
+                    return;
+                }
+                soltar();
+                destino.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (reteniendo && retenido.size() + len <= umbral) {
+                    retenido.write(b, off, len);
+                    return;
+                }
+                soltar();
+                destino.write(b, off, len);
+            }
+
+            // Los conversores de Spring hacen flush al acabar de escribir: mientras
+            // se retiene no se manda nada
+            @Override
+            public void flush() throws IOException {
+                if (!reteniendo) {
+                    destino.flush();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                terminar();
+                destino.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return destino.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                destino.setWriteListener(listener);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.inventarioapiad.config;
+
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Caché de segundo nivel de Hibernate (JCache, con Ehcache 3 en el heap)
+// para las entidades de referencia: Almacen, Proveedor y Cliente se leen
+// mucho más de lo que se escriben y cada Venta/Compra las vuelve a cargar
+// por sus @ManyToOne. También la caché de consultas para los findAll() de
+// esos tres repositorios, que es lo que usan sus listados y filtros.
+//
+// Cada región se configura aparte:
+//   cache.segundo-nivel.<region>.entradas      máximo de entradas en el heap
+//   cache.segundo-nivel.<region>.ttl-segundos  tiempo de vida de cada entrada
+// La región de marcas de tiempo (la que invalida las consultas cacheadas)
+// no caduca nunca: si perdiese una marca serviría consultas viejas.
+//
+// Es una caché local de cada instancia. Lo que se escribe por Hibernate la
+// mantiene al día (READ_WRITE); lo que toca esas tablas por JDBC tiene que
+// desalojar la entidad (ver ReconciliacionStockService).
+@Configuration
+public class CacheSegundoNivelConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheSegundoNivelConfig.class);
+
+    public static final String ALMACENES = "almacenes";
+    public static final String PROVEEDORES = "proveedores";
+    public static final String CLIENTES = "clientes";
+    public static final String CONSULTAS = RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME;
+    public static final String MARCAS_TIEMPO = RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME;
+
+    public static final List<String> REGIONES = List.of(ALMACENES, PROVEEDORES, CLIENTES, CONSULTAS);
+
+    @Value("${cache.segundo-nivel.enabled:true}")
+    private boolean habilitada = true;
+
+    // Un CacheManager propio por contexto (URI única): el del proveedor por
+    // defecto es compartido por toda la JVM y dos contextos (tests) chocarían
+    // al crear las mismas cachés
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheManagerSegundoNivel(Environment entorno) {
+        Map<String, CacheConfiguration<?, ?>> caches = new LinkedHashMap<>();
+        for (String region : REGIONES) {
+            long entradas = entorno.getProperty("cache.segundo-nivel." + region + ".entradas", Long.class, 1000L);
+            long ttl = entorno.getProperty("cache.segundo-nivel." + region + ".ttl-segundos", Long.class, 600L);
+            caches.put(region, CacheConfigurationBuilder
+                    .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(entradas))
+                    .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ttl)))
+                    .build());
+            log.info("Región de caché {}: {} entradas, TTL {} s", region, entradas, ttl);
+        }
+        long marcas = entorno.getProperty("cache.segundo-nivel." + MARCAS_TIEMPO + ".entradas", Long.class, 1000L);
+        caches.put(MARCAS_TIEMPO, CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(marcas))
+                .withExpiry(ExpiryPolicyBuilder.noExpiration())
+                .build());
+
+        EhcacheCachingProvider proveedor = (EhcacheCachingProvider) Caching.getCachingProvider(
+                EhcacheCachingProvider.class.getName());
+        DefaultConfiguration configuracion = new DefaultConfiguration(caches, getClass().getClassLoader());
+        return proveedor.getCacheManager(URI.create("urn:inventario:segundo-nivel:" + UUID.randomUUID()),
+                configuracion);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivel(CacheManager cacheManagerSegundoNivel) {
+        return propiedades -> {
+            propiedades.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, habilitada);
+            propiedades.put(AvailableSettings.USE_QUERY_CACHE, habilitada);
+            propiedades.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            propiedades.put("hibernate.javax.cache.cache_manager", cacheManagerSegundoNivel);
+            // Todas las regiones están creadas arriba: si falta una es un error
+            propiedades.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+            // Aciertos y fallos por región para GET /api/cache
+            propiedades.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+}
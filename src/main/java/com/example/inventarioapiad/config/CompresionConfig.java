@@ -0,0 +1,28 @@
+package com.example.inventarioapiad.config;
+
+import com.example.inventarioapiad.compresion.UmbralCompresionFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.util.unit.DataSize;
+
+// Compresión gzip de Tomcat (server.compression.*, en application.properties)
+// con el umbral de tamaño aplicado de verdad (ver UmbralCompresionFilter).
+// Solo con server.compression.enabled=true.
+@Configuration
+@ConditionalOnProperty(name = "server.compression.enabled", havingValue = "true")
+public class CompresionConfig {
+
+    @Bean
+    public FilterRegistrationBean<UmbralCompresionFilter> umbralCompresionFilter(
+            @Value("${server.compression.min-response-size:2KB}") DataSize umbral) {
+        FilterRegistrationBean<UmbralCompresionFilter> registro =
+                new FilterRegistrationBean<>(new UmbralCompresionFilter((int) umbral.toBytes()));
+        // Justo después de la instrumentación: antes que nadie escriba el cuerpo
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registro;
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.inventarioapiad.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// DataSource que manda las transacciones de solo lectura
+// (@Transactional(readOnly = true), y las lecturas de los repositorios de
+// Spring Data fuera de otra transacción) a una réplica y todo lo demás a
+// la primaria. Va envuelto en un LazyConnectionDataSourceProxy para que la
+// conexión se pida con la transacción ya marcada como de solo lectura.
+//
+// Una réplica deja de usarse:
+//   - si falla al dar conexión (se marca caída y esa lectura va a la primaria),
+//   - si la comprobación periódica no conecta, la réplica no está
+//     replicando o va más de "retardoMaximoMs" por detrás.
+// Sin réplicas sanas todo va a la primaria.
+//
+// Leer lo propio recién escrito: al confirmar una transacción que no es de
+// solo lectura se apunta la hora por cliente y sus lecturas siguen yendo a
+// la primaria durante el mayor retardo medido de las réplicas más
+// "lecturaPropiaMs". El cliente es el usuario del JWT; una petición HTTP
+// sin usuario se lleva la hora en la cookie "lectura-propia" (cada cliente
+// anónimo la suya), y fuera de una petición (tareas programadas) cuenta el
+// hilo. Quien falsee la cookie solo consigue leer de la primaria.
+//
+// Lo crea ReplicasConfig como bean: afterPropertiesSet() lo llama Spring.
+public class EnrutamientoDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(EnrutamientoDataSource.class);
+
+    public static final String PRIMARIA = "primaria";
+    public static final String COOKIE_LECTURA_PROPIA = "lectura-propia";
+
+    private final DataSource primaria;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger turno = new AtomicInteger();
+    private final Object claveSincronizacion = new Object();
+    private final Map<String, Long> ultimaEscritura = new ConcurrentHashMap<>();
+    private final AtomicLong lecturasReplica = new AtomicLong();
+    private final AtomicLong lecturasPrimaria = new AtomicLong();
+    private final AtomicLong lecturasPropias = new AtomicLong();
+    private final AtomicLong conmutaciones = new AtomicLong();
+    private volatile long retardoMaximoMs = 5000;
+    private volatile long lecturaPropiaMs = 2000;
+
+    // Una réplica con su estado de salud
+    public static final class Replica {
+        private final String nombre;
+        private final DataSource dataSource;
+        // Hasta la primera comprobación no recibe lecturas
+        private volatile boolean sana = false;
+        private volatile long retardoMs = 0;
+        private volatile String motivo = "";
+        private volatile boolean comprobada = false;
+
+        Replica(String nombre, DataSource dataSource) {
+            this.nombre = nombre;
+            this.dataSource = dataSource;
+        }
+
+        public String getNombre() { return nombre; }
+        public boolean isSana() { return sana; }
+        public long getRetardoMs() { return retardoMs; }
+        public String getMotivo() { return motivo; }
+    }
+
+    public EnrutamientoDataSource(DataSource primaria, Map<String, DataSource> replicas) {
+        this.primaria = primaria;
+        replicas.forEach((nombre, dataSource) -> this.replicas.add(new Replica(nombre, dataSource)));
+    }
+
+    // Los destinos se dan aquí y no en el constructor: son métodos que una
+    // subclase puede sobrescribir
+    @Override
+    public void afterPropertiesSet() {
+        Map<Object, Object> destinos = new HashMap<>();
+        destinos.put(PRIMARIA, primaria);
+        for (Replica replica : replicas) {
+            destinos.put(replica.nombre, replica.dataSource);
+        }
+        setTargetDataSources(destinos);
+        setDefaultTargetDataSource(primaria);
+        super.afterPropertiesSet();
+    }
+
+    public void setRetardoMaximoMs(long retardoMaximoMs) {
+        this.retardoMaximoMs = retardoMaximoMs;
+    }
+
+    public void setLecturaPropiaMs(long lecturaPropiaMs) {
+        this.lecturaPropiaMs = lecturaPropiaMs;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            apuntarEscrituraAlConfirmar();
+            return PRIMARIA;
+        }
+        Long escrita = ultimaEscrituraDelCliente();
+        if (escrita != null && System.currentTimeMillis() - escrita < ventanaLecturaPropia()) {
+            lecturasPropias.incrementAndGet();
+            lecturasPrimaria.incrementAndGet();
+            return PRIMARIA;
+        }
+        int n = replicas.size();
+        int inicio = Math.floorMod(turno.getAndIncrement(), Math.max(1, n));
+        for (int i = 0; i < n; i++) {
+            Replica replica = replicas.get((inicio + i) % n);
+            if (replica.sana) {
+                lecturasReplica.incrementAndGet();
+                return replica.nombre;
+            }
+        }
+        lecturasPrimaria.incrementAndGet();
+        return PRIMARIA;
+    }
+
+    // Si la réplica elegida no da conexión se marca caída y se usa la primaria
+    @Override
+    public Connection getConnection() throws SQLException {
+        String clave = (String) determineCurrentLookupKey();
+        if (PRIMARIA.equals(clave)) {
+            return primaria.getConnection();
+        }
+        try {
+            return getResolvedDataSources().get(clave).getConnection();
+        } catch (SQLException e) {
+            marcarCaida(clave, "sin conexión: " + e.getMessage());
+            lecturasReplica.decrementAndGet();
+            lecturasPrimaria.incrementAndGet();
+            return primaria.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Usuario y contraseña son los de cada pool
+        return getConnection();
+    }
+
+    // Comprobación periódica (la programa ReplicasConfig)
+    public void comprobar() {
+        for (Replica replica : replicas) {
+            try (Connection conexion = replica.dataSource.getConnection()) {
+                long retardo = medirRetardo(conexion);
+                replica.retardoMs = retardo;
+                if (retardo < 0) {
+                    cambiarEstado(replica, false, "no está replicando");
+                } else if (retardo > retardoMaximoMs) {
+                    cambiarEstado(replica, false, "retardo " + retardo + " ms");
+                } else {
+                    cambiarEstado(replica, true, "");
+                }
+            } catch (SQLException | RuntimeException e) {
+                cambiarEstado(replica, false, "error: " + e.getMessage());
+            }
+        }
+        long ahora = System.currentTimeMillis();
+        long ventana = ventanaLecturaPropia();
+        ultimaEscritura.values().removeIf(escrita -> ahora - escrita >= ventana);
+    }
+
+    // Retardo de la réplica en ms, o -1 si no está replicando. MariaDB da
+    // Seconds_Behind_Master (null con la replicación parada) en SHOW SLAVE STATUS.
+    protected long medirRetardo(Connection conexion) throws SQLException {
+        try (Statement sentencia = conexion.createStatement();
+             ResultSet rs = sentencia.executeQuery("SHOW SLAVE STATUS")) {
+            if (!rs.next() || !"Yes".equalsIgnoreCase(rs.getString("Slave_SQL_Running"))) {
+                return -1;
+            }
+            long segundos = rs.getLong("Seconds_Behind_Master");
+            return rs.wasNull() ? -1 : segundos * 1000;
+        }
+    }
+
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        List<Map<String, Object>> lista = new ArrayList<>();
+        for (Replica replica : replicas) {
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("nombre", replica.nombre);
+            r.put("sana", replica.sana);
+            r.put("retardoMs", replica.retardoMs);
+            r.put("motivo", replica.motivo);
+            lista.add(r);
+        }
+        estado.put("replicas", lista);
+        estado.put("lecturasReplica", lecturasReplica.get());
+        estado.put("lecturasPrimaria", lecturasPrimaria.get());
+        estado.put("lecturasPropias", lecturasPropias.get());
+        estado.put("conmutaciones", conmutaciones.get());
+        estado.put("ventanaLecturaPropiaMs", ventanaLecturaPropia());
+        return estado;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    // Cierra los pools al parar el contexto (método de destrucción inferido)
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable cerrable) {
+                cerrable.close();
+            }
+        }
+        if (primaria instanceof AutoCloseable cerrable) {
+            cerrable.close();
+        }
+    }
+
+    private void apuntarEscrituraAlConfirmar() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(claveSincronizacion)) {
+            return;
+        }
+        // Una sola sincronización por transacción
+        TransactionSynchronizationManager.bindResource(claveSincronizacion, Boolean.TRUE);
+        String cliente = cliente();
+        ServletRequestAttributes peticion = cliente == null ? peticionHttp() : null;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                long ahora = System.currentTimeMillis();
+                if (cliente != null) {
+                    ultimaEscritura.put(cliente, ahora);
+                } else {
+                    apuntarEnPeticion(peticion, ahora);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int estado) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(claveSincronizacion);
+            }
+        });
+    }
+
+    private long ventanaLecturaPropia() {
+        long retardo = 0;
+        for (Replica replica : replicas) {
+            if (replica.sana) {
+                retardo = Math.max(retardo, replica.retardoMs);
+            }
+        }
+        return retardo + lecturaPropiaMs;
+    }
+
+    private void marcarCaida(String nombre, String motivo) {
+        for (Replica replica : replicas) {
+            if (replica.nombre.equals(nombre)) {
+                cambiarEstado(replica, false, motivo);
+            }
+        }
+    }
+
+    private void cambiarEstado(Replica replica, boolean sana, String motivo) {
+        replica.motivo = motivo;
+        boolean primera = !replica.comprobada;
+        replica.comprobada = true;
+        if (replica.sana == sana && !primera) {
+            return;
+        }
+        replica.sana = sana;
+        if (sana) {
+            log.info("Réplica {} recibe lecturas", replica.nombre);
+        } else {
+            log.warn("Réplica {} fuera de servicio: {}", replica.nombre, motivo);
+        }
+        // La primera comprobación no cuenta como conmutación si sale sana
+        if (!primera || !sana) {
+            conmutaciones.incrementAndGet();
+        }
+    }
+
+    private Long ultimaEscrituraDelCliente() {
+        String cliente = cliente();
+        if (cliente != null) {
+            return ultimaEscritura.get(cliente);
+        }
+        HttpServletRequest peticion = peticionHttp().getRequest();
+        // Lo escrito antes en esta misma petición aún no viene en la cookie
+        if (peticion.getAttribute(COOKIE_LECTURA_PROPIA) instanceof Long escrita) {
+            return escrita;
+        }
+        if (peticion.getCookies() != null) {
+            for (Cookie cookie : peticion.getCookies()) {
+                if (COOKIE_LECTURA_PROPIA.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue());
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private void apuntarEnPeticion(ServletRequestAttributes peticion, long escrita) {
+        peticion.getRequest().setAttribute(COOKIE_LECTURA_PROPIA, escrita);
+        HttpServletResponse respuesta = peticion.getResponse();
+        if (respuesta == null || respuesta.isCommitted()) {
+            return;
+        }
+        Cookie cookie = new Cookie(COOKIE_LECTURA_PROPIA, Long.toString(escrita));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, (ventanaLecturaPropia() + 999) / 1000));
+        respuesta.addCookie(cookie);
+    }
+
+    // Clave del cliente en ultimaEscritura, o null si es una petición HTTP
+    // anónima (va en su cookie)
+    private static String cliente() {
+        Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+        if (autenticacion != null && autenticacion.isAuthenticated()
+                && !(autenticacion instanceof AnonymousAuthenticationToken) && autenticacion.getName() != null) {
+            return "usuario:" + autenticacion.getName();
+        }
+        return peticionHttp() != null ? null : "hilo:" + Thread.currentThread().threadId();
+    }
+
+    private static ServletRequestAttributes peticionHttp() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes atributos
+                ? atributos : null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.inventarioapiad.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+// Negociación de contenido con los formatos binarios de Jackson en todos
+// los controladores: con Accept: application/x-jackson-smile o
+// application/cbor la respuesta sale en ese formato, y los cuerpos de
+// POST/PUT/PATCH se leen según su Content-Type. Sin Accept (o con */*)
+// sigue saliendo JSON, que va primero en la lista de conversores.
+//
+// Spring MVC ya registra estos conversores si encuentra las librerías, pero
+// con un ObjectMapper propio; aquí salen del builder de Spring Boot para que
+// usen los mismos módulos y spring.jackson.* que el JSON (fechas ISO, no
+// arrays). Al ser beans sustituyen a los de Spring en su misma posición.
+@Configuration
+public class FormatosBinariosConfig {
+
+    public static final String SMILE = "application/x-jackson-smile";
+    public static final String CBOR = MediaType.APPLICATION_CBOR_VALUE;
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.inventarioapiad.config;
+
+import com.example.inventarioapiad.dto.ParametrosGeneracion;
+import com.example.inventarioapiad.service.GeneradorDatosService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+// Configuración SOLO activa con el perfil "generador": al arrancar llena la
+// BD con datos sintéticos (ver GeneradorDatosService). Se combina con el
+// perfil de la BD y cualquier parámetro se cambia por línea de comandos:
+//
+//   ./gradlew bootRun --args='--spring.profiles.active=dev,generador --generador.ventas=2000000'
+//
+// Con generador.salir=true la aplicación se cierra al terminar; si no, sigue
+// arrancando con los datos ya cargados.
+@Configuration
+@Profile("generador")
+public class GeneradorDatosConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneradorDatosConfig.class);
+
+    @Bean
+    public CommandLineRunner generarDatos(GeneradorDatosService generador, Environment entorno,
+                                          ConfigurableApplicationContext contexto) {
+        return args -> {
+            ParametrosGeneracion parametros = Binder.get(entorno)
+                    .bind("generador", ParametrosGeneracion.class)
+                    .orElseGet(ParametrosGeneracion::new);
+            log.info("==============================================================");
+            log.info(" Perfil GENERADOR activo: generando datos sintéticos");
+            log.info("==============================================================");
+            generador.generar(parametros);
+            if (parametros.isSalir()) {
+                log.info(" generador.salir=true: se cierra la aplicación");
+                System.exit(SpringApplication.exit(contexto, () -> 0));
+            }
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.inventarioapiad.config;
+
+import com.example.inventarioapiad.instrumentacion.ContadorEntidades;
+import com.example.inventarioapiad.instrumentacion.DataSourceInstrumentado;
+import com.example.inventarioapiad.instrumentacion.InspectorSentencias;
+import com.example.inventarioapiad.instrumentacion.InstrumentacionFilter;
+import com.example.inventarioapiad.instrumentacion.RegistroSql;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+// Instrumentación del SQL por petición (ver RegistroSql):
+//   - el DataSource "dataSource" (el de JPA y JdbcTemplate, con o sin
+//     réplicas) va envuelto en DataSourceInstrumentado: sentencias, tiempo
+//     en JDBC, espera de conexión y filas;
+//   - Hibernate cuenta sus sentencias (StatementInspector) y las entidades
+//     cargadas (Interceptor);
+//   - InstrumentacionFilter junta todo por petición y avisa de las lentas.
+// Con instrumentacion.enabled=false no se envuelve nada.
+@Configuration
+public class InstrumentacionConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(InstrumentacionConfig.class);
+
+    @Value("${instrumentacion.enabled:true}")
+    private boolean habilitada = true;
+
+    @Bean
+    public RegistroSql registroSql(@Value("${instrumentacion.lenta-ms:500}") long umbralLentaMs,
+                                   @Value("${instrumentacion.max-huellas:1000}") int maxHuellas,
+                                   @Value("${instrumentacion.repeticiones-n-mas-1:10}") int repeticionesNMas1) {
+        return new RegistroSql(habilitada, umbralLentaMs, maxHuellas, repeticionesNMas1);
+    }
+
+    // static: los BeanPostProcessor se crean antes que el resto de beans
+    @Bean
+    public static BeanPostProcessor instrumentarDataSource(ObjectProvider<RegistroSql> registro) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String nombre) {
+                if (!"dataSource".equals(nombre) || !(bean instanceof DataSource dataSource)) {
+                    return bean;
+                }
+                RegistroSql registroSql = registro.getObject();
+                if (!registroSql.isHabilitado()) {
+                    return bean;
+                }
+                log.info("DataSource instrumentado: {}", bean.getClass().getSimpleName());
+                return DataSourceInstrumentado.envolver(dataSource, registroSql);
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer instrumentacionHibernate() {
+        return propiedades -> {
+            if (habilitada) {
+                propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, new InspectorSentencias());
+                propiedades.put(AvailableSettings.INTERCEPTOR, new ContadorEntidades());
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<InstrumentacionFilter> instrumentacionFilter(RegistroSql registroSql) {
+        FilterRegistrationBean<InstrumentacionFilter> registro =
+                new FilterRegistrationBean<>(new InstrumentacionFilter(registroSql));
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        registro.setEnabled(habilitada);
+        return registro;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.inventarioapiad.config;
+
+import com.example.inventarioapiad.jfr.EstadisticasJfr;
+import org.hibernate.cfg.StatisticsSettings;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Eventos JFR propios (paquete jfr). Los de los servicios se emiten solos
+// cuando hay una grabación que los tiene activos; aquí solo se engancha el
+// de la caché de segundo nivel: Hibernate avisa de cada acierto o fallo a
+// sus Statistics, así que se sustituyen por EstadisticasJfr (que sigue
+// contando igual para GET /api/cache).
+@Configuration
+public class JfrConfig {
+
+    @Value("${jfr.eventos-cache-segundo-nivel:true}")
+    private boolean eventosCache = true;
+
+    @Bean
+    public HibernatePropertiesCustomizer estadisticasJfr() {
+        return propiedades -> {
+            if (eventosCache) {
+                propiedades.put(StatisticsSettings.STATS_BUILDER, (StatisticsFactory) EstadisticasJfr::new);
+            }
+        };
+    }
+}
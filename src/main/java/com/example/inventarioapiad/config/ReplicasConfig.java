@@ -0,0 +1,96 @@
+package com.example.inventarioapiad.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Configuración SOLO activa si hay réplicas de lectura en
+// "datasource.replicas.urls" (separadas por comas). Sin ellas Spring Boot
+// crea el DataSource de siempre y todo va a la primaria.
+//
+// La primaria sale de spring.datasource.* y cada réplica tiene su propio
+// pool Hikari con el mismo usuario (o datasource.replicas.username/password)
+// y en solo lectura. Ver EnrutamientoDataSource para el criterio de reparto.
+@Configuration
+@ConditionalOnExpression("!'${datasource.replicas.urls:}'.isBlank()")
+public class ReplicasConfig {
+
+    @Value("${datasource.replicas.urls}")
+    private String urls;
+
+    @Value("${datasource.replicas.username:${spring.datasource.username:}}")
+    private String usuario;
+
+    @Value("${datasource.replicas.password:${spring.datasource.password:}}")
+    private String contrasena;
+
+    @Value("${datasource.replicas.tamano-pool:10}")
+    private int tamanoPool = 10;
+
+    @Value("${datasource.replicas.retardo-maximo-ms:5000}")
+    private long retardoMaximoMs = 5000;
+
+    @Value("${datasource.replicas.lectura-propia-ms:2000}")
+    private long lecturaPropiaMs = 2000;
+
+    private EnrutamientoDataSource enrutamiento;
+
+    @Bean
+    public EnrutamientoDataSource enrutamientoDataSource(DataSourceProperties propiedades) {
+        HikariDataSource primaria = propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primaria.setPoolName("primaria");
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        int i = 1;
+        for (String url : urls.split(",")) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(usuario);
+            replica.setPassword(contrasena);
+            if (propiedades.getDriverClassName() != null) {
+                replica.setDriverClassName(propiedades.getDriverClassName());
+            }
+            replica.setMaximumPoolSize(tamanoPool);
+            replica.setReadOnly(true);
+            // Que una réplica caída al arrancar no impida arrancar la API
+            replica.setInitializationFailTimeout(-1);
+            replica.setConnectionTimeout(2000);
+            replicas.put(replica.getPoolName(), replica);
+            i++;
+        }
+
+        enrutamiento = new EnrutamientoDataSource(primaria, replicas);
+        enrutamiento.setRetardoMaximoMs(retardoMaximoMs);
+        enrutamiento.setLecturaPropiaMs(lecturaPropiaMs);
+        return enrutamiento;
+    }
+
+    // El que usan JPA, JdbcTemplate y los gestores de transacciones: pide
+    // la conexión real en la primera sentencia, con readOnly ya decidido
+    @Bean
+    @Primary
+    public DataSource dataSource(EnrutamientoDataSource enrutamientoDataSource) {
+        return new LazyConnectionDataSourceProxy(enrutamientoDataSource);
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replicas.comprobar-ms:5000}")
+    public void comprobarReplicas() {
+        if (enrutamiento != null) {
+            enrutamiento.comprobar();
+        }
+    }
+}
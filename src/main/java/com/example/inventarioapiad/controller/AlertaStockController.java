@@ -0,0 +1,135 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.dto.AlertaStock;
+import com.example.inventarioapiad.event.AlertaStockEvent;
+import com.example.inventarioapiad.service.AlertaStockService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Alertas de stock bajo (las calcula AlertaStockService):
+//   GET  /api/alertas/stock             - alertas vivas, la más urgente primero
+//   GET  /api/alertas/stock/stream      - stream SSE con las alertas nuevas/resueltas
+//   GET  /api/alertas/stock/resumen     - cuántas hay por nivel
+//   POST /api/alertas/stock/recalcular  - recarga desde la BD
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/alertas/stock")
+@Tag(name = "Alertas de stock", description = "Puntos de pedido y productos con stock bajo")
+@Slf4j
+public class AlertaStockController {
+
+    @Autowired
+    private AlertaStockService alertaStockService;
+
+    @Value("${alertas.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    private final List<SseEmitter> suscriptores = new CopyOnWriteArrayList<>();
+
+    @GetMapping
+    @Operation(summary = "Alertas de stock",
+               description = "Productos por debajo de su punto de pedido, ordenados por días de cobertura. "
+                       + "Filtro opcional por nivel (AGOTADO, CRITICO, BAJO).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Lista de alertas"),
+            @ApiResponse(responseCode = "400", description = "Nivel o límite inválido")
+    })
+    public ResponseEntity<?> listar(@RequestParam(required = false) String nivel,
+                                    @RequestParam(required = false) Integer limite) {
+        try {
+            AlertaStock.Nivel filtro = null;
+            if (nivel != null && !nivel.isBlank()) {
+                try {
+                    filtro = AlertaStock.Nivel.valueOf(nivel.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Nivel inválido: " + nivel + " (AGOTADO, CRITICO o BAJO)");
+                }
+            }
+            return ResponseEntity.ok(alertaStockService.alertas(filtro, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage()));
+        }
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream de alertas",
+               description = "Server-Sent Events: un evento 'alerta' cada vez que una alerta aparece, cambia de nivel o se resuelve.")
+    @ApiResponse(responseCode = "200", description = "Stream abierto")
+    public SseEmitter stream() {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        suscriptores.add(emitter);
+        emitter.onCompletion(() -> suscriptores.remove(emitter));
+        emitter.onTimeout(() -> suscriptores.remove(emitter));
+        emitter.onError(e -> suscriptores.remove(emitter));
+        return emitter;
+    }
+
+    @GetMapping("/resumen")
+    @Operation(summary = "Resumen de alertas", description = "Número de alertas por nivel y parámetros del cálculo.")
+    @ApiResponse(responseCode = "200", description = "Resumen")
+    public ResponseEntity<?> resumen() {
+        return ResponseEntity.ok(alertaStockService.resumen());
+    }
+
+    @PostMapping("/recalcular")
+    @Operation(summary = "Recalcular alertas", description = "Recarga stock, ventas y plazos de entrega desde la BD.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Alertas recalculadas"),
+            @ApiResponse(responseCode = "500", description = "Error al recalcular")
+    })
+    public ResponseEntity<?> recalcular() {
+        try {
+            return ResponseEntity.ok(alertaStockService.recalcular());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    new ErrorResponse(500, "Error al recalcular las alertas: " + e.getMessage()));
+        }
+    }
+
+    // Reenvía cada cambio de alerta a los clientes conectados al stream
+    @EventListener
+    public void alCambiarAlerta(AlertaStockEvent evento) {
+        for (SseEmitter emitter : suscriptores) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name("alerta")
+                        .id(evento.getAlerta().getProductoId() + "-" + System.currentTimeMillis())
+                        .data(evento, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Cliente SSE desconectado: {}", e.getMessage());
+                suscriptores.remove(emitter);
+            }
+        }
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
@@ -317,25 +317,18 @@ public class AlmacenController {
             @PathVariable Long id,
             @RequestBody Almacen almacenActualizado) {
         try {
-            Almacen existente = almacenService.buscarPorId(id);
+            // Solo los campos que vinieron (no null): actualizar() lee el almacén
+            // de la BD y los aplica en la misma transacción.
+            Almacen cambios = new Almacen();
+            cambios.setActivo(null);
+            cambios.setPrioritario(null);
+            cambios.setNombre(almacenActualizado.getNombre());
+            cambios.setUbicacion(almacenActualizado.getUbicacion());
+            cambios.setCapacidadMaxima(almacenActualizado.getCapacidadMaxima());
+            cambios.setStockActual(almacenActualizado.getStockActual());
+            cambios.setResponsable(almacenActualizado.getResponsable());
 
-            if (almacenActualizado.getNombre() != null) {
-                existente.setNombre(almacenActualizado.getNombre());
-            }
-            if (almacenActualizado.getUbicacion() != null) {
-                existente.setUbicacion(almacenActualizado.getUbicacion());
-            }
-            if (almacenActualizado.getCapacidadMaxima() != null) {
-                existente.setCapacidadMaxima(almacenActualizado.getCapacidadMaxima());
-            }
-            if (almacenActualizado.getStockActual() != null) {
-                existente.setStockActual(almacenActualizado.getStockActual());
-            }
-            if (almacenActualizado.getResponsable() != null) {
-                existente.setResponsable(almacenActualizado.getResponsable());
-            }
-
-            Almacen actualizado = almacenService.actualizar(id, existente);
+            Almacen actualizado = almacenService.actualizar(id, cambios);
             return ResponseEntity.ok(actualizado);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
@@ -0,0 +1,118 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.ClientesDistintosService;
+import com.example.inventarioapiad.service.TopProductosService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+// Analítica en memoria (no consulta la BD al responder):
+//   GET  /api/analytics/top-productos?ventana=1h|24h|7d&n=  - más vendidos de la ventana
+//   POST /api/analytics/top-productos/reconstruir           - rehace los sketches desde las ventas
+//   GET  /api/analytics/clientes-distintos?productoId=|almacenId=&desde=&hasta=&porDia=
+//                                                           - clientes distintos aproximados (HyperLogLog)
+//   POST /api/analytics/clientes-distintos/reconstruir      - rehace los HyperLogLog desde las ventas
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/analytics")
+@Tag(name = "Analítica", description = "Rankings y recuentos aproximados de ventas en tiempo real")
+public class AnaliticaController {
+
+    @Autowired
+    private TopProductosService topProductosService;
+
+    @Autowired
+    private ClientesDistintosService clientesDistintosService;
+
+    @GetMapping("/top-productos")
+    @Operation(summary = "Productos más vendidos",
+               description = "Top-N por unidades vendidas en la última hora, 24 horas o 7 días. Las unidades son una "
+                       + "estimación (Count-Min) que puede pasarse como mucho en errorMaximo.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Ranking de la ventana"),
+            @ApiResponse(responseCode = "400", description = "Ventana o n inválidos")
+    })
+    public ResponseEntity<?> topProductos(@RequestParam(defaultValue = "24h") String ventana,
+                                          @RequestParam(defaultValue = "10") int n) {
+        try {
+            return ResponseEntity.ok(topProductosService.top(ventana, n));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage()));
+        }
+    }
+
+    @PostMapping("/top-productos/reconstruir")
+    @Operation(summary = "Reconstruir ranking", description = "Vuelve a cargar las ventas de los últimos 7 días en los sketches.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Sketches reconstruidos"),
+            @ApiResponse(responseCode = "409", description = "Ya hay una reconstrucción en curso")
+    })
+    public ResponseEntity<?> reconstruir() {
+        try {
+            return ResponseEntity.ok(topProductosService.reconstruir());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        }
+    }
+
+    @GetMapping("/clientes-distintos")
+    @Operation(summary = "Clientes distintos",
+               description = "Clientes distintos que han comprado un producto, en un almacén o en total entre dos días "
+                       + "(por defecto los últimos 7). Es una estimación con errorEstandar relativo e intervalo95.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Estimación y ventas del rango"),
+            @ApiResponse(responseCode = "400", description = "Parámetros inválidos")
+    })
+    public ResponseEntity<?> clientesDistintos(@RequestParam(required = false) Long productoId,
+                                               @RequestParam(required = false) Long almacenId,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                               @RequestParam(defaultValue = "false") boolean porDia) {
+        try {
+            return ResponseEntity.ok(clientesDistintosService.consultar(productoId, almacenId, desde, hasta, porDia));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage()));
+        }
+    }
+
+    @PostMapping("/clientes-distintos/reconstruir")
+    @Operation(summary = "Reconstruir clientes distintos",
+               description = "Rehace los HyperLogLog desde las ventas no canceladas (descuenta las cancelaciones) y los guarda.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Sketches reconstruidos"),
+            @ApiResponse(responseCode = "409", description = "Ya hay una reconstrucción en curso")
+    })
+    public ResponseEntity<?> reconstruirClientes() {
+        try {
+            return ResponseEntity.ok(clientesDistintosService.reconstruir());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        }
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.ArchivoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Archivo de ventas y compras cerradas en tablas mensuales:
+//   POST /api/archivo          - archiva lo cerrado anterior al horizonte (por lotes)
+//   POST /api/archivo/detener  - para al terminar el lote en curso
+//   GET  /api/archivo          - informe de la última pasada y tablas de archivo
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/archivo")
+@Tag(name = "Archivo", description = "Archivado mensual de ventas y compras cerradas")
+public class ArchivoController {
+
+    @Autowired
+    private ArchivoService archivoService;
+
+    @PostMapping
+    @Operation(summary = "Archivar",
+               description = "Mueve las ventas ENTREGADA/CANCELADA y compras RECIBIDA/CANCELADA anteriores al horizonte "
+                       + "a su tabla mensual. Cada lote es atómico; si se corta, la siguiente pasada continúa.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Informe de la pasada"),
+            @ApiResponse(responseCode = "409", description = "Ya hay un archivado en curso")
+    })
+    public ResponseEntity<?> archivar() {
+        try {
+            return ResponseEntity.ok(archivoService.archivar());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        }
+    }
+
+    @PostMapping("/detener")
+    @Operation(summary = "Detener", description = "Pide parar el archivado en curso al acabar el lote actual.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Parada solicitada"),
+            @ApiResponse(responseCode = "409", description = "No hay ningún archivado en curso")
+    })
+    public ResponseEntity<?> detener() {
+        if (!archivoService.detener()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, "No hay ningún archivado en curso"));
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping
+    @Operation(summary = "Estado del archivo", description = "Último informe y tablas de archivo con sus filas y rango de ids.")
+    @ApiResponse(responseCode = "200", description = "Informe y tablas")
+    public ResponseEntity<?> estado() {
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("ultimoInforme", archivoService.ultimoInforme());
+        respuesta.put("tablas", archivoService.tablas());
+        return ResponseEntity.ok(respuesta);
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.AsignacionAlmacenService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Consultas al índice de capacidad libre de los almacenes:
+//   GET  /api/asignacion?cantidad=&almacenId=  - cómo se repartiría una compra
+//   GET  /api/asignacion/mejor?cantidad=       - almacén con más hueco si cabe entera
+//   GET  /api/asignacion/capacidad             - capacidad/stock/reservado/libre por almacén
+//   POST /api/asignacion/recargar              - reconstruye el índice desde la BD
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/asignacion")
+@Tag(name = "Asignación de almacén", description = "Capacidad libre y reparto de compras entre almacenes")
+public class AsignacionAlmacenController {
+
+    @Autowired
+    private AsignacionAlmacenService asignacionService;
+
+    @GetMapping
+    @Operation(summary = "Planificar reparto",
+               description = "Reparto de la cantidad entre almacenes (primero el indicado, luego el de más hueco). No reserva nada.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Reparto propuesto"),
+            @ApiResponse(responseCode = "400", description = "Cantidad inválida o sin capacidad suficiente")
+    })
+    public ResponseEntity<?> planificar(@RequestParam int cantidad,
+                                        @RequestParam(required = false) Long almacenId) {
+        try {
+            return ResponseEntity.ok(asignacionService.planificar(cantidad, almacenId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage()));
+        }
+    }
+
+    @GetMapping("/mejor")
+    @Operation(summary = "Mejor almacén", description = "El almacén con más capacidad libre, si la cantidad cabe entera en él.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Almacén elegido"),
+            @ApiResponse(responseCode = "400", description = "No cabe entera en ningún almacén")
+    })
+    public ResponseEntity<?> mejor(@RequestParam int cantidad) {
+        try {
+            return ResponseEntity.ok(asignacionService.elegir(cantidad));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage()));
+        }
+    }
+
+    @GetMapping("/capacidad")
+    @Operation(summary = "Capacidad por almacén", description = "Estado actual del índice de capacidad.")
+    @ApiResponse(responseCode = "200", description = "Capacidad de cada almacén")
+    public ResponseEntity<?> capacidad() {
+        return ResponseEntity.ok(asignacionService.capacidades());
+    }
+
+    @PostMapping("/recargar")
+    @Operation(summary = "Recargar índice", description = "Reconstruye el índice desde almacenes y compras PENDIENTE.")
+    @ApiResponse(responseCode = "200", description = "Índice recargado")
+    public ResponseEntity<?> recargar() {
+        return ResponseEntity.ok(asignacionService.cargar());
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
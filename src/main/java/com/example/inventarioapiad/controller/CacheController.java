@@ -0,0 +1,74 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.CacheSegundoNivelService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Caché de segundo nivel de Hibernate (almacenes, proveedores, clientes y
+// consultas):
+//   GET    /api/cache           - aciertos, fallos y entradas por región
+//   DELETE /api/cache/{region}  - vacía una región
+//   DELETE /api/cache           - vacía todas
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/cache")
+@Tag(name = "Caché", description = "Caché de segundo nivel de las entidades de referencia y de las consultas")
+public class CacheController {
+
+    @Autowired
+    private CacheSegundoNivelService cacheService;
+
+    @GetMapping
+    @Operation(summary = "Estado de la caché",
+               description = "Por región: entradas, aciertos, fallos, escrituras y tasa de aciertos desde el arranque.")
+    @ApiResponse(responseCode = "200", description = "Estado")
+    public ResponseEntity<?> estado() {
+        return ResponseEntity.ok(cacheService.estado());
+    }
+
+    @DeleteMapping("/{region}")
+    @Operation(summary = "Vaciar una región",
+               description = "almacenes, proveedores, clientes o default-query-results-region.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Estado de la región ya vacía"),
+            @ApiResponse(responseCode = "404", description = "Región desconocida")
+    })
+    public ResponseEntity<?> vaciar(
+            @Parameter(description = "Nombre de la región", example = "almacenes")
+            @PathVariable String region) {
+        try {
+            return ResponseEntity.ok(cacheService.vaciar(region));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ErrorResponse(404, e.getMessage()));
+        }
+    }
+
+    @DeleteMapping
+    @Operation(summary = "Vaciar toda la caché", description = "Vacía todas las regiones de entidades y de consultas.")
+    @ApiResponse(responseCode = "200", description = "Estado tras vaciarla")
+    public ResponseEntity<?> vaciarTodo() {
+        return ResponseEntity.ok(cacheService.vaciarTodo());
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.CatalogoLocalService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Modelo de lectura local del catálogo (fichero mapeado en memoria):
+//   GET  /api/catalogo-local              - estado, tamaño y tasa de aciertos
+//   POST /api/catalogo-local/reconstruir  - rehace el fichero desde la BD
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/catalogo-local")
+@Tag(name = "Catálogo local", description = "Catálogo de productos mapeado en memoria para lecturas por id y SKU")
+public class CatalogoLocalController {
+
+    @Autowired
+    private CatalogoLocalService catalogoLocalService;
+
+    @GetMapping
+    @Operation(summary = "Estado del catálogo local",
+               description = "Si está habilitado y preparado, productos y capacidad del fichero, marca de sincronización "
+                       + "y lecturas servidas desde el fichero frente a las que han ido a la BD.")
+    @ApiResponse(responseCode = "200", description = "Estado")
+    public ResponseEntity<?> estado() {
+        return ResponseEntity.ok(catalogoLocalService.estado());
+    }
+
+    @PostMapping("/reconstruir")
+    @Operation(summary = "Reconstruir", description = "Escribe el catálogo entero en un fichero nuevo y lo cambia por el actual.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Resumen de la reconstrucción"),
+            @ApiResponse(responseCode = "409", description = "Deshabilitado o ya hay una sincronización en curso")
+    })
+    public ResponseEntity<?> reconstruir() {
+        try {
+            return ResponseEntity.ok(catalogoLocalService.reconstruir());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        }
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.ClasificacionAbcService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Clasificación ABC de productos (el filtro está en GET /api/productos?claseAbc=):
+//   POST /api/clasificacion-abc  - recalcula la clase de todos los productos
+//   GET  /api/clasificacion-abc  - resumen de la última clasificación
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/clasificacion-abc")
+@Tag(name = "Clasificación ABC", description = "Clasificación de productos por ingresos de venta (Pareto)")
+public class ClasificacionAbcController {
+
+    @Autowired
+    private ClasificacionAbcService clasificacionService;
+
+    @PostMapping
+    @Operation(summary = "Clasificar",
+               description = "Suma los ingresos de las ventas por producto y guarda A, B o C en cada uno según los umbrales configurados.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Resumen por clase"),
+            @ApiResponse(responseCode = "409", description = "Ya hay una clasificación en curso")
+    })
+    public ResponseEntity<?> clasificar() {
+        try {
+            return ResponseEntity.ok(clasificacionService.clasificar());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    @Operation(summary = "Último resumen", description = "Resultado de la última clasificación (manual o programada).")
+    @ApiResponse(responseCode = "200", description = "Resumen")
+    public ResponseEntity<?> resumen() {
+        return ResponseEntity.ok(clasificacionService.resumen());
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
@@ -316,25 +316,17 @@ public class ClienteController {
             @PathVariable Long id,
             @RequestBody Cliente clienteActualizado) {
         try {
-            Cliente existente = clienteService.buscarPorId(id);
+            // Solo los campos que vinieron (no null): actualizar() lee el cliente
+            // de la BD y los aplica en la misma transacción.
+            Cliente cambios = new Cliente();
+            cambios.setActivo(null);
+            cambios.setNombre(clienteActualizado.getNombre());
+            cambios.setEmail(clienteActualizado.getEmail());
+            cambios.setTelefono(clienteActualizado.getTelefono());
+            cambios.setDireccion(clienteActualizado.getDireccion());
+            cambios.setCiudad(clienteActualizado.getCiudad());
 
-            if (clienteActualizado.getNombre() != null) {
-                existente.setNombre(clienteActualizado.getNombre());
-            }
-            if (clienteActualizado.getEmail() != null) {
-                existente.setEmail(clienteActualizado.getEmail());
-            }
-            if (clienteActualizado.getTelefono() != null) {
-                existente.setTelefono(clienteActualizado.getTelefono());
-            }
-            if (clienteActualizado.getDireccion() != null) {
-                existente.setDireccion(clienteActualizado.getDireccion());
-            }
-            if (clienteActualizado.getCiudad() != null) {
-                existente.setCiudad(clienteActualizado.getCiudad());
-            }
-
-            Cliente actualizado = clienteService.actualizar(id, existente);
+            Cliente actualizado = clienteService.actualizar(id, cambios);
             return ResponseEntity.ok(actualizado);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
@@ -0,0 +1,40 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.AlmacenService;
+import com.example.inventarioapiad.service.ProductoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Coalescencia de lecturas (single-flight) de productos y almacenes:
+//   GET /api/coalescencia  - peticiones, cargas reales y ratio por lectura
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/coalescencia")
+@Tag(name = "Coalescencia", description = "Lecturas iguales y simultáneas que comparten una sola consulta")
+public class CoalescenciaController {
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private AlmacenService almacenService;
+
+    @GetMapping
+    @Operation(summary = "Estado de la coalescencia",
+               description = "Por lectura (por id y por filtros): peticiones, cargas que fueron a la BD, peticiones "
+                       + "que se unieron a una carga en vuelo, ratio de coalescencia y cargas en vuelo ahora.")
+    @ApiResponse(responseCode = "200", description = "Estado")
+    public ResponseEntity<?> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("productos", productoService.estadisticasCoalescencia());
+        estado.put("almacenes", almacenService.estadisticasCoalescencia());
+        return ResponseEntity.ok(estado);
+    }
+}
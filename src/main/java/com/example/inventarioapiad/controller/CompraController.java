@@ -76,6 +76,36 @@ public class CompraController {
         }
     }
 
+    // CREATE REPARTIDA - POST /api/compras/repartida
+    @PostMapping("/repartida")
+    @Operation(summary = "Registrar Compra Repartida", description = "Reparte la cantidad entre almacenes según su capacidad libre: primero el almacén indicado (opcional) y el resto donde más hueco quede. Crea una compra por almacén.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Compras registradas (una por almacén)"),
+            @ApiResponse(responseCode = "400", description = "Datos inválidos o sin capacidad suficiente entre todos los almacenes",
+                    content = @Content(mediaType = "application/json",
+                            examples = @ExampleObject(value = """
+                                    {
+                                      "codigo": 400,
+                                      "mensaje": "No hay capacidad para 5000 unidades entre todos los almacenes (libre: 3200)"
+                                    }
+                                    """))),
+            @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+    })
+    public ResponseEntity<?> crearRepartida(@RequestBody Compra compra) {
+        try {
+            List<Compra> creadas = compraService.crearRepartida(compra);
+            return ResponseEntity.status(HttpStatus.CREATED).body(creadas);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage())
+            );
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    new ErrorResponse(500, "Error al crear la compra repartida: " + e.getMessage())
+            );
+        }
+    }
+
     // READ - GET /api/compras/{id}
     @GetMapping("/{id}")
     @Operation(summary = "Obtener Compra por ID", description = "Obtiene los detalles completos de una compra específica por su ID.")
@@ -212,6 +242,14 @@ public class CompraController {
                                       "mensaje": "El precio unitario no puede ser negativo"
                                     }
                                     """))),
+            @ApiResponse(responseCode = "409", description = "Compra RECIBIDA: solo se puede cancelar y no se cambia producto, almacén ni cantidad",
+                    content = @Content(mediaType = "application/json",
+                            examples = @ExampleObject(value = """
+                                    {
+                                      "codigo": 409,
+                                      "mensaje": "Una compra RECIBIDA solo se puede cancelar (estado pedido: PENDIENTE)"
+                                    }
+                                    """))),
             @ApiResponse(responseCode = "404", description = "Compra no encontrada",
                     content = @Content(mediaType = "application/json",
                             examples = @ExampleObject(value = """
@@ -237,6 +275,10 @@ public class CompraController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                     new ErrorResponse(400, e.getMessage())
             );
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage())
+            );
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
                     new ErrorResponse(404, e.getMessage())
@@ -326,23 +368,21 @@ public class CompraController {
             @PathVariable Long id,
             @RequestBody Compra compraActualizada) {
         try {
-            Compra existente = compraService.buscarPorId(id);
+            // Solo los campos que vinieron (no null): actualizar() lee la compra
+            // de la BD y los aplica en la misma transacción.
+            Compra cambios = new Compra();
+            cambios.setCantidad(compraActualizada.getCantidad());
+            cambios.setPrecioUnitario(compraActualizada.getPrecioUnitario());
+            cambios.setNumeroFactura(compraActualizada.getNumeroFactura());
+            cambios.setEstado(compraActualizada.getEstado());
 
-            if (compraActualizada.getCantidad() != null) {
-                existente.setCantidad(compraActualizada.getCantidad());
-            }
-            if (compraActualizada.getPrecioUnitario() != null) {
-                existente.setPrecioUnitario(compraActualizada.getPrecioUnitario());
-            }
-            if (compraActualizada.getNumeroFactura() != null) {
-                existente.setNumeroFactura(compraActualizada.getNumeroFactura());
-            }
-            if (compraActualizada.getEstado() != null) {
-                existente.setEstado(compraActualizada.getEstado());
-            }
-
-            Compra actualizada = compraService.actualizar(id, existente);
+            Compra actualizada = compraService.actualizar(id, cambios);
             return ResponseEntity.ok(actualizada);
+        } catch (IllegalArgumentException e) {
+            // p.ej. el almacén no tiene capacidad para la nueva cantidad
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage())
+            );
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
                     new ErrorResponse(404, "Compra no encontrada")
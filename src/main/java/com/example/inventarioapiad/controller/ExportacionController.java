@@ -0,0 +1,76 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.ExportacionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Exportación a ficheros columnares para analítica:
+//   POST /api/exportacion  - exporta lo modificado desde la última marca (?tablas=ventas,compras&completa=true)
+//   GET  /api/exportacion  - marcas por tabla e informe de la última exportación
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/exportacion")
+@Tag(name = "Exportación", description = "Exportación incremental de productos, almacenes, ventas y compras a ficheros columnares")
+public class ExportacionController {
+
+    @Autowired
+    private ExportacionService exportacionService;
+
+    @PostMapping
+    @Operation(summary = "Exportar",
+               description = "Escribe en un directorio nuevo por tabla las filas modificadas desde la última exportación. "
+                       + "Con completa=true exporta todas las filas y reinicia la marca.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Informe de la exportación"),
+            @ApiResponse(responseCode = "400", description = "Tabla no exportable"),
+            @ApiResponse(responseCode = "409", description = "Ya hay una exportación en curso")
+    })
+    public ResponseEntity<?> exportar(
+            @Parameter(description = "Tablas separadas por comas (productos, almacenes, ventas, compras); por defecto todas")
+            @RequestParam(required = false) String tablas,
+            @RequestParam(defaultValue = "false") boolean completa) {
+        try {
+            return ResponseEntity.ok(exportacionService.exportar(tablas, completa));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    @Operation(summary = "Estado de la exportación", description = "Marca de modificación por tabla e informe de la última exportación.")
+    @ApiResponse(responseCode = "200", description = "Marcas e informe")
+    public ResponseEntity<?> estado() {
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("marcas", exportacionService.marcas());
+        respuesta.put("ultimoInforme", exportacionService.ultimoInforme());
+        return ResponseEntity.ok(respuesta);
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.inventarioapiad.controller;
 
+import com.example.inventarioapiad.config.EnrutamientoDataSource;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -32,6 +35,10 @@ public class InfoController {
     @Value("${spring.application.name:inventario-api-AD}")
     private String nombreApp;
 
+    // Solo existe con réplicas de lectura configuradas (ReplicasConfig)
+    @Autowired
+    private ObjectProvider<EnrutamientoDataSource> enrutamiento;
+
     // Se rellena en el primer arranque del bean
     private LocalDateTime fechaArranque;
 
@@ -53,6 +60,18 @@ public class InfoController {
         return ResponseEntity.ok(info);
     }
 
+    @GetMapping("/datasource")
+    @Operation(summary = "Reparto de lecturas entre primaria y réplicas",
+               description = "Salud y retardo de cada réplica y lecturas servidas por réplicas y por la primaria.")
+    @ApiResponse(responseCode = "200", description = "Estado del enrutamiento (o sin réplicas configuradas)")
+    public ResponseEntity<Map<String, Object>> datasource() {
+        EnrutamientoDataSource dataSource = enrutamiento.getIfAvailable();
+        if (dataSource == null) {
+            return ResponseEntity.ok(Map.of("replicas", "sin configurar (datasource.replicas.urls)"));
+        }
+        return ResponseEntity.ok(dataSource.estado());
+    }
+
     // Cuenta de forma legible qué hace cada perfil.
     private String descripcionDelPerfil() {
         return switch (perfilActivo) {
@@ -0,0 +1,85 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.InstrumentacionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Instrumentación del SQL (administración):
+//   GET    /api/instrumentacion         - peticiones, lentas, huellas y totales de Hibernate
+//   GET    /api/instrumentacion/sql     - huellas de SQL agregadas (?orden=tiempo|veces|filas&limite=50)
+//   GET    /api/instrumentacion/lentas  - últimas peticiones por encima del umbral, con sus huellas
+//   DELETE /api/instrumentacion         - pone los contadores a cero
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/instrumentacion")
+@Tag(name = "Instrumentación", description = "SQL por petición, peticiones lentas y huellas de SQL agregadas")
+public class InstrumentacionController {
+
+    @Autowired
+    private InstrumentacionService instrumentacionService;
+
+    @GetMapping
+    @Operation(summary = "Resumen", description = "Peticiones medidas y lentas, huellas distintas y totales de Hibernate.")
+    @ApiResponse(responseCode = "200", description = "Resumen")
+    public ResponseEntity<?> resumen() {
+        return ResponseEntity.ok(instrumentacionService.resumen());
+    }
+
+    @GetMapping("/sql")
+    @Operation(summary = "Huellas de SQL",
+               description = "Cada sentencia sin literales: veces, tiempo total, medio y máximo en JDBC y filas leídas.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Huellas ordenadas"),
+            @ApiResponse(responseCode = "400", description = "Orden o límite no válidos")
+    })
+    public ResponseEntity<?> huellas(
+            @Parameter(description = "tiempo, veces o filas", example = "tiempo")
+            @RequestParam(defaultValue = "tiempo") String orden,
+            @Parameter(description = "Máximo de huellas", example = "50")
+            @RequestParam(defaultValue = "50") int limite) {
+        try {
+            return ResponseEntity.ok(instrumentacionService.huellas(orden, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage()));
+        }
+    }
+
+    @GetMapping("/lentas")
+    @Operation(summary = "Peticiones lentas",
+               description = "Las últimas 50 por encima de instrumentacion.lenta-ms: sentencias, JDBC, espera de "
+                       + "conexión, filas, entidades y sus huellas (con posible N+1).")
+    @ApiResponse(responseCode = "200", description = "Peticiones lentas, la más reciente primero")
+    public ResponseEntity<?> lentas() {
+        return ResponseEntity.ok(instrumentacionService.lentas());
+    }
+
+    @DeleteMapping
+    @Operation(summary = "Reiniciar", description = "Borra huellas, peticiones lentas y estadísticas de Hibernate.")
+    @ApiResponse(responseCode = "204", description = "Reiniciada")
+    public ResponseEntity<?> reiniciar() {
+        instrumentacionService.reiniciar();
+        return ResponseEntity.noContent().build();
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
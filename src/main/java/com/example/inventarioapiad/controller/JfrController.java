@@ -0,0 +1,118 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.JfrService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+
+// Grabaciones JFR bajo demanda (administración):
+//   POST /api/jfr/grabaciones                - inicia una grabación (?segundos=60)
+//   GET  /api/jfr/grabaciones                - grabaciones guardadas y su estado
+//   POST /api/jfr/grabaciones/{id}/parar     - para antes de tiempo la que está en curso
+//   GET  /api/jfr/grabaciones/{id}/fichero   - descarga el .jfr de una grabación terminada
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/jfr/grabaciones")
+@Tag(name = "JFR", description = "Grabaciones de Java Flight Recorder con los eventos del inventario")
+public class JfrController {
+
+    @Autowired
+    private JfrService jfrService;
+
+    @PostMapping
+    @Operation(summary = "Iniciar grabación",
+               description = "Graba la JVM (configuración profile) y los eventos del inventario durante los "
+                       + "segundos indicados. Solo una a la vez.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Grabación iniciada"),
+            @ApiResponse(responseCode = "400", description = "Duración no válida"),
+            @ApiResponse(responseCode = "409", description = "Ya hay una grabación en curso")
+    })
+    public ResponseEntity<?> iniciar(
+            @Parameter(description = "Duración en segundos", example = "60")
+            @RequestParam(defaultValue = "60") int segundos) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(jfrService.iniciar(segundos));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    @Operation(summary = "Listar grabaciones", description = "Las últimas grabaciones con su estado y tamaño.")
+    @ApiResponse(responseCode = "200", description = "Grabaciones, la más vieja primero")
+    public ResponseEntity<?> listar() {
+        return ResponseEntity.ok(jfrService.listar());
+    }
+
+    @PostMapping("/{id}/parar")
+    @Operation(summary = "Parar grabación", description = "Termina ya la grabación en curso y escribe el fichero.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Grabación parada"),
+            @ApiResponse(responseCode = "404", description = "Grabación no encontrada"),
+            @ApiResponse(responseCode = "409", description = "La grabación no está en curso")
+    })
+    public ResponseEntity<?> parar(@PathVariable long id) {
+        try {
+            return ResponseEntity.ok(jfrService.parar(id));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ErrorResponse(404, e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}/fichero")
+    @Operation(summary = "Descargar grabación", description = "El fichero .jfr de una grabación terminada.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Fichero .jfr"),
+            @ApiResponse(responseCode = "404", description = "Grabación no encontrada"),
+            @ApiResponse(responseCode = "409", description = "La grabación todavía no ha terminado")
+    })
+    public ResponseEntity<?> fichero(@PathVariable long id) {
+        try {
+            Path fichero = jfrService.fichero(id);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"inventario-" + id + ".jfr\"")
+                    .body(new FileSystemResource(fichero));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ErrorResponse(404, e.getMessage()));
+        }
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.PrevisionDemandaService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Previsión de demanda (la mantiene PrevisionDemandaService):
+//   GET  /api/productos/{id}/prevision?dias=  - unidades previstas por día
+//   POST /api/prevision/recalcular             - reajusta desde el histórico de ventas
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api")
+@Tag(name = "Previsión", description = "Previsión de demanda diaria por producto (Holt-Winters)")
+public class PrevisionController {
+
+    @Autowired
+    private PrevisionDemandaService previsionService;
+
+    @GetMapping("/productos/{id}/prevision")
+    @Operation(summary = "Previsión de demanda",
+               description = "Unidades previstas para hoy y los días siguientes. Se calcula del estado ya ajustado, sin consultar la BD.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Previsión por día"),
+            @ApiResponse(responseCode = "400", description = "ID o número de días inválido")
+    })
+    public ResponseEntity<?> prevision(@PathVariable Long id,
+                                       @RequestParam(defaultValue = "14") int dias) {
+        try {
+            return ResponseEntity.ok(previsionService.prevision(id, dias));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage()));
+        }
+    }
+
+    @PostMapping("/prevision/recalcular")
+    @Operation(summary = "Recalcular previsión", description = "Reajusta el modelo de todos los productos desde el histórico de ventas.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Modelo reajustado"),
+            @ApiResponse(responseCode = "409", description = "Ya hay un reajuste en curso")
+    })
+    public ResponseEntity<?> recalcular() {
+        try {
+            return ResponseEntity.ok(previsionService.reconstruir());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        }
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
@@ -127,9 +127,39 @@ public class ProductoController {
         }
     }
 
+    // READ - GET /api/productos/sku/{sku}
+    @GetMapping("/sku/{sku}")
+    @Operation(summary = "Obtener Producto por SKU", description = "Busca un producto por su SKU exacto.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Producto encontrado"),
+            @ApiResponse(responseCode = "404", description = "Producto no encontrado",
+                    content = @Content(mediaType = "application/json",
+                            examples = @ExampleObject(value = """
+                                    {
+                                      "codigo": 404,
+                                      "mensaje": "Producto no encontrado con SKU: TOR-M10"
+                                    }
+                                    """)))
+    })
+    public ResponseEntity<?> buscarPorSku(
+            @Parameter(description = "SKU exacto del producto", example = "TOR-M10")
+            @PathVariable String sku) {
+        try {
+            return ResponseEntity.ok(productoService.buscarPorSku(sku));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage())
+            );
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ErrorResponse(404, e.getMessage())
+            );
+        }
+    }
+
     // READ ALL - GET /api/productos
     @GetMapping
-    @Operation(summary = "Listar Productos (con filtros)", description = "Obtiene todos los productos activos. Permite filtrar por nombre, sku y precioVenta exacto.")
+    @Operation(summary = "Listar Productos (con filtros)", description = "Obtiene todos los productos activos. Permite filtrar por nombre, sku, precioVenta exacto y claseAbc (A, B o C).")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de productos recuperada exitosamente",
                     content = @Content(mediaType = "application/json",
@@ -166,10 +196,11 @@ public class ProductoController {
     public ResponseEntity<?> buscarTodos(
             @Parameter(description = "Filtrar por nombre (contiene)") @RequestParam(required = false) String nombre,
             @Parameter(description = "Filtrar por SKU (contiene)") @RequestParam(required = false) String sku,
-            @Parameter(description = "Filtrar por precio exacto") @RequestParam(required = false) Float precioVenta) {
+            @Parameter(description = "Filtrar por precio exacto") @RequestParam(required = false) Float precioVenta,
+            @Parameter(description = "Filtrar por clase ABC (A, B o C)") @RequestParam(required = false) String claseAbc) {
 
         try {
-            List<Producto> productos = productoService.buscarConFiltros(nombre, sku, precioVenta);
+            List<Producto> productos = productoService.buscarConFiltros(nombre, sku, precioVenta, claseAbc);
             return ResponseEntity.ok(productos);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
@@ -316,26 +347,19 @@ public class ProductoController {
             @PathVariable Long id,
             @RequestBody Producto productoActualizado) {
         try {
-            Producto existente = productoService.buscarPorId(id);
-
-            // Actualizar solo los campos que vinieron (no null)
-            if (productoActualizado.getNombre() != null) {
-                existente.setNombre(productoActualizado.getNombre());
-            }
-            if (productoActualizado.getSku() != null) {
-                existente.setSku(productoActualizado.getSku());
-            }
-            if (productoActualizado.getPrecioCosto() != null) {
-                existente.setPrecioCosto(productoActualizado.getPrecioCosto());
-            }
-            if (productoActualizado.getPrecioVenta() != null) {
-                existente.setPrecioVenta(productoActualizado.getPrecioVenta());
-            }
-            if (productoActualizado.getStockTotal() != null) {
-                existente.setStockTotal(productoActualizado.getStockTotal());
-            }
+            // Solo los campos que vinieron (no null); actualizar() lee el
+            // producto de la BD y deja como están los que van a null. No se
+            // parte de buscarPorId, que puede venir del catálogo local y no
+            // estar al día.
+            Producto cambios = new Producto();
+            cambios.setActivo(null);
+            cambios.setNombre(productoActualizado.getNombre());
+            cambios.setSku(productoActualizado.getSku());
+            cambios.setPrecioCosto(productoActualizado.getPrecioCosto());
+            cambios.setPrecioVenta(productoActualizado.getPrecioVenta());
+            cambios.setStockTotal(productoActualizado.getStockTotal());
 
-            Producto actualizado = productoService.actualizar(id, existente);
+            Producto actualizado = productoService.actualizar(id, cambios);
             return ResponseEntity.ok(actualizado);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
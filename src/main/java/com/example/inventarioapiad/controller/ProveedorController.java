@@ -315,25 +315,17 @@ public class ProveedorController {
             @PathVariable Long id,
             @RequestBody Proveedor proveedorActualizado) {
         try {
-            Proveedor existente = proveedorService.buscarPorId(id);
+            // Solo los campos que vinieron (no null): actualizar() lee el proveedor
+            // de la BD y los aplica en la misma transacción.
+            Proveedor cambios = new Proveedor();
+            cambios.setActivo(null);
+            cambios.setNombre(proveedorActualizado.getNombre());
+            cambios.setEmail(proveedorActualizado.getEmail());
+            cambios.setTelefono(proveedorActualizado.getTelefono());
+            cambios.setPais(proveedorActualizado.getPais());
+            cambios.setDiasEntrega(proveedorActualizado.getDiasEntrega());
 
-            if (proveedorActualizado.getNombre() != null) {
-                existente.setNombre(proveedorActualizado.getNombre());
-            }
-            if (proveedorActualizado.getEmail() != null) {
-                existente.setEmail(proveedorActualizado.getEmail());
-            }
-            if (proveedorActualizado.getTelefono() != null) {
-                existente.setTelefono(proveedorActualizado.getTelefono());
-            }
-            if (proveedorActualizado.getPais() != null) {
-                existente.setPais(proveedorActualizado.getPais());
-            }
-            if (proveedorActualizado.getDiasEntrega() != null) {
-                existente.setDiasEntrega(proveedorActualizado.getDiasEntrega());
-            }
-
-            Proveedor actualizado = proveedorService.actualizar(id, existente);
+            Proveedor actualizado = proveedorService.actualizar(id, cambios);
             return ResponseEntity.ok(actualizado);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
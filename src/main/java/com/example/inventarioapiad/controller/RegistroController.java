@@ -0,0 +1,30 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.RegistroService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Logs asíncronos y muestreo (logback-spring.xml):
+//   GET /api/registro  - buffer, mensajes encolados y descartados, muestreo por paquete
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/registro")
+@Tag(name = "Registro", description = "Estado del appender asíncrono de logs y del muestreo")
+public class RegistroController {
+
+    @Autowired
+    private RegistroService registroService;
+
+    @GetMapping
+    @Operation(summary = "Estado de los logs",
+               description = "Tamaño del buffer, mensajes pendientes, encolados y descartados por buffer lleno "
+                       + "desde el arranque, y por cada regla de muestreo los mensajes vistos y descartados.")
+    @ApiResponse(responseCode = "200", description = "Estado")
+    public ResponseEntity<?> estado() {
+        return ResponseEntity.ok(registroService.estado());
+    }
+}
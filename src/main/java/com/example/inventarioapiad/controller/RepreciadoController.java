@@ -0,0 +1,93 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.RepreciadoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Repreciado masivo del catálogo desde el servicio externo de precios:
+//   POST /api/repreciado          - lanza (o reanuda) una ejecución
+//   GET  /api/repreciado          - progreso de la actual o de la última
+//   POST /api/repreciado/detener  - para al final del lote en curso
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/repreciado")
+@Tag(name = "Repreciado", description = "Actualización masiva de precios de venta desde el servicio externo")
+public class RepreciadoController {
+
+    @Autowired
+    private RepreciadoService repreciadoService;
+
+    @PostMapping
+    @Operation(summary = "Lanzar repreciado",
+               description = "Recorre el catálogo y actualiza precioVenta con el servicio externo. "
+                       + "Si la última ejecución quedó a medias, continúa desde donde se quedó.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Repreciado lanzado en segundo plano"),
+            @ApiResponse(responseCode = "409", description = "Ya hay un repreciado en curso")
+    })
+    public ResponseEntity<?> iniciar() {
+        try {
+            repreciadoService.iniciarEnSegundoPlano();
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(repreciadoService.estado());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    new ErrorResponse(500, "Error al lanzar el repreciado: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    @Operation(summary = "Progreso del repreciado",
+               description = "Contadores, productos por segundo y errores de la ejecución en curso o de la última.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Estado del repreciado"),
+            @ApiResponse(responseCode = "404", description = "Nunca se ha ejecutado")
+    })
+    public ResponseEntity<?> estado() {
+        try {
+            return ResponseEntity.ok(repreciadoService.estado());
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ErrorResponse(404, e.getMessage()));
+        }
+    }
+
+    @PostMapping("/detener")
+    @Operation(summary = "Detener repreciado",
+               description = "Para al acabar el lote actual. La próxima ejecución reanuda desde ese punto.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Detención solicitada"),
+            @ApiResponse(responseCode = "409", description = "No hay ningún repreciado en curso")
+    })
+    public ResponseEntity<?> detener() {
+        try {
+            repreciadoService.detener();
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(repreciadoService.estado());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        }
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
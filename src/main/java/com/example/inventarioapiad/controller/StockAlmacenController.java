@@ -0,0 +1,101 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.ReconciliacionStockService;
+import com.example.inventarioapiad.service.StockAlmacenService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Stock por (producto, almacén) y su reconciliación con los contadores:
+//   GET  /api/stock-almacen?productoId=&almacenId=            - filas de stock
+//   POST /api/stock-almacen/sembrar                           - rehace las filas desde el histórico
+//   POST /api/stock-almacen/reconciliacion?completa=&corregir= - lanza una pasada
+//   GET  /api/stock-almacen/reconciliacion                    - informe de la última pasada
+//   GET  /api/stock-almacen/reconciliacion/pendientes         - productos/almacenes por revisar
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/stock-almacen")
+@Tag(name = "Stock por almacén", description = "Stock de cada producto en cada almacén y reconciliación de totales")
+public class StockAlmacenController {
+
+    @Autowired
+    private StockAlmacenService stockAlmacenService;
+
+    @Autowired
+    private ReconciliacionStockService reconciliacionService;
+
+    @GetMapping
+    @Operation(summary = "Stock por almacén", description = "Filas de stock de un producto, de un almacén o de los dos.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Filas de stock"),
+            @ApiResponse(responseCode = "400", description = "Falta productoId y almacenId")
+    })
+    public ResponseEntity<?> buscar(@RequestParam(required = false) Long productoId,
+                                    @RequestParam(required = false) Long almacenId) {
+        try {
+            return ResponseEntity.ok(stockAlmacenService.buscar(productoId, almacenId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage()));
+        }
+    }
+
+    @PostMapping("/sembrar")
+    @Operation(summary = "Sembrar desde el histórico",
+               description = "Borra y recalcula las filas desde compras recibidas, ventas y traspasos. Mejor sin movimientos en marcha.")
+    @ApiResponse(responseCode = "200", description = "Filas creadas")
+    public ResponseEntity<?> sembrar() {
+        return ResponseEntity.ok(stockAlmacenService.sembrar());
+    }
+
+    @PostMapping("/reconciliacion")
+    @Operation(summary = "Reconciliar",
+               description = "Compara stockTotal de productos y stockActual de almacenes con la suma de sus filas. "
+                       + "Por defecto solo lo tocado desde la última pasada; con corregir=true ajusta los contadores.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Informe de descuadres"),
+            @ApiResponse(responseCode = "409", description = "Ya hay una reconciliación en curso")
+    })
+    public ResponseEntity<?> reconciliar(@RequestParam(defaultValue = "false") boolean completa,
+                                         @RequestParam(defaultValue = "false") boolean corregir) {
+        try {
+            return ResponseEntity.ok(reconciliacionService.reconciliar(completa, corregir));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        }
+    }
+
+    @GetMapping("/reconciliacion")
+    @Operation(summary = "Último informe", description = "Resultado de la última reconciliación (manual o programada).")
+    @ApiResponse(responseCode = "200", description = "Informe")
+    public ResponseEntity<?> ultimoInforme() {
+        return ResponseEntity.ok(reconciliacionService.ultimoInforme());
+    }
+
+    @GetMapping("/reconciliacion/pendientes")
+    @Operation(summary = "Pendientes de revisar", description = "Productos y almacenes tocados desde la última pasada.")
+    @ApiResponse(responseCode = "200", description = "Recuento de pendientes")
+    public ResponseEntity<?> pendientes() {
+        return ResponseEntity.ok(reconciliacionService.pendientes());
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
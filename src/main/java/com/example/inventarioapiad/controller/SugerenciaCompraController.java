@@ -0,0 +1,74 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.service.SugerenciaCompraService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Pedidos de compra sugeridos (los calcula SugerenciaCompraService):
+//   POST /api/sugerencias-compra          - generar ahora
+//   GET  /api/sugerencias-compra          - pedidos de la última generación
+//   GET  /api/sugerencias-compra/resumen  - cifras de la última generación
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/sugerencias-compra")
+@Tag(name = "Sugerencias de compra", description = "Pedidos sugeridos por proveedor y almacén")
+public class SugerenciaCompraController {
+
+    @Autowired
+    private SugerenciaCompraService sugerenciaCompraService;
+
+    @PostMapping
+    @Operation(summary = "Generar sugerencias",
+               description = "Calcula los pedidos sugeridos a partir del stock, las compras pendientes y las ventas recientes.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Sugerencias generadas"),
+            @ApiResponse(responseCode = "409", description = "Ya hay una generación en curso")
+    })
+    public ResponseEntity<?> generar() {
+        try {
+            return ResponseEntity.ok(sugerenciaCompraService.generar());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    new ErrorResponse(500, "Error al generar las sugerencias: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    @Operation(summary = "Pedidos sugeridos",
+               description = "Pedidos de la última generación. Filtros opcionales por proveedor y almacén.")
+    @ApiResponse(responseCode = "200", description = "Lista de pedidos sugeridos")
+    public ResponseEntity<?> pedidos(@RequestParam(required = false) Long proveedorId,
+                                     @RequestParam(required = false) Long almacenId) {
+        return ResponseEntity.ok(sugerenciaCompraService.pedidos(proveedorId, almacenId));
+    }
+
+    @GetMapping("/resumen")
+    @Operation(summary = "Resumen", description = "Cifras y tiempos de la última generación.")
+    @ApiResponse(responseCode = "200", description = "Resumen")
+    public ResponseEntity<?> resumen() {
+        return ResponseEntity.ok(sugerenciaCompraService.resumen());
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.dto.TraspasoRequest;
+import com.example.inventarioapiad.service.TraspasoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// Traspasos de stock entre almacenes:
+//   POST /api/traspasos                 - un traspaso (inmediato o en tránsito)
+//   POST /api/traspasos/lote            - varios traspasos, todos o ninguno
+//   GET  /api/traspasos?estado=&lote=   - listado
+//   GET  /api/traspasos/{id}
+//   POST /api/traspasos/{id}/recibir    - llega al destino (EN_TRANSITO -> COMPLETADO)
+//   POST /api/traspasos/{id}/cancelar   - vuelve al origen (EN_TRANSITO -> CANCELADO)
+//   GET  /api/traspasos/en-transito     - unidades de camino por almacén destino
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/traspasos")
+@Tag(name = "Traspasos", description = "Movimientos de stock entre almacenes")
+public class TraspasoController {
+
+    @Autowired
+    private TraspasoService traspasoService;
+
+    @PostMapping
+    @Operation(summary = "Crear traspaso",
+               description = "Mueve unidades de un almacén a otro en una sola transacción. Con enTransito=true el destino no las recibe hasta POST /{id}/recibir.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Traspaso creado"),
+            @ApiResponse(responseCode = "400", description = "Datos inválidos"),
+            @ApiResponse(responseCode = "404", description = "Producto o almacén no encontrado"),
+            @ApiResponse(responseCode = "409", description = "Stock insuficiente en origen o sin capacidad en destino")
+    })
+    public ResponseEntity<?> crear(@RequestBody TraspasoRequest peticion) {
+        return responder(HttpStatus.CREATED, () -> traspasoService.crear(peticion));
+    }
+
+    @PostMapping("/lote")
+    @Operation(summary = "Crear lote de traspasos",
+               description = "Todos los traspasos del lote se aplican juntos o ninguno. Comparten el mismo identificador de lote.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Lote creado"),
+            @ApiResponse(responseCode = "400", description = "Algún traspaso es inválido"),
+            @ApiResponse(responseCode = "404", description = "Producto o almacén no encontrado"),
+            @ApiResponse(responseCode = "409", description = "Algún traspaso no tiene stock o capacidad; no se aplica ninguno")
+    })
+    public ResponseEntity<?> crearLote(@RequestBody List<TraspasoRequest> peticiones) {
+        return responder(HttpStatus.CREATED, () -> traspasoService.crearLote(peticiones));
+    }
+
+    @GetMapping
+    @Operation(summary = "Listar traspasos", description = "Filtra por estado (EN_TRANSITO, COMPLETADO, CANCELADO) o por lote.")
+    @ApiResponse(responseCode = "200", description = "Listado de traspasos")
+    public ResponseEntity<?> buscarTodos(@RequestParam(required = false) String estado,
+                                         @RequestParam(required = false) String lote) {
+        return ResponseEntity.ok(traspasoService.buscarTodos(estado, lote));
+    }
+
+    @GetMapping("/en-transito")
+    @Operation(summary = "Stock en tránsito", description = "Unidades y traspasos EN_TRANSITO por almacén de destino.")
+    @ApiResponse(responseCode = "200", description = "Resumen por almacén")
+    public ResponseEntity<?> enTransito() {
+        return ResponseEntity.ok(traspasoService.resumenEnTransito());
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Obtener traspaso por ID")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Traspaso encontrado"),
+            @ApiResponse(responseCode = "404", description = "Traspaso no encontrado")
+    })
+    public ResponseEntity<?> buscarPorId(@PathVariable Long id) {
+        return responder(HttpStatus.OK, () -> traspasoService.buscarPorId(id));
+    }
+
+    @PostMapping("/{id}/recibir")
+    @Operation(summary = "Recibir traspaso", description = "Suma las unidades al almacén de destino.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Traspaso completado"),
+            @ApiResponse(responseCode = "404", description = "Traspaso no encontrado"),
+            @ApiResponse(responseCode = "409", description = "El traspaso no está EN_TRANSITO")
+    })
+    public ResponseEntity<?> recibir(@PathVariable Long id) {
+        return responder(HttpStatus.OK, () -> traspasoService.recibir(id));
+    }
+
+    @PostMapping("/{id}/cancelar")
+    @Operation(summary = "Cancelar traspaso", description = "Devuelve las unidades al almacén de origen.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Traspaso cancelado"),
+            @ApiResponse(responseCode = "404", description = "Traspaso no encontrado"),
+            @ApiResponse(responseCode = "409", description = "El traspaso no está EN_TRANSITO")
+    })
+    public ResponseEntity<?> cancelar(@PathVariable Long id) {
+        return responder(HttpStatus.OK, () -> traspasoService.cancelar(id));
+    }
+
+    private ResponseEntity<?> responder(HttpStatus ok, Supplier<?> operacion) {
+        try {
+            return ResponseEntity.status(ok).body(operacion.get());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage()));
+        } catch (IllegalStateException | ConcurrencyFailureException e) {
+            // ConcurrencyFailureException: timeout esperando el bloqueo de un almacén
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ErrorResponse(404, e.getMessage()));
+        }
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.inventarioapiad.controller;
+
+import com.example.inventarioapiad.entity.ValoracionAlmacen;
+import com.example.inventarioapiad.service.ValoracionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Valoración del inventario a coste (la mantiene ValoracionService):
+//   GET  /api/almacenes/{id}/valoracion  - valor de un almacén
+//   GET  /api/valoracion                 - valor global + desglose
+//   POST /api/valoracion/recalcular      - reconstruye desde el histórico
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api")
+@Tag(name = "Valoración", description = "Valor del inventario por almacén y global")
+public class ValoracionController {
+
+    @Autowired
+    private ValoracionService valoracionService;
+
+    @GetMapping("/almacenes/{id}/valoracion")
+    @Operation(summary = "Valoración de un almacén",
+               description = "Unidades y valor a coste del almacén. Se lee del total ya calculado, sin recorrer compras ni ventas.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Valoración del almacén"),
+            @ApiResponse(responseCode = "400", description = "ID inválido"),
+            @ApiResponse(responseCode = "404", description = "Almacén no encontrado")
+    })
+    public ResponseEntity<?> valoracionDeAlmacen(@PathVariable Long id) {
+        try {
+            ValoracionAlmacen valoracion = valoracionService.valoracionDeAlmacen(id);
+            return ResponseEntity.ok(valoracion);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ErrorResponse(400, e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ErrorResponse(404, e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    new ErrorResponse(500, "Error al obtener la valoración: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/valoracion")
+    @Operation(summary = "Valoración global", description = "Valor total del inventario y desglose por almacén.")
+    @ApiResponse(responseCode = "200", description = "Valoración global")
+    public ResponseEntity<?> valoracionGlobal() {
+        return ResponseEntity.ok(valoracionService.valoracionGlobal());
+    }
+
+    @PostMapping("/valoracion/recalcular")
+    @Operation(summary = "Recalcular valoración",
+               description = "Reconstruye la valoración desde el histórico de compras recibidas y ventas.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Valoración recalculada"),
+            @ApiResponse(responseCode = "409", description = "Ya hay una reconstrucción en curso"),
+            @ApiResponse(responseCode = "500", description = "Error al recalcular")
+    })
+    public ResponseEntity<?> recalcular() {
+        try {
+            return ResponseEntity.ok(valoracionService.reconstruir());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ErrorResponse(409, e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    new ErrorResponse(500, "Error al recalcular la valoración: " + e.getMessage()));
+        }
+    }
+
+    // Clase interna para respuestas de error
+    public static class ErrorResponse {
+        public int codigo;
+        public String mensaje;
+
+        public ErrorResponse(int codigo, String mensaje) {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        public int getCodigo() { return codigo; }
+        public String getMensaje() { return mensaje; }
+    }
+}
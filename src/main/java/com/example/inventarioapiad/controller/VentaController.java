@@ -326,22 +326,15 @@ public class VentaController {
             @PathVariable Long id,
             @RequestBody Venta ventaActualizada) {
         try {
-            Venta existente = ventaService.buscarPorId(id);
+            // Solo los campos que vinieron (no null): actualizar() lee la venta
+            // de la BD y los aplica en la misma transacción.
+            Venta cambios = new Venta();
+            cambios.setCantidad(ventaActualizada.getCantidad());
+            cambios.setPrecioUnitario(ventaActualizada.getPrecioUnitario());
+            cambios.setNumeroPedido(ventaActualizada.getNumeroPedido());
+            cambios.setEstado(ventaActualizada.getEstado());
 
-            if (ventaActualizada.getCantidad() != null) {
-                existente.setCantidad(ventaActualizada.getCantidad());
-            }
-            if (ventaActualizada.getPrecioUnitario() != null) {
-                existente.setPrecioUnitario(ventaActualizada.getPrecioUnitario());
-            }
-            if (ventaActualizada.getNumeroPedido() != null) {
-                existente.setNumeroPedido(ventaActualizada.getNumeroPedido());
-            }
-            if (ventaActualizada.getEstado() != null) {
-                existente.setEstado(ventaActualizada.getEstado());
-            }
-
-            Venta actualizada = ventaService.actualizar(id, existente);
+            Venta actualizada = ventaService.actualizar(id, cambios);
             return ResponseEntity.ok(actualizada);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
@@ -0,0 +1,37 @@
+package com.example.inventarioapiad.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+// Alerta de stock bajo de un producto (la calcula AlertaStockService).
+// Es inmutable: cada vez que cambia el stock se crea una nueva y se
+// sustituye en la cola de prioridad.
+@Getter
+@ToString
+@AllArgsConstructor
+public class AlertaStock {
+
+    // De más a menos urgente
+    public enum Nivel {
+        AGOTADO,   // sin stock
+        CRITICO,   // se acaba antes de que llegue un pedido nuevo
+        BAJO       // por debajo del punto de pedido
+    }
+
+    private final Long productoId;
+    private final String sku;
+    private final Nivel nivel;
+    private final int stockActual;
+    private final int puntoPedido;
+    private final double ventasDiarias;
+    private final int diasEntrega;
+
+    // Días que aguanta el stock al ritmo de ventas actual (0 si está agotado).
+    // Es la prioridad de la cola: menos días, más urgente.
+    private final double diasCobertura;
+
+    private final LocalDateTime fecha;
+}
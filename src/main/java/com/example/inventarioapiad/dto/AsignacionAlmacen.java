@@ -0,0 +1,18 @@
+package com.example.inventarioapiad.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Un trozo del reparto de una compra: cuántas unidades van a qué almacén
+// y cuánto hueco le queda a ese almacén después.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsignacionAlmacen {
+
+    private Long almacenId;
+    private String almacenNombre;
+    private int cantidad;
+    private long libreDespues;
+}
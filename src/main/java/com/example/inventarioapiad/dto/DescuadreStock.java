@@ -0,0 +1,23 @@
+package com.example.inventarioapiad.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Un contador que no cuadra con la suma de sus filas de stock_almacen:
+//   PRODUCTO  Producto.stockTotal  vs  suma de ese producto en todos los almacenes
+//   ALMACEN   Almacen.stockActual  vs  suma de todos los productos de ese almacén
+// diferencia = registrado - calculado (positiva: el contador tiene de más).
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DescuadreStock {
+
+    private String tipo;
+    private Long id;
+    private String nombre;
+    private long registrado;
+    private long calculado;
+    private long diferencia;
+    private boolean corregido;
+}
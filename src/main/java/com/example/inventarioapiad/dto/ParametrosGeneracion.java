@@ -0,0 +1,49 @@
+package com.example.inventarioapiad.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// Parámetros del generador de datos (prefijo "generador." en el perfil
+// generador o en la línea de comandos). Por defecto, unos 10 millones de
+// filas entre todas las tablas.
+@Data
+public class ParametrosGeneracion {
+
+    private int productos = 100_000;
+    private int clientes = 500_000;
+    private int proveedores = 2_000;
+    private int almacenes = 20;
+    private long ventas = 7_000_000;
+    private long compras = 2_400_000;
+
+    // Inclinación de la popularidad: 0 = uniforme; ~1 = el 20% de los
+    // productos se lleva en torno al 80% de las ventas
+    private double zipfProductos = 1.0;
+    private double zipfClientes = 0.7;
+
+    // Fechas de ventas y compras: los últimos N meses hasta hoy
+    private int meses = 24;
+    private double crecimientoAnual = 0.15;
+
+    // Filas por INSERT multi-fila y consultas en paralelo
+    private int lote = 1000;
+    private int hilos = 4;
+
+    // Misma semilla, mismos datos (salvo los sufijos únicos de sku y pedidos)
+    private long semilla = 42;
+
+    // No genera nada si ya hay productos en la BD
+    private boolean soloSiVacia = true;
+
+    // Cierra la aplicación al terminar (uso desde la línea de comandos)
+    private boolean salir = false;
+
+    public LocalDate hasta() {
+        return LocalDate.now().plusDays(1);
+    }
+
+    public LocalDate desde() {
+        return hasta().minusMonths(meses);
+    }
+}
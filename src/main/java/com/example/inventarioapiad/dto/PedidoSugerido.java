@@ -0,0 +1,37 @@
+package com.example.inventarioapiad.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Pedido de compra sugerido: lo que habría que pedir a UN proveedor para
+// UN almacén. Lo genera SugerenciaCompraService; el comprador lo revisa y
+// lo convierte en compras PENDIENTE.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoSugerido {
+
+    private Long proveedorId;        // null si el producto nunca se ha comprado
+    private String proveedorNombre;
+    private Long almacenId;
+    private String almacenNombre;
+    private long totalUnidades;
+    private List<Linea> lineas = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Linea {
+        private Long productoId;
+        private String sku;
+        private int cantidad;
+        private int stockActual;
+        private int pendienteRecibir;
+        private double ventasDiarias;
+        private double diasCobertura;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.inventarioapiad.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Cuerpo de POST /api/traspasos (y de cada elemento de /api/traspasos/lote).
+// Si enTransito es false (por defecto) el traspaso se completa al momento;
+// si es true queda EN_TRANSITO hasta que se recibe en el destino.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TraspasoRequest {
+
+    private Long productoId;
+    private Long almacenOrigenId;
+    private Long almacenDestinoId;
+    private Integer cantidad;
+    private boolean enTransito;
+    private String observaciones;
+}
@@ -1,16 +1,23 @@
 package com.example.inventarioapiad.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.*;
 import lombok.*;
 import java.time.LocalDateTime;
 
+// En la caché de segundo nivel (ver CacheSegundoNivelConfig)
 @Entity
-@Table(name = "almacenes")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "almacenes")
+@Table(name = "almacenes",
+       indexes = @Index(name = "idx_almacenes_fecha_modificacion", columnList = "fecha_modificacion"))
 @Data
+@EqualsAndHashCode(callSuper = false)
 @NoArgsConstructor
 @AllArgsConstructor
-public class Almacen {
+public class Almacen extends EntidadModificable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
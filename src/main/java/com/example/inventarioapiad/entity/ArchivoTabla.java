@@ -0,0 +1,45 @@
+package com.example.inventarioapiad.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+// Una tabla de archivo mensual (p.ej. ventas_archivo_202401) con las
+// ventas o compras cerradas de ese mes que ArchivoService ha sacado de la
+// tabla viva. idMinimo/idMaximo acotan los ids que contiene para ir
+// directo a la tabla (o pocas tablas) al buscar un id archivado.
+@Entity
+@Table(name = "archivo_tablas",
+       uniqueConstraints = @UniqueConstraint(name = "uk_archivo_tablas_origen_mes", columnNames = {"origen", "mes"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivoTabla {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Tabla de la que salen las filas: "ventas" o "compras"
+    @Column(nullable = false, length = 20)
+    private String origen;
+
+    // Año y mes como yyyyMM
+    @Column(nullable = false)
+    private Integer mes;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String tabla;
+
+    @Column(nullable = false)
+    private Long filas = 0L;
+
+    @Column(name = "id_minimo", nullable = false)
+    private Long idMinimo = Long.MAX_VALUE;
+
+    @Column(name = "id_maximo", nullable = false)
+    private Long idMaximo = 0L;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion = LocalDateTime.now();
+}
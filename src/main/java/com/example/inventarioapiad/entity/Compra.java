@@ -6,11 +6,13 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "compras")
+@Table(name = "compras",
+       indexes = @Index(name = "idx_compras_fecha_modificacion", columnList = "fecha_modificacion"))
 @Data
+@EqualsAndHashCode(callSuper = false)
 @NoArgsConstructor
 @AllArgsConstructor
-public class Compra {
+public class Compra extends EntidadModificable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,53 @@
+package com.example.inventarioapiad.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+// Una ejecución del repreciado masivo del catálogo contra el servicio
+// externo de precios. Sirve a la vez de informe (contadores) y de punto de
+// control: "ultimoIdProcesado" se guarda en la misma transacción que cada
+// lote de UPDATEs, así que si la app se cae a mitad se reanuda justo
+// después del último lote confirmado.
+@Entity
+@Table(name = "ejecuciones_repreciado")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EjecucionRepreciado {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String estado = "EN_CURSO";  // EN_CURSO, COMPLETADA, INTERRUMPIDA, FALLIDA
+
+    // Cursor keyset: último id de producto cuyo lote ya está confirmado
+    @Column(nullable = false)
+    private Long ultimoIdProcesado = 0L;
+
+    @Column(nullable = false)
+    private Long procesados = 0L;
+
+    @Column(nullable = false)
+    private Long actualizados = 0L;
+
+    @Column(nullable = false)
+    private Long sinCambios = 0L;
+
+    // SKUs que el servicio externo no conoce (404)
+    @Column(nullable = false)
+    private Long noEncontrados = 0L;
+
+    // Timeouts, 5xx, circuito abierto...
+    @Column(nullable = false)
+    private Long fallidos = 0L;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaInicio = LocalDateTime.now();
+
+    private LocalDateTime fechaFin;
+
+    private String mensaje;
+}
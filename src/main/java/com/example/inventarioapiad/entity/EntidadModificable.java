@@ -0,0 +1,21 @@
+package com.example.inventarioapiad.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
+import jakarta.persistence.MappedSuperclass;
+import lombok.Getter;
+import java.time.LocalDateTime;
+
+// Marca de última modificación que mantiene la propia BD (DEFAULT y ON
+// UPDATE), así que cuenta también los UPDATE por SQL nativo (stock,
+// repreciado...). La usa la exportación incremental como marca de agua;
+// Hibernate no la escribe nunca.
+@MappedSuperclass
+@Getter
+public abstract class EntidadModificable {
+
+    @JsonIgnore
+    @Column(name = "fecha_modificacion", insertable = false, updatable = false,
+            columnDefinition = "DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)")
+    private LocalDateTime fechaModificacion;
+}
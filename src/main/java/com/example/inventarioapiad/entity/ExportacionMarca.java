@@ -0,0 +1,38 @@
+package com.example.inventarioapiad.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+// Hasta dónde se ha exportado cada tabla a ficheros columnares: la
+// siguiente exportación incremental sigue a partir de (marca, ultimoId)
+// en orden de fecha_modificacion, id.
+@Entity
+@Table(name = "exportacion_marcas")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportacionMarca {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 32)
+    private String tabla;
+
+    // fecha_modificacion de la última fila exportada
+    @Column(nullable = false, columnDefinition = "DATETIME(6)")
+    private LocalDateTime marca;
+
+    // Id de la última fila exportada con esa fecha_modificacion
+    @Column(name = "ultimo_id", nullable = false)
+    private Long ultimoId = 0L;
+
+    // Filas exportadas en total
+    @Column(nullable = false)
+    private Long filas = 0L;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaEjecucion = LocalDateTime.now();
+}
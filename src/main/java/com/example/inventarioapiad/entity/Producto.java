@@ -5,11 +5,13 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "productos")
+@Table(name = "productos",
+       indexes = @Index(name = "idx_productos_fecha_modificacion", columnList = "fecha_modificacion"))
 @Data
+@EqualsAndHashCode(callSuper = false)
 @NoArgsConstructor
 @AllArgsConstructor
-public class Producto {
+public class Producto extends EntidadModificable {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -41,4 +43,15 @@ public class Producto {
 
     @Column(nullable = false, updatable = false)
     private LocalDateTime fechaCreacion = LocalDateTime.now();
+
+    // Clase ABC por ingresos (A, B o C); la calcula ClasificacionAbcService,
+    // null si aún no se ha clasificado
+    @Column(length = 1)
+    private String claseAbc;
+
+    // Constructor sin la clase ABC (no se asigna a mano)
+    public Producto(Long id, String nombre, String sku, String descripcion, Float precioCosto, Float precioVenta,
+                    Integer stockTotal, Boolean activo, LocalDateTime fechaCreacion) {
+        this(id, nombre, sku, descripcion, precioCosto, precioVenta, stockTotal, activo, fechaCreacion, null);
+    }
 }
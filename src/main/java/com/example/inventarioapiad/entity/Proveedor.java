@@ -1,11 +1,16 @@
 package com.example.inventarioapiad.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.*;
 import lombok.*;
 import java.time.LocalDateTime;
 
+// En la caché de segundo nivel (ver CacheSegundoNivelConfig)
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "proveedores")
 @Table(name = "proveedores")
 @Data
 @NoArgsConstructor
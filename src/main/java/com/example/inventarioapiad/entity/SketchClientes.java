@@ -0,0 +1,44 @@
+package com.example.inventarioapiad.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// HyperLogLog de los clientes que han comprado un día, por producto
+// (dimension P), por almacén (A) o en total (T, dimensionId 0). Los
+// registros van serializados en formato compacto (disperso o denso a 6
+// bits); ver ClientesDistintosService.
+@Entity
+@Table(name = "sketch_clientes",
+       uniqueConstraints = @UniqueConstraint(name = "uk_sketch_clientes_clave",
+                                             columnNames = {"dimension", "dimension_id", "dia"}),
+       indexes = @Index(name = "idx_sketch_clientes_dia", columnList = "dia"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SketchClientes {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 1)
+    private String dimension;
+
+    @Column(name = "dimension_id", nullable = false)
+    private Long dimensionId;
+
+    @Column(nullable = false)
+    private LocalDate dia;
+
+    // Ventas (exactas) que han alimentado el sketch
+    @Column(nullable = false)
+    private Long ventas = 0L;
+
+    @Column(nullable = false, length = 4096)
+    private byte[] registros;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaActualizacion = LocalDateTime.now();
+}
@@ -0,0 +1,35 @@
+package com.example.inventarioapiad.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+// Unidades de un producto en un almacén. Es el detalle del que salen
+// Producto.stockTotal (suma por producto) y Almacen.stockActual (suma por
+// almacén); ReconciliacionStockService comprueba que cuadren.
+@Entity
+@Table(name = "stock_almacen",
+       uniqueConstraints = @UniqueConstraint(name = "uk_stock_almacen_producto_almacen",
+                                             columnNames = {"producto_id", "almacen_id"}),
+       indexes = @Index(name = "idx_stock_almacen_almacen", columnList = "almacen_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAlmacen {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "producto_id", nullable = false)
+    private Long productoId;
+
+    @Column(name = "almacen_id", nullable = false)
+    private Long almacenId;
+
+    @Column(nullable = false)
+    private Integer cantidad = 0;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaActualizacion = LocalDateTime.now();
+}
@@ -0,0 +1,61 @@
+package com.example.inventarioapiad.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+// Traspaso de unidades de un producto de un almacén a otro.
+//
+// Estados:
+//   EN_TRANSITO  salido del origen, aún no recibido (ocupa hueco en el
+//                destino aunque no esté en su stockActual)
+//   COMPLETADO   ya está en el stockActual del destino
+//   CANCELADO    anulado en tránsito: las unidades vuelven al origen
+@Entity
+@Table(name = "traspasos")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Traspaso {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "producto_id", nullable = false)
+    private Producto producto;
+
+    @ManyToOne
+    @JoinColumn(name = "almacen_origen_id", nullable = false)
+    private Almacen almacenOrigen;
+
+    @ManyToOne
+    @JoinColumn(name = "almacen_destino_id", nullable = false)
+    private Almacen almacenDestino;
+
+    @Column(nullable = false)
+    @Positive(message = "La cantidad debe ser mayor a 0")
+    private Integer cantidad;
+
+    @Column(nullable = false)
+    private String estado = "EN_TRANSITO";  // EN_TRANSITO, COMPLETADO, CANCELADO
+
+    // Los traspasos creados en el mismo lote comparten este código
+    private String lote;
+
+    private String observaciones;
+
+    // Coste unitario con el que salió del origen (ValoracionService). Entra
+    // en el destino, o vuelve al origen si se cancela, a ese mismo coste.
+    private Float costeUnitario;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaEnvio;
+
+    private LocalDateTime fechaRecepcion;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion = LocalDateTime.now();
+}
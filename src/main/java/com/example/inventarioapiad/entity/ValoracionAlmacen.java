@@ -0,0 +1,33 @@
+package com.example.inventarioapiad.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+// Valoración materializada del inventario de un almacén (unidades y valor
+// a coste). La mantiene ValoracionService con cada movimiento de stock,
+// así que leerla es leer una fila, no recorrer compras y ventas.
+@Entity
+@Table(name = "valoraciones_almacen")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValoracionAlmacen {
+
+    // Mismo id que el almacén valorado (una fila por almacén)
+    @Id
+    private Long almacenId;
+
+    @Column(nullable = false)
+    private Long unidades = 0L;
+
+    @Column(nullable = false)
+    private Double valorTotal = 0.0;
+
+    // Método de coste con el que se ha calculado: PROMEDIO, FIFO o ESTANDAR
+    @Column(nullable = false)
+    private String metodo;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaActualizacion = LocalDateTime.now();
+}
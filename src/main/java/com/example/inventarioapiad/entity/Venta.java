@@ -6,11 +6,13 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "ventas")
+@Table(name = "ventas",
+       indexes = @Index(name = "idx_ventas_fecha_modificacion", columnList = "fecha_modificacion"))
 @Data
+@EqualsAndHashCode(callSuper = false)
 @NoArgsConstructor
 @AllArgsConstructor
-public class Venta {
+public class Venta extends EntidadModificable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,20 @@
+package com.example.inventarioapiad.event;
+
+import com.example.inventarioapiad.dto.AlertaStock;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Evento de dominio: una alerta de stock ha aparecido, ha cambiado de
+// nivel o se ha resuelto. Lo publica AlertaStockService y lo reenvía el
+// stream SSE de /api/alertas/stock/stream.
+@Getter
+@ToString
+@AllArgsConstructor
+public class AlertaStockEvent {
+
+    public enum Tipo { NUEVA, ACTUALIZADA, RESUELTA }
+
+    private final Tipo tipo;
+    private final AlertaStock alerta;
+}
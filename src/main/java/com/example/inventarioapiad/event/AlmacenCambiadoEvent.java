@@ -0,0 +1,20 @@
+package com.example.inventarioapiad.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Evento de dominio: ha cambiado la capacidad, el stockActual o el estado
+// de un almacén (alta, edición, baja o un movimiento de stock). Lleva los
+// valores ya guardados. Lo usa el índice de capacidad libre.
+@Getter
+@ToString
+@AllArgsConstructor
+public class AlmacenCambiadoEvent {
+
+    private final Long almacenId;
+    private final String nombre;
+    private final Integer capacidadMaxima;   // null = sin límite
+    private final int stockActual;
+    private final boolean activo;
+}
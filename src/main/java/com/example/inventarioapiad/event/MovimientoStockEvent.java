@@ -0,0 +1,56 @@
+package com.example.inventarioapiad.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.With;
+
+import java.time.LocalDateTime;
+
+// Evento de dominio: han entrado o salido unidades de un producto en un
+// almacén. Lo publican CompraService (compra RECIBIDA), VentaService
+// (venta creada / cancelada) y lo escucha quien necesite enterarse de
+// los movimientos sin que los servicios le conozcan (valoración, etc.).
+//
+// "cantidad" siempre es positiva; el sentido lo marca "tipo".
+@Getter
+@ToString
+@AllArgsConstructor
+public class MovimientoStockEvent {
+
+    public enum Tipo { ENTRADA, SALIDA }
+
+    private final Long productoId;
+    private final Long almacenId;
+    private final Tipo tipo;
+    private final int cantidad;
+
+    // Coste unitario de la entrada (precio de compra). Null en las salidas
+    // y en las devoluciones, que se valoran al coste que ya tenía el stock.
+    private final Float costeUnitario;
+
+    // De dónde viene el movimiento: "COMPRA", "VENTA", "TRASPASO"...
+    private final String origen;
+    private final Long origenId;
+
+    // Cuándo ocurrió la operación de origen (fechaVenta de la venta, también
+    // en su cancelación). Null si no se sabe: se toma el momento del evento.
+    @With
+    private final LocalDateTime fecha;
+
+    public static MovimientoStockEvent entrada(Long productoId, Long almacenId, int cantidad,
+                                               Float costeUnitario, String origen, Long origenId) {
+        return new MovimientoStockEvent(productoId, almacenId, Tipo.ENTRADA, cantidad, costeUnitario, origen, origenId,
+                null);
+    }
+
+    public static MovimientoStockEvent salida(Long productoId, Long almacenId, int cantidad,
+                                              String origen, Long origenId) {
+        return new MovimientoStockEvent(productoId, almacenId, Tipo.SALIDA, cantidad, null, origen, origenId, null);
+    }
+
+    // Cantidad con signo: + entradas, - salidas
+    public int getDelta() {
+        return tipo == Tipo.ENTRADA ? cantidad : -cantidad;
+    }
+}
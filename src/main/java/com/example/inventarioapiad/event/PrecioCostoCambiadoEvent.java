@@ -0,0 +1,16 @@
+package com.example.inventarioapiad.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Evento de dominio: ha cambiado el precio de coste de un producto
+// (alta del producto o PUT/PATCH con un precioCosto distinto).
+@Getter
+@ToString
+@AllArgsConstructor
+public class PrecioCostoCambiadoEvent {
+
+    private final Long productoId;
+    private final Float precioCosto;
+}
@@ -0,0 +1,16 @@
+package com.example.inventarioapiad.event;
+
+import com.example.inventarioapiad.entity.Producto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Evento de dominio: se ha dado de alta, modificado o desactivado un
+// producto desde ProductoService. Lleva el producto tal como se guardó.
+@Getter
+@ToString
+@AllArgsConstructor
+public class ProductoCambiadoEvent {
+
+    private final Producto producto;
+}
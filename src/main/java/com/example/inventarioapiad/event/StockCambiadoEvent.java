@@ -0,0 +1,19 @@
+package com.example.inventarioapiad.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Evento de dominio: el stockTotal de un producto ha cambiado (por un
+// movimiento de compra/venta o porque se editó a mano) o el producto se ha
+// activado/desactivado. Lleva el valor ya guardado, no la diferencia.
+@Getter
+@ToString
+@AllArgsConstructor
+public class StockCambiadoEvent {
+
+    private final Long productoId;
+    private final String sku;
+    private final int stockTotal;
+    private final boolean activo;
+}
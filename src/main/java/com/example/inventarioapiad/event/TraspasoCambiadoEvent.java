@@ -0,0 +1,20 @@
+package com.example.inventarioapiad.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Evento de dominio: un traspaso se ha creado o ha cambiado de estado.
+// estadoAnterior es null al crearlo. Lo usa el índice de capacidad para
+// reservar en el destino lo que está EN_TRANSITO.
+@Getter
+@ToString
+@AllArgsConstructor
+public class TraspasoCambiadoEvent {
+
+    private final Long traspasoId;
+    private final Long almacenDestinoId;
+    private final int cantidad;
+    private final String estadoAnterior;
+    private final String estadoNuevo;
+}
@@ -0,0 +1,22 @@
+package com.example.inventarioapiad.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+
+// Evento de dominio: se ha registrado una venta (no cancelada). A
+// diferencia de MovimientoStockEvent lleva el cliente y el día de la
+// venta; lo usan los recuentos de clientes distintos.
+@Getter
+@ToString
+@AllArgsConstructor
+public class VentaCreadaEvent {
+
+    private final Long ventaId;
+    private final Long clienteId;
+    private final Long productoId;
+    private final Long almacenId;
+    private final LocalDate dia;
+}
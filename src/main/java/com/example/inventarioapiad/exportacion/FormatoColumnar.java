@@ -0,0 +1,463 @@
+package com.example.inventarioapiad.exportacion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Formato columnar propio para la exportación analítica: un fichero por
+// columna (<columna>.col) dentro del directorio de cada exportación.
+//
+// Las filas se agrupan en grupos de "filasPorGrupo" (como los row groups
+// de Parquet): el escritor solo guarda en memoria el grupo en curso y al
+// llenarlo añade un bloque a cada fichero, así que la memoria no depende
+// del número de filas. Cada bloque es:
+//
+//   varint filas | nulos (RLE) | byte codificación | varint bytes | datos
+//
+// Los nulos son tramos alternos (primero no nulos) y los datos solo
+// llevan los valores no nulos. Codificaciones según el tipo y los datos
+// del bloque:
+//   ENTERO/FECHA  DELTA (zigzag varint de la diferencia con el anterior;
+//                 ids y fechas ordenadas ocupan 1-2 bytes) o RLE (tramo +
+//                 valor) si hay pocas series de valores repetidos
+//   DECIMAL       PLANO (4 bytes) o RLE
+//   BOOLEANO      RLE (tramos alternos empezando por false)
+//   TEXTO         DICCIONARIO (tabla de valores distintos + índices en
+//                 RLE) si se repiten, o PLANO (longitud + UTF-8)
+//
+// Las fechas se guardan como microsegundos desde 1970 de la fecha local
+// (la precisión de fecha_modificacion).
+public final class FormatoColumnar {
+
+    public enum Tipo { ENTERO, DECIMAL, TEXTO, BOOLEANO, FECHA }
+
+    public static final String EXTENSION = ".col";
+
+    static final byte DELTA = 1;
+    static final byte RLE = 2;
+    static final byte DICCIONARIO = 3;
+    static final byte PLANO = 4;
+
+    private FormatoColumnar() {
+    }
+
+    public record Columna(String nombre, Tipo tipo) { }
+
+    // ------------------------------------------------------------------
+
+    public static final class Escritor implements Closeable {
+        private final List<Columna> columnas;
+        private final int filasPorGrupo;
+        private final OutputStream[] salidas;
+        private final Object[][] grupo;
+        private final long[] bytes;
+        private final Map<String, Integer> usoCodificaciones = new LinkedHashMap<>();
+        private int filasGrupo;
+        private long filas;
+        private int grupos;
+        private boolean cerrado;
+
+        public Escritor(Path directorio, List<Columna> columnas, int filasPorGrupo) throws IOException {
+            this.columnas = columnas;
+            this.filasPorGrupo = filasPorGrupo;
+            this.salidas = new OutputStream[columnas.size()];
+            this.grupo = new Object[columnas.size()][filasPorGrupo];
+            this.bytes = new long[columnas.size()];
+            Files.createDirectories(directorio);
+            for (int c = 0; c < columnas.size(); c++) {
+                salidas[c] = new BufferedOutputStream(Files.newOutputStream(directorio.resolve(columnas.get(c).nombre() + EXTENSION)));
+            }
+        }
+
+        public void escribir(Object[] fila) throws IOException {
+            for (int c = 0; c < columnas.size(); c++) {
+                grupo[c][filasGrupo] = fila[c];
+            }
+            filas++;
+            if (++filasGrupo == filasPorGrupo) {
+                volcarGrupo();
+            }
+        }
+
+        public long filas() {
+            return filas;
+        }
+
+        public int grupos() {
+            return grupos;
+        }
+
+        // Bytes escritos por columna
+        public Map<String, Long> bytesPorColumna() {
+            Map<String, Long> resultado = new LinkedHashMap<>();
+            for (int c = 0; c < columnas.size(); c++) {
+                resultado.put(columnas.get(c).nombre(), bytes[c]);
+            }
+            return resultado;
+        }
+
+        // Veces que se ha usado cada codificación ("columna:CODIFICACION")
+        public Map<String, Integer> codificaciones() {
+            return usoCodificaciones;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            try {
+                if (filasGrupo > 0) {
+                    volcarGrupo();
+                }
+            } finally {
+                for (OutputStream salida : salidas) {
+                    if (salida != null) {
+                        salida.close();
+                    }
+                }
+            }
+        }
+
+        private void volcarGrupo() throws IOException {
+            ByteArrayOutputStream bloque = new ByteArrayOutputStream();
+            for (int c = 0; c < columnas.size(); c++) {
+                bloque.reset();
+                byte codificacion = codificarBloque(columnas.get(c).tipo(), grupo[c], filasGrupo, bloque);
+                salidas[c].write(bloque.toByteArray());
+                bytes[c] += bloque.size();
+                usoCodificaciones.merge(columnas.get(c).nombre() + ":" + nombre(codificacion), 1, Integer::sum);
+                Arrays.fill(grupo[c], 0, filasGrupo, null);
+            }
+            filasGrupo = 0;
+            grupos++;
+        }
+    }
+
+    // Escribe un bloque completo y devuelve la codificación elegida
+    static byte codificarBloque(Tipo tipo, Object[] valores, int n, ByteArrayOutputStream salida) {
+        escribirVarint(salida, n);
+        // Nulos: tramos alternos empezando por no nulos
+        List<Integer> tramos = new ArrayList<>();
+        boolean nulo = false;
+        int tramo = 0;
+        int noNulos = 0;
+        for (int i = 0; i < n; i++) {
+            boolean esNulo = valores[i] == null;
+            if (esNulo != nulo) {
+                tramos.add(tramo);
+                tramo = 0;
+                nulo = esNulo;
+            }
+            tramo++;
+            if (!esNulo) {
+                noNulos++;
+            }
+        }
+        tramos.add(tramo);
+        escribirVarint(salida, tramos.size());
+        for (int t : tramos) {
+            escribirVarint(salida, t);
+        }
+
+        Object[] presentes = new Object[noNulos];
+        for (int i = 0, k = 0; i < n; i++) {
+            if (valores[i] != null) {
+                presentes[k++] = valores[i];
+            }
+        }
+        ByteArrayOutputStream datos = new ByteArrayOutputStream();
+        byte codificacion = switch (tipo) {
+            case ENTERO, FECHA -> codificarEnteros(tipo, presentes, datos);
+            case DECIMAL -> codificarDecimales(presentes, datos);
+            case BOOLEANO -> codificarBooleanos(presentes, datos);
+            case TEXTO -> codificarTextos(presentes, datos);
+        };
+        salida.write(codificacion);
+        escribirVarint(salida, datos.size());
+        salida.writeBytes(datos.toByteArray());
+        return codificacion;
+    }
+
+    private static long comoLong(Tipo tipo, Object valor) {
+        if (tipo == Tipo.FECHA) {
+            LocalDateTime fecha = (LocalDateTime) valor;
+            return fecha.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + fecha.getNano() / 1000;
+        }
+        return ((Number) valor).longValue();
+    }
+
+    private static int series(Object[] valores) {
+        int series = 0;
+        for (int i = 0; i < valores.length; i++) {
+            if (i == 0 || !valores[i].equals(valores[i - 1])) {
+                series++;
+            }
+        }
+        return series;
+    }
+
+    private static byte codificarEnteros(Tipo tipo, Object[] valores, ByteArrayOutputStream datos) {
+        if (valores.length > 0 && series(valores) <= valores.length / 4) {
+            for (int i = 0; i < valores.length; ) {
+                int j = i;
+                while (j < valores.length && valores[j].equals(valores[i])) {
+                    j++;
+                }
+                escribirVarint(datos, j - i);
+                escribirVarint(datos, zigzag(comoLong(tipo, valores[i])));
+                i = j;
+            }
+            return RLE;
+        }
+        long anterior = 0;
+        for (Object valor : valores) {
+            long actual = comoLong(tipo, valor);
+            escribirVarint(datos, zigzag(actual - anterior));
+            anterior = actual;
+        }
+        return DELTA;
+    }
+
+    private static byte codificarDecimales(Object[] valores, ByteArrayOutputStream datos) {
+        boolean rle = valores.length > 0 && series(valores) <= valores.length / 4;
+        for (int i = 0; i < valores.length; ) {
+            int j = i + 1;
+            if (rle) {
+                while (j < valores.length && valores[j].equals(valores[i])) {
+                    j++;
+                }
+                escribirVarint(datos, j - i);
+            }
+            int bits = Float.floatToIntBits(((Number) valores[i]).floatValue());
+            datos.write(bits >>> 24);
+            datos.write(bits >>> 16);
+            datos.write(bits >>> 8);
+            datos.write(bits);
+            i = j;
+        }
+        return rle ? RLE : PLANO;
+    }
+
+    private static byte codificarBooleanos(Object[] valores, ByteArrayOutputStream datos) {
+        List<Integer> tramos = new ArrayList<>();
+        boolean actual = false;
+        int tramo = 0;
+        for (Object valor : valores) {
+            boolean b = (Boolean) valor;
+            if (b != actual) {
+                tramos.add(tramo);
+                tramo = 0;
+                actual = b;
+            }
+            tramo++;
+        }
+        tramos.add(tramo);
+        escribirVarint(datos, tramos.size());
+        for (int t : tramos) {
+            escribirVarint(datos, t);
+        }
+        return RLE;
+    }
+
+    private static byte codificarTextos(Object[] valores, ByteArrayOutputStream datos) {
+        Map<String, Integer> diccionario = new LinkedHashMap<>();
+        for (Object valor : valores) {
+            diccionario.putIfAbsent((String) valor, diccionario.size());
+            if (diccionario.size() > valores.length / 2) {
+                break;
+            }
+        }
+        if (valores.length == 0 || diccionario.size() > valores.length / 2) {
+            for (Object valor : valores) {
+                escribirTexto(datos, (String) valor);
+            }
+            return PLANO;
+        }
+        escribirVarint(datos, diccionario.size());
+        for (String valor : diccionario.keySet()) {
+            escribirTexto(datos, valor);
+        }
+        for (int i = 0; i < valores.length; ) {
+            int j = i;
+            while (j < valores.length && valores[j].equals(valores[i])) {
+                j++;
+            }
+            escribirVarint(datos, j - i);
+            escribirVarint(datos, diccionario.get((String) valores[i]));
+            i = j;
+        }
+        return DICCIONARIO;
+    }
+
+    // ------------------------------------------------------------------
+
+    // Lee una columna entera (para comprobaciones y herramientas; un lector
+    // analítico iría bloque a bloque)
+    public static List<Object> leer(Path fichero, Tipo tipo) throws IOException {
+        List<Object> resultado = new ArrayList<>();
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(fichero)))) {
+            while (true) {
+                int n;
+                try {
+                    n = (int) leerVarint(entrada);
+                } catch (EOFException e) {
+                    break;
+                }
+                int numeroTramos = (int) leerVarint(entrada);
+                int[] tramos = new int[numeroTramos];
+                int noNulos = 0;
+                for (int t = 0; t < numeroTramos; t++) {
+                    tramos[t] = (int) leerVarint(entrada);
+                    if (t % 2 == 0) {
+                        noNulos += tramos[t];
+                    }
+                }
+                byte codificacion = entrada.readByte();
+                leerVarint(entrada);
+                List<Object> presentes = decodificar(tipo, codificacion, noNulos, entrada);
+                int k = 0;
+                for (int t = 0; t < numeroTramos; t++) {
+                    for (int i = 0; i < tramos[t]; i++) {
+                        resultado.add(t % 2 == 0 ? presentes.get(k++) : null);
+                    }
+                }
+            }
+        }
+        return resultado;
+    }
+
+    private static List<Object> decodificar(Tipo tipo, byte codificacion, int n, DataInputStream entrada) throws IOException {
+        List<Object> valores = new ArrayList<>(n);
+        switch (codificacion) {
+            case DELTA -> {
+                long anterior = 0;
+                for (int i = 0; i < n; i++) {
+                    anterior += unzigzag(leerVarint(entrada));
+                    valores.add(desdeLong(tipo, anterior));
+                }
+            }
+            case RLE -> {
+                if (tipo == Tipo.BOOLEANO) {
+                    int numeroTramos = (int) leerVarint(entrada);
+                    boolean actual = false;
+                    for (int t = 0; t < numeroTramos; t++) {
+                        long tramo = leerVarint(entrada);
+                        for (long i = 0; i < tramo; i++) {
+                            valores.add(actual);
+                        }
+                        actual = !actual;
+                    }
+                } else {
+                    while (valores.size() < n) {
+                        long tramo = leerVarint(entrada);
+                        Object valor = tipo == Tipo.DECIMAL
+                                ? (Object) Float.intBitsToFloat(entrada.readInt())
+                                : desdeLong(tipo, unzigzag(leerVarint(entrada)));
+                        for (long i = 0; i < tramo; i++) {
+                            valores.add(valor);
+                        }
+                    }
+                }
+            }
+            case PLANO -> {
+                for (int i = 0; i < n; i++) {
+                    valores.add(tipo == Tipo.DECIMAL ? (Object) Float.intBitsToFloat(entrada.readInt()) : leerTexto(entrada));
+                }
+            }
+            case DICCIONARIO -> {
+                int tamano = (int) leerVarint(entrada);
+                String[] diccionario = new String[tamano];
+                for (int d = 0; d < tamano; d++) {
+                    diccionario[d] = leerTexto(entrada);
+                }
+                while (valores.size() < n) {
+                    long tramo = leerVarint(entrada);
+                    String valor = diccionario[(int) leerVarint(entrada)];
+                    for (long i = 0; i < tramo; i++) {
+                        valores.add(valor);
+                    }
+                }
+            }
+            default -> throw new IOException("Codificación desconocida: " + codificacion);
+        }
+        return valores;
+    }
+
+    private static Object desdeLong(Tipo tipo, long valor) {
+        return tipo == Tipo.FECHA ? LocalDateTime.ofEpochSecond(Math.floorDiv(valor, 1_000_000L),
+                (int) Math.floorMod(valor, 1_000_000L) * 1000, ZoneOffset.UTC) : (Object) valor;
+    }
+
+    static String nombre(byte codificacion) {
+        return switch (codificacion) {
+            case DELTA -> "DELTA";
+            case RLE -> "RLE";
+            case DICCIONARIO -> "DICCIONARIO";
+            case PLANO -> "PLANO";
+            default -> "?";
+        };
+    }
+
+    // ------------------------------------------------------------------
+
+    private static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    private static long unzigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    private static void escribirVarint(ByteArrayOutputStream salida, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            salida.write((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        salida.write((int) valor);
+    }
+
+    private static long leerVarint(InputStream entrada) throws IOException {
+        long valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+            int b = entrada.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IOException("Varint demasiado largo");
+    }
+
+    private static void escribirTexto(ByteArrayOutputStream salida, String valor) {
+        byte[] utf8 = valor.getBytes(StandardCharsets.UTF_8);
+        escribirVarint(salida, utf8.length);
+        salida.writeBytes(utf8);
+    }
+
+    private static String leerTexto(DataInputStream entrada) throws IOException {
+        byte[] utf8 = new byte[(int) leerVarint(entrada)];
+        entrada.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.inventarioapiad.externo;
+
+// Circuit breaker mínimo para el servicio externo.
+//
+//   CERRADO     -> las llamadas pasan. Tras N fallos seguidos se abre.
+//   ABIERTO     -> las llamadas fallan al momento sin tocar la red.
+//                  Pasado el tiempo de espera pasa a SEMIABIERTO.
+//   SEMIABIERTO -> se deja pasar UNA llamada de prueba. Si va bien se
+//                  cierra; si falla se vuelve a abrir.
+//
+// Los métodos son synchronized: solo se llaman una vez por petición
+// real al servicio externo, así que la contención es despreciable.
+public class CircuitBreaker {
+
+    public enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+    private final int umbralFallos;
+    private final long esperaNanos;
+
+    private Estado estado = Estado.CERRADO;
+    private int fallosSeguidos = 0;
+    private long abiertoDesde = 0;
+    private boolean pruebaEnCurso = false;
+
+    public CircuitBreaker(int umbralFallos, long esperaMs) {
+        if (umbralFallos <= 0) {
+            throw new IllegalArgumentException("El umbral de fallos debe ser mayor a 0");
+        }
+        this.umbralFallos = umbralFallos;
+        this.esperaNanos = esperaMs * 1_000_000L;
+    }
+
+    // Devuelve true si se puede hacer la llamada ahora mismo.
+    public synchronized boolean permitirLlamada() {
+        if (estado == Estado.CERRADO) {
+            return true;
+        }
+        if (estado == Estado.ABIERTO && System.nanoTime() - abiertoDesde >= esperaNanos) {
+            estado = Estado.SEMIABIERTO;
+            pruebaEnCurso = false;
+        }
+        if (estado == Estado.SEMIABIERTO && !pruebaEnCurso) {
+            pruebaEnCurso = true;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void registrarExito() {
+        fallosSeguidos = 0;
+        pruebaEnCurso = false;
+        estado = Estado.CERRADO;
+    }
+
+    public synchronized void registrarFallo() {
+        pruebaEnCurso = false;
+        fallosSeguidos++;
+        if (estado == Estado.SEMIABIERTO || fallosSeguidos >= umbralFallos) {
+            estado = Estado.ABIERTO;
+            abiertoDesde = System.nanoTime();
+        }
+    }
+
+    // La llamada autorizada al final no se hizo (p.ej. bulkhead lleno):
+    // no cuenta ni como éxito ni como fallo.
+    public synchronized void cancelarLlamada() {
+        pruebaEnCurso = false;
+    }
+
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+}
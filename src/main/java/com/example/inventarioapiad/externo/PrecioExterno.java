@@ -0,0 +1,16 @@
+package com.example.inventarioapiad.externo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Respuesta del servicio externo de precios (GET /api/precios/{sku}).
+// Formato: {"sku": "TORNILLO-M10", "precio": 1.25}
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrecioExterno {
+
+    private String sku;
+    private Float precio;
+}
@@ -0,0 +1,284 @@
+package com.example.inventarioapiad.externo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Cliente del servicio externo de precios e impuestos:
+//   GET /api/precios/{sku}  -> {"sku": "...", "precio": 1.25}  (404 si no existe)
+//   GET /api/impuestos      -> "21" (texto plano, IVA en %)
+//
+// Todas las llamadas son no bloqueantes (HttpClient.sendAsync) y devuelven
+// un CompletableFuture. Por delante de la red hay varias capas:
+//
+//   1. Caché por clave con TTL + stale-while-revalidate: dentro del TTL se
+//      responde de memoria; pasado el TTL pero dentro de la ventana "stale"
+//      se devuelve el valor viejo al momento y se refresca en segundo plano.
+//      Como mucho "cache-max-entradas" claves: al pasarse se quita la menos
+//      usada (un repreciado recorre todo el catálogo y no debe quedarse
+//      con un SKU por producto en memoria para siempre).
+//   2. Coalescencia: si 50 peticiones piden el mismo SKU a la vez, solo
+//      sale UNA llamada HTTP y todas comparten el resultado.
+//   3. Circuit breaker: si el servicio falla N veces seguidas dejamos de
+//      llamarle durante un rato y fallamos rápido.
+//   4. Bulkhead: como mucho X llamadas simultáneas; el resto se rechaza
+//      en vez de encolarse y arrastrar a los hilos de la API.
+//   5. Timeouts de conexión y de petición.
+@Component
+@Slf4j
+public class PreciosExternosClient {
+
+    private static final String CLAVE_IMPUESTOS = "impuestos";
+
+    private final String urlBase;
+    private final Duration timeout;
+    private final long ttlNanos;
+    private final long staleNanos;
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+
+    // LinkedHashMap en orden de acceso: LRU. Las operaciones son cortas y
+    // sin E/S, así que basta con sincronizarlas.
+    private final Map<String, EntradaCache> cache;
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> enVuelo = new ConcurrentHashMap<>();
+
+    // Métricas básicas (LongAdder para no pelearse entre hilos)
+    private final LongAdder aciertosCache = new LongAdder();
+    private final LongAdder aciertosStale = new LongAdder();
+    private final LongAdder fallosCache = new LongAdder();
+    private final LongAdder llamadasCoalescidas = new LongAdder();
+    private final LongAdder rechazadasBulkhead = new LongAdder();
+    private final LongAdder rechazadasCircuito = new LongAdder();
+    private final LongAdder desalojosCache = new LongAdder();
+
+    public PreciosExternosClient(
+            @Value("${externo.precios.url-base}") String urlBase,
+            @Value("${externo.precios.timeout-ms:2000}") long timeoutMs,
+            @Value("${externo.precios.cache-ttl-segundos:300}") long ttlSegundos,
+            @Value("${externo.precios.cache-stale-segundos:600}") long staleSegundos,
+            @Value("${externo.precios.cache-max-entradas:10000}") int maxEntradasCache,
+            @Value("${externo.precios.max-concurrentes:20}") int maxConcurrentes,
+            @Value("${externo.precios.circuito.umbral-fallos:5}") int umbralFallos,
+            @Value("${externo.precios.circuito.espera-ms:30000}") long esperaCircuitoMs) {
+        this.urlBase = urlBase.endsWith("/") ? urlBase.substring(0, urlBase.length() - 1) : urlBase;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.ttlNanos = Duration.ofSeconds(ttlSegundos).toNanos();
+        this.staleNanos = Duration.ofSeconds(staleSegundos).toNanos();
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EntradaCache> masAntigua) {
+                if (size() <= maxEntradasCache) {
+                    return false;
+                }
+                desalojosCache.increment();
+                return true;
+            }
+        });
+        this.bulkhead = new Semaphore(maxConcurrentes);
+        this.circuitBreaker = new CircuitBreaker(umbralFallos, esperaCircuitoMs);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    // Precio de un SKU. Optional.empty() si el servicio externo no lo conoce (404).
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Optional<PrecioExterno>> obtenerPrecio(String sku) {
+        if (sku == null || sku.isBlank()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("El SKU es obligatorio"));
+        }
+        String ruta = "/api/precios/" + URLEncoder.encode(sku, StandardCharsets.UTF_8).replace("+", "%20");
+        CompletableFuture<Object> resultado = obtener("precio:" + sku, ruta, this::parsearPrecio);
+        return resultado.thenApply(valor -> (Optional<PrecioExterno>) valor);
+    }
+
+    // Porcentaje de impuestos (IVA) que devuelve el servicio externo.
+    public CompletableFuture<Float> obtenerImpuestos() {
+        return obtener(CLAVE_IMPUESTOS, "/api/impuestos", this::parsearImpuestos)
+                .thenApply(valor -> (Float) valor);
+    }
+
+    // Vacía la caché (p.ej. tras un cambio masivo de precios en origen).
+    public void invalidarCache() {
+        cache.clear();
+    }
+
+    public CircuitBreaker.Estado getEstadoCircuito() {
+        return circuitBreaker.getEstado();
+    }
+
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entradasCache", cache.size());
+        stats.put("aciertosCache", aciertosCache.sum());
+        stats.put("aciertosStale", aciertosStale.sum());
+        stats.put("fallosCache", fallosCache.sum());
+        stats.put("llamadasCoalescidas", llamadasCoalescidas.sum());
+        stats.put("rechazadasBulkhead", rechazadasBulkhead.sum());
+        stats.put("rechazadasCircuito", rechazadasCircuito.sum());
+        stats.put("desalojosCache", desalojosCache.sum());
+        stats.put("estadoCircuito", circuitBreaker.getEstado());
+        return stats;
+    }
+
+    // ------------------------------------------------------------------
+    // Caché + stale-while-revalidate
+    // ------------------------------------------------------------------
+
+    private CompletableFuture<Object> obtener(String clave, String ruta,
+                                              Function<HttpResponse<String>, Object> parser) {
+        EntradaCache entrada = cache.get(clave);
+        if (entrada != null) {
+            long edad = System.nanoTime() - entrada.obtenidoEn;
+            if (edad > ttlNanos + staleNanos) {
+                // Caducada del todo: fuera, aunque la carga falle
+                cache.remove(clave, entrada);
+            }
+            if (edad <= ttlNanos) {
+                aciertosCache.increment();
+                return CompletableFuture.completedFuture(entrada.valor);
+            }
+            if (edad <= ttlNanos + staleNanos) {
+                // Devolvemos el valor viejo YA y refrescamos por detrás.
+                // Si el refresco falla da igual: seguimos sirviendo el viejo.
+                aciertosStale.increment();
+                cargarCoalescido(clave, ruta, parser).exceptionally(e -> {
+                    log.warn("No se pudo refrescar '{}' en segundo plano: {}", clave, e.getMessage());
+                    return null;
+                });
+                return CompletableFuture.completedFuture(entrada.valor);
+            }
+        }
+        fallosCache.increment();
+        return cargarCoalescido(clave, ruta, parser);
+    }
+
+    // ------------------------------------------------------------------
+    // Coalescencia: una sola llamada en vuelo por clave
+    // ------------------------------------------------------------------
+
+    private CompletableFuture<Object> cargarCoalescido(String clave, String ruta,
+                                                      Function<HttpResponse<String>, Object> parser) {
+        CompletableFuture<Object> nuevo = new CompletableFuture<>();
+        CompletableFuture<Object> existente = enVuelo.putIfAbsent(clave, nuevo);
+        if (existente != null) {
+            llamadasCoalescidas.increment();
+            return existente;
+        }
+
+        // El putIfAbsent + completar a mano (en vez de computeIfAbsent) evita
+        // modificar el mapa desde dentro de su propia función si la llamada
+        // falla de forma síncrona (circuito abierto, bulkhead lleno...).
+        llamar(ruta, parser).whenComplete((valor, error) -> {
+            if (error == null) {
+                cache.put(clave, new EntradaCache(valor, System.nanoTime()));
+            }
+            enVuelo.remove(clave, nuevo);
+            if (error != null) {
+                nuevo.completeExceptionally(error);
+            } else {
+                nuevo.complete(valor);
+            }
+        });
+        return nuevo;
+    }
+
+    // ------------------------------------------------------------------
+    // Llamada HTTP protegida por circuito + bulkhead + timeout
+    // ------------------------------------------------------------------
+
+    private CompletableFuture<Object> llamar(String ruta, Function<HttpResponse<String>, Object> parser) {
+        if (!circuitBreaker.permitirLlamada()) {
+            rechazadasCircuito.increment();
+            return CompletableFuture.failedFuture(
+                    new ServicioExternoException("Circuito abierto: servicio externo no disponible"));
+        }
+        if (!bulkhead.tryAcquire()) {
+            rechazadasBulkhead.increment();
+            // No ha llegado a salir la llamada: no cuenta como fallo del servicio,
+            // pero hay que liberar la prueba si el circuito estaba semiabierto.
+            circuitBreaker.cancelarLlamada();
+            return CompletableFuture.failedFuture(
+                    new ServicioExternoException("Demasiadas llamadas simultáneas al servicio externo"));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(urlBase + ruta))
+                .timeout(timeout)
+                .header("Accept", "application/json, text/plain")
+                .GET()
+                .build();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((respuesta, error) -> {
+                    bulkhead.release();
+                    if (error != null) {
+                        circuitBreaker.registrarFallo();
+                        throw new ServicioExternoException("Error llamando a " + ruta + ": " + error.getMessage(), error);
+                    }
+                    if (respuesta.statusCode() >= 500) {
+                        circuitBreaker.registrarFallo();
+                        throw new ServicioExternoException("El servicio externo respondió "
+                                + respuesta.statusCode() + " en " + ruta);
+                    }
+                    circuitBreaker.registrarExito();
+                    return parser.apply(respuesta);
+                });
+    }
+
+    private Object parsearPrecio(HttpResponse<String> respuesta) {
+        if (respuesta.statusCode() == 404) {
+            return Optional.empty();
+        }
+        if (respuesta.statusCode() != 200) {
+            throw new ServicioExternoException("Respuesta inesperada del servicio de precios: " + respuesta.statusCode());
+        }
+        try {
+            return Optional.of(objectMapper.readValue(respuesta.body(), PrecioExterno.class));
+        } catch (Exception e) {
+            throw new ServicioExternoException("Respuesta de precio mal formada: " + respuesta.body(), e);
+        }
+    }
+
+    private Object parsearImpuestos(HttpResponse<String> respuesta) {
+        if (respuesta.statusCode() != 200) {
+            throw new ServicioExternoException("Respuesta inesperada del servicio de impuestos: " + respuesta.statusCode());
+        }
+        try {
+            return Float.valueOf(respuesta.body().trim());
+        } catch (NumberFormatException e) {
+            throw new ServicioExternoException("Respuesta de impuestos mal formada: " + respuesta.body(), e);
+        }
+    }
+
+    // Valor cacheado + instante (System.nanoTime) en que se obtuvo.
+    private static class EntradaCache {
+        final Object valor;
+        final long obtenidoEn;
+
+        EntradaCache(Object valor, long obtenidoEn) {
+            this.valor = valor;
+            this.obtenidoEn = obtenidoEn;
+        }
+    }
+}
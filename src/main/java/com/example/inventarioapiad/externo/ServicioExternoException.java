@@ -0,0 +1,15 @@
+package com.example.inventarioapiad.externo;
+
+// Error al hablar con el servicio externo de precios/impuestos: timeout,
+// respuesta 5xx, circuito abierto o bulkhead lleno. Es una RuntimeException
+// como el resto de errores de la API para no obligar a capturarla.
+public class ServicioExternoException extends RuntimeException {
+
+    public ServicioExternoException(String mensaje) {
+        super(mensaje);
+    }
+
+    public ServicioExternoException(String mensaje, Throwable causa) {
+        super(mensaje, causa);
+    }
+}
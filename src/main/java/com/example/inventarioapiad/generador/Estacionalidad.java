@@ -0,0 +1,65 @@
+package com.example.inventarioapiad.generador;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.random.RandomGenerator;
+
+// Fechas con la forma de un comercio de verdad entre dos días: pico en
+// noviembre-diciembre (Black Friday y Navidad), valle en agosto, menos
+// movimiento el fin de semana, horas de oficina y un crecimiento anual.
+// Cada día tiene su peso; se elige el día por la acumulada y luego la hora.
+public final class Estacionalidad {
+
+    // Enero..diciembre
+    private static final double[] MES = {0.85, 0.75, 0.9, 0.95, 1.0, 1.0, 0.9, 0.6, 1.0, 1.05, 1.4, 1.6};
+
+    // Lunes..domingo
+    private static final double[] DIA_SEMANA = {1.0, 1.0, 1.0, 1.05, 1.1, 0.6, 0.35};
+
+    // 0h..23h
+    private static final double[] HORA = {
+            0.1, 0.05, 0.05, 0.05, 0.05, 0.1, 0.3, 0.6, 1.0, 1.4, 1.6, 1.6,
+            1.4, 1.2, 1.2, 1.4, 1.5, 1.4, 1.2, 1.0, 0.8, 0.6, 0.4, 0.2};
+
+    private final LocalDate desde;
+    private final double[] acumuladaDias;
+    private final double[] acumuladaHoras;
+
+    public Estacionalidad(LocalDate desde, LocalDate hasta, double crecimientoAnual) {
+        int dias = (int) ChronoUnit.DAYS.between(desde, hasta);
+        if (dias <= 0) {
+            throw new IllegalArgumentException("El intervalo de fechas está vacío");
+        }
+        this.desde = desde;
+        double[] pesos = new double[dias];
+        for (int d = 0; d < dias; d++) {
+            LocalDate dia = desde.plusDays(d);
+            pesos[d] = MES[dia.getMonthValue() - 1]
+                    * DIA_SEMANA[dia.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue()]
+                    * Math.pow(1 + crecimientoAnual, d / 365.0);
+        }
+        acumuladaDias = acumulada(pesos);
+        acumuladaHoras = acumulada(HORA);
+    }
+
+    public LocalDateTime fecha(RandomGenerator azar) {
+        LocalDate dia = desde.plusDays(Zipf.buscar(acumuladaDias, azar.nextDouble()));
+        int hora = Zipf.buscar(acumuladaHoras, azar.nextDouble());
+        return dia.atTime(hora, azar.nextInt(60), azar.nextInt(60));
+    }
+
+    private static double[] acumulada(double[] pesos) {
+        double[] acumulada = new double[pesos.length];
+        double suma = 0;
+        for (int i = 0; i < pesos.length; i++) {
+            suma += pesos[i];
+            acumulada[i] = suma;
+        }
+        for (int i = 0; i < pesos.length; i++) {
+            acumulada[i] /= suma;
+        }
+        return acumulada;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.inventarioapiad.generador;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+// Distribución de Zipf sobre 0..n-1: el elemento k sale con probabilidad
+// proporcional a 1/(k+1)^s. Con s≈1 unos pocos productos (o clientes) se
+// llevan la mayoría de las ventas, como en la realidad. Se precalcula la
+// acumulada (n doubles) y cada muestra es una búsqueda binaria.
+public final class Zipf {
+
+    private final double[] acumulada;
+
+    public Zipf(int n, double exponente) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Zipf necesita al menos un elemento");
+        }
+        acumulada = new double[n];
+        double suma = 0;
+        for (int k = 0; k < n; k++) {
+            suma += 1.0 / Math.pow(k + 1, exponente);
+            acumulada[k] = suma;
+        }
+        for (int k = 0; k < n; k++) {
+            acumulada[k] /= suma;
+        }
+    }
+
+    public int muestra(RandomGenerator azar) {
+        return buscar(acumulada, azar.nextDouble());
+    }
+
+    public int tamano() {
+        return acumulada.length;
+    }
+
+    // Primer índice cuya acumulada (normalizada a 1) es >= u
+    static int buscar(double[] acumulada, double u) {
+        int i = Arrays.binarySearch(acumulada, u);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return Math.min(i, acumulada.length - 1);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.inventarioapiad.instrumentacion;
+
+import org.hibernate.Interceptor;
+import org.hibernate.type.Type;
+
+// Interceptor de Hibernate que cuenta en la petición las entidades cargadas
+// (de la BD o de la caché de segundo nivel). Muchas más entidades que filas
+// útiles en la respuesta apuntan a un listado que filtra en memoria.
+public class ContadorEntidades implements Interceptor {
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        MedicionPeticion medicion = MedicionPeticion.actual();
+        if (medicion != null) {
+            medicion.entidades++;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.inventarioapiad.instrumentacion;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+// Proxy JDK del DataSource que mide lo que pasa por JDBC: tiempo de
+// getConnection (espera del pool), y por cada sentencia su tiempo de
+// ejecución y las filas leídas de su ResultSet, que apunta en RegistroSql.
+// Envuelve Connection, Statement/PreparedStatement/CallableStatement y
+// ResultSet; el resto de llamadas (y unwrap) van tal cual al objeto real.
+//
+// Con réplicas el DataSource es un LazyConnectionDataSourceProxy: la
+// conexión de verdad se pide en la primera sentencia, así que la espera del
+// pool cae en el tiempo de esa sentencia y no en el de getConnection.
+public final class DataSourceInstrumentado {
+
+    private DataSourceInstrumentado() {
+    }
+
+    public static DataSource envolver(DataSource dataSource, RegistroSql registro) {
+        return proxy(DataSource.class, dataSource, (objetivo, metodo, args) -> {
+            if (!metodo.getName().equals("getConnection")) {
+                return invocar(objetivo, metodo, args);
+            }
+            long inicio = System.nanoTime();
+            Connection conexion = (Connection) invocar(objetivo, metodo, args);
+            registro.conexion(System.nanoTime() - inicio);
+            return conexion(conexion, registro);
+        });
+    }
+
+    private static Connection conexion(Connection conexion, RegistroSql registro) {
+        return proxy(Connection.class, conexion, (objetivo, metodo, args) -> {
+            Object resultado = invocar(objetivo, metodo, args);
+            switch (metodo.getName()) {
+                case "createStatement":
+                    return sentencia(Statement.class, (Statement) resultado, null, registro);
+                case "prepareStatement":
+                    return sentencia(PreparedStatement.class, (Statement) resultado, (String) args[0], registro);
+                case "prepareCall":
+                    return sentencia(CallableStatement.class, (Statement) resultado, (String) args[0], registro);
+                default:
+                    return resultado;
+            }
+        });
+    }
+
+    private static <S extends Statement> S sentencia(Class<S> tipo, Statement sentencia, String sqlPreparada,
+                                                     RegistroSql registro) {
+        // Lo que se ejecutó la última vez, para las filas de getResultSet()
+        RegistroSql.Huella[] ultima = new RegistroSql.Huella[1];
+        return proxy(tipo, sentencia, (objetivo, metodo, args) -> {
+            String nombre = metodo.getName();
+            if (nombre.startsWith("execute")) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String texto ? texto : sqlPreparada;
+                long inicio = System.nanoTime();
+                Object resultado;
+                try {
+                    resultado = invocar(objetivo, metodo, args);
+                } finally {
+                    ultima[0] = registro.sentencia(sql, System.nanoTime() - inicio);
+                }
+                return resultado instanceof ResultSet filas ? resultados(filas, ultima[0]) : resultado;
+            }
+            Object resultado = invocar(objetivo, metodo, args);
+            if (nombre.equals("getResultSet") && resultado instanceof ResultSet filas && ultima[0] != null) {
+                return resultados(filas, ultima[0]);
+            }
+            return resultado;
+        });
+    }
+
+    private static ResultSet resultados(ResultSet resultados, RegistroSql.Huella huella) {
+        MedicionPeticion medicion = MedicionPeticion.actual();
+        return proxy(ResultSet.class, resultados, (objetivo, metodo, args) -> {
+            Object resultado = invocar(objetivo, metodo, args);
+            if (metodo.getName().equals("next") && Boolean.TRUE.equals(resultado)) {
+                huella.fila();
+                if (medicion != null) {
+                    medicion.filas++;
+                }
+            }
+            return resultado;
+        });
+    }
+
+    private interface Manejador {
+        Object invocar(Object objetivo, Method metodo, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> tipo, Object objetivo, Manejador manejador) {
+        InvocationHandler handler = (proxy, metodo, args) -> {
+            // equals/hashCode contra el propio proxy, no contra el objeto real
+            if (metodo.getName().equals("equals") && args != null && args.length == 1) {
+                return proxy == args[0];
+            }
+            if (metodo.getName().equals("hashCode") && (args == null || args.length == 0)) {
+                return System.identityHashCode(proxy);
+            }
+            return manejador.invocar(objetivo, metodo, args);
+        };
+        return (T) Proxy.newProxyInstance(DataSourceInstrumentado.class.getClassLoader(), new Class<?>[] {tipo},
+                handler);
+    }
+
+    private static Object invocar(Object objetivo, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(objetivo, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.inventarioapiad.instrumentacion;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Cuenta en la petición las sentencias que genera Hibernate (consultas de
+// repositorios, cargas, flush). La diferencia con el total del DataSource
+// es el SQL a mano por JdbcTemplate. No cambia la sentencia.
+public class InspectorSentencias implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        MedicionPeticion medicion = MedicionPeticion.actual();
+        if (medicion != null) {
+            medicion.sentenciasHibernate++;
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.inventarioapiad.instrumentacion;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Abre la medición de cada petición antes que ningún otro filtro (también
+// cuenta el SQL del filtro JWT) y la cierra en RegistroSql al terminar.
+// Se registra en InstrumentacionConfig.
+public class InstrumentacionFilter extends OncePerRequestFilter {
+
+    private final RegistroSql registro;
+
+    public InstrumentacionFilter(RegistroSql registro) {
+        this.registro = registro;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        MedicionPeticion medicion = MedicionPeticion.iniciar();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MedicionPeticion.terminar();
+            registro.terminarPeticion(request.getMethod(), request.getRequestURI(), response.getStatus(), medicion);
+        }
+    }
+}
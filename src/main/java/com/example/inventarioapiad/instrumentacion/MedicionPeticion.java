@@ -0,0 +1,58 @@
+package com.example.inventarioapiad.instrumentacion;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Lo que ha hecho contra la BD una petición HTTP: sentencias, tiempo en
+// JDBC, espera de conexión, filas leídas y entidades cargadas, y cuántas
+// veces ha salido cada huella de SQL (para ver un N+1).
+//
+// Una por petición, en un ThreadLocal que abre y cierra InstrumentacionFilter.
+// Solo la toca el hilo de la petición, así que no lleva sincronización. Lo
+// que se ejecuta fuera de una petición (tareas programadas, hilos @Async)
+// solo cuenta en el agregado por huella de RegistroSql.
+public class MedicionPeticion {
+
+    private static final ThreadLocal<MedicionPeticion> ACTUAL = new ThreadLocal<>();
+
+    final long inicio = System.nanoTime();
+    int sentencias;
+    int sentenciasHibernate;
+    long nanosJdbc;
+    long nanosConexion;
+    int conexiones;
+    long filas;
+    int entidades;
+    // huella -> {veces, nanos}
+    final Map<String, long[]> porHuella = new HashMap<>();
+
+    public static MedicionPeticion iniciar() {
+        MedicionPeticion medicion = new MedicionPeticion();
+        ACTUAL.set(medicion);
+        return medicion;
+    }
+
+    public static MedicionPeticion actual() {
+        return ACTUAL.get();
+    }
+
+    public static void terminar() {
+        ACTUAL.remove();
+    }
+
+    void sentencia(String huella, long nanos) {
+        sentencias++;
+        nanosJdbc += nanos;
+        long[] datos = porHuella.computeIfAbsent(huella, h -> new long[2]);
+        datos[0]++;
+        datos[1] += nanos;
+    }
+
+    public int getSentencias() { return sentencias; }
+    public int getSentenciasHibernate() { return sentenciasHibernate; }
+    public long getNanosJdbc() { return nanosJdbc; }
+    public long getNanosConexion() { return nanosConexion; }
+    public int getConexiones() { return conexiones; }
+    public long getFilas() { return filas; }
+    public int getEntidades() { return entidades; }
+}
@@ -0,0 +1,236 @@
+package com.example.inventarioapiad.instrumentacion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// Agregado de todo el SQL que pasa por el DataSource, por "huella": la
+// sentencia sin literales ni listas IN, en minúsculas y con los espacios
+// normalizados, de modo que "where id=3" y "where id=7" cuentan juntas.
+// Por huella: veces, tiempo total y máximo en JDBC y filas leídas.
+//
+// También cierra cada petición (InstrumentacionFilter): si ha tardado más
+// que el umbral la escribe en el log con sus huellas y la guarda entre las
+// últimas lentas. Una huella repetida muchas veces en la misma petición se
+// marca como posible N+1.
+public class RegistroSql {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroSql.class);
+
+    private static final Pattern LITERALES = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMEROS = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern LISTAS = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+    private static final int LONGITUD_MAXIMA = 1000;
+    private static final int LENTAS_GUARDADAS = 50;
+    private static final String OTRAS = "(otras huellas)";
+
+    public static final class Huella {
+        final String sql;
+        final LongAdder veces = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final AtomicLong nanosMax = new AtomicLong();
+        final LongAdder filas = new LongAdder();
+
+        Huella(String sql) {
+            this.sql = sql;
+        }
+
+        void fila() {
+            filas.increment();
+        }
+    }
+
+    private final boolean habilitado;
+    private final long umbralLentaMs;
+    private final int maxHuellas;
+    private final int repeticionesNMas1;
+
+    private final ConcurrentHashMap<String, Huella> huellas = new ConcurrentHashMap<>();
+    // SQL tal cual -> huella, para no normalizar cada vez la misma sentencia
+    private final ConcurrentHashMap<String, String> normalizadas = new ConcurrentHashMap<>();
+    private final Deque<Map<String, Object>> lentas = new ArrayDeque<>();
+    private final LongAdder peticiones = new LongAdder();
+    private final LongAdder peticionesLentas = new LongAdder();
+
+    public RegistroSql(boolean habilitado, long umbralLentaMs, int maxHuellas, int repeticionesNMas1) {
+        this.habilitado = habilitado;
+        this.umbralLentaMs = umbralLentaMs;
+        this.maxHuellas = maxHuellas;
+        this.repeticionesNMas1 = repeticionesNMas1;
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public static String huella(String sql) {
+        String huella = ESPACIOS.matcher(sql.strip()).replaceAll(" ");
+        huella = LITERALES.matcher(huella).replaceAll("?");
+        huella = NUMEROS.matcher(huella).replaceAll("?");
+        huella = LISTAS.matcher(huella).replaceAll("(?)");
+        huella = huella.toLowerCase(Locale.ROOT);
+        return huella.length() > LONGITUD_MAXIMA ? huella.substring(0, LONGITUD_MAXIMA) : huella;
+    }
+
+    public static String idHuella(String huella) {
+        return String.format("%08x", huella.hashCode());
+    }
+
+    // Una sentencia ejecutada (lo llama el DataSource instrumentado). La
+    // huella devuelta recibe las filas del ResultSet.
+    Huella sentencia(String sql, long nanos) {
+        String texto = sql != null ? normalizadas.get(sql) : "(sin sql)";
+        if (texto == null) {
+            texto = huella(sql);
+            if (normalizadas.size() < maxHuellas * 4) {
+                normalizadas.put(sql, texto);
+            }
+        }
+        Huella huella = huellas.get(texto);
+        if (huella == null) {
+            String clave = huellas.size() < maxHuellas ? texto : OTRAS;
+            huella = huellas.computeIfAbsent(clave, Huella::new);
+        }
+        huella.veces.increment();
+        huella.nanos.add(nanos);
+        huella.nanosMax.accumulateAndGet(nanos, Math::max);
+
+        MedicionPeticion medicion = MedicionPeticion.actual();
+        if (medicion != null) {
+            medicion.sentencia(huella.sql, nanos);
+        }
+        return huella;
+    }
+
+    void conexion(long nanos) {
+        MedicionPeticion medicion = MedicionPeticion.actual();
+        if (medicion != null) {
+            medicion.conexiones++;
+            medicion.nanosConexion += nanos;
+        }
+    }
+
+    public void terminarPeticion(String metodo, String uri, int estado, MedicionPeticion medicion) {
+        peticiones.increment();
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - medicion.inicio);
+        if (ms < umbralLentaMs) {
+            return;
+        }
+        peticionesLentas.increment();
+
+        List<Map<String, Object>> suyas = new ArrayList<>();
+        boolean posibleNMas1 = false;
+        List<Map.Entry<String, long[]>> ordenadas = new ArrayList<>(medicion.porHuella.entrySet());
+        ordenadas.sort(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[1]).reversed());
+        StringBuilder resumen = new StringBuilder();
+        for (Map.Entry<String, long[]> entrada : ordenadas) {
+            long veces = entrada.getValue()[0];
+            boolean repetida = veces >= repeticionesNMas1;
+            posibleNMas1 |= repetida;
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("id", idHuella(entrada.getKey()));
+            datos.put("veces", veces);
+            datos.put("jdbcMs", TimeUnit.NANOSECONDS.toMillis(entrada.getValue()[1]));
+            datos.put("posibleNMas1", repetida);
+            datos.put("sql", entrada.getKey());
+            suyas.add(datos);
+            if (suyas.size() <= 5) {
+                resumen.append("\n  [").append(datos.get("id")).append(" x").append(veces).append(", ")
+                        .append(datos.get("jdbcMs")).append(" ms").append(repetida ? ", posible N+1" : "")
+                        .append("] ").append(entrada.getKey());
+            }
+        }
+
+        Map<String, Object> lenta = new LinkedHashMap<>();
+        lenta.put("fecha", LocalDateTime.now().toString());
+        lenta.put("peticion", metodo + " " + uri);
+        lenta.put("estado", estado);
+        lenta.put("duracionMs", ms);
+        lenta.put("sentencias", medicion.sentencias);
+        lenta.put("sentenciasHibernate", medicion.sentenciasHibernate);
+        lenta.put("jdbcMs", TimeUnit.NANOSECONDS.toMillis(medicion.nanosJdbc));
+        lenta.put("esperaConexionMs", TimeUnit.NANOSECONDS.toMillis(medicion.nanosConexion));
+        lenta.put("filas", medicion.filas);
+        lenta.put("entidades", medicion.entidades);
+        lenta.put("posibleNMas1", posibleNMas1);
+        lenta.put("huellas", suyas);
+        synchronized (lentas) {
+            if (lentas.size() == LENTAS_GUARDADAS) {
+                lentas.removeLast();
+            }
+            lentas.addFirst(lenta);
+        }
+
+        log.warn("Petición lenta: {} {} {} ms - sentencias {} (Hibernate {}), JDBC {} ms, espera de conexión {} ms, "
+                        + "filas {}, entidades {}{}",
+                metodo, uri, ms, medicion.sentencias, medicion.sentenciasHibernate, lenta.get("jdbcMs"),
+                lenta.get("esperaConexionMs"), medicion.filas, medicion.entidades, resumen);
+    }
+
+    // Huellas ordenadas por tiempo total ("tiempo"), por veces ("veces") o
+    // por filas ("filas")
+    public List<Map<String, Object>> huellas(String orden, int limite) {
+        Comparator<Huella> criterio = switch (orden == null ? "tiempo" : orden) {
+            case "veces" -> Comparator.comparingLong(h -> h.veces.sum());
+            case "filas" -> Comparator.comparingLong(h -> h.filas.sum());
+            case "tiempo" -> Comparator.comparingLong(h -> h.nanos.sum());
+            default -> throw new IllegalArgumentException("Orden no válido: " + orden + " (tiempo, veces o filas)");
+        };
+        List<Map<String, Object>> resultado = new ArrayList<>();
+        huellas.values().stream().sorted(criterio.reversed()).limit(limite).forEach(h -> {
+            long veces = h.veces.sum();
+            long nanos = h.nanos.sum();
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("id", idHuella(h.sql));
+            datos.put("veces", veces);
+            datos.put("jdbcTotalMs", TimeUnit.NANOSECONDS.toMillis(nanos));
+            datos.put("jdbcMedioMs", veces == 0 ? 0.0 : Math.round(nanos / 1000.0 / veces) / 1000.0);
+            datos.put("jdbcMaxMs", Math.round(h.nanosMax.get() / 1000.0) / 1000.0);
+            datos.put("filas", h.filas.sum());
+            datos.put("sql", h.sql);
+            resultado.add(datos);
+        });
+        return resultado;
+    }
+
+    public List<Map<String, Object>> lentas() {
+        synchronized (lentas) {
+            return new ArrayList<>(lentas);
+        }
+    }
+
+    public Map<String, Object> resumen() {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("habilitado", habilitado);
+        resumen.put("umbralLentaMs", umbralLentaMs);
+        resumen.put("peticiones", peticiones.sum());
+        resumen.put("peticionesLentas", peticionesLentas.sum());
+        resumen.put("huellas", huellas.size());
+        return resumen;
+    }
+
+    public void reiniciar() {
+        huellas.clear();
+        normalizadas.clear();
+        synchronized (lentas) {
+            lentas.clear();
+        }
+        peticiones.reset();
+        peticionesLentas.reset();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.inventarioapiad.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Un ajuste de stock en uno de sus tres sitios: el stockTotal del producto,
+// el stockActual del almacén o la fila de stock_almacen.
+@Name("inventario.AjusteStock")
+@Label("Ajuste de stock")
+@Category({"Inventario", "Stock"})
+@Description("Cambio de stock por un movimiento (compra, venta o traspaso)")
+public class AjusteStockJfr extends jdk.jfr.Event {
+
+    public static final String PRODUCTO = "producto";
+    public static final String ALMACEN = "almacen";
+    public static final String PRODUCTO_ALMACEN = "producto-almacen";
+
+    @Label("Ámbito")
+    @Description("producto, almacen o producto-almacen")
+    public String ambito;
+
+    @Label("Producto")
+    public long productoId;
+
+    @Label("Almacén")
+    public long almacenId;
+
+    @Label("Delta")
+    public int delta;
+
+    @Label("Origen")
+    @Description("COMPRA, VENTA, TRASPASO...; vacío si no viene de un movimiento")
+    public String origen;
+
+    @Label("Filas")
+    @Description("Filas actualizadas (0: no existía)")
+    public int filas;
+
+    public static AjusteStockJfr iniciar() {
+        AjusteStockJfr evento = new AjusteStockJfr();
+        evento.begin();
+        return evento;
+    }
+
+    public void terminar(String ambito, Long productoId, Long almacenId, int delta, String origen, int filas) {
+        if (!shouldCommit()) {
+            return;
+        }
+        this.ambito = ambito;
+        this.productoId = Ids.de(productoId);
+        this.almacenId = Ids.de(almacenId);
+        this.delta = delta;
+        this.origen = origen;
+        this.filas = filas;
+        commit();
+    }
+}
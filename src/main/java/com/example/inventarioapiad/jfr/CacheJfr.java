@@ -0,0 +1,47 @@
+package com.example.inventarioapiad.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Acierto o fallo de una caché: la de segundo nivel de Hibernate (entidades
+// y consultas, ver EstadisticasJfr) o el catálogo local de productos. Sin
+// duración ni traza: hay muchos.
+@Name("inventario.Cache")
+@Label("Acceso a caché")
+@Category({"Inventario", "Caché"})
+@Description("Acierto o fallo de la caché de segundo nivel o del catálogo local")
+@StackTrace(false)
+public class CacheJfr extends jdk.jfr.Event {
+
+    public static final String SEGUNDO_NIVEL = "segundo-nivel";
+    public static final String CONSULTAS = "consultas";
+    public static final String CATALOGO_LOCAL = "catalogo-local";
+
+    @Label("Caché")
+    public String cache;
+
+    @Label("Región")
+    public String region;
+
+    @Label("Clave")
+    @Description("Entidad, consulta o id buscado")
+    public String clave;
+
+    @Label("Acierto")
+    public boolean acierto;
+
+    public static void emitir(String cache, String region, Object clave, boolean acierto) {
+        CacheJfr evento = new CacheJfr();
+        if (!evento.shouldCommit()) {
+            return;
+        }
+        evento.cache = cache;
+        evento.region = region;
+        evento.clave = String.valueOf(clave);
+        evento.acierto = acierto;
+        evento.commit();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.inventarioapiad.jfr;
+
+import com.example.inventarioapiad.entity.Compra;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// CompraService.crear: validación, reserva de hueco en el almacén y
+// guardado. Solo las que se crean.
+@Name("inventario.Compra")
+@Label("Compra creada")
+@Category({"Inventario", "Operaciones"})
+@Description("Alta de una compra con sus ids y la duración")
+public class CompraJfr extends jdk.jfr.Event {
+
+    @Label("Compra")
+    public long compraId;
+
+    @Label("Producto")
+    public long productoId;
+
+    @Label("Almacén")
+    public long almacenId;
+
+    @Label("Proveedor")
+    public long proveedorId;
+
+    @Label("Cantidad")
+    public int cantidad;
+
+    @Label("Estado")
+    public String estado;
+
+    public static CompraJfr iniciar() {
+        CompraJfr evento = new CompraJfr();
+        evento.begin();
+        return evento;
+    }
+
+    public void terminar(Compra compra) {
+        if (!shouldCommit()) {
+            return;
+        }
+        compraId = Ids.de(compra.getId());
+        productoId = compra.getProducto() != null ? Ids.de(compra.getProducto().getId()) : 0;
+        almacenId = compra.getAlmacen() != null ? Ids.de(compra.getAlmacen().getId()) : 0;
+        proveedorId = compra.getProveedor() != null ? Ids.de(compra.getProveedor().getId()) : 0;
+        cantidad = compra.getCantidad() != null ? compra.getCantidad() : 0;
+        estado = compra.getEstado();
+        commit();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.inventarioapiad.jfr;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.model.domain.NavigableRole;
+import org.hibernate.stat.internal.StatisticsImpl;
+
+// Las estadísticas de siempre de Hibernate (las de GET /api/cache) que
+// además emiten un CacheJfr por cada acierto o fallo de la caché de segundo
+// nivel. Se instala con hibernate.stats.factory (JfrConfig).
+public class EstadisticasJfr extends StatisticsImpl {
+
+    public EstadisticasJfr(SessionFactoryImplementor sessionFactory) {
+        super(sessionFactory);
+    }
+
+    @Override
+    public void entityCacheHit(NavigableRole entidad, String region) {
+        super.entityCacheHit(entidad, region);
+        CacheJfr.emitir(CacheJfr.SEGUNDO_NIVEL, region, entidad.getFullPath(), true);
+    }
+
+    @Override
+    public void entityCacheMiss(NavigableRole entidad, String region) {
+        super.entityCacheMiss(entidad, region);
+        CacheJfr.emitir(CacheJfr.SEGUNDO_NIVEL, region, entidad.getFullPath(), false);
+    }
+
+    @Override
+    public void queryCacheHit(String consulta, String region) {
+        super.queryCacheHit(consulta, region);
+        CacheJfr.emitir(CacheJfr.CONSULTAS, region, consulta, true);
+    }
+
+    @Override
+    public void queryCacheMiss(String consulta, String region) {
+        super.queryCacheMiss(consulta, region);
+        CacheJfr.emitir(CacheJfr.CONSULTAS, region, consulta, false);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.inventarioapiad.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.Arrays;
+
+// buscarConFiltros de los servicios: filtros pedidos, resultados y lo que
+// ha tardado quien llama (también si ha esperado a una lectura coalescida).
+@Name("inventario.Filtro")
+@Label("Consulta con filtros")
+@Category({"Inventario", "Consultas"})
+@Description("Listado filtrado de una entidad con el número de resultados")
+public class FiltroJfr extends jdk.jfr.Event {
+
+    @Label("Entidad")
+    public String entidad;
+
+    @Label("Filtros")
+    public String filtros;
+
+    @Label("Resultados")
+    public int resultados;
+
+    public static FiltroJfr iniciar() {
+        FiltroJfr evento = new FiltroJfr();
+        evento.begin();
+        return evento;
+    }
+
+    public void terminar(String entidad, int resultados, Object... filtros) {
+        if (!shouldCommit()) {
+            return;
+        }
+        this.entidad = entidad;
+        this.filtros = Arrays.toString(filtros);
+        this.resultados = resultados;
+        commit();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.inventarioapiad.jfr;
+
+// Los campos de los eventos JFR son primitivos: un id null va como 0
+final class Ids {
+
+    private Ids() {
+    }
+
+    static long de(Long id) {
+        return id != null ? id : 0;
+    }
+}
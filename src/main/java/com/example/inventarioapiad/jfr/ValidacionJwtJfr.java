@@ -0,0 +1,36 @@
+package com.example.inventarioapiad.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JwtService.esTokenValido: parseo y comprobación de firma y caducidad.
+@Name("inventario.ValidacionJwt")
+@Label("Validación de JWT")
+@Category({"Inventario", "Seguridad"})
+@Description("Validación de un token JWT y, si no vale, por qué")
+public class ValidacionJwtJfr extends jdk.jfr.Event {
+
+    @Label("Válido")
+    public boolean valido;
+
+    @Label("Motivo")
+    @Description("Vacío si es válido; si no, caducado o el tipo de error")
+    public String motivo;
+
+    public static ValidacionJwtJfr iniciar() {
+        ValidacionJwtJfr evento = new ValidacionJwtJfr();
+        evento.begin();
+        return evento;
+    }
+
+    public boolean terminar(boolean valido, String motivo) {
+        if (shouldCommit()) {
+            this.valido = valido;
+            this.motivo = motivo;
+            commit();
+        }
+        return valido;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.inventarioapiad.jfr;
+
+import com.example.inventarioapiad.entity.Venta;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// VentaService.crear: de la validación al guardado (sin los listeners de
+// después del commit). Solo las que se crean; las rechazadas no lo emiten.
+@Name("inventario.Venta")
+@Label("Venta creada")
+@Category({"Inventario", "Operaciones"})
+@Description("Alta de una venta con sus ids y la duración")
+public class VentaJfr extends jdk.jfr.Event {
+
+    @Label("Venta")
+    public long ventaId;
+
+    @Label("Producto")
+    public long productoId;
+
+    @Label("Almacén")
+    public long almacenId;
+
+    @Label("Cliente")
+    public long clienteId;
+
+    @Label("Cantidad")
+    public int cantidad;
+
+    @Label("Estado")
+    public String estado;
+
+    public static VentaJfr iniciar() {
+        VentaJfr evento = new VentaJfr();
+        evento.begin();
+        return evento;
+    }
+
+    public void terminar(Venta venta) {
+        if (!shouldCommit()) {
+            return;
+        }
+        ventaId = Ids.de(venta.getId());
+        productoId = venta.getProducto() != null ? Ids.de(venta.getProducto().getId()) : 0;
+        almacenId = venta.getAlmacen() != null ? Ids.de(venta.getAlmacen().getId()) : 0;
+        clienteId = venta.getCliente() != null ? Ids.de(venta.getCliente().getId()) : 0;
+        cantidad = venta.getCantidad() != null ? venta.getCantidad() : 0;
+        estado = venta.getEstado();
+        commit();
+    }
+}
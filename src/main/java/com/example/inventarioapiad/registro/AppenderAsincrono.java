@@ -0,0 +1,56 @@
+package com.example.inventarioapiad.registro;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import net.logstash.logback.appender.LoggingEventAsyncDisruptorAppender;
+import net.logstash.logback.appender.listener.AppenderListener;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Appender asíncrono de logstash-logback-encoder (buffer circular de tamaño
+// fijo, un hilo que escribe en el appender de verdad) que además cuenta los
+// mensajes que se pierden. Con appendTimeout=0 (logback-spring.xml) nunca
+// bloquea al hilo de la petición: si el buffer está lleno el mensaje se
+// descarta y se cuenta aquí (GET /api/registro).
+public class AppenderAsincrono extends LoggingEventAsyncDisruptorAppender {
+
+    private final LongAdder encolados = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+
+    private final AppenderListener<ILoggingEvent> contador = new AppenderListener<>() {
+        @Override
+        public void eventAppended(Appender<ILoggingEvent> appender, ILoggingEvent event, long duracionNanos) {
+            encolados.increment();
+        }
+
+        @Override
+        public void eventAppendFailed(Appender<ILoggingEvent> appender, ILoggingEvent event, Throwable causa) {
+            descartados.increment();
+        }
+    };
+
+    // El contador se engancha al arrancar (y una sola vez aunque se
+    // rearranque), no desde el constructor
+    @Override
+    public void start() {
+        removeListener(contador);
+        addListener(contador);
+        super.start();
+    }
+
+    public long getEncolados() {
+        return encolados.sum();
+    }
+
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    // Mensajes en el buffer pendientes de escribir
+    public long getPendientes() {
+        if (!isStarted() || getDisruptor() == null) {
+            return 0;
+        }
+        return getRingBufferSize() - getDisruptor().getRingBuffer().remainingCapacity();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.inventarioapiad.registro;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Muestreo por paquete de los mensajes FRECUENTE (ver Marcadores): de cada
+// N que llegan de un logger bajo el paquete, sale uno. Va como TurboFilter,
+// antes de crear el evento, así que los que se descartan no cuestan ni el
+// formateo del mensaje ni el objeto del evento.
+//
+// Reglas en logback-spring.xml (propiedad logging.muestreo):
+//   com.example.inventarioapiad.service=10,com.example.inventarioapiad.service.VentaService=2
+// Gana el prefijo más largo; sin regla que encaje sale todo. WARN y ERROR
+// salen siempre, lleven o no el marcador.
+public class FiltroMuestreo extends TurboFilter {
+
+    private static final class Regla {
+        final String paquete;
+        final int cadaN;
+        final AtomicLong vistos = new AtomicLong();
+        final LongAdder descartados = new LongAdder();
+
+        Regla(String paquete, int cadaN) {
+            this.paquete = paquete;
+            this.cadaN = cadaN;
+        }
+    }
+
+    // Ordenadas de prefijo más largo a más corto
+    private volatile List<Regla> reglas = List.of();
+
+    public void setReglas(String texto) {
+        List<Regla> nuevas = new ArrayList<>();
+        if (texto != null) {
+            for (String parte : texto.split(",")) {
+                if (parte.isBlank()) {
+                    continue;
+                }
+                String[] claveValor = parte.trim().split("=");
+                int cadaN = claveValor.length == 2 ? Integer.parseInt(claveValor[1].trim()) : 0;
+                if (cadaN < 1) {
+                    addError("Regla de muestreo inválida (paquete=N, con N >= 1): " + parte);
+                    continue;
+                }
+                nuevas.add(new Regla(claveValor[0].trim(), cadaN));
+            }
+        }
+        nuevas.sort(Comparator.comparingInt((Regla r) -> r.paquete.length()).reversed());
+        reglas = List.copyOf(nuevas);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format == null: es un isXxxEnabled(), no un mensaje; no gasta muestra
+        if (format == null || marker == null || !marker.contains(Marcadores.FRECUENTE)
+                || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        Regla regla = reglaDe(logger.getName());
+        if (regla == null || regla.vistos.getAndIncrement() % regla.cadaN == 0) {
+            return FilterReply.NEUTRAL;
+        }
+        regla.descartados.increment();
+        return FilterReply.DENY;
+    }
+
+    public List<Map<String, Object>> estadisticas() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (Regla regla : reglas) {
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("paquete", regla.paquete);
+            datos.put("unoDeCada", regla.cadaN);
+            datos.put("vistos", regla.vistos.get());
+            datos.put("descartados", regla.descartados.sum());
+            stats.add(datos);
+        }
+        return stats;
+    }
+
+    private Regla reglaDe(String logger) {
+        for (Regla regla : reglas) {
+            if (logger.startsWith(regla.paquete)) {
+                return regla;
+            }
+        }
+        return null;
+    }
+}
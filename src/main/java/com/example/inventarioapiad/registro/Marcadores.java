@@ -0,0 +1,16 @@
+package com.example.inventarioapiad.registro;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+// Marcadores de log. FRECUENTE va en los mensajes de las lecturas que se
+// repiten en cada petición (buscar por id, listar, filtrar): son los únicos
+// que FiltroMuestreo puede dejar pasar solo en parte. Las escrituras y los
+// errores no lo llevan y salen siempre.
+public final class Marcadores {
+
+    public static final Marker FRECUENTE = MarkerFactory.getMarker("FRECUENTE");
+
+    private Marcadores() {
+    }
+}
@@ -1,12 +1,21 @@
 package com.example.inventarioapiad.repository;
 
 import com.example.inventarioapiad.entity.Almacen;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 // Repositorio de Almacén.
 //
 // Extiende CrudRepository (lo que ya usábamos en V1) y también
@@ -16,6 +25,22 @@ import org.springframework.stereotype.Repository;
 public interface AlmacenRepository extends CrudRepository<Almacen, Long>,
         PagingAndSortingRepository<Almacen, Long> {
 
+    // Listados y filtros: en la caché de consultas (se invalida sola con
+    // cualquier escritura en la tabla hecha por Hibernate)
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Iterable<Almacen> findAll();
+
     // Heredado de PagingAndSortingRepository
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Page<Almacen> findAll(Pageable pageable);
+
+    // SELECT ... FOR UPDATE: lo usan los traspasos y los movimientos de
+    // stock. Quien bloquee varios almacenes debe hacerlo en orden de id
+    // ascendente (evita deadlocks). No hay UPDATE masivo de stock como en
+    // ProductoRepository: vaciaría la región entera de la caché de segundo
+    // nivel en cada venta; modificando la entidad solo cambia su entrada.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Almacen a WHERE a.id = :id")
+    Optional<Almacen> findByIdForUpdate(@Param("id") Long id);
 }
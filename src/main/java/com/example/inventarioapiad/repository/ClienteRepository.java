@@ -1,9 +1,18 @@
 package com.example.inventarioapiad.repository;
 
 import com.example.inventarioapiad.entity.Cliente;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ClienteRepository extends CrudRepository<Cliente, Long> {
+
+    // Listados y filtros: en la caché de consultas (se invalida sola con
+    // cualquier escritura en la tabla hecha por Hibernate)
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Iterable<Cliente> findAll();
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.example.inventarioapiad.repository;
+
+import com.example.inventarioapiad.entity.EjecucionRepreciado;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface EjecucionRepreciadoRepository extends CrudRepository<EjecucionRepreciado, Long> {
+
+    // Última ejecución (la que enseña GET /api/repreciado)
+    Optional<EjecucionRepreciado> findFirstByOrderByIdDesc();
+
+    // Última ejecución a medias (caída o detenida) para reanudarla
+    Optional<EjecucionRepreciado> findFirstByEstadoInOrderByIdDesc(Collection<String> estados);
+}
@@ -1,8 +1,16 @@
 package com.example.inventarioapiad.repository;
 
 import com.example.inventarioapiad.entity.Producto;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductoRepository extends CrudRepository<Producto, Long> {
@@ -13,4 +21,47 @@ public interface ProductoRepository extends CrudRepository<Producto, Long> {
     // - deleteById()
     // - count()
     // ... y más
+
+    // Lo llama ProductoService.buscarPorSku fuera de transacción (si responde
+    // el catálogo local no hace falta conexión); los métodos declarados aquí
+    // no heredan el readOnly de SimpleJpaRepository
+    @Transactional(readOnly = true)
+    Optional<Producto> findBySku(String sku);
+
+    // Paginación keyset para recorrer el catálogo entero sin OFFSET: cada
+    // página empieza después del último id de la anterior, así que cuesta
+    // lo mismo la primera página que la número 10.000. Solo trae las tres
+    // columnas que necesita el repreciado (proyección, no la entidad).
+    @Query("SELECT p.id AS id, p.sku AS sku, p.precioVenta AS precioVenta FROM Producto p "
+            + "WHERE p.id > :desdeId AND p.activo = true ORDER BY p.id")
+    List<PrecioActual> findPaginaPrecios(@Param("desdeId") Long desdeId, Pageable pageable);
+
+    interface PrecioActual {
+        Long getId();
+        String getSku();
+        Float getPrecioVenta();
+    }
+
+    // Suma (o resta) unidades al stock en la propia BD, sin leer-modificar-
+    // escribir la entidad, para que dos movimientos a la vez no se pisen.
+    // Nunca baja de 0: el stock negativo no pasaría la validación @Min.
+    @Modifying
+    @Transactional
+    @Query("UPDATE Producto p SET p.stockTotal = CASE WHEN p.stockTotal + :delta < 0 THEN 0 "
+            + "ELSE p.stockTotal + :delta END WHERE p.id = :id")
+    int ajustarStock(@Param("id") Long id, @Param("delta") int delta);
+
+    // El stock recién ajustado. Una proyección siempre va a la BD; findById
+    // devolvería la copia que la transacción tenga ya cargada, de antes
+    // del UPDATE.
+    @Query("SELECT p.id AS id, p.sku AS sku, p.stockTotal AS stockTotal, p.activo AS activo "
+            + "FROM Producto p WHERE p.id = :id")
+    Optional<StockActual> findStockActual(@Param("id") Long id);
+
+    interface StockActual {
+        Long getId();
+        String getSku();
+        Integer getStockTotal();
+        Boolean getActivo();
+    }
 }
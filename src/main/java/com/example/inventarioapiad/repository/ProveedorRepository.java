@@ -1,9 +1,18 @@
 package com.example.inventarioapiad.repository;
 
 import com.example.inventarioapiad.entity.Proveedor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ProveedorRepository extends CrudRepository<Proveedor, Long> {
+
+    // Listados y filtros: en la caché de consultas (se invalida sola con
+    // cualquier escritura en la tabla hecha por Hibernate)
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Iterable<Proveedor> findAll();
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.inventarioapiad.repository;
+
+import com.example.inventarioapiad.entity.StockAlmacen;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StockAlmacenRepository extends CrudRepository<StockAlmacen, Long> {
+
+    List<StockAlmacen> findByProductoIdOrderByAlmacenId(Long productoId);
+
+    List<StockAlmacen> findByAlmacenIdOrderByProductoId(Long almacenId);
+}
@@ -0,0 +1,51 @@
+package com.example.inventarioapiad.repository;
+
+import com.example.inventarioapiad.entity.Traspaso;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TraspasoRepository extends CrudRepository<Traspaso, Long> {
+
+    List<Traspaso> findByLoteOrderById(String lote);
+
+    List<Traspaso> findByEstadoOrderById(String estado);
+
+    // Para recibir/cancelar: bloquea la fila para que dos peticiones no
+    // cambien el mismo traspaso a la vez.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Traspaso t WHERE t.id = :id")
+    Optional<Traspaso> findByIdForUpdate(@Param("id") Long id);
+
+    // Almacenes de un traspaso sin cargar las entidades: recibir/cancelar
+    // bloquean primero el almacén y después el traspaso
+    @Query("SELECT t.almacenOrigen.id AS origenId, t.almacenDestino.id AS destinoId FROM Traspaso t WHERE t.id = :id")
+    Optional<Almacenes> buscarAlmacenes(@Param("id") Long id);
+
+    // Unidades que vienen de camino hacia un almacén
+    @Query("SELECT COALESCE(SUM(t.cantidad), 0) FROM Traspaso t "
+            + "WHERE t.almacenDestino.id = :almacenId AND t.estado = 'EN_TRANSITO'")
+    long sumarEnTransitoHacia(@Param("almacenId") Long almacenId);
+
+    @Query("SELECT t.almacenDestino.id AS almacenId, SUM(t.cantidad) AS unidades, COUNT(t) AS traspasos "
+            + "FROM Traspaso t WHERE t.estado = 'EN_TRANSITO' GROUP BY t.almacenDestino.id ORDER BY t.almacenDestino.id")
+    List<EnTransito> resumirEnTransito();
+
+    interface Almacenes {
+        Long getOrigenId();
+        Long getDestinoId();
+    }
+
+    interface EnTransito {
+        Long getAlmacenId();
+        Long getUnidades();
+        Long getTraspasos();
+    }
+}
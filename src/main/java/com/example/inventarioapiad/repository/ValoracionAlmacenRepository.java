@@ -0,0 +1,19 @@
+package com.example.inventarioapiad.repository;
+
+import com.example.inventarioapiad.entity.ValoracionAlmacen;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ValoracionAlmacenRepository extends CrudRepository<ValoracionAlmacen, Long> {
+
+    // ValoracionService guarda desde listeners que corren tras el commit de
+    // la compra/venta: ahí una transacción REQUIRED se uniría a la ya
+    // confirmada y la fila no llegaría a la BD. También hace que se confirme
+    // dentro del lock del almacén, en el mismo orden que los movimientos.
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    <S extends ValoracionAlmacen> S save(S entity);
+}
@@ -1,5 +1,6 @@
 package com.example.inventarioapiad.security;
 
+import com.example.inventarioapiad.jfr.ValidacionJwtJfr;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
@@ -49,12 +50,14 @@ public class JwtService {
 
     // Comprueba que el token sea válido y no haya expirado.
     public boolean esTokenValido(String token) {
+        ValidacionJwtJfr evento = ValidacionJwtJfr.iniciar();
         try {
             Claims claims = parsearClaims(token);
-            return claims.getExpiration().after(new Date());
+            boolean vigente = claims.getExpiration().after(new Date());
+            return evento.terminar(vigente, vigente ? null : "caducado");
         } catch (Exception e) {
             // Token inválido, expirado, firma mala, etc.
-            return false;
+            return evento.terminar(false, e.getClass().getSimpleName());
         }
     }
 
@@ -0,0 +1,315 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.dto.AlertaStock;
+import com.example.inventarioapiad.event.AlertaStockEvent;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.event.StockCambiadoEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Motor de puntos de pedido y alertas de stock bajo.
+//
+// Por cada producto se guarda en memoria su stock, las ventas de los
+// últimos N días (un contador por día en un array circular) y los días de
+// entrega del proveedor de su última compra. Con eso:
+//
+//   ventasDiarias = ventas de la ventana / N
+//   puntoPedido   = ventasDiarias x (diasEntrega + diasSeguridad)
+//
+// No se recorre el catálogo: cada StockCambiadoEvent / venta solo
+// re-evalúa SU producto. Las alertas vivas están en una cola de prioridad
+// (skip list ordenada por días de cobertura), así que la lista sale ya
+// ordenada de más a menos urgente y quitar/actualizar una es O(log n).
+@Service
+@Slf4j
+public class AlertaStockService {
+
+    // Primero los de menos días de cobertura; a igualdad, el nivel más grave
+    private static final Comparator<AlertaStock> POR_URGENCIA = Comparator
+            .comparingDouble(AlertaStock::getDiasCobertura)
+            .thenComparing(AlertaStock::getNivel)
+            .thenComparing(AlertaStock::getProductoId);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${alertas.ventana-dias:28}")
+    private int ventanaDias = 28;
+
+    @Value("${alertas.dias-seguridad:3}")
+    private int diasSeguridad = 3;
+
+    @Value("${alertas.dias-entrega-defecto:7}")
+    private int diasEntregaDefecto = 7;
+
+    private final ConcurrentHashMap<Long, EstadoProducto> productos = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, AlertaStock> alertas = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<AlertaStock> cola = new ConcurrentSkipListSet<>(POR_URGENCIA);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        recalcular();
+    }
+
+    // Carga el estado desde la BD (stock, ventas de la ventana y proveedor
+    // de la última compra) y evalúa todos los productos. Solo al arrancar
+    // o a petición; el día a día va por eventos.
+    public synchronized Map<String, Object> recalcular() {
+        long inicio = System.currentTimeMillis();
+        productos.clear();
+        alertas.clear();
+        cola.clear();
+        long hoy = LocalDate.now().toEpochDay();
+
+        jdbcTemplate.query("SELECT id, sku, stock_total, activo FROM productos", rs -> {
+            EstadoProducto estado = estado(rs.getLong(1));
+            estado.sku = rs.getString(2);
+            estado.stock = rs.getInt(3);
+            estado.activo = rs.getBoolean(4);
+            estado.stockConocido = true;
+        });
+
+        jdbcTemplate.query("SELECT producto_id, CAST(fecha_venta AS DATE), SUM(cantidad) FROM ventas "
+                        + "WHERE estado <> 'CANCELADA' AND fecha_venta >= ? "
+                        + "GROUP BY producto_id, CAST(fecha_venta AS DATE)",
+                rs -> {
+                    EstadoProducto estado = estado(rs.getLong(1));
+                    estado.registrarVenta(rs.getDate(2).toLocalDate().toEpochDay(), rs.getInt(3));
+                },
+                LocalDate.now().minusDays(ventanaDias - 1).atStartOfDay());
+
+        // En orden de fecha: se queda el proveedor de la compra más reciente
+        jdbcTemplate.query("SELECT c.producto_id, p.dias_entrega FROM compras c "
+                        + "JOIN proveedores p ON p.id = c.proveedor_id "
+                        + "WHERE p.dias_entrega IS NOT NULL ORDER BY c.fecha_compra, c.id",
+                rs -> { estado(rs.getLong(1)).diasEntrega = rs.getInt(2); });
+
+        for (Map.Entry<Long, EstadoProducto> entrada : productos.entrySet()) {
+            evaluar(entrada.getKey(), entrada.getValue(), hoy, false);
+        }
+
+        log.info("Alertas de stock recalculadas: {} productos, {} alertas en {} ms",
+                productos.size(), alertas.size(), System.currentTimeMillis() - inicio);
+        return resumen();
+    }
+
+    // Alertas vivas de más a menos urgente (opcionalmente de un nivel)
+    public List<AlertaStock> alertas(AlertaStock.Nivel nivel, Integer limite) {
+        if (limite != null && limite <= 0) {
+            throw new IllegalArgumentException("El límite debe ser mayor a 0");
+        }
+        List<AlertaStock> resultado = new ArrayList<>();
+        for (AlertaStock alerta : cola) {
+            if (nivel == null || alerta.getNivel() == nivel) {
+                resultado.add(alerta);
+                if (limite != null && resultado.size() >= limite) {
+                    break;
+                }
+            }
+        }
+        return resultado;
+    }
+
+    public Map<String, Object> resumen() {
+        Map<String, Long> porNivel = new LinkedHashMap<>();
+        for (AlertaStock.Nivel nivel : AlertaStock.Nivel.values()) {
+            porNivel.put(nivel.name(), 0L);
+        }
+        for (AlertaStock alerta : cola) {
+            porNivel.merge(alerta.getNivel().name(), 1L, Long::sum);
+        }
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("productos", productos.size());
+        resumen.put("alertas", alertas.size());
+        resumen.put("porNivel", porNivel);
+        resumen.put("ventanaDias", ventanaDias);
+        resumen.put("diasSeguridad", diasSeguridad);
+        return resumen;
+    }
+
+    // ------------------------------------------------------------------
+    // Actualización incremental
+    // ------------------------------------------------------------------
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarStock(StockCambiadoEvent evento) {
+        if (evento.getProductoId() == null) {
+            return;
+        }
+        EstadoProducto estado = estado(evento.getProductoId());
+        synchronized (estado) {
+            if (evento.getSku() != null) {
+                estado.sku = evento.getSku();
+            }
+            estado.stock = evento.getStockTotal();
+            estado.activo = evento.isActivo();
+            estado.stockConocido = true;
+        }
+        evaluar(evento.getProductoId(), estado, LocalDate.now().toEpochDay(), true);
+    }
+
+    // Las ventas alimentan la velocidad; las compras recibidas dicen qué
+    // proveedor (y por tanto qué plazo de entrega) tiene el producto.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alMoverStock(MovimientoStockEvent movimiento) {
+        if (movimiento.getProductoId() == null) {
+            return;
+        }
+        EstadoProducto estado = estado(movimiento.getProductoId());
+        long hoy = LocalDate.now().toEpochDay();
+
+        if ("VENTA".equals(movimiento.getOrigen())) {
+            // Una venta cancelada devuelve unidades: se descuentan de hoy
+            synchronized (estado) {
+                estado.registrarVenta(hoy, -movimiento.getDelta());
+            }
+        } else if ("COMPRA".equals(movimiento.getOrigen())
+                && movimiento.getTipo() == MovimientoStockEvent.Tipo.ENTRADA
+                && movimiento.getOrigenId() != null) {
+            List<Integer> dias = jdbcTemplate.queryForList(
+                    "SELECT p.dias_entrega FROM compras c JOIN proveedores p ON p.id = c.proveedor_id "
+                            + "WHERE c.id = ? AND p.dias_entrega IS NOT NULL",
+                    Integer.class, movimiento.getOrigenId());
+            if (!dias.isEmpty()) {
+                synchronized (estado) {
+                    estado.diasEntrega = dias.get(0);
+                }
+            }
+        }
+        evaluar(movimiento.getProductoId(), estado, hoy, true);
+    }
+
+    private void evaluar(Long productoId, EstadoProducto estado, long hoy, boolean publicar) {
+        AlertaStockEvent evento = null;
+        synchronized (estado) {
+            AlertaStock anterior = alertas.get(productoId);
+            AlertaStock nueva = calcular(productoId, estado, hoy);
+
+            if (anterior != null) {
+                cola.remove(anterior);
+            }
+            if (nueva != null) {
+                alertas.put(productoId, nueva);
+                cola.add(nueva);
+            } else {
+                alertas.remove(productoId);
+            }
+
+            if (anterior == null && nueva != null) {
+                evento = new AlertaStockEvent(AlertaStockEvent.Tipo.NUEVA, nueva);
+            } else if (anterior != null && nueva == null) {
+                evento = new AlertaStockEvent(AlertaStockEvent.Tipo.RESUELTA, anterior);
+            } else if (anterior != null && anterior.getNivel() != nueva.getNivel()) {
+                evento = new AlertaStockEvent(AlertaStockEvent.Tipo.ACTUALIZADA, nueva);
+            }
+        }
+        if (publicar && evento != null) {
+            eventPublisher.publishEvent(evento);
+        }
+    }
+
+    // null si el producto no necesita alerta
+    private AlertaStock calcular(Long productoId, EstadoProducto estado, long hoy) {
+        if (!estado.activo || !estado.stockConocido) {
+            return null;
+        }
+        int diasEntrega = estado.diasEntrega > 0 ? estado.diasEntrega : diasEntregaDefecto;
+        double ventasDiarias = estado.ventasDiarias(hoy);
+        int puntoPedido = (int) Math.ceil(ventasDiarias * (diasEntrega + diasSeguridad));
+
+        AlertaStock.Nivel nivel;
+        if (estado.stock <= 0) {
+            nivel = AlertaStock.Nivel.AGOTADO;
+        } else if (estado.stock < ventasDiarias * diasEntrega) {
+            nivel = AlertaStock.Nivel.CRITICO;
+        } else if (estado.stock <= puntoPedido) {
+            nivel = AlertaStock.Nivel.BAJO;
+        } else {
+            return null;
+        }
+
+        // Con stock > 0 solo se llega aquí si hay ventas, así que no se divide por 0
+        double cobertura = estado.stock > 0 ? estado.stock / ventasDiarias : 0;
+        return new AlertaStock(productoId, estado.sku, nivel, estado.stock, puntoPedido,
+                Math.round(ventasDiarias * 100) / 100.0, diasEntrega,
+                Math.round(cobertura * 10) / 10.0, LocalDateTime.now());
+    }
+
+    private EstadoProducto estado(Long productoId) {
+        return productos.computeIfAbsent(productoId, k -> new EstadoProducto(ventanaDias));
+    }
+
+    // Lo que sabemos de un producto. Se protege con synchronized sobre el objeto.
+    private static class EstadoProducto {
+        String sku;
+        int stock;
+        boolean activo = true;
+        int diasEntrega;
+        // Hasta que llega el primer stock (carga o StockCambiadoEvent) no se evalúa
+        boolean stockConocido;
+
+        // ventasPorDia[dia % N] = unidades vendidas ese día (ventana de N días
+        // que acaba en ultimoDia); totalVentana es la suma del array.
+        final int[] ventasPorDia;
+        long ultimoDia = Long.MIN_VALUE;
+        long totalVentana;
+
+        EstadoProducto(int ventanaDias) {
+            this.ventasPorDia = new int[ventanaDias];
+        }
+
+        void registrarVenta(long dia, int unidades) {
+            avanzarHasta(dia);
+            if (dia <= ultimoDia - ventasPorDia.length) {
+                return;  // fuera de la ventana
+            }
+            int i = (int) Math.floorMod(dia, (long) ventasPorDia.length);
+            int antes = ventasPorDia[i];
+            ventasPorDia[i] = Math.max(antes + unidades, 0);
+            totalVentana += ventasPorDia[i] - antes;
+        }
+
+        double ventasDiarias(long hoy) {
+            avanzarHasta(hoy);
+            return (double) totalVentana / ventasPorDia.length;
+        }
+
+        // Al pasar de día se vacían los huecos de los días que salen de la ventana
+        private void avanzarHasta(long dia) {
+            if (ultimoDia == Long.MIN_VALUE) {
+                ultimoDia = dia;
+                return;
+            }
+            if (dia <= ultimoDia) {
+                return;
+            }
+            long pasos = Math.min(dia - ultimoDia, ventasPorDia.length);
+            for (long d = dia - pasos + 1; d <= dia; d++) {
+                int i = (int) Math.floorMod(d, (long) ventasPorDia.length);
+                totalVentana -= ventasPorDia[i];
+                ventasPorDia[i] = 0;
+            }
+            ultimoDia = dia;
+        }
+    }
+}
@@ -1,18 +1,37 @@
 package com.example.inventarioapiad.service;
 
+import com.example.inventarioapiad.coalescencia.Coalescedor;
 import com.example.inventarioapiad.entity.Almacen;
+import com.example.inventarioapiad.event.AlmacenCambiadoEvent;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.jfr.AjusteStockJfr;
+import com.example.inventarioapiad.jfr.FiltroJfr;
 import com.example.inventarioapiad.repository.AlmacenRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 
+import static com.example.inventarioapiad.registro.Marcadores.FRECUENTE;
+
 @Service
 @Slf4j
 public class AlmacenService {
@@ -20,8 +39,23 @@ public class AlmacenService {
     @Autowired
     private AlmacenRepository almacenRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Lecturas iguales a la vez comparten una sola consulta (GET /api/coalescencia)
+    private final Coalescedor<Long, Almacen> lecturasPorId = new Coalescedor<>(AlmacenService::copiar);
+    private final Coalescedor<List<Object>, List<Almacen>> lecturasFiltradas =
+            new Coalescedor<>(almacenes -> almacenes.stream().map(AlmacenService::copiar).collect(Collectors.toList()));
+
+    @Transactional
     public Almacen crear(Almacen almacen) {
-        log.info("Creando almacén: " + almacen.getNombre());
+        log.info("Creando almacén: {}", almacen.getNombre());
 
         if (almacen.getNombre() == null || almacen.getNombre().isBlank()) {
             log.error("Error: Nombre del almacén vacío");
@@ -37,34 +71,33 @@ public class AlmacenService {
         }
 
         Almacen creado = almacenRepository.save(almacen);
-        log.info("Almacén creado exitosamente con ID: " + creado.getId());
+        log.info("Almacén creado exitosamente con ID: {}", creado.getId());
+        publicarCambio(creado);
         return creado;
     }
 
+    // READ: coalescida con las lecturas del mismo id que estén en vuelo.
+    // Sin @Transactional, como en ProductoService: la transacción pediría
+    // conexión también a las que solo esperan (findById ya es de solo
+    // lectura). Las escrituras no pasan por aquí sino por buscarEnBd.
     public Almacen buscarPorId(Long id) {
-        log.info("Buscando almacén con ID: " + id);
-
-        if (id == null || id <= 0) {
-            log.error("Error: ID inválido");
-            throw new IllegalArgumentException("El ID debe ser válido");
-        }
+        log.info(FRECUENTE, "Buscando almacén con ID: {}", id);
 
-        return almacenRepository.findById(id)
-                .orElseThrow(() -> {
-                    log.error("Almacén no encontrado con ID: " + id);
-                    return new RuntimeException("Almacén no encontrado con ID: " + id);
-                });
+        validarId(id);
+        return lecturasPorId.ejecutar(id, () -> buscarEnBd(id));
     }
 
+    @Transactional(readOnly = true)
     public List<Almacen> buscarTodos() {
-        log.info("Listando todos los almacenes");
+        log.info(FRECUENTE, "Listando todos los almacenes");
         return (List<Almacen>) almacenRepository.findAll();
     }
 
+    @Transactional
     public Almacen actualizar(Long id, Almacen almacenActualizado) {
-        log.info("Actualizando almacén con ID: " + id);
+        log.info("Actualizando almacén con ID: {}", id);
 
-        Almacen almacen = buscarPorId(id);
+        Almacen almacen = buscarEnBd(id);
 
         if (almacenActualizado.getNombre() != null && !almacenActualizado.getNombre().isBlank()) {
             almacen.setNombre(almacenActualizado.getNombre());
@@ -86,18 +119,58 @@ public class AlmacenService {
         }
 
         Almacen actualizado = almacenRepository.save(almacen);
-        log.info("Almacén actualizado exitosamente con ID: " + id);
+        log.info("Almacén actualizado exitosamente con ID: {}", id);
+        publicarCambio(almacen);
         return actualizado;
     }
 
+    @Transactional
     public void eliminar(Long id) {
-        log.info("Eliminando almacén con ID: " + id);
+        log.info("Eliminando almacén con ID: {}", id);
 
-        Almacen almacen = buscarPorId(id);
+        Almacen almacen = buscarEnBd(id);
         almacen.setActivo(false);
         almacenRepository.save(almacen);
+        publicarCambio(almacen);
 
-        log.info("Almacén eliminado (soft delete) con ID: " + id);
+        log.info("Almacén eliminado (soft delete) con ID: {}", id);
+    }
+
+    // MOVIMIENTOS: las compras recibidas y las ventas mueven el stockActual
+    // del almacén. Como en ProductoService, justo antes del commit y en la
+    // transacción de la compra/venta (sin transacción, en una propia). La
+    // fila se bloquea (SELECT ... FOR UPDATE) para que dos movimientos a la
+    // vez no se pisen, y se cambia la entidad para que Hibernate actualice
+    // su entrada en la caché de segundo nivel. Nunca baja de 0.
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void alMoverStock(MovimientoStockEvent movimiento) {
+        // Los traspasos ya actualizan los almacenes con las filas bloqueadas
+        if (movimiento.getAlmacenId() == null || "TRASPASO".equals(movimiento.getOrigen())) {
+            return;
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> ajustarStock(movimiento));
+    }
+
+    private void ajustarStock(MovimientoStockEvent movimiento) {
+        AjusteStockJfr evento = AjusteStockJfr.iniciar();
+        // La compra/venta ya tiene el almacén cargado, sin bloqueo, y la
+        // consulta con bloqueo devolvería esa misma copia: se escribe lo
+        // pendiente y se suelta para que se lea de nuevo (un refresh lo
+        // sacaría también de la caché de segundo nivel)
+        entityManager.flush();
+        entityManager.detach(entityManager.getReference(Almacen.class, movimiento.getAlmacenId()));
+        Almacen almacen = almacenRepository.findByIdForUpdate(movimiento.getAlmacenId()).orElse(null);
+        if (almacen != null) {
+            int stock = almacen.getStockActual() == null ? 0 : almacen.getStockActual();
+            almacen.setStockActual(Math.max(0, stock + movimiento.getDelta()));
+        }
+        evento.terminar(AjusteStockJfr.ALMACEN, movimiento.getProductoId(), movimiento.getAlmacenId(),
+                movimiento.getDelta(), movimiento.getOrigen(), almacen != null ? 1 : 0);
+        if (almacen == null) {
+            log.warn("Movimiento de stock para almacén inexistente: {}", movimiento);
+            return;
+        }
+        publicarCambio(almacen);
     }
 
     // -------------------------------------------------------------------
@@ -106,9 +179,10 @@ public class AlmacenService {
     // -------------------------------------------------------------------
 
     // Lista paginada de almacenes. Lo usa el endpoint GET /api/v2/almacenes.
+    @Transactional(readOnly = true)
     public Page<Almacen> buscarPaginado(Pageable pageable) {
-        log.info("Listando almacenes paginados - página: " + pageable.getPageNumber()
-                + ", tamaño: " + pageable.getPageSize());
+        log.info(FRECUENTE, "Listando almacenes paginados - página: {}, tamaño: {}",
+                pageable.getPageNumber(), pageable.getPageSize());
         return almacenRepository.findAll(pageable);
     }
 
@@ -116,25 +190,43 @@ public class AlmacenService {
     // prioritario, se rechaza con una IllegalStateException (el controller
     // la mapea a un 409 Conflict). Si no es prioritario, se hace soft
     // delete como en la V1.
+    @Transactional
     public void eliminarSiNoPrioritario(Long id) {
-        log.info("Intentando eliminar almacén V2 con ID: " + id);
+        log.info("Intentando eliminar almacén V2 con ID: {}", id);
 
-        Almacen almacen = buscarPorId(id);
+        Almacen almacen = buscarEnBd(id);
         if (Boolean.TRUE.equals(almacen.getPrioritario())) {
-            log.error("Bloqueo: el almacén ID " + id + " es prioritario, no se puede eliminar");
+            log.error("Bloqueo: el almacén ID {} es prioritario, no se puede eliminar", id);
             throw new IllegalStateException(
                     "No se puede eliminar un almacén prioritario. Marca prioritario=false antes de borrar.");
         }
 
         almacen.setActivo(false);
         almacenRepository.save(almacen);
-        log.info("Almacén V2 eliminado (soft delete) con ID: " + id);
+        publicarCambio(almacen);
+        log.info("Almacén V2 eliminado (soft delete) con ID: {}", id);
     }
 
-    // FILTRADO: Buscar almacenes con hasta 3 campos
+    // FILTRADO: Buscar almacenes con hasta 3 campos. Los mismos filtros a
+    // la vez comparten la consulta (sin transacción propia, como buscarPorId)
     public List<Almacen> buscarConFiltros(String nombre, String ubicacion, Integer capacidadMaxima) {
-        log.info("Filtrando almacenes - nombre: " + nombre + ", ubicacion: " + ubicacion + ", capacidadMaxima: " + capacidadMaxima);
+        log.info(FRECUENTE, "Filtrando almacenes - nombre: {}, ubicacion: {}, capacidadMaxima: {}",
+                nombre, ubicacion, capacidadMaxima);
+        FiltroJfr evento = FiltroJfr.iniciar();
+        List<Almacen> almacenes = lecturasFiltradas.ejecutar(Arrays.asList(nombre, ubicacion, capacidadMaxima),
+                () -> filtrar(nombre, ubicacion, capacidadMaxima));
+        evento.terminar("almacenes", almacenes.size(), nombre, ubicacion, capacidadMaxima);
+        return almacenes;
+    }
 
+    public Map<String, Object> estadisticasCoalescencia() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("porId", lecturasPorId.estadisticas());
+        stats.put("filtros", lecturasFiltradas.estadisticas());
+        return stats;
+    }
+
+    private List<Almacen> filtrar(String nombre, String ubicacion, Integer capacidadMaxima) {
         List<Almacen> almacenes = ((List<Almacen>) almacenRepository.findAll()).stream()
                 .filter(a -> Boolean.TRUE.equals(a.getActivo()))
                 .collect(Collectors.toList());
@@ -157,7 +249,43 @@ public class AlmacenService {
                     .collect(Collectors.toList());
         }
 
-        log.info("Filtrado completado. Resultados: " + almacenes.size() + " almacenes");
+        log.info(FRECUENTE, "Filtrado completado. Resultados: {} almacenes", almacenes.size());
         return almacenes;
     }
-}
\ No newline at end of file
+
+    private void validarId(Long id) {
+        if (id == null || id <= 0) {
+            log.error("Error: ID inválido");
+            throw new IllegalArgumentException("El ID debe ser válido");
+        }
+    }
+
+    // Lectura directa, sin coalescer: la usan las escrituras, que necesitan
+    // la entidad de su propia transacción
+    private Almacen buscarEnBd(Long id) {
+        validarId(id);
+        return almacenRepository.findById(id)
+                .orElseThrow(() -> {
+                    log.error("Almacén no encontrado con ID: {}", id);
+                    return new RuntimeException("Almacén no encontrado con ID: " + id);
+                });
+    }
+
+    // Copia para las lecturas coalescidas (fechaModificacion no se copia:
+    // no tiene setter y no sale en el JSON)
+    private static Almacen copiar(Almacen almacen) {
+        Almacen copia = new Almacen();
+        BeanUtils.copyProperties(almacen, copia);
+        return copia;
+    }
+
+    private void publicarCambio(Almacen almacen) {
+        if (almacen.getId() == null) {
+            return;
+        }
+        eventPublisher.publishEvent(new AlmacenCambiadoEvent(almacen.getId(), almacen.getNombre(),
+                almacen.getCapacidadMaxima(),
+                almacen.getStockActual() != null ? almacen.getStockActual() : 0,
+                Boolean.TRUE.equals(almacen.getActivo())));
+    }
+}
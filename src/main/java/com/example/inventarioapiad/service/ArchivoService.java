@@ -0,0 +1,287 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.entity.Venta;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Archivo de ventas y compras cerradas: las ventas ENTREGADA/CANCELADA y
+// las compras RECIBIDA/CANCELADA con fecha anterior a "archivo.horizonte-dias"
+// se mueven a una tabla por mes (ventas_archivo_yyyyMM, compras_archivo_yyyyMM,
+// registradas en archivo_tablas) para que las tablas vivas y sus índices no
+// crezcan sin fin.
+//
+// Se avanza por lotes de "archivo.tamano-lote" ids en orden (keyset). Cada
+// lote se copia, se apunta en archivo_tablas y se borra de la tabla viva en
+// UNA transacción: si el proceso se corta, lo confirmado ya está archivado
+// y lo demás sigue en la tabla viva, así que la siguiente pasada continúa
+// donde se quedó sin duplicar nada. Las tablas de archivo se crean antes de
+// abrir la transacción (en MariaDB un CREATE TABLE confirma la que haya).
+//
+// Lo archivado sigue disponible:
+//   - buscarVenta(id) lo busca en la tabla del mes (VentaService.buscarPorId
+//     cae aquí si no está en ventas); es de solo lectura.
+//   - historico("ventas") devuelve ventas UNION ALL sus tablas de archivo,
+//     para quien necesita el histórico completo (valoración, siembra de
+//     stock por almacén).
+@Service
+@Slf4j
+public class ArchivoService {
+
+    private static final String COLUMNAS_VENTAS =
+            "id, cliente_id, producto_id, almacen_id, cantidad, precio_unitario, fecha_venta, numero_pedido, estado, fecha_creacion, "
+            + "fecha_modificacion";
+    private static final String COLUMNAS_COMPRAS =
+            "id, proveedor_id, producto_id, almacen_id, cantidad, precio_unitario, fecha_compra, numero_factura, estado, fecha_creacion, "
+            + "fecha_modificacion";
+
+    private record Origen(String tabla, String columnaFecha, String estadosCerrados, String columnas) { }
+
+    private static final Map<String, Origen> ORIGENES = Map.of(
+            "ventas", new Origen("ventas", "fecha_venta", "'ENTREGADA', 'CANCELADA'", COLUMNAS_VENTAS),
+            "compras", new Origen("compras", "fecha_compra", "'RECIBIDA', 'CANCELADA'", COLUMNAS_COMPRAS));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${archivo.horizonte-dias:365}")
+    private int horizonteDias = 365;
+
+    @Value("${archivo.tamano-lote:500}")
+    private int tamanoLote = 500;
+
+    // Lotes como mucho por pasada (0 = hasta terminar)
+    @Value("${archivo.max-lotes:0}")
+    private int maxLotes = 0;
+
+    private final AtomicBoolean enCurso = new AtomicBoolean(false);
+    private final AtomicBoolean detenerSolicitado = new AtomicBoolean(false);
+    private volatile Map<String, Object> ultimoInforme = Map.of("estado", "SIN_EJECUTAR");
+
+    @Scheduled(cron = "${archivo.cron:-}")
+    public void archivarProgramado() {
+        try {
+            archivar();
+        } catch (IllegalStateException e) {
+            log.warn("Archivo programado omitido: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> archivar() {
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay un archivado en curso");
+        }
+        detenerSolicitado.set(false);
+        try {
+            long inicio = System.currentTimeMillis();
+            LocalDateTime limite = LocalDate.now().minusDays(horizonteDias).atStartOfDay();
+            Map<String, Object> informe = new LinkedHashMap<>();
+            informe.put("inicio", LocalDateTime.now());
+            informe.put("limite", limite);
+            int[] lotes = {0};
+            informe.put("ventas", archivarOrigen(ORIGENES.get("ventas"), limite, lotes));
+            informe.put("compras", archivarOrigen(ORIGENES.get("compras"), limite, lotes));
+            informe.put("lotes", lotes[0]);
+            informe.put("estado", detenerSolicitado.get() || (maxLotes > 0 && lotes[0] >= maxLotes)
+                    ? "INTERRUMPIDO" : "COMPLETADO");
+            informe.put("ms", System.currentTimeMillis() - inicio);
+            ultimoInforme = informe;
+            log.info("Archivado: {}", informe);
+            return informe;
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    // El lote en curso termina; la siguiente pasada sigue desde ahí
+    public boolean detener() {
+        if (!enCurso.get()) {
+            return false;
+        }
+        detenerSolicitado.set(true);
+        return true;
+    }
+
+    public Map<String, Object> ultimoInforme() {
+        return ultimoInforme;
+    }
+
+    public List<Map<String, Object>> tablas() {
+        return jdbcTemplate.queryForList("SELECT origen, mes, tabla, filas, id_minimo, id_maximo, fecha_creacion "
+                + "FROM archivo_tablas ORDER BY origen, mes");
+    }
+
+    // Venta archivada por id (solo lectura: la entidad viene separada del
+    // contexto de persistencia para que nadie la guarde en ventas)
+    public Optional<Venta> buscarVenta(Long id) {
+        for (String tabla : tablasCon("ventas", id)) {
+            @SuppressWarnings("unchecked")
+            List<Venta> encontradas = entityManager
+                    .createNativeQuery("SELECT " + COLUMNAS_VENTAS + " FROM " + tabla + " WHERE id = ?", Venta.class)
+                    .setParameter(1, id)
+                    .getResultList();
+            if (!encontradas.isEmpty()) {
+                Venta venta = encontradas.get(0);
+                entityManager.detach(venta);
+                return Optional.of(venta);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // La tabla viva más sus archivos como subconsulta para un FROM, con las
+    // columnas de la tabla original. Sin archivos es la tabla tal cual.
+    public String historico(String origen) {
+        Origen o = ORIGENES.get(origen);
+        if (o == null) {
+            throw new IllegalArgumentException("Origen de archivo desconocido: " + origen);
+        }
+        List<String> tablas = jdbcTemplate.queryForList(
+                "SELECT tabla FROM archivo_tablas WHERE origen = ? ORDER BY mes", String.class, origen);
+        if (tablas.isEmpty()) {
+            return o.tabla();
+        }
+        StringBuilder sql = new StringBuilder("(SELECT ").append(o.columnas()).append(" FROM ").append(o.tabla());
+        for (String tabla : tablas) {
+            sql.append(" UNION ALL SELECT ").append(o.columnas()).append(" FROM ").append(tabla);
+        }
+        return sql.append(")").toString();
+    }
+
+    private List<String> tablasCon(String origen, Long id) {
+        return jdbcTemplate.queryForList("SELECT tabla FROM archivo_tablas "
+                + "WHERE origen = ? AND id_minimo <= ? AND id_maximo >= ? ORDER BY mes DESC", String.class, origen, id, id);
+    }
+
+    private Map<String, Object> archivarOrigen(Origen origen, LocalDateTime limite, int[] lotes) {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        String sqlCandidatos = "SELECT id, " + origen.columnaFecha() + " FROM " + origen.tabla()
+                + " WHERE estado IN (" + origen.estadosCerrados() + ") AND " + origen.columnaFecha() + " < ? AND id > ?"
+                + " ORDER BY id LIMIT ?";
+        long ultimoId = 0;
+        long movidas = 0;
+        TreeMap<Integer, Long> porMes = new TreeMap<>();
+
+        while (!detenerSolicitado.get() && (maxLotes == 0 || lotes[0] < maxLotes)) {
+            TreeMap<Integer, List<Long>> lote = new TreeMap<>();
+            long[] ultimo = {ultimoId};
+            jdbcTemplate.query(sqlCandidatos, rs -> {
+                long id = rs.getLong(1);
+                lote.computeIfAbsent(mes(rs.getTimestamp(2).toLocalDateTime()), m -> new ArrayList<>()).add(id);
+                ultimo[0] = id;
+            }, Timestamp.valueOf(limite), ultimoId, tamanoLote);
+            if (lote.isEmpty()) {
+                break;
+            }
+            ultimoId = ultimo[0];
+
+            for (Integer mes : lote.keySet()) {
+                asegurarTabla(origen, mes);
+            }
+            Map<Integer, Integer> movidasLote = transaccion.execute(status -> moverLote(origen, lote, limite));
+            for (Map.Entry<Integer, Integer> e : movidasLote.entrySet()) {
+                porMes.merge(e.getKey(), (long) e.getValue(), Long::sum);
+                movidas += e.getValue();
+            }
+            lotes[0]++;
+        }
+
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("filas", movidas);
+        resumen.put("porMes", porMes);
+        return resumen;
+    }
+
+    // Copia, apunta y borra un lote. Se vuelve a comprobar cada fila con
+    // bloqueo: puede haber cambiado de estado o de fecha desde la lectura.
+    private Map<Integer, Integer> moverLote(Origen origen, TreeMap<Integer, List<Long>> lote, LocalDateTime limite) {
+        Map<Integer, Integer> movidas = new TreeMap<>();
+        for (Map.Entry<Integer, List<Long>> e : lote.entrySet()) {
+            int mes = e.getKey();
+            LocalDateTime desde = LocalDate.of(mes / 100, mes % 100, 1).atStartOfDay();
+            LocalDateTime hasta = desde.plusMonths(1).isBefore(limite) ? desde.plusMonths(1) : limite;
+
+            List<Object> args = new ArrayList<>(e.getValue());
+            args.add(Timestamp.valueOf(desde));
+            args.add(Timestamp.valueOf(hasta));
+            List<Long> confirmados = jdbcTemplate.queryForList("SELECT id FROM " + origen.tabla()
+                    + " WHERE id IN (" + marcadores(e.getValue().size()) + ") AND estado IN (" + origen.estadosCerrados() + ")"
+                    + " AND " + origen.columnaFecha() + " >= ? AND " + origen.columnaFecha() + " < ? FOR UPDATE",
+                    Long.class, args.toArray());
+            if (confirmados.isEmpty()) {
+                continue;
+            }
+
+            String tabla = nombreTabla(origen, mes);
+            String enIds = " WHERE id IN (" + marcadores(confirmados.size()) + ")";
+            Object[] ids = confirmados.toArray();
+            jdbcTemplate.update("INSERT INTO " + tabla + " (" + origen.columnas() + ") SELECT " + origen.columnas()
+                    + " FROM " + origen.tabla() + enIds, ids);
+            jdbcTemplate.update("UPDATE archivo_tablas SET filas = filas + ?, id_minimo = LEAST(id_minimo, ?), "
+                    + "id_maximo = GREATEST(id_maximo, ?) WHERE tabla = ?",
+                    confirmados.size(), Collections.min(confirmados), Collections.max(confirmados), tabla);
+            jdbcTemplate.update("DELETE FROM " + origen.tabla() + enIds, ids);
+            movidas.put(mes, confirmados.size());
+        }
+        return movidas;
+    }
+
+    // Crea la tabla del mes (mismas columnas que la viva, con su clave) y la
+    // registra. Se puede repetir sin problema si una pasada se cortó a medias.
+    private void asegurarTabla(Origen origen, int mes) {
+        String tabla = nombreTabla(origen, mes);
+        Integer registrada = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM archivo_tablas WHERE tabla = ?", Integer.class, tabla);
+        if (registrada != null && registrada > 0) {
+            return;
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + tabla + " AS SELECT " + origen.columnas()
+                + " FROM " + origen.tabla() + " WHERE 1 = 0");
+        try {
+            jdbcTemplate.execute("ALTER TABLE " + tabla + " ADD PRIMARY KEY (id)");
+        } catch (DataAccessException e) {
+            log.warn("La tabla de archivo {} ya tenía clave primaria: {}", tabla, e.getMessage());
+        }
+        jdbcTemplate.update("INSERT INTO archivo_tablas (origen, mes, tabla, filas, id_minimo, id_maximo, fecha_creacion) "
+                + "VALUES (?, ?, ?, 0, ?, 0, ?)", origen.tabla(), mes, tabla, Long.MAX_VALUE, Timestamp.valueOf(LocalDateTime.now()));
+        log.info("Creada la tabla de archivo {}", tabla);
+    }
+
+    private static String nombreTabla(Origen origen, int mes) {
+        return origen.tabla() + "_archivo_" + mes;
+    }
+
+    private static int mes(LocalDateTime fecha) {
+        return fecha.getYear() * 100 + fecha.getMonthValue();
+    }
+
+    private static String marcadores(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+}
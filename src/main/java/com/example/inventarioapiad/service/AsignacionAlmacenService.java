@@ -0,0 +1,330 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.dto.AsignacionAlmacen;
+import com.example.inventarioapiad.event.AlmacenCambiadoEvent;
+import com.example.inventarioapiad.event.TraspasoCambiadoEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Índice en memoria de la capacidad libre de los almacenes, para validar
+// y repartir compras sin consultar la tabla en cada petición.
+//
+//   libre = capacidadMaxima - stockActual - reservado
+//
+// "reservado" son las unidades de compras PENDIENTE y de traspasos
+// EN_TRANSITO que van a ese almacén: ocupan sitio aunque aún no hayan llegado. CompraService reserva al crear
+// y libera al recibir/cancelar; stockActual y capacidadMaxima llegan por
+// AlmacenCambiadoEvent cada vez que AlmacenService los cambia.
+//
+// La estructura es un segment tree de máximos sobre la capacidad libre
+// (una hoja por almacén): actualizar un almacén es O(log n), saber cuál
+// tiene más sitio es O(1) y encontrarlo O(log n). Todo va bajo el lock del
+// objeto; las operaciones son muy cortas.
+@Service
+@Slf4j
+public class AsignacionAlmacenService {
+
+    // Hoja de un almacén inactivo o de un hueco sin usar: nunca se elige
+    private static final long SIN_HUECO = Long.MIN_VALUE;
+    // "Sin límite" (capacidadMaxima null); lejos de MAX_VALUE para no desbordar al restar
+    private static final long ILIMITADO = Long.MAX_VALUE / 4;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, Integer> hojaPorAlmacen = new HashMap<>();
+    private Long[] ids = new Long[0];
+    private String[] nombres = new String[0];
+    private long[] capacidad = new long[0];
+    private long[] stock = new long[0];
+    private long[] reservado = new long[0];
+    private boolean[] activo = new boolean[0];
+    private long[] arbol = new long[0];   // arbol[1] = raíz; hojas en [hojas, 2*hojas)
+    private int hojas = 0;
+    private int usadas = 0;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        cargar();
+    }
+
+    // Reconstruye el índice desde la BD: almacenes + compras PENDIENTE +
+    // traspasos EN_TRANSITO
+    public synchronized Map<String, Object> cargar() {
+        // Arrays nuevos: redimensionar() copia las hojas viejas y las reservas
+        // se sumarían a las de la carga anterior
+        hojaPorAlmacen.clear();
+        usadas = 0;
+        hojas = 0;
+        ids = new Long[0];
+        nombres = new String[0];
+        capacidad = new long[0];
+        stock = new long[0];
+        reservado = new long[0];
+        activo = new boolean[0];
+        redimensionar(16);
+
+        jdbcTemplate.query("SELECT id, nombre, capacidad_maxima, stock_actual, activo FROM almacenes ORDER BY id", rs -> {
+            Integer capacidadMaxima = rs.getObject(3) != null ? rs.getInt(3) : null;
+            actualizar(rs.getLong(1), rs.getString(2), capacidadMaxima, rs.getInt(4), rs.getBoolean(5));
+        });
+        jdbcTemplate.query("SELECT almacen_id, SUM(cantidad) FROM compras WHERE estado = 'PENDIENTE' GROUP BY almacen_id "
+                        + "UNION ALL "
+                        + "SELECT almacen_destino_id, SUM(cantidad) FROM traspasos WHERE estado = 'EN_TRANSITO' "
+                        + "GROUP BY almacen_destino_id",
+                rs -> {
+                    Integer hoja = hojaPorAlmacen.get(rs.getLong(1));
+                    if (hoja != null) {
+                        reservado[hoja] += rs.getLong(2);
+                        recalcularHoja(hoja);
+                    }
+                });
+
+        log.info("Índice de capacidad cargado: {} almacenes", usadas);
+        return Map.of("almacenes", usadas, "maxLibre", maxLibre());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void alCambiarAlmacen(AlmacenCambiadoEvent evento) {
+        if (evento.getAlmacenId() != null) {
+            actualizar(evento.getAlmacenId(), evento.getNombre(), evento.getCapacidadMaxima(),
+                    evento.getStockActual(), evento.isActivo());
+        }
+    }
+
+    // El traspaso ya validó la capacidad con el almacén bloqueado: aquí
+    // solo se apunta (o se suelta) la reserva de lo que va en camino.
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void alCambiarTraspaso(TraspasoCambiadoEvent evento) {
+        Integer hoja = hojaPorAlmacen.get(evento.getAlmacenDestinoId());
+        if (hoja == null) {
+            return;
+        }
+        boolean antes = "EN_TRANSITO".equals(evento.getEstadoAnterior());
+        boolean ahora = "EN_TRANSITO".equals(evento.getEstadoNuevo());
+        if (!antes && ahora) {
+            reservado[hoja] += evento.getCantidad();
+        } else if (antes && !ahora) {
+            reservado[hoja] = Math.max(reservado[hoja] - evento.getCantidad(), 0);
+        }
+        recalcularHoja(hoja);
+    }
+
+    // ------------------------------------------------------------------
+    // Consultas
+    // ------------------------------------------------------------------
+
+    // Hueco libre de un almacén (IllegalArgumentException si no existe)
+    public synchronized long libre(Long almacenId) {
+        return libreHoja(hoja(almacenId));
+    }
+
+    // El almacén con más hueco, si cabe "cantidad" entera en él
+    public synchronized AsignacionAlmacen elegir(int cantidad) {
+        validarCantidad(cantidad);
+        if (usadas == 0 || arbol[1] < cantidad) {
+            throw new IllegalArgumentException("Ningún almacén tiene hueco para " + cantidad + " unidades"
+                    + " (máximo libre: " + Math.max(maxLibre(), 0) + ")");
+        }
+        int hoja = hojaMaxima();
+        return new AsignacionAlmacen(ids[hoja], nombres[hoja], cantidad, libreHoja(hoja) - cantidad);
+    }
+
+    // Reparto de "cantidad" entre almacenes: primero el preferido (si se
+    // indica) y luego, sucesivamente, el que más hueco tenga. No reserva.
+    public synchronized List<AsignacionAlmacen> planificar(int cantidad, Long preferidoId) {
+        return repartir(cantidad, preferidoId, false);
+    }
+
+    public synchronized List<Map<String, Object>> capacidades() {
+        List<Map<String, Object>> resultado = new ArrayList<>();
+        for (int hoja = 0; hoja < usadas; hoja++) {
+            Map<String, Object> fila = new LinkedHashMap<>();
+            fila.put("almacenId", ids[hoja]);
+            fila.put("nombre", nombres[hoja]);
+            fila.put("activo", activo[hoja]);
+            fila.put("capacidadMaxima", capacidad[hoja] == ILIMITADO ? null : capacidad[hoja]);
+            fila.put("stockActual", stock[hoja]);
+            fila.put("reservado", reservado[hoja]);
+            fila.put("libre", activo[hoja] ? Math.max(libreHoja(hoja), 0) : 0);
+            resultado.add(fila);
+        }
+        return resultado;
+    }
+
+    // ------------------------------------------------------------------
+    // Validación y reservas (las usa CompraService)
+    // ------------------------------------------------------------------
+
+    public synchronized void validar(Long almacenId, int cantidad) {
+        validarCantidad(cantidad);
+        int hoja = hoja(almacenId);
+        if (!activo[hoja]) {
+            throw new IllegalArgumentException("El almacén " + almacenId + " no está activo");
+        }
+        long libre = libreHoja(hoja);
+        if (cantidad > libre) {
+            throw new IllegalArgumentException("El almacén " + almacenId + " no tiene capacidad para "
+                    + cantidad + " unidades (libre: " + Math.max(libre, 0) + ")");
+        }
+    }
+
+    public synchronized void reservar(Long almacenId, int cantidad) {
+        validar(almacenId, cantidad);
+        int hoja = hoja(almacenId);
+        reservado[hoja] += cantidad;
+        recalcularHoja(hoja);
+    }
+
+    public synchronized void liberar(Long almacenId, int cantidad) {
+        Integer hoja = almacenId != null ? hojaPorAlmacen.get(almacenId) : null;
+        if (hoja == null || cantidad <= 0) {
+            return;
+        }
+        reservado[hoja] = Math.max(reservado[hoja] - cantidad, 0);
+        recalcularHoja(hoja);
+    }
+
+    // Como planificar, pero dejando reservado cada trozo
+    public synchronized List<AsignacionAlmacen> reservarRepartido(int cantidad, Long preferidoId) {
+        return repartir(cantidad, preferidoId, true);
+    }
+
+    // ------------------------------------------------------------------
+    // Segment tree
+    // ------------------------------------------------------------------
+
+    private List<AsignacionAlmacen> repartir(int cantidad, Long preferidoId, boolean reservarTrozos) {
+        validarCantidad(cantidad);
+        long total = 0;
+        for (int hoja = 0; hoja < usadas && total < cantidad; hoja++) {
+            if (activo[hoja]) {
+                total += Math.max(libreHoja(hoja), 0);
+            }
+        }
+        if (total < cantidad) {
+            throw new IllegalArgumentException("No hay capacidad para " + cantidad
+                    + " unidades entre todos los almacenes (libre: " + total + ")");
+        }
+
+        // Se reserva sobre la marcha (así el siguiente "máximo" ya lo tiene
+        // en cuenta) y, si solo era una consulta, se deshace al final.
+        List<AsignacionAlmacen> reparto = new ArrayList<>();
+        int pendiente = cantidad;
+        Integer preferida = preferidoId != null ? hojaPorAlmacen.get(preferidoId) : null;
+        if (preferidoId != null && preferida == null) {
+            throw new IllegalArgumentException("Almacén no encontrado con ID: " + preferidoId);
+        }
+        if (preferida != null && activo[preferida] && libreHoja(preferida) > 0) {
+            pendiente -= tomar(preferida, pendiente, reparto);
+        }
+        while (pendiente > 0) {
+            pendiente -= tomar(hojaMaxima(), pendiente, reparto);
+        }
+
+        if (!reservarTrozos) {
+            for (AsignacionAlmacen trozo : reparto) {
+                int hoja = hojaPorAlmacen.get(trozo.getAlmacenId());
+                reservado[hoja] -= trozo.getCantidad();
+                recalcularHoja(hoja);
+            }
+        }
+        return reparto;
+    }
+
+    private int tomar(int hoja, int pendiente, List<AsignacionAlmacen> reparto) {
+        int cantidad = (int) Math.min(pendiente, libreHoja(hoja));
+        reservado[hoja] += cantidad;
+        recalcularHoja(hoja);
+        reparto.add(new AsignacionAlmacen(ids[hoja], nombres[hoja], cantidad, libreHoja(hoja)));
+        return cantidad;
+    }
+
+    private void actualizar(Long almacenId, String nombre, Integer capacidadMaxima, int stockActual, boolean esActivo) {
+        Integer hoja = hojaPorAlmacen.get(almacenId);
+        if (hoja == null) {
+            if (usadas == hojas) {
+                redimensionar(Math.max(hojas * 2, 16));
+            }
+            hoja = usadas++;
+            hojaPorAlmacen.put(almacenId, hoja);
+            ids[hoja] = almacenId;
+        }
+        nombres[hoja] = nombre;
+        capacidad[hoja] = capacidadMaxima != null ? capacidadMaxima : ILIMITADO;
+        stock[hoja] = stockActual;
+        activo[hoja] = esActivo;
+        recalcularHoja(hoja);
+    }
+
+    // Cambia el valor de una hoja y sube recalculando los máximos: O(log n)
+    private void recalcularHoja(int hoja) {
+        int nodo = hojas + hoja;
+        arbol[nodo] = activo[hoja] ? libreHoja(hoja) : SIN_HUECO;
+        for (nodo >>= 1; nodo >= 1; nodo >>= 1) {
+            arbol[nodo] = Math.max(arbol[2 * nodo], arbol[2 * nodo + 1]);
+        }
+    }
+
+    // Baja desde la raíz por el hijo que tiene el máximo: O(log n)
+    private int hojaMaxima() {
+        int nodo = 1;
+        while (nodo < hojas) {
+            nodo = arbol[2 * nodo] >= arbol[2 * nodo + 1] ? 2 * nodo : 2 * nodo + 1;
+        }
+        return nodo - hojas;
+    }
+
+    private long maxLibre() {
+        return usadas == 0 ? 0 : arbol[1];
+    }
+
+    private long libreHoja(int hoja) {
+        return capacidad[hoja] - stock[hoja] - reservado[hoja];
+    }
+
+    private int hoja(Long almacenId) {
+        Integer hoja = almacenId != null ? hojaPorAlmacen.get(almacenId) : null;
+        if (hoja == null) {
+            throw new IllegalArgumentException("Almacén no encontrado con ID: " + almacenId);
+        }
+        return hoja;
+    }
+
+    private static void validarCantidad(int cantidad) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
+        }
+    }
+
+    // Nuevo tamaño (potencia de 2): copia las hojas y rehace los nodos internos
+    private void redimensionar(int nuevoTamano) {
+        ids = Arrays.copyOf(ids, nuevoTamano);
+        nombres = Arrays.copyOf(nombres, nuevoTamano);
+        capacidad = Arrays.copyOf(capacidad, nuevoTamano);
+        stock = Arrays.copyOf(stock, nuevoTamano);
+        reservado = Arrays.copyOf(reservado, nuevoTamano);
+        activo = Arrays.copyOf(activo, nuevoTamano);
+        hojas = nuevoTamano;
+        arbol = new long[2 * hojas];
+        Arrays.fill(arbol, SIN_HUECO);
+        for (int hoja = 0; hoja < usadas; hoja++) {
+            arbol[hojas + hoja] = activo[hoja] ? libreHoja(hoja) : SIN_HUECO;
+        }
+        for (int nodo = hojas - 1; nodo >= 1; nodo--) {
+            arbol[nodo] = Math.max(arbol[2 * nodo], arbol[2 * nodo + 1]);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.config.CacheSegundoNivelConfig;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Estado y vaciado de la caché de segundo nivel (regiones en
+// CacheSegundoNivelConfig). Aciertos, fallos y escrituras salen de las
+// estadísticas de Hibernate; las entradas, de la propia caché JCache.
+@Service
+@Slf4j
+public class CacheSegundoNivelService {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManagerSegundoNivel;
+
+    public Map<String, Object> estado() {
+        SessionFactoryImplementor sessionFactory = sessionFactory();
+        Statistics estadisticas = sessionFactory.getStatistics();
+
+        List<Map<String, Object>> regiones = new ArrayList<>();
+        for (String region : CacheSegundoNivelConfig.REGIONES) {
+            regiones.add(estadoRegion(estadisticas, region));
+        }
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("habilitada", sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled());
+        estado.put("regiones", regiones);
+        estado.put("aciertosConsultas", estadisticas.getQueryCacheHitCount());
+        estado.put("fallosConsultas", estadisticas.getQueryCacheMissCount());
+        estado.put("desdeEstadisticas", estadisticas.getStart());
+        return estado;
+    }
+
+    // Vacía una región (una de las de entidades o "default-query-results-region")
+    public Map<String, Object> vaciar(String region) {
+        if (!CacheSegundoNivelConfig.REGIONES.contains(region)) {
+            log.error("Región de caché desconocida: {}", region);
+            throw new RuntimeException("Región de caché no encontrada: " + region);
+        }
+        SessionFactory sessionFactory = sessionFactory();
+        if (CacheSegundoNivelConfig.CONSULTAS.equals(region)) {
+            sessionFactory.getCache().evictDefaultQueryRegion();
+        } else {
+            sessionFactory.getCache().evictRegion(region);
+        }
+        log.info("Región de caché vaciada: {}", region);
+        return estadoRegion(sessionFactory.getStatistics(), region);
+    }
+
+    public Map<String, Object> vaciarTodo() {
+        sessionFactory().getCache().evictAllRegions();
+        log.info("Caché de segundo nivel vaciada entera");
+        return estado();
+    }
+
+    private Map<String, Object> estadoRegion(Statistics estadisticas, String region) {
+        CacheRegionStatistics datos = CacheSegundoNivelConfig.CONSULTAS.equals(region)
+                ? estadisticas.getQueryRegionStatistics(region)
+                : estadisticas.getDomainDataRegionStatistics(region);
+        long aciertos = datos != null ? datos.getHitCount() : 0;
+        long fallos = datos != null ? datos.getMissCount() : 0;
+
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("region", region);
+        estado.put("entradas", entradas(region));
+        estado.put("aciertos", aciertos);
+        estado.put("fallos", fallos);
+        estado.put("escrituras", datos != null ? datos.getPutCount() : 0);
+        estado.put("tasaAciertos", aciertos + fallos == 0 ? 0.0
+                : Math.round(1000.0 * aciertos / (aciertos + fallos)) / 1000.0);
+        return estado;
+    }
+
+    // JCache no da el tamaño: se recorre (las regiones son pequeñas)
+    private long entradas(String region) {
+        Cache<Object, Object> cache = cacheManagerSegundoNivel.getCache(region);
+        if (cache == null) {
+            return 0;
+        }
+        long entradas = 0;
+        for (Cache.Entry<Object, Object> ignored : cache) {
+            entradas++;
+        }
+        return entradas;
+    }
+
+    private SessionFactoryImplementor sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+}
@@ -0,0 +1,342 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.catalogo.CatalogoMapeado;
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.event.ProductoCambiadoEvent;
+import com.example.inventarioapiad.event.StockCambiadoEvent;
+import com.example.inventarioapiad.jfr.CacheJfr;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Modelo de lectura local del catálogo (opcional, "catalogo.read-model.enabled"):
+// ProductoService.buscarPorId y buscarPorSku leen de un fichero mapeado en
+// memoria (CatalogoMapeado) sin ir a la BD; si el producto no está en el
+// fichero (nuevo de otra instancia, no cabe en el registro, índice lleno)
+// se lee de la BD como siempre.
+//
+// El fichero se mantiene así:
+//   - ProductoCambiadoEvent / StockCambiadoEvent lo parchean al momento
+//     con lo que esta instancia acaba de guardar (leer lo propio recién
+//     escrito no espera a la sincronización).
+//   - Cada "sincronizar-ms" se aplican las filas con fecha_modificacion
+//     desde la marca guardada en el fichero, así que también llegan los
+//     cambios de SQL nativo (repreciado, clasificación ABC) y de otras
+//     instancias. Como en ExportacionService, se lee hasta la transacción
+//     activa más antigua o "ahora menos margen-ms" (LimiteModificacion)
+//     para no saltarse transacciones que confirman tarde.
+//   - Si algo no cabe se reconstruye entero en un fichero nuevo que
+//     sustituye al anterior de golpe; mientras, los eventos se encolan.
+//
+// El fichero sobrevive a los reinicios: al arrancar se abre y solo se
+// aplica lo modificado desde su marca.
+@Service
+@Slf4j
+public class CatalogoLocalService {
+
+    private static final String SQL_PRODUCTOS =
+            "SELECT id, nombre, sku, descripcion, precio_costo, precio_venta, stock_total, activo, clase_abc, fecha_creacion "
+            + "FROM productos";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${catalogo.read-model.enabled:false}")
+    private boolean habilitado = false;
+
+    @Value("${catalogo.read-model.fichero:catalogo.bin}")
+    private String fichero = "catalogo.bin";
+
+    // Bytes por producto; lo que no quepa (descripciones largas) va a la BD
+    @Value("${catalogo.read-model.tamano-registro:512}")
+    private int tamanoRegistro = 512;
+
+    @Value("${catalogo.read-model.capacidad-minima:1024}")
+    private int capacidadMinima = 1024;
+
+    @Value("${catalogo.read-model.margen-ms:5000}")
+    private long margenMs = 5000;
+
+    @Value("${catalogo.read-model.tamano-lote:1000}")
+    private int tamanoLote = 1000;
+
+    private volatile CatalogoMapeado catalogo;
+    private final AtomicBoolean enCurso = new AtomicBoolean(false);
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean(false);
+    private volatile boolean reconstruccionPendiente = false;
+    private final ConcurrentLinkedQueue<Object> pendientes = new ConcurrentLinkedQueue<>();
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private volatile Map<String, Object> ultimoResumen = Map.of("estado", "SIN_EJECUTAR");
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            Path ruta = Paths.get(fichero);
+            CatalogoMapeado existente = Files.exists(ruta) ? CatalogoMapeado.abrir(ruta, tamanoRegistro) : null;
+            if (existente != null && existente.marca() != null) {
+                catalogo = existente;
+                log.info("Catálogo local abierto: {} productos, marca {}", existente.registros(), existente.marca());
+                sincronizar();
+            } else {
+                if (existente != null) {
+                    existente.close();
+                }
+                reconstruir();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Sin modelo local se sigue leyendo de la BD
+            log.error("No se pudo preparar el catálogo local: {}", e.getMessage());
+        }
+    }
+
+    public boolean habilitado() {
+        return habilitado && catalogo != null;
+    }
+
+    // null = no está en el fichero, hay que ir a la BD
+    public Producto buscarPorId(long id) {
+        return contar(catalogo == null ? null : catalogo.buscarPorId(id), "id", id);
+    }
+
+    public Producto buscarPorSku(String sku) {
+        return contar(catalogo == null ? null : catalogo.buscarPorSku(sku), "sku", sku);
+    }
+
+    private Producto contar(Producto producto, String region, Object clave) {
+        (producto == null ? fallos : aciertos).incrementAndGet();
+        CacheJfr.emitir(CacheJfr.CATALOGO_LOCAL, region, clave, producto != null);
+        return producto;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        aplicar(evento);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarStock(StockCambiadoEvent evento) {
+        aplicar(evento);
+    }
+
+    private void aplicar(Object evento) {
+        CatalogoMapeado actual = catalogo;
+        if (!habilitado || actual == null) {
+            return;
+        }
+        if (reconstruyendo.get()) {
+            pendientes.add(evento);
+        }
+        if (evento instanceof ProductoCambiadoEvent cambio) {
+            if (cambio.getProducto().getId() != null && !actual.escribir(cambio.getProducto())) {
+                reconstruccionPendiente = true;
+            }
+        } else if (evento instanceof StockCambiadoEvent stock) {
+            actual.actualizarStock(stock.getProductoId(), stock.getStockTotal(), stock.isActivo());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalogo.read-model.sincronizar-ms:5000}")
+    public void sincronizarProgramado() {
+        if (!habilitado()) {
+            return;
+        }
+        try {
+            if (reconstruccionPendiente) {
+                reconstruir();
+            } else {
+                sincronizar();
+            }
+        } catch (IllegalStateException e) {
+            log.warn("Sincronización del catálogo local omitida: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Error sincronizando el catálogo local: {}", e.getMessage());
+        }
+    }
+
+    // Aplica las filas modificadas desde la marca del fichero
+    public Map<String, Object> sincronizar() {
+        if (catalogo == null) {
+            throw new IllegalStateException("El catálogo local no está preparado");
+        }
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una sincronización del catálogo local en curso");
+        }
+        try {
+            CatalogoMapeado actual = catalogo;
+            LocalDateTime desde = actual.marca();
+            LocalDateTime hasta = ahoraBd();
+            if (!hasta.isAfter(desde)) {
+                return Map.of("filas", 0);
+            }
+            long[] filas = {0};
+            leer(SQL_PRODUCTOS + " WHERE fecha_modificacion >= ? AND fecha_modificacion < ?", desde, hasta, rs -> {
+                filas[0]++;
+                if (!actual.escribir(mapear(rs))) {
+                    reconstruccionPendiente = true;
+                }
+            });
+            actual.guardarMarca(hasta);
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("desde", desde);
+            resumen.put("hasta", hasta);
+            resumen.put("filas", filas[0]);
+            if (filas[0] > 0) {
+                log.info("Catálogo local sincronizado: {}", resumen);
+            }
+            return resumen;
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    // Escribe el catálogo entero en un fichero nuevo y lo cambia por el actual
+    public Map<String, Object> reconstruir() {
+        if (!habilitado) {
+            throw new IllegalStateException("El catálogo local está deshabilitado (catalogo.read-model.enabled)");
+        }
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una sincronización del catálogo local en curso");
+        }
+        reconstruyendo.set(true);
+        pendientes.clear();
+        try {
+            long inicio = System.currentTimeMillis();
+            Integer total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM productos", Integer.class);
+            int capacidad = Math.max(capacidadMinima, (total == null ? 0 : total) * 3 / 2);
+            Path ruta = Paths.get(fichero).toAbsolutePath();
+            Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+            if (ruta.getParent() != null) {
+                Files.createDirectories(ruta.getParent());
+            }
+
+            LocalDateTime hasta = ahoraBd();
+            CatalogoMapeado nuevo = CatalogoMapeado.crear(temporal, capacidad, tamanoRegistro);
+            long[] filas = {0};
+            leer(SQL_PRODUCTOS + " WHERE fecha_modificacion < ?", null, hasta, rs -> {
+                filas[0]++;
+                nuevo.escribir(mapear(rs));
+            });
+            nuevo.guardarMarca(hasta);
+            nuevo.forzar();
+            // El canal sigue apuntando al mismo fichero tras el renombrado
+            Files.move(temporal, ruta, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            CatalogoMapeado anterior = catalogo;
+            catalogo = nuevo;
+            reconstruyendo.set(false);
+            reconstruccionPendiente = false;
+            Object evento;
+            while ((evento = pendientes.poll()) != null) {
+                aplicar(evento);
+            }
+            if (anterior != null) {
+                anterior.close();
+            }
+
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("fecha", LocalDateTime.now());
+            resumen.put("productos", filas[0]);
+            resumen.put("capacidad", capacidad);
+            resumen.put("bytes", nuevo.bytes());
+            resumen.put("marca", hasta);
+            resumen.put("ms", System.currentTimeMillis() - inicio);
+            ultimoResumen = resumen;
+            log.info("Catálogo local reconstruido: {}", resumen);
+            return resumen;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reconstruyendo el catálogo local: " + e.getMessage(), e);
+        } finally {
+            reconstruyendo.set(false);
+            enCurso.set(false);
+        }
+    }
+
+    public Map<String, Object> estado() {
+        CatalogoMapeado actual = catalogo;
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("habilitado", habilitado);
+        estado.put("preparado", actual != null);
+        if (actual != null) {
+            estado.put("fichero", Paths.get(fichero).toAbsolutePath().toString());
+            estado.put("productos", actual.registros());
+            estado.put("capacidad", actual.capacidad());
+            estado.put("bytes", actual.bytes());
+            estado.put("marca", actual.marca());
+        }
+        long leidos = aciertos.get();
+        long aBd = fallos.get();
+        estado.put("aciertos", leidos);
+        estado.put("fallos", aBd);
+        estado.put("tasaAciertos", leidos + aBd == 0 ? 0.0 : (double) leidos / (leidos + aBd));
+        estado.put("reconstruccionPendiente", reconstruccionPendiente);
+        estado.put("ultimaReconstruccion", ultimoResumen);
+        return estado;
+    }
+
+    // Hora de la BD (la misma que pone fecha_modificacion) menos el margen,
+    // o el inicio de la transacción activa más antigua si es anterior
+    private LocalDateTime ahoraBd() {
+        return LimiteModificacion.calcular(jdbcTemplate, margenMs);
+    }
+
+    private void leer(String sql, LocalDateTime desde, LocalDateTime hasta, RowCallbackHandler manejador) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(tamanoLote);
+            int i = 1;
+            if (desde != null) {
+                ps.setTimestamp(i++, Timestamp.valueOf(desde));
+            }
+            ps.setTimestamp(i, Timestamp.valueOf(hasta));
+            return ps;
+        }, manejador);
+    }
+
+    private static Producto mapear(ResultSet rs) throws SQLException {
+        Producto producto = new Producto();
+        producto.setId(rs.getLong("id"));
+        producto.setNombre(rs.getString("nombre"));
+        producto.setSku(rs.getString("sku"));
+        producto.setDescripcion(rs.getString("descripcion"));
+        float precioCosto = rs.getFloat("precio_costo");
+        producto.setPrecioCosto(rs.wasNull() ? null : precioCosto);
+        float precioVenta = rs.getFloat("precio_venta");
+        producto.setPrecioVenta(rs.wasNull() ? null : precioVenta);
+        int stock = rs.getInt("stock_total");
+        producto.setStockTotal(rs.wasNull() ? null : stock);
+        boolean activo = rs.getBoolean("activo");
+        producto.setActivo(rs.wasNull() ? null : activo);
+        producto.setClaseAbc(rs.getString("clase_abc"));
+        Timestamp fechaCreacion = rs.getTimestamp("fecha_creacion");
+        producto.setFechaCreacion(fechaCreacion == null ? null : fechaCreacion.toLocalDateTime());
+        return producto;
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.inventarioapiad.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Clasificación ABC (Pareto) de los productos por ingresos de venta:
+//   A  los que más facturan hasta sumar "abc.umbral-a" (80%) de los ingresos
+//   B  los siguientes hasta "abc.umbral-b" (95%)
+//   C  el resto, incluidos los que no se han vendido
+//
+// Las ventas se leen en UNA pasada en streaming (sin cargarlas en memoria)
+// y se acumulan en un mapa long -> long propio (IngresosPorProducto, en
+// céntimos) sin boxing. Para ordenar no hace falta el catálogo entero:
+// se monta un montículo sobre los ingresos en O(n) y solo se extraen los
+// productos de A y B (los que suman el 95%), que suelen ser una fracción
+// pequeña del catálogo; el resto es C sin ordenar.
+//
+// La clase se guarda en Producto.claseAbc y se puede filtrar en
+// GET /api/productos?claseAbc=A.
+@Service
+@Slf4j
+public class ClasificacionAbcService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ArchivoService archivoService;
+
+    @Value("${abc.umbral-a:0.80}")
+    private double umbralA = 0.80;
+
+    @Value("${abc.umbral-b:0.95}")
+    private double umbralB = 0.95;
+
+    // Días de ventas que se tienen en cuenta (0 = todo el histórico,
+    // incluidas las ventas archivadas)
+    @Value("${abc.ventana-dias:365}")
+    private int ventanaDias = 365;
+
+    @Value("${abc.tamano-lote:1000}")
+    private int tamanoLote = 1000;
+
+    private final AtomicBoolean enCurso = new AtomicBoolean(false);
+    private volatile Map<String, Object> ultimoResumen = Map.of("estado", "SIN_EJECUTAR");
+
+    @Scheduled(cron = "${abc.cron:-}")
+    public void clasificarProgramado() {
+        try {
+            clasificar();
+        } catch (IllegalStateException e) {
+            log.warn("Clasificación ABC programada omitida: {}", e.getMessage());
+        }
+    }
+
+    // Todo en una transacción: quien lea productos ve la clasificación
+    // anterior o la nueva, no una mezcla
+    @Transactional
+    public Map<String, Object> clasificar() {
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una clasificación ABC en curso");
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            IngresosPorProducto ingresos = new IngresosPorProducto(1024);
+            long[] ventas = {0};
+
+            String sql = ventanaDias > 0
+                    ? "SELECT producto_id, cantidad, precio_unitario FROM ventas WHERE estado <> 'CANCELADA' AND fecha_venta >= ?"
+                    : "SELECT producto_id, cantidad, precio_unitario FROM " + archivoService.historico("ventas")
+                            + " v WHERE estado <> 'CANCELADA'";
+            // Con fetchSize el driver de MariaDB va trayendo las filas por
+            // tandas en lugar de cargar el resultado completo
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(tamanoLote);
+                if (ventanaDias > 0) {
+                    ps.setTimestamp(1, Timestamp.valueOf(LocalDate.now().minusDays(ventanaDias).atStartOfDay()));
+                }
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                long centimos = Math.round((double) rs.getInt(2) * rs.getFloat(3) * 100);
+                ingresos.sumar(rs.getLong(1), centimos);
+                ventas[0]++;
+            });
+            long msLectura = System.currentTimeMillis() - inicio;
+
+            Resultado resultado = calcular(ingresos, umbralA, umbralB);
+            persistir(resultado);
+
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("fecha", LocalDateTime.now());
+            resumen.put("ventasLeidas", ventas[0]);
+            resumen.put("productosConVentas", ingresos.tamano());
+            resumen.put("ingresosTotales", resultado.total / 100.0);
+            resumen.put("productosA", resultado.claseA.length);
+            resumen.put("ingresosA", resultado.ingresosA / 100.0);
+            resumen.put("productosB", resultado.claseB.length);
+            resumen.put("ingresosB", resultado.ingresosB / 100.0);
+            resumen.put("msLectura", msLectura);
+            resumen.put("msTotal", System.currentTimeMillis() - inicio);
+            ultimoResumen = resumen;
+            log.info("Clasificación ABC: {}", resumen);
+            return resumen;
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    public Map<String, Object> resumen() {
+        return ultimoResumen;
+    }
+
+    // Todo a C y luego A y B por lotes
+    private void persistir(Resultado resultado) {
+        jdbcTemplate.update("UPDATE productos SET clase_abc = 'C' WHERE clase_abc IS NULL OR clase_abc <> 'C'");
+        actualizarClase(resultado.claseA, "A");
+        actualizarClase(resultado.claseB, "B");
+    }
+
+    private void actualizarClase(long[] ids, String clase) {
+        List<Object[]> lote = new ArrayList<>(tamanoLote);
+        for (long id : ids) {
+            lote.add(new Object[]{clase, id});
+            if (lote.size() == tamanoLote) {
+                jdbcTemplate.batchUpdate("UPDATE productos SET clase_abc = ? WHERE id = ?", lote);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE productos SET clase_abc = ? WHERE id = ?", lote);
+        }
+    }
+
+    // ------------------------------------------------------------------
+
+    // Productos de A y B en orden de ingresos (de más a menos)
+    public static final class Resultado {
+        public final long[] claseA;
+        public final long[] claseB;
+        public final long total;
+        public final long ingresosA;
+        public final long ingresosB;
+
+        Resultado(long[] claseA, long[] claseB, long total, long ingresosA, long ingresosB) {
+            this.claseA = claseA;
+            this.claseB = claseB;
+            this.total = total;
+            this.ingresosA = ingresosA;
+            this.ingresosB = ingresosB;
+        }
+    }
+
+    // Top-K parcial: montículo de máximos sobre los índices del mapa y se
+    // extrae solo hasta cubrir umbralB de los ingresos.
+    public static Resultado calcular(IngresosPorProducto ingresos, double umbralA, double umbralB) {
+        int n = ingresos.tamano();
+        long[] claves = new long[n];
+        long[] valores = new long[n];
+        ingresos.volcar(claves, valores);
+
+        long total = 0;
+        for (long valor : valores) {
+            total += valor;
+        }
+        if (total <= 0) {
+            return new Resultado(new long[0], new long[0], 0, 0, 0);
+        }
+
+        int[] heap = new int[n];
+        for (int i = 0; i < n; i++) {
+            heap[i] = i;
+        }
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            hundir(heap, n, i, valores);
+        }
+
+        long limiteA = (long) Math.ceil(total * umbralA);
+        long limiteB = (long) Math.ceil(total * umbralB);
+        long[] a = new long[16];
+        long[] b = new long[16];
+        int enA = 0;
+        int enB = 0;
+        long acumulado = 0;
+        long ingresosA = 0;
+        int tamano = n;
+        // Un producto es A si al empezar él aún no se había llegado al umbral
+        while (tamano > 0 && acumulado < limiteB) {
+            int mayor = heap[0];
+            heap[0] = heap[--tamano];
+            hundir(heap, tamano, 0, valores);
+            if (valores[mayor] <= 0) {
+                break;
+            }
+            if (acumulado < limiteA) {
+                if (enA == a.length) {
+                    a = Arrays.copyOf(a, enA * 2);
+                }
+                a[enA++] = claves[mayor];
+                ingresosA += valores[mayor];
+            } else {
+                if (enB == b.length) {
+                    b = Arrays.copyOf(b, enB * 2);
+                }
+                b[enB++] = claves[mayor];
+            }
+            acumulado += valores[mayor];
+        }
+        return new Resultado(Arrays.copyOf(a, enA), Arrays.copyOf(b, enB), total, ingresosA, acumulado - ingresosA);
+    }
+
+    private static void hundir(int[] heap, int tamano, int i, long[] valores) {
+        while (true) {
+            int izquierdo = 2 * i + 1;
+            if (izquierdo >= tamano) {
+                return;
+            }
+            int mayor = izquierdo;
+            int derecho = izquierdo + 1;
+            if (derecho < tamano && valores[heap[derecho]] > valores[heap[izquierdo]]) {
+                mayor = derecho;
+            }
+            if (valores[heap[i]] >= valores[heap[mayor]]) {
+                return;
+            }
+            int tmp = heap[i];
+            heap[i] = heap[mayor];
+            heap[mayor] = tmp;
+            i = mayor;
+        }
+    }
+
+    // Mapa long -> long de direccionamiento abierto (sondeo lineal). La
+    // clave 0 no es un id válido y marca la celda vacía.
+    public static final class IngresosPorProducto {
+        private long[] claves;
+        private long[] valores;
+        private int tamano;
+
+        public IngresosPorProducto(int capacidadInicial) {
+            int capacidad = Integer.highestOneBit(Math.max(16, capacidadInicial) - 1) << 1;
+            claves = new long[capacidad];
+            valores = new long[capacidad];
+        }
+
+        public void sumar(long clave, long valor) {
+            if (clave == 0) {
+                throw new IllegalArgumentException("La clave 0 está reservada");
+            }
+            int mascara = claves.length - 1;
+            int i = mezclar(clave) & mascara;
+            while (claves[i] != 0 && claves[i] != clave) {
+                i = (i + 1) & mascara;
+            }
+            if (claves[i] == 0) {
+                claves[i] = clave;
+                if (++tamano > claves.length * 3 / 4) {
+                    valores[i] = valor;
+                    crecer();
+                    return;
+                }
+            }
+            valores[i] += valor;
+        }
+
+        public long obtener(long clave) {
+            int mascara = claves.length - 1;
+            int i = mezclar(clave) & mascara;
+            while (claves[i] != 0) {
+                if (claves[i] == clave) {
+                    return valores[i];
+                }
+                i = (i + 1) & mascara;
+            }
+            return 0;
+        }
+
+        public int tamano() {
+            return tamano;
+        }
+
+        void volcar(long[] clavesDestino, long[] valoresDestino) {
+            int j = 0;
+            for (int i = 0; i < claves.length; i++) {
+                if (claves[i] != 0) {
+                    clavesDestino[j] = claves[i];
+                    valoresDestino[j] = valores[i];
+                    j++;
+                }
+            }
+        }
+
+        private void crecer() {
+            long[] viejasClaves = claves;
+            long[] viejosValores = valores;
+            claves = new long[viejasClaves.length * 2];
+            valores = new long[viejasClaves.length * 2];
+            int mascara = claves.length - 1;
+            for (int k = 0; k < viejasClaves.length; k++) {
+                if (viejasClaves[k] != 0) {
+                    int i = mezclar(viejasClaves[k]) & mascara;
+                    while (claves[i] != 0) {
+                        i = (i + 1) & mascara;
+                    }
+                    claves[i] = viejasClaves[k];
+                    valores[i] = viejosValores[k];
+                }
+            }
+        }
+
+        // Los ids son consecutivos: se mezclan los bits para repartirlos
+        private static int mezclar(long clave) {
+            long h = clave * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
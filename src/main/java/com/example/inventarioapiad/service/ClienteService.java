@@ -1,9 +1,11 @@
 package com.example.inventarioapiad.service;
 
 import com.example.inventarioapiad.entity.Cliente;
+import com.example.inventarioapiad.jfr.FiltroJfr;
 import com.example.inventarioapiad.repository.ClienteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
@@ -11,6 +13,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static com.example.inventarioapiad.registro.Marcadores.FRECUENTE;
+
 @Service
 @Slf4j
 public class ClienteService {
@@ -18,8 +22,9 @@ public class ClienteService {
     @Autowired
     private ClienteRepository clienteRepository;
 
+    @Transactional
     public Cliente crear(Cliente cliente) {
-        log.info("Creando cliente: " + cliente.getNombre());
+        log.info("Creando cliente: {}", cliente.getNombre());
 
         if (cliente.getNombre() == null || cliente.getNombre().isBlank()) {
             log.error("Error: Nombre del cliente vacío");
@@ -35,12 +40,13 @@ public class ClienteService {
         }
 
         Cliente creado = clienteRepository.save(cliente);
-        log.info("Cliente creado exitosamente con ID: " + creado.getId());
+        log.info("Cliente creado exitosamente con ID: {}", creado.getId());
         return creado;
     }
 
+    @Transactional(readOnly = true)
     public Cliente buscarPorId(Long id) {
-        log.info("Buscando cliente con ID: " + id);
+        log.info(FRECUENTE, "Buscando cliente con ID: {}", id);
 
         if (id == null || id <= 0) {
             log.error("Error: ID inválido");
@@ -49,18 +55,20 @@ public class ClienteService {
 
         return clienteRepository.findById(id)
                 .orElseThrow(() -> {
-                    log.error("Cliente no encontrado con ID: " + id);
+                    log.error("Cliente no encontrado con ID: {}", id);
                     return new RuntimeException("Cliente no encontrado con ID: " + id);
                 });
     }
 
+    @Transactional(readOnly = true)
     public List<Cliente> buscarTodos() {
-        log.info("Listando todos los clientes");
+        log.info(FRECUENTE, "Listando todos los clientes");
         return (List<Cliente>) clienteRepository.findAll();
     }
 
+    @Transactional
     public Cliente actualizar(Long id, Cliente clienteActualizado) {
-        log.info("Actualizando cliente con ID: " + id);
+        log.info("Actualizando cliente con ID: {}", id);
 
         Cliente cliente = buscarPorId(id);
 
@@ -84,23 +92,26 @@ public class ClienteService {
         }
 
         Cliente actualizado = clienteRepository.save(cliente);
-        log.info("Cliente actualizado exitosamente con ID: " + id);
+        log.info("Cliente actualizado exitosamente con ID: {}", id);
         return actualizado;
     }
 
+    @Transactional
     public void eliminar(Long id) {
-        log.info("Eliminando cliente con ID: " + id);
+        log.info("Eliminando cliente con ID: {}", id);
 
         Cliente cliente = buscarPorId(id);
         cliente.setActivo(false);
         clienteRepository.save(cliente);
 
-        log.info("Cliente eliminado (soft delete) con ID: " + id);
+        log.info("Cliente eliminado (soft delete) con ID: {}", id);
     }
 
     // FILTRADO: Buscar clientes con hasta 3 campos
+    @Transactional(readOnly = true)
     public List<Cliente> buscarConFiltros(String nombre, String email, String ciudad) {
-        log.info("Filtrando clientes - nombre: " + nombre + ", email: " + email + ", ciudad: " + ciudad);
+        log.info(FRECUENTE, "Filtrando clientes - nombre: {}, email: {}, ciudad: {}", nombre, email, ciudad);
+        FiltroJfr evento = FiltroJfr.iniciar();
 
         List<Cliente> clientes = ((List<Cliente>) clienteRepository.findAll()).stream()
                 .filter(c -> Boolean.TRUE.equals(c.getActivo()))
@@ -124,7 +135,8 @@ public class ClienteService {
                     .collect(Collectors.toList());
         }
 
-        log.info("Filtrado completado. Resultados: " + clientes.size() + " clientes");
+        log.info(FRECUENTE, "Filtrado completado. Resultados: {} clientes", clientes.size());
+        evento.terminar("clientes", clientes.size(), nombre, email, ciudad);
         return clientes;
     }
 }
\ No newline at end of file
@@ -0,0 +1,483 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.event.VentaCreadaEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Clientes distintos que han comprado, por producto, por almacén o en
+// total, y por día, sin COUNT(DISTINCT cliente_id) sobre ventas.
+//
+// Cada (dimensión, id, día) tiene un HyperLogLog de 2^12 registros (error
+// típico 1.04/sqrt(4096) = 1.6%) y el número exacto de ventas. Los HLL se
+// pueden unir registro a registro (máximo), así que un rango de días se
+// responde uniendo los sketches diarios: los clientes que repiten en varios
+// días cuentan una vez. Mientras tienen pocos registros ocupados se
+// guardan dispersos (pares índice/valor) en vez de los 4096 bytes.
+//
+// Se alimenta de VentaCreadaEvent (VentaService.crear). Las cancelaciones
+// no se descuentan: un HLL no admite borrados; POST .../reconstruir rehace
+// todo desde las ventas no canceladas (incluidas las archivadas). Los sketches modificados se guardan
+// en sketch_clientes cada minuto (serializados: dispersos 3 bytes por
+// registro, densos a 6 bits por registro = 3 KB) y se cargan al arrancar;
+// si la tabla está vacía se construyen desde las ventas. La reconstrucción
+// vacía y rellena la tabla en una sola transacción y solo entonces cambia
+// los sketches en memoria; guardar() comparte su guardia y no escribe
+// mientras tanto.
+@Service
+@Slf4j
+public class ClientesDistintosService {
+
+    private static final String UPSERT = "INSERT INTO sketch_clientes (dimension, dimension_id, dia, ventas, registros, fecha_actualizacion) "
+            + "VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE ventas = ?, registros = ?, fecha_actualizacion = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ArchivoService archivoService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Días que se conservan (memoria y tabla) y máximo de días por consulta
+    @Value("${analytics.clientes.retencion-dias:400}")
+    private int retencionDias = 400;
+
+    @Value("${analytics.clientes.max-dias:366}")
+    private int maxDias = 366;
+
+    @Value("${analytics.clientes.tamano-lote:500}")
+    private int tamanoLote = 500;
+
+    private volatile Map<Clave, Entrada> sketches = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean(false);
+    private final ConcurrentLinkedQueue<VentaCreadaEvent> pendientes = new ConcurrentLinkedQueue<>();
+
+    private record Clave(char dimension, long id, int dia) { }
+
+    // Sketch de una clave y sus ventas; "sucio" si ha cambiado desde que se guardó
+    private static final class Entrada {
+        final HyperLogLog hll = new HyperLogLog();
+        long ventas;
+        boolean sucio;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        Integer filas = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sketch_clientes", Integer.class);
+        if (filas == null || filas == 0) {
+            reconstruir();
+        } else {
+            cargar();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCrearVenta(VentaCreadaEvent venta) {
+        if (reconstruyendo.get()) {
+            pendientes.add(venta);
+            return;
+        }
+        registrar(sketches, venta.getClienteId(), venta.getProductoId(), venta.getAlmacenId(),
+                (int) venta.getDia().toEpochDay(), 1);
+    }
+
+    public Map<String, Object> reconstruir() {
+        if (!reconstruyendo.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una reconstrucción de clientes distintos en curso");
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            Map<Clave, Entrada> nuevos = new ConcurrentHashMap<>();
+            long[] filas = {0};
+            // La retención pasa del horizonte de archivo: las ventas viejas
+            // pueden estar ya en las tablas de archivo
+            jdbcTemplate.query("SELECT cliente_id, producto_id, almacen_id, CAST(fecha_venta AS DATE), COUNT(*) FROM "
+                            + archivoService.historico("ventas") + " v "
+                            + "WHERE estado <> 'CANCELADA' AND fecha_venta >= ? "
+                            + "GROUP BY cliente_id, producto_id, almacen_id, CAST(fecha_venta AS DATE)",
+                    rs -> {
+                        registrar(nuevos, rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                                (int) rs.getDate(4).toLocalDate().toEpochDay(), rs.getLong(5));
+                        filas[0]++;
+                    },
+                    LocalDate.now().minusDays(retencionDias).atStartOfDay());
+            // Tabla nueva entera o nada; si falla siguen los sketches de antes.
+            // Las ventas que llegan mientras tanto esperan en "pendientes" y
+            // entran (como modificadas) después del cambio
+            Integer guardados = new TransactionTemplate(transactionManager).execute(estado -> {
+                jdbcTemplate.update("DELETE FROM sketch_clientes");
+                return escribir(nuevos);
+            });
+            sketches = nuevos;
+
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("filasLeidas", filas[0]);
+            resumen.put("sketches", guardados);
+            resumen.put("msTotal", System.currentTimeMillis() - inicio);
+            log.info("Clientes distintos reconstruidos: {}", resumen);
+            return resumen;
+        } finally {
+            terminar();
+        }
+    }
+
+    // Guarda los sketches que han cambiado y olvida los que pasan de la
+    // retención. Con una reconstrucción en marcha no hace nada: ella guarda
+    // todo al terminar.
+    @Scheduled(cron = "${analytics.clientes.cron:0 * * * * *}")
+    public int guardar() {
+        if (!reconstruyendo.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            return escribir(sketches);
+        } finally {
+            terminar();
+        }
+    }
+
+    private void terminar() {
+        reconstruyendo.set(false);
+        for (VentaCreadaEvent venta; (venta = pendientes.poll()) != null; ) {
+            alCrearVenta(venta);
+        }
+    }
+
+    private int escribir(Map<Clave, Entrada> destino) {
+        int limite = (int) LocalDate.now().minusDays(retencionDias).toEpochDay();
+        destino.keySet().removeIf(clave -> clave.dia() < limite);
+        jdbcTemplate.update("DELETE FROM sketch_clientes WHERE dia < ?", Date.valueOf(LocalDate.ofEpochDay(limite)));
+
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> lote = new ArrayList<>(tamanoLote);
+        int guardados = 0;
+        for (Map.Entry<Clave, Entrada> e : destino.entrySet()) {
+            Entrada entrada = e.getValue();
+            byte[] registros;
+            long ventas;
+            synchronized (entrada) {
+                if (!entrada.sucio) {
+                    continue;
+                }
+                entrada.sucio = false;
+                registros = entrada.hll.serializar();
+                ventas = entrada.ventas;
+            }
+            Clave clave = e.getKey();
+            lote.add(new Object[]{String.valueOf(clave.dimension()), clave.id(), Date.valueOf(LocalDate.ofEpochDay(clave.dia())),
+                    ventas, registros, ahora, ventas, registros, ahora});
+            if (lote.size() == tamanoLote) {
+                jdbcTemplate.batchUpdate(UPSERT, lote);
+                guardados += lote.size();
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT, lote);
+            guardados += lote.size();
+        }
+        return guardados;
+    }
+
+    private void cargar() {
+        long inicio = System.currentTimeMillis();
+        long[] filas = {0};
+        jdbcTemplate.query("SELECT dimension, dimension_id, dia, ventas, registros FROM sketch_clientes WHERE dia >= ?",
+                rs -> {
+                    Clave clave = new Clave(rs.getString(1).charAt(0), rs.getLong(2),
+                            (int) rs.getDate(3).toLocalDate().toEpochDay());
+                    HyperLogLog leido = HyperLogLog.deserializar(rs.getBytes(5));
+                    Entrada entrada = sketches.computeIfAbsent(clave, c -> new Entrada());
+                    synchronized (entrada) {
+                        // Puede haber llegado alguna venta mientras se cargaba
+                        entrada.hll.unir(leido);
+                        entrada.ventas += rs.getLong(4);
+                    }
+                    filas[0]++;
+                },
+                Date.valueOf(LocalDate.now().minusDays(retencionDias)));
+        log.info("Clientes distintos: {} sketches cargados en {} ms", filas[0], System.currentTimeMillis() - inicio);
+    }
+
+    private void registrar(Map<Clave, Entrada> destino, long clienteId, long productoId, long almacenId, int dia, long ventas) {
+        long hash = HyperLogLog.hash(clienteId);
+        sumar(destino, new Clave('P', productoId, dia), hash, ventas);
+        sumar(destino, new Clave('A', almacenId, dia), hash, ventas);
+        sumar(destino, new Clave('T', 0, dia), hash, ventas);
+    }
+
+    private void sumar(Map<Clave, Entrada> destino, Clave clave, long hash, long ventas) {
+        Entrada entrada = destino.computeIfAbsent(clave, c -> new Entrada());
+        synchronized (entrada) {
+            entrada.hll.anadirHash(hash);
+            entrada.ventas += ventas;
+            entrada.sucio = true;
+        }
+    }
+
+    // Clientes distintos de un producto, de un almacén o del total entre
+    // dos días (incluidos); porDia añade la estimación de cada día
+    public Map<String, Object> consultar(Long productoId, Long almacenId, LocalDate desde, LocalDate hasta, boolean porDia) {
+        if (productoId != null && almacenId != null) {
+            throw new IllegalArgumentException("Indica productoId o almacenId, no los dos");
+        }
+        if ((productoId != null && productoId <= 0) || (almacenId != null && almacenId <= 0)) {
+            throw new IllegalArgumentException("El ID debe ser válido");
+        }
+        LocalDate hoy = LocalDate.now();
+        hasta = hasta != null ? hasta : hoy;
+        desde = desde != null ? desde : hasta.minusDays(6);
+        if (desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("desde no puede ser posterior a hasta");
+        }
+        long dias = hasta.toEpochDay() - desde.toEpochDay() + 1;
+        if (dias > maxDias) {
+            throw new IllegalArgumentException("El rango no puede pasar de " + maxDias + " días");
+        }
+        char dimension = productoId != null ? 'P' : almacenId != null ? 'A' : 'T';
+        long id = productoId != null ? productoId : almacenId != null ? almacenId : 0;
+
+        HyperLogLog union = new HyperLogLog();
+        long ventas = 0;
+        List<Map<String, Object>> detalle = new ArrayList<>();
+        Map<Clave, Entrada> actuales = sketches;
+        for (int dia = (int) desde.toEpochDay(); dia <= hasta.toEpochDay(); dia++) {
+            Entrada entrada = actuales.get(new Clave(dimension, id, dia));
+            if (entrada == null) {
+                continue;
+            }
+            long ventasDia;
+            double estimacionDia;
+            synchronized (entrada) {
+                union.unir(entrada.hll);
+                ventasDia = entrada.ventas;
+                estimacionDia = porDia ? entrada.hll.estimar() : 0;
+            }
+            ventas += ventasDia;
+            if (porDia) {
+                Map<String, Object> fila = new LinkedHashMap<>();
+                fila.put("dia", LocalDate.ofEpochDay(dia));
+                fila.put("clientesDistintos", Math.round(estimacionDia));
+                fila.put("ventas", ventasDia);
+                detalle.add(fila);
+            }
+        }
+
+        double estimacion = union.estimar();
+        double error = HyperLogLog.ERROR_ESTANDAR;
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("dimension", dimension == 'P' ? "producto" : dimension == 'A' ? "almacen" : "total");
+        if (id != 0) {
+            respuesta.put("id", id);
+        }
+        respuesta.put("desde", desde);
+        respuesta.put("hasta", hasta);
+        respuesta.put("clientesDistintos", Math.round(estimacion));
+        respuesta.put("errorEstandar", error);
+        // ~95% de las veces el valor real cae en +-2 errores estándar
+        respuesta.put("intervalo95", new long[]{
+                Math.max(0, (long) Math.floor(estimacion * (1 - 2 * error))),
+                (long) Math.ceil(estimacion * (1 + 2 * error))});
+        respuesta.put("ventas", ventas);
+        respuesta.put("ventasPorCliente", estimacion > 0 ? Math.round(ventas / estimacion * 100) / 100.0 : 0.0);
+        if (porDia) {
+            respuesta.put("porDia", detalle);
+        }
+        return respuesta;
+    }
+
+    // ------------------------------------------------------------------
+
+    // HyperLogLog con 2^P registros de 6 bits (guardados en un byte). Empieza
+    // disperso: un int por registro ocupado (índice << 6 | valor) hasta
+    // MAX_DISPERSOS, y pasa a denso cuando compensa.
+    public static final class HyperLogLog {
+        public static final int P = 12;
+        public static final int M = 1 << P;
+        public static final double ERROR_ESTANDAR = 1.04 / Math.sqrt(M);
+
+        private static final int MAX_DISPERSOS = M / 8;
+        private static final double ALFA = 0.7213 / (1 + 1.079 / M);
+        private static final byte FORMATO_DISPERSO = 1;
+        private static final byte FORMATO_DENSO = 2;
+
+        private int[] dispersos = new int[8];
+        private int ocupados;
+        private byte[] densos;
+
+        // Mezcla de bits (murmur3 fmix64): los ids son consecutivos
+        public static long hash(long valor) {
+            long h = valor;
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            h ^= h >>> 33;
+            return h;
+        }
+
+        public void anadir(long valor) {
+            anadirHash(hash(valor));
+        }
+
+        public void anadirHash(long hash) {
+            int indice = (int) (hash >>> (64 - P));
+            // Ceros a la izquierda del resto del hash + 1 (como mucho 64 - P + 1)
+            int valor = Long.numberOfLeadingZeros((hash << P) | (1L << (P - 1))) + 1;
+            actualizar(indice, valor);
+        }
+
+        public void unir(HyperLogLog otro) {
+            if (otro.densos != null) {
+                for (int i = 0; i < M; i++) {
+                    if (otro.densos[i] != 0) {
+                        actualizar(i, otro.densos[i]);
+                    }
+                }
+            } else {
+                for (int k = 0; k < otro.ocupados; k++) {
+                    actualizar(otro.dispersos[k] >>> 6, otro.dispersos[k] & 0x3F);
+                }
+            }
+        }
+
+        public double estimar() {
+            double suma = 0;
+            int ceros;
+            if (densos != null) {
+                ceros = 0;
+                for (byte registro : densos) {
+                    suma += 1.0 / (1L << registro);
+                    if (registro == 0) {
+                        ceros++;
+                    }
+                }
+            } else {
+                ceros = M - ocupados;
+                suma = ceros;
+                for (int k = 0; k < ocupados; k++) {
+                    suma += 1.0 / (1L << (dispersos[k] & 0x3F));
+                }
+            }
+            double estimacion = ALFA * M * M / suma;
+            // Con pocos elementos es más exacto el conteo lineal
+            if (estimacion <= 2.5 * M && ceros > 0) {
+                return M * Math.log((double) M / ceros);
+            }
+            return estimacion;
+        }
+
+        public boolean disperso() {
+            return densos == null;
+        }
+
+        // Disperso: 1 + 3 bytes por registro ocupado; denso: 1 + M * 6 / 8 bytes
+        public byte[] serializar() {
+            if (densos == null && 1 + 3 * ocupados < 1 + M * 6 / 8) {
+                byte[] salida = new byte[1 + 3 * ocupados];
+                salida[0] = FORMATO_DISPERSO;
+                for (int k = 0; k < ocupados; k++) {
+                    int indice = dispersos[k] >>> 6;
+                    salida[1 + 3 * k] = (byte) (indice >>> 8);
+                    salida[2 + 3 * k] = (byte) indice;
+                    salida[3 + 3 * k] = (byte) (dispersos[k] & 0x3F);
+                }
+                return salida;
+            }
+            byte[] registros = densos != null ? densos : aDensos();
+            byte[] salida = new byte[1 + M * 6 / 8];
+            salida[0] = FORMATO_DENSO;
+            // 4 registros de 6 bits en cada 3 bytes
+            for (int i = 0, o = 1; i < M; i += 4, o += 3) {
+                int bloque = registros[i] << 18 | registros[i + 1] << 12 | registros[i + 2] << 6 | registros[i + 3];
+                salida[o] = (byte) (bloque >>> 16);
+                salida[o + 1] = (byte) (bloque >>> 8);
+                salida[o + 2] = (byte) bloque;
+            }
+            return salida;
+        }
+
+        public static HyperLogLog deserializar(byte[] datos) {
+            HyperLogLog hll = new HyperLogLog();
+            if (datos[0] == FORMATO_DISPERSO) {
+                for (int o = 1; o + 2 < datos.length; o += 3) {
+                    int indice = (datos[o] & 0xFF) << 8 | (datos[o + 1] & 0xFF);
+                    hll.actualizar(indice, datos[o + 2]);
+                }
+            } else if (datos[0] == FORMATO_DENSO && datos.length == 1 + M * 6 / 8) {
+                hll.densos = new byte[M];
+                for (int i = 0, o = 1; i < M; i += 4, o += 3) {
+                    int bloque = (datos[o] & 0xFF) << 16 | (datos[o + 1] & 0xFF) << 8 | (datos[o + 2] & 0xFF);
+                    hll.densos[i] = (byte) (bloque >>> 18 & 0x3F);
+                    hll.densos[i + 1] = (byte) (bloque >>> 12 & 0x3F);
+                    hll.densos[i + 2] = (byte) (bloque >>> 6 & 0x3F);
+                    hll.densos[i + 3] = (byte) (bloque & 0x3F);
+                }
+            } else {
+                throw new IllegalArgumentException("Formato de HyperLogLog desconocido");
+            }
+            return hll;
+        }
+
+        private void actualizar(int indice, int valor) {
+            if (densos != null) {
+                if (valor > densos[indice]) {
+                    densos[indice] = (byte) valor;
+                }
+                return;
+            }
+            for (int k = 0; k < ocupados; k++) {
+                if (dispersos[k] >>> 6 == indice) {
+                    if (valor > (dispersos[k] & 0x3F)) {
+                        dispersos[k] = indice << 6 | valor;
+                    }
+                    return;
+                }
+            }
+            if (ocupados == MAX_DISPERSOS) {
+                densos = aDensos();
+                dispersos = null;
+                ocupados = 0;
+                densos[indice] = (byte) Math.max(densos[indice], valor);
+                return;
+            }
+            if (ocupados == dispersos.length) {
+                dispersos = Arrays.copyOf(dispersos, ocupados * 2);
+            }
+            dispersos[ocupados++] = indice << 6 | valor;
+        }
+
+        private byte[] aDensos() {
+            byte[] registros = new byte[M];
+            for (int k = 0; k < ocupados; k++) {
+                registros[dispersos[k] >>> 6] = (byte) (dispersos[k] & 0x3F);
+            }
+            return registros;
+        }
+    }
+}
@@ -1,16 +1,28 @@
 package com.example.inventarioapiad.service;
 
+import com.example.inventarioapiad.dto.AsignacionAlmacen;
+import com.example.inventarioapiad.entity.Almacen;
 import com.example.inventarioapiad.entity.Compra;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.jfr.CompraJfr;
+import com.example.inventarioapiad.jfr.FiltroJfr;
 import com.example.inventarioapiad.repository.CompraRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
+import static com.example.inventarioapiad.registro.Marcadores.FRECUENTE;
+
 @Service
 @Slf4j
 public class CompraService {
@@ -18,9 +30,94 @@ public class CompraService {
     @Autowired
     private CompraRepository compraRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private AsignacionAlmacenService asignacionService;
+
+    @Transactional
     public Compra crear(Compra compra) {
-        log.info("Creando compra con número de factura: " + compra.getNumeroFactura());
+        log.info("Creando compra con número de factura: {}", compra.getNumeroFactura());
+        CompraJfr evento = CompraJfr.iniciar();
+
+        validarCampos(compra, true);
+
+        // Capacidad del almacén: una PENDIENTE reserva su hueco hasta que
+        // llega; una que se da de alta ya RECIBIDA solo se valida (el stock
+        // lo sube el movimiento).
+        Long almacenId = compra.getAlmacen().getId();
+        boolean reservada = false;
+        if (almacenId != null && "PENDIENTE".equals(compra.getEstado())) {
+            reservarHastaConfirmar(almacenId, compra.getCantidad());
+            reservada = true;
+        } else if (almacenId != null && "RECIBIDA".equals(compra.getEstado())) {
+            asignacionService.validar(almacenId, compra.getCantidad());
+        }
+
+        try {
+            Compra creada = guardarNueva(compra);
+            evento.terminar(creada);
+            return creada;
+        } catch (RuntimeException e) {
+            // Con transacción la suelta el rollback (reservarHastaConfirmar)
+            if (reservada && !TransactionSynchronizationManager.isSynchronizationActive()) {
+                asignacionService.liberar(almacenId, compra.getCantidad());
+            }
+            throw e;
+        }
+    }
+
+    // Crea la compra repartida entre varios almacenes según el hueco libre:
+    // primero el almacén indicado (si lo hay) y el resto donde más sitio
+    // quede. Devuelve una compra por almacén (factura con sufijo -1, -2...).
+    // Cada trozo se guarda en su propia transacción: si uno falla, los ya
+    // guardados se quedan con su reserva y solo se sueltan las del resto.
+    public List<Compra> crearRepartida(Compra compra) {
+        log.info("Creando compra repartida con número de factura: {}", compra.getNumeroFactura());
 
+        validarCampos(compra, false);
+        Long preferidoId = compra.getAlmacen() != null ? compra.getAlmacen().getId() : null;
+        List<AsignacionAlmacen> reparto = asignacionService.reservarRepartido(compra.getCantidad(), preferidoId);
+        log.info("Compra repartida en {} almacenes: {}", reparto.size(), reparto);
+
+        List<Compra> creadas = new ArrayList<>();
+        int i = 0;
+        for (AsignacionAlmacen trozo : reparto) {
+            Compra parte = new Compra();
+            parte.setProveedor(compra.getProveedor());
+            parte.setProducto(compra.getProducto());
+            parte.setPrecioUnitario(compra.getPrecioUnitario());
+            parte.setFechaCompra(compra.getFechaCompra());
+            parte.setEstado(compra.getEstado());
+            parte.setCantidad(trozo.getCantidad());
+            Almacen almacen = new Almacen();
+            almacen.setId(trozo.getAlmacenId());
+            parte.setAlmacen(almacen);
+            if (compra.getNumeroFactura() != null) {
+                parte.setNumeroFactura(reparto.size() > 1
+                        ? compra.getNumeroFactura() + "-" + (i + 1) : compra.getNumeroFactura());
+            }
+            try {
+                creadas.add(guardarNueva(parte));
+            } catch (RuntimeException e) {
+                // Se sueltan las reservas de los trozos que no se han guardado
+                for (AsignacionAlmacen sinGuardar : reparto.subList(i, reparto.size())) {
+                    asignacionService.liberar(sinGuardar.getAlmacenId(), sinGuardar.getCantidad());
+                }
+                throw e;
+            }
+            // Solo las PENDIENTE mantienen la reserva
+            if (!"PENDIENTE".equals(parte.getEstado())) {
+                asignacionService.liberar(trozo.getAlmacenId(), trozo.getCantidad());
+            }
+            i++;
+        }
+        return creadas;
+    }
+
+    // En la compra repartida el almacén es opcional (solo el preferido)
+    private void validarCampos(Compra compra, boolean almacenObligatorio) {
         if (compra.getProveedor() == null) {
             log.error("Error: Proveedor obligatorio");
             throw new IllegalArgumentException("El proveedor es obligatorio");
@@ -29,7 +126,7 @@ public class CompraService {
             log.error("Error: Producto obligatorio");
             throw new IllegalArgumentException("El producto es obligatorio");
         }
-        if (compra.getAlmacen() == null) {
+        if (almacenObligatorio && compra.getAlmacen() == null) {
             log.error("Error: Almacén obligatorio");
             throw new IllegalArgumentException("El almacén es obligatorio");
         }
@@ -45,14 +142,22 @@ public class CompraService {
             log.error("Error: Fecha de compra obligatoria");
             throw new IllegalArgumentException("La fecha de compra es obligatoria");
         }
+    }
 
+    private Compra guardarNueva(Compra compra) {
         Compra creada = compraRepository.save(compra);
-        log.info("Compra creada exitosamente con ID: " + creada.getId());
+        log.info("Compra creada exitosamente con ID: {}", creada.getId());
+
+        // Una compra que se da de alta ya recibida mete stock directamente
+        if ("RECIBIDA".equals(creada.getEstado())) {
+            publicarMovimiento(creada, MovimientoStockEvent.Tipo.ENTRADA);
+        }
         return creada;
     }
 
+    @Transactional(readOnly = true)
     public Compra buscarPorId(Long id) {
-        log.info("Buscando compra con ID: " + id);
+        log.info(FRECUENTE, "Buscando compra con ID: {}", id);
 
         if (id == null || id <= 0) {
             log.error("Error: ID inválido");
@@ -61,20 +166,29 @@ public class CompraService {
 
         return compraRepository.findById(id)
                 .orElseThrow(() -> {
-                    log.error("Compra no encontrada con ID: " + id);
+                    log.error("Compra no encontrada con ID: {}", id);
                     return new RuntimeException("Compra no encontrada con ID: " + id);
                 });
     }
 
+    @Transactional(readOnly = true)
     public List<Compra> buscarTodos() {
-        log.info("Listando todas las compras");
+        log.info(FRECUENTE, "Listando todas las compras");
         return (List<Compra>) compraRepository.findAll();
     }
 
+    @Transactional
     public Compra actualizar(Long id, Compra compraActualizada) {
-        log.info("Actualizando compra con ID: " + id);
+        log.info("Actualizando compra con ID: {}", id);
 
         Compra compra = buscarPorId(id);
+        String estadoAnterior = compra.getEstado();
+        Long almacenAnterior = almacenId(compra);
+        Integer cantidadAnterior = compra.getCantidad();
+        Long productoAnterior = compra.getProducto() != null ? compra.getProducto().getId() : null;
+        if ("RECIBIDA".equals(estadoAnterior)) {
+            comprobarCambiosRecibida(compra, compraActualizada);
+        }
 
         if (compraActualizada.getProveedor() != null) {
             compra.setProveedor(compraActualizada.getProveedor());
@@ -101,24 +215,102 @@ public class CompraService {
             compra.setEstado(compraActualizada.getEstado());
         }
 
+        // Capacidad: la reserva sigue a la compra mientras está PENDIENTE
+        // (cambio de almacén o de cantidad); al pasar a RECIBIDA desde otro
+        // estado que no reservaba, se comprueba que quepa. Lo nuevo se
+        // reserva ya y lo viejo se suelta al confirmar.
+        boolean reservabaAntes = "PENDIENTE".equals(estadoAnterior);
+        boolean reservaAhora = "PENDIENTE".equals(compra.getEstado());
+        boolean mismaReserva = reservabaAntes && reservaAhora
+                && Objects.equals(almacenAnterior, almacenId(compra))
+                && Objects.equals(cantidadAnterior, compra.getCantidad());
+        if ((reservabaAntes || reservaAhora) && !mismaReserva) {
+            Long almacenViejo = reservabaAntes ? almacenAnterior : null;
+            Long almacenNuevo = reservaAhora ? almacenId(compra) : null;
+            int antes = cantidadAnterior != null ? cantidadAnterior : 0;
+            int ahora = compra.getCantidad() != null ? compra.getCantidad() : 0;
+            if (almacenNuevo != null && almacenNuevo.equals(almacenViejo)) {
+                // Mismo almacén: solo la diferencia
+                if (ahora > antes) {
+                    reservarHastaConfirmar(almacenNuevo, ahora - antes);
+                } else {
+                    liberarAlConfirmar(almacenNuevo, antes - ahora);
+                }
+            } else {
+                if (almacenNuevo != null && ahora > 0) {
+                    reservarHastaConfirmar(almacenNuevo, ahora);
+                }
+                if (almacenViejo != null && antes > 0) {
+                    liberarAlConfirmar(almacenViejo, antes);
+                }
+            }
+        }
+        if (!reservabaAntes && !"RECIBIDA".equals(estadoAnterior) && "RECIBIDA".equals(compra.getEstado())
+                && almacenId(compra) != null) {
+            asignacionService.validar(almacenId(compra), compra.getCantidad());
+        }
+
         Compra actualizada = compraRepository.save(compra);
-        log.info("Compra actualizada exitosamente con ID: " + id);
+        log.info("Compra actualizada exitosamente con ID: {}", id);
+
+        // Solo mueven stock los cambios de estado: al recibirse entra la
+        // mercancía y si se cancela una ya recibida se devuelve al proveedor,
+        // con lo que entró (producto, almacén y cantidad de antes).
+        if (!"RECIBIDA".equals(estadoAnterior) && "RECIBIDA".equals(compra.getEstado())) {
+            publicarMovimiento(compra, MovimientoStockEvent.Tipo.ENTRADA);
+        } else if ("RECIBIDA".equals(estadoAnterior) && "CANCELADA".equals(compra.getEstado())) {
+            publicarMovimiento(productoAnterior, almacenAnterior, cantidadAnterior, null, compra.getId(),
+                    MovimientoStockEvent.Tipo.SALIDA);
+        }
         return actualizada;
     }
 
+    // Una compra RECIBIDA ya metió su stock: solo se puede cancelar (lo
+    // devuelve) y no se le cambia qué entró ni dónde. Si no, volver a
+    // PENDIENTE y recibirla otra vez lo sumaría dos veces.
+    private void comprobarCambiosRecibida(Compra compra, Compra cambios) {
+        String estado = cambios.getEstado();
+        if (estado != null && !"RECIBIDA".equals(estado) && !"CANCELADA".equals(estado)) {
+            log.error("Error: compra RECIBIDA {} no puede pasar a {}", compra.getId(), estado);
+            throw new IllegalStateException("Una compra RECIBIDA solo se puede cancelar (estado pedido: " + estado + ")");
+        }
+        boolean cambiaProducto = cambios.getProducto() != null && compra.getProducto() != null
+                && !Objects.equals(cambios.getProducto().getId(), compra.getProducto().getId());
+        boolean cambiaAlmacen = cambios.getAlmacen() != null
+                && !Objects.equals(cambios.getAlmacen().getId(), almacenId(compra));
+        boolean cambiaCantidad = cambios.getCantidad() != null && cambios.getCantidad() > 0
+                && !cambios.getCantidad().equals(compra.getCantidad());
+        if (cambiaProducto || cambiaAlmacen || cambiaCantidad) {
+            log.error("Error: cambio de producto, almacén o cantidad en la compra RECIBIDA {}", compra.getId());
+            throw new IllegalStateException("No se puede cambiar producto, almacén o cantidad de una compra RECIBIDA");
+        }
+    }
+
+    @Transactional
     public void eliminar(Long id) {
-        log.info("Eliminando compra con ID: " + id);
+        log.info("Eliminando compra con ID: {}", id);
 
         Compra compra = buscarPorId(id);
+        String estadoAnterior = compra.getEstado();
         compra.setEstado("CANCELADA");
         compraRepository.save(compra);
 
-        log.info("Compra cancelada (eliminada) con ID: " + id);
+        if ("PENDIENTE".equals(estadoAnterior) && compra.getCantidad() != null) {
+            liberarAlConfirmar(almacenId(compra), compra.getCantidad());
+        }
+        if ("RECIBIDA".equals(estadoAnterior)) {
+            publicarMovimiento(compra, MovimientoStockEvent.Tipo.SALIDA);
+        }
+
+        log.info("Compra cancelada (eliminada) con ID: {}", id);
     }
 
     // FILTRADO: Buscar compras con hasta 3 campos
+    @Transactional(readOnly = true)
     public List<Compra> buscarConFiltros(String estado, Integer cantidad, String numeroFactura) {
-        log.info("Filtrando compras - estado: " + estado + ", cantidad: " + cantidad + ", numeroFactura: " + numeroFactura);
+        log.info(FRECUENTE, "Filtrando compras - estado: {}, cantidad: {}, numeroFactura: {}",
+                estado, cantidad, numeroFactura);
+        FiltroJfr evento = FiltroJfr.iniciar();
 
         List<Compra> compras = new ArrayList<>((Collection) compraRepository.findAll());
 
@@ -140,7 +332,61 @@ public class CompraService {
                     .collect(Collectors.toList());
         }
 
-        log.info("Filtrado completado. Resultados: " + compras.size() + " compras");
+        log.info(FRECUENTE, "Filtrado completado. Resultados: {} compras", compras.size());
+        evento.terminar("compras", compras.size(), estado, cantidad, numeroFactura);
         return compras;
     }
-}
\ No newline at end of file
+
+    // Las reservas del índice de capacidad siguen a la transacción, como los
+    // listeners de stock: lo que ocupa hueco se reserva ya (así una compra
+    // que no cabe se rechaza antes de guardarse) y se devuelve si no se
+    // confirma; lo que libera hueco espera al commit, para que nadie ocupe
+    // un hueco que un rollback vuelve a llenar. Sin transacción, al momento.
+    private void reservarHastaConfirmar(Long almacenId, int cantidad) {
+        asignacionService.reservar(almacenId, cantidad);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    if (estado != STATUS_COMMITTED) {
+                        asignacionService.liberar(almacenId, cantidad);
+                    }
+                }
+            });
+        }
+    }
+
+    private void liberarAlConfirmar(Long almacenId, int cantidad) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            asignacionService.liberar(almacenId, cantidad);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                asignacionService.liberar(almacenId, cantidad);
+            }
+        });
+    }
+
+    private static Long almacenId(Compra compra) {
+        return compra.getAlmacen() != null ? compra.getAlmacen().getId() : null;
+    }
+
+    // Avisa del movimiento de stock (lo escuchan valoración, alertas...).
+    // Si a la compra le falta producto, almacén o cantidad no hay nada que mover.
+    private void publicarMovimiento(Compra compra, MovimientoStockEvent.Tipo tipo) {
+        publicarMovimiento(compra.getProducto() != null ? compra.getProducto().getId() : null, almacenId(compra),
+                compra.getCantidad(), compra.getPrecioUnitario(), compra.getId(), tipo);
+    }
+
+    private void publicarMovimiento(Long productoId, Long almacenId, Integer cantidad, Float precioUnitario,
+                                    Long compraId, MovimientoStockEvent.Tipo tipo) {
+        if (productoId == null || almacenId == null || cantidad == null) {
+            return;
+        }
+        eventPublisher.publishEvent(tipo == MovimientoStockEvent.Tipo.ENTRADA
+                ? MovimientoStockEvent.entrada(productoId, almacenId, cantidad, precioUnitario, "COMPRA", compraId)
+                : MovimientoStockEvent.salida(productoId, almacenId, cantidad, "COMPRA", compraId));
+    }
+}
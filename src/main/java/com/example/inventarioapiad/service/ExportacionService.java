@@ -0,0 +1,305 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.exportacion.FormatoColumnar;
+import com.example.inventarioapiad.exportacion.FormatoColumnar.Columna;
+import com.example.inventarioapiad.exportacion.FormatoColumnar.Tipo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+// Exportación de productos, almacenes, ventas y compras a ficheros
+// columnares (FormatoColumnar) para que la analítica lea ficheros y no
+// cargue la base de datos viva.
+//
+// Es incremental por marca de modificación: cada fila lleva
+// fecha_modificacion (EntidadModificable, mantenida por la propia base de
+// datos, así que también cuenta lo que se cambia con SQL nativo) y en
+// exportacion_marcas se guarda hasta qué (fecha_modificacion, id) se ha
+// exportado cada tabla. Cada pasada lee en streaming, en ese orden y con
+// fetchSize, solo lo modificado desde la marca hasta el inicio de la
+// transacción activa más antigua o "ahora menos exportacion.margen-ms" si
+// es antes (LimiteModificacion: así no se salta filas de transacciones
+// que aún no han confirmado), y lo escribe por grupos de filas: la
+// memoria no depende del tamaño de la tabla.
+//
+// Cada pasada con filas deja un directorio <directorio>/<tabla>/<yyyyMMdd-HHmmss-SSS>
+// con un .col por columna y _esquema.json. Se escribe en un directorio
+// temporal que se renombra al terminar y la marca solo avanza entonces:
+// si falla, no queda nada a medias y la siguiente pasada repite el tramo.
+// La entrega es "al menos una vez": quien lea debe quedarse, por id, con
+// la fila de fecha_modificacion mayor. Los borrados (y lo que se archiva
+// con ArchivoService) no se exportan.
+@Service
+@Slf4j
+public class ExportacionService {
+
+    private static final LocalDateTime MARCA_INICIAL = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final DateTimeFormatter FORMATO_DIRECTORIO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private static final Map<String, List<Columna>> TABLAS = new LinkedHashMap<>();
+
+    static {
+        TABLAS.put("productos", List.of(
+                new Columna("id", Tipo.ENTERO), new Columna("nombre", Tipo.TEXTO), new Columna("sku", Tipo.TEXTO),
+                new Columna("descripcion", Tipo.TEXTO), new Columna("precio_costo", Tipo.DECIMAL),
+                new Columna("precio_venta", Tipo.DECIMAL), new Columna("stock_total", Tipo.ENTERO),
+                new Columna("activo", Tipo.BOOLEANO), new Columna("clase_abc", Tipo.TEXTO),
+                new Columna("fecha_creacion", Tipo.FECHA), new Columna("fecha_modificacion", Tipo.FECHA)));
+        TABLAS.put("almacenes", List.of(
+                new Columna("id", Tipo.ENTERO), new Columna("nombre", Tipo.TEXTO), new Columna("ubicacion", Tipo.TEXTO),
+                new Columna("capacidad_maxima", Tipo.ENTERO), new Columna("stock_actual", Tipo.ENTERO),
+                new Columna("responsable", Tipo.TEXTO), new Columna("activo", Tipo.BOOLEANO),
+                new Columna("prioritario", Tipo.BOOLEANO), new Columna("fecha_creacion", Tipo.FECHA),
+                new Columna("fecha_modificacion", Tipo.FECHA)));
+        TABLAS.put("ventas", List.of(
+                new Columna("id", Tipo.ENTERO), new Columna("cliente_id", Tipo.ENTERO), new Columna("producto_id", Tipo.ENTERO),
+                new Columna("almacen_id", Tipo.ENTERO), new Columna("cantidad", Tipo.ENTERO),
+                new Columna("precio_unitario", Tipo.DECIMAL), new Columna("fecha_venta", Tipo.FECHA),
+                new Columna("numero_pedido", Tipo.TEXTO), new Columna("estado", Tipo.TEXTO),
+                new Columna("fecha_creacion", Tipo.FECHA), new Columna("fecha_modificacion", Tipo.FECHA)));
+        TABLAS.put("compras", List.of(
+                new Columna("id", Tipo.ENTERO), new Columna("proveedor_id", Tipo.ENTERO), new Columna("producto_id", Tipo.ENTERO),
+                new Columna("almacen_id", Tipo.ENTERO), new Columna("cantidad", Tipo.ENTERO),
+                new Columna("precio_unitario", Tipo.DECIMAL), new Columna("fecha_compra", Tipo.FECHA),
+                new Columna("numero_factura", Tipo.TEXTO), new Columna("estado", Tipo.TEXTO),
+                new Columna("fecha_creacion", Tipo.FECHA), new Columna("fecha_modificacion", Tipo.FECHA)));
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${exportacion.directorio:exportacion}")
+    private String directorio = "exportacion";
+
+    // Filas por grupo (lo que se tiene en memoria por columna)
+    @Value("${exportacion.filas-por-grupo:8192}")
+    private int filasPorGrupo = 8192;
+
+    @Value("${exportacion.tamano-lote:1000}")
+    private int tamanoLote = 1000;
+
+    @Value("${exportacion.margen-ms:5000}")
+    private long margenMs = 5000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final AtomicBoolean enCurso = new AtomicBoolean(false);
+    private volatile Map<String, Object> ultimoInforme = Map.of("estado", "SIN_EJECUTAR");
+
+    @Scheduled(cron = "${exportacion.cron:-}")
+    public void exportarProgramado() {
+        try {
+            exportar(null, false);
+        } catch (IllegalStateException e) {
+            log.warn("Exportación programada omitida: {}", e.getMessage());
+        }
+    }
+
+    // tablas: nombres separados por comas (null o vacío = todas).
+    // completa: ignora la marca y exporta todo lo que hay.
+    public Map<String, Object> exportar(String tablas, boolean completa) {
+        List<String> seleccion = seleccionar(tablas);
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una exportación en curso");
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            LocalDateTime hasta = LimiteModificacion.calcular(jdbcTemplate, margenMs);
+            Map<String, Object> informe = new LinkedHashMap<>();
+            informe.put("inicio", LocalDateTime.now());
+            informe.put("hasta", hasta);
+            informe.put("completa", completa);
+            for (String tabla : seleccion) {
+                informe.put(tabla, exportarTabla(tabla, hasta, completa));
+            }
+            informe.put("ms", System.currentTimeMillis() - inicio);
+            ultimoInforme = informe;
+            log.info("Exportación: {}", informe);
+            return informe;
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    public Map<String, Object> ultimoInforme() {
+        return ultimoInforme;
+    }
+
+    public List<Map<String, Object>> marcas() {
+        return jdbcTemplate.queryForList(
+                "SELECT tabla, marca, ultimo_id, filas, fecha_ejecucion FROM exportacion_marcas ORDER BY tabla");
+    }
+
+    private List<String> seleccionar(String tablas) {
+        if (tablas == null || tablas.isBlank()) {
+            return new ArrayList<>(TABLAS.keySet());
+        }
+        List<String> seleccion = new ArrayList<>();
+        for (String tabla : tablas.split(",")) {
+            String nombre = tabla.trim().toLowerCase();
+            if (!TABLAS.containsKey(nombre)) {
+                throw new IllegalArgumentException("Tabla no exportable: " + tabla.trim()
+                        + " (válidas: " + String.join(", ", TABLAS.keySet()) + ")");
+            }
+            if (!seleccion.contains(nombre)) {
+                seleccion.add(nombre);
+            }
+        }
+        return seleccion;
+    }
+
+    private Map<String, Object> exportarTabla(String tabla, LocalDateTime hasta, boolean completa) {
+        long inicio = System.currentTimeMillis();
+        List<Columna> columnas = TABLAS.get(tabla);
+
+        LocalDateTime desde = MARCA_INICIAL;
+        long desdeId = 0;
+        long filasPrevias = 0;
+        List<Map<String, Object>> marca = jdbcTemplate.queryForList(
+                "SELECT marca, ultimo_id, filas FROM exportacion_marcas WHERE tabla = ?", tabla);
+        if (!marca.isEmpty() && !completa) {
+            desde = ((Timestamp) marca.get(0).get("marca")).toLocalDateTime();
+            desdeId = ((Number) marca.get(0).get("ultimo_id")).longValue();
+            filasPrevias = ((Number) marca.get(0).get("filas")).longValue();
+        }
+
+        Path base = Paths.get(directorio, tabla);
+        String nombre = FORMATO_DIRECTORIO.format(LocalDateTime.now());
+        Path temporal = base.resolve("." + nombre + ".tmp");
+        Path destino = base.resolve(nombre);
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int c = 0; c < columnas.size(); c++) {
+            sql.append(c == 0 ? "" : ", ").append(columnas.get(c).nombre());
+        }
+        sql.append(" FROM ").append(tabla)
+                .append(" WHERE fecha_modificacion < ? AND (fecha_modificacion > ? OR (fecha_modificacion = ? AND id > ?))")
+                .append(" ORDER BY fecha_modificacion, id");
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("desde", desde);
+        LocalDateTime[] ultimaMarca = {desde};
+        long[] ultimoId = {desdeId};
+        try {
+            // Se cierra (y escribe el último grupo) antes de leer sus totales
+            FormatoColumnar.Escritor escritor = new FormatoColumnar.Escritor(temporal, columnas, filasPorGrupo);
+            try (escritor) {
+                Timestamp desdeTs = Timestamp.valueOf(desde);
+                long id = desdeId;
+                jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(tamanoLote);
+                    ps.setTimestamp(1, Timestamp.valueOf(hasta));
+                    ps.setTimestamp(2, desdeTs);
+                    ps.setTimestamp(3, desdeTs);
+                    ps.setLong(4, id);
+                    return ps;
+                }, (RowCallbackHandler) rs -> {
+                    Object[] fila = leerFila(rs, columnas);
+                    try {
+                        escritor.escribir(fila);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    ultimoId[0] = (Long) fila[0];
+                    ultimaMarca[0] = (LocalDateTime) fila[columnas.size() - 1];
+                });
+            }
+
+            resultado.put("filas", escritor.filas());
+            if (escritor.filas() > 0) {
+                Map<String, Object> esquema = new LinkedHashMap<>();
+                esquema.put("tabla", tabla);
+                esquema.put("filas", escritor.filas());
+                esquema.put("grupos", escritor.grupos());
+                esquema.put("filasPorGrupo", filasPorGrupo);
+                esquema.put("desde", desde.toString());
+                esquema.put("hasta", ultimaMarca[0].toString());
+                Map<String, String> tipos = new LinkedHashMap<>();
+                columnas.forEach(c -> tipos.put(c.nombre(), c.tipo().name()));
+                esquema.put("columnas", tipos);
+                esquema.put("bytes", escritor.bytesPorColumna());
+                esquema.put("codificaciones", escritor.codificaciones());
+                objectMapper.writeValue(temporal.resolve("_esquema.json").toFile(), esquema);
+                Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+                resultado.put("directorio", destino.toString());
+                resultado.put("bytes", escritor.bytesPorColumna().values().stream().mapToLong(Long::longValue).sum());
+            } else {
+                borrar(temporal);
+            }
+        } catch (IOException e) {
+            borrar(temporal);
+            throw new UncheckedIOException("Error exportando " + tabla + ": " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            borrar(temporal);
+            throw e;
+        }
+
+        long filas = (Long) resultado.get("filas");
+        if (filas > 0 || completa) {
+            jdbcTemplate.update("INSERT INTO exportacion_marcas (tabla, marca, ultimo_id, filas, fecha_ejecucion) "
+                            + "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE marca = VALUES(marca), "
+                            + "ultimo_id = VALUES(ultimo_id), filas = VALUES(filas), fecha_ejecucion = VALUES(fecha_ejecucion)",
+                    tabla, Timestamp.valueOf(ultimaMarca[0]), ultimoId[0], filasPrevias + filas,
+                    Timestamp.valueOf(LocalDateTime.now()));
+        }
+        resultado.put("marca", ultimaMarca[0]);
+        resultado.put("ms", System.currentTimeMillis() - inicio);
+        return resultado;
+    }
+
+    private static Object[] leerFila(ResultSet rs, List<Columna> columnas) throws SQLException {
+        Object[] fila = new Object[columnas.size()];
+        for (int c = 0; c < columnas.size(); c++) {
+            int i = c + 1;
+            Object valor = switch (columnas.get(c).tipo()) {
+                case ENTERO -> rs.getLong(i);
+                case DECIMAL -> rs.getFloat(i);
+                case BOOLEANO -> rs.getBoolean(i);
+                case TEXTO -> rs.getString(i);
+                case FECHA -> {
+                    Timestamp ts = rs.getTimestamp(i);
+                    yield ts == null ? null : ts.toLocalDateTime();
+                }
+            };
+            fila[c] = rs.wasNull() ? null : valor;
+        }
+        return fila;
+    }
+
+    private static void borrar(Path ruta) {
+        if (!Files.exists(ruta)) {
+            return;
+        }
+        try (Stream<Path> rutas = Files.walk(ruta)) {
+            rutas.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            log.warn("No se pudo borrar {}: {}", ruta, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.dto.ParametrosGeneracion;
+import com.example.inventarioapiad.generador.Estacionalidad;
+import com.example.inventarioapiad.generador.Zipf;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Generador de datos sintéticos para pruebas de carga y capacidad: productos,
+// clientes, proveedores, ventas y compras a escala de producción.
+//
+//   - Popularidad de Zipf: pocos productos (y clientes) concentran la mayoría
+//     de las ventas y compras; qué productos son los populares se baraja.
+//   - Fechas estacionales (ver Estacionalidad) en los últimos N meses.
+//   - Estados coherentes con la fecha: lo reciente está PENDIENTE o ENVIADO,
+//     lo viejo ENTREGADO/RECIBIDO salvo unas pocas canceladas.
+//
+// Va por JDBC con INSERT multi-fila (generador.lote filas por sentencia) y
+// en paralelo: cada lote es una tarea con su propio SplittableRandom sacado
+// de la semilla y del número de lote, así que los datos no dependen de los
+// hilos. Sin Hibernate ni eventos: al terminar se rehace stock_almacen desde
+// el histórico y de ahí el stock de productos y almacenes, y se vacía la
+// caché de segundo nivel. El resto de derivados (valoración, previsión,
+// top de productos...) se calcula al arrancar, así que lo normal es generar
+// en el arranque con el perfil generador (GeneradorDatosConfig).
+@Service
+@Slf4j
+public class GeneradorDatosService {
+
+    private static final String[] NOMBRES = {
+            "María", "Carmen", "Ana", "Laura", "Lucía", "Marta", "Elena", "Sara", "Paula", "Isabel",
+            "Antonio", "José", "Manuel", "David", "Javier", "Daniel", "Carlos", "Pablo", "Jorge", "Alejandro"};
+
+    private static final String[] APELLIDOS = {
+            "García", "Rodríguez", "González", "Fernández", "López", "Martínez", "Sánchez", "Pérez",
+            "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz", "Álvarez",
+            "Romero", "Alonso", "Gutiérrez"};
+
+    // Ordenadas por peso: se eligen con Zipf
+    private static final String[] CIUDADES = {
+            "Madrid", "Barcelona", "Valencia", "Sevilla", "Zaragoza", "Málaga", "Murcia", "Palma",
+            "Bilbao", "Alicante", "Córdoba", "Valladolid", "Vigo", "Gijón", "Vitoria", "A Coruña",
+            "Granada", "Elche", "Oviedo", "Pamplona", "Santander", "Logroño", "Huesca", "Teruel"};
+
+    private static final String[] PAISES = {
+            "España", "Portugal", "Francia", "Alemania", "Italia", "China", "Países Bajos", "Polonia"};
+
+    private static final String[] CATEGORIAS = {
+            "Tornillo", "Tuerca", "Cable", "Bombilla", "Taladro", "Martillo", "Pintura", "Cinta",
+            "Enchufe", "Interruptor", "Tubo", "Grifo", "Brocha", "Sierra", "Llave", "Adhesivo"};
+
+    private static final String[] VARIANTES = {
+            "básico", "profesional", "reforzado", "compacto", "industrial", "ecológico", "mini", "XL"};
+
+    private static final String COLUMNAS_PROVEEDORES =
+            "nombre, email, telefono, pais, dias_entrega, activo, fecha_creacion";
+    private static final String COLUMNAS_CLIENTES =
+            "nombre, email, telefono, direccion, ciudad, activo, fecha_creacion";
+    private static final String COLUMNAS_PRODUCTOS =
+            "nombre, sku, precio_costo, precio_venta, stock_total, activo, fecha_creacion";
+    private static final String COLUMNAS_VENTAS =
+            "cliente_id, producto_id, almacen_id, cantidad, precio_unitario, fecha_venta, numero_pedido, estado, "
+            + "fecha_creacion";
+    private static final String COLUMNAS_COMPRAS =
+            "proveedor_id, producto_id, almacen_id, cantidad, precio_unitario, fecha_compra, numero_factura, "
+            + "estado, fecha_creacion";
+
+    // Unidades medias por venta con la distribución de cantidad() de abajo;
+    // con ella se calcula el tamaño medio de las compras
+    private static final double UNIDADES_POR_VENTA = 2.5;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StockAlmacenService stockAlmacenService;
+
+    @Autowired
+    private CacheSegundoNivelService cacheService;
+
+    // Rellena una fila: añade a args sus valores en el orden de las columnas
+    private interface Fila {
+        void valores(long n, SplittableRandom azar, List<Object> args);
+    }
+
+    public Map<String, Object> generar(ParametrosGeneracion p) {
+        validar(p);
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        if (p.isSoloSiVacia() && Boolean.TRUE.equals(jdbcTemplate.query("SELECT 1 FROM productos LIMIT 1", ResultSet::next))) {
+            log.info("Ya hay productos en la BD: no se generan datos (generador.solo-si-vacia=true)");
+            resumen.put("generado", false);
+            return resumen;
+        }
+
+        long inicio = System.currentTimeMillis();
+        // Sufijo de esta generación para sku, emails, pedidos y facturas
+        String marca = Long.toString(inicio, 36).toUpperCase(Locale.ROOT);
+        LocalDate desde = p.desde();
+        LocalDate hasta = p.hasta();
+        int diasAlta = (int) ChronoUnit.DAYS.between(desde, hasta);
+        log.info("Generando datos {}: {}", marca, p);
+
+        ExecutorService hilos = Executors.newFixedThreadPool(p.getHilos(), r -> {
+            Thread hilo = new Thread(r, "generador-datos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long ultimoProducto = maxId("productos");
+        try {
+            long[] almacenes = asegurarAlmacenes(p.getAlmacenes(), marca);
+
+            // Tablas maestras
+            long ultimoProveedor = maxId("proveedores");
+            insertar(hilos, p, "proveedores", COLUMNAS_PROVEEDORES, p.getProveedores(), (n, azar, args) -> {
+                String apellido = APELLIDOS[azar.nextInt(APELLIDOS.length)];
+                args.add("Suministros " + apellido + " " + n + " S.L.");
+                args.add("pedidos." + marca.toLowerCase(Locale.ROOT) + "." + n + "@proveedor.example");
+                args.add(String.format("9%08d", azar.nextInt(100_000_000)));
+                args.add(PAISES[Math.min(PAISES.length - 1, (int) (-Math.log(1 - azar.nextDouble()) * 0.8))]);
+                args.add(1 + (int) (-Math.log(1 - azar.nextDouble()) * 6));
+                args.add(azar.nextDouble() >= 0.03);
+                args.add(desde.minusDays(azar.nextInt(365)).atStartOfDay());
+            });
+            long[] proveedores = ids("proveedores", ultimoProveedor);
+
+            Zipf ciudades = new Zipf(CIUDADES.length, 1.0);
+            long ultimoCliente = maxId("clientes");
+            insertar(hilos, p, "clientes", COLUMNAS_CLIENTES, p.getClientes(), (n, azar, args) -> {
+                args.add(NOMBRES[azar.nextInt(NOMBRES.length)] + " " + APELLIDOS[azar.nextInt(APELLIDOS.length)]
+                        + " " + APELLIDOS[azar.nextInt(APELLIDOS.length)]);
+                args.add("cliente." + marca.toLowerCase(Locale.ROOT) + "." + n + "@example.com");
+                args.add(String.format("6%08d", azar.nextInt(100_000_000)));
+                args.add("Calle " + APELLIDOS[azar.nextInt(APELLIDOS.length)] + ", " + (1 + azar.nextInt(200)));
+                args.add(CIUDADES[ciudades.muestra(azar)]);
+                args.add(azar.nextDouble() >= 0.03);
+                args.add(desde.plusDays(azar.nextInt(diasAlta)).atStartOfDay());
+            });
+            long[] clientes = ids("clientes", ultimoCliente);
+
+            insertar(hilos, p, "productos", COLUMNAS_PRODUCTOS, p.getProductos(), (n, azar, args) -> {
+                // Costes log-normales: la mayoría baratos, unos pocos caros
+                float costo = redondear(Math.min(2000, Math.max(0.5, Math.exp(2.5 + azar.nextGaussian() * 0.9))));
+                args.add(CATEGORIAS[azar.nextInt(CATEGORIAS.length)] + " "
+                        + VARIANTES[azar.nextInt(VARIANTES.length)] + " " + n);
+                args.add("GEN-" + marca + "-" + n);
+                args.add(costo);
+                args.add(redondear(costo * (1.25 + 0.75 * azar.nextDouble())));
+                args.add(0);
+                args.add(azar.nextDouble() >= 0.02);
+                args.add(desde.minusDays(azar.nextInt(365)).atStartOfDay());
+            });
+            List<Map<String, Object>> filasProductos = jdbcTemplate.queryForList(
+                    "SELECT id, precio_costo, precio_venta FROM productos WHERE id > ? ORDER BY id", ultimoProducto);
+            int numProductos = filasProductos.size();
+            long[] productos = new long[numProductos];
+            float[] costos = new float[numProductos];
+            float[] precios = new float[numProductos];
+            for (int i = 0; i < numProductos; i++) {
+                Map<String, Object> fila = filasProductos.get(i);
+                productos[i] = ((Number) fila.get("id")).longValue();
+                costos[i] = ((Number) fila.get("precio_costo")).floatValue();
+                precios[i] = ((Number) fila.get("precio_venta")).floatValue();
+            }
+
+            // Rango de popularidad -> producto: barajado para que los populares
+            // no sean siempre los primeros ids
+            int[] porPopularidad = barajar(numProductos, new SplittableRandom(p.getSemilla()));
+            Zipf popularidad = new Zipf(numProductos, p.getZipfProductos());
+            Zipf fidelidad = new Zipf(clientes.length, p.getZipfClientes());
+            Zipf reparto = new Zipf(almacenes.length, 0.5);
+            Estacionalidad estacionalidad = new Estacionalidad(desde, hasta, p.getCrecimientoAnual());
+            LocalDateTime reciente = LocalDateTime.now().minusDays(15);
+
+            insertar(hilos, p, "ventas", COLUMNAS_VENTAS, p.getVentas(), (n, azar, args) -> {
+                int producto = porPopularidad[popularidad.muestra(azar)];
+                LocalDateTime fecha = estacionalidad.fecha(azar);
+                float precio = precios[producto];
+                // Una de cada cinco con descuento de hasta el 10%
+                if (azar.nextInt(5) == 0) {
+                    precio = redondear(precio * (0.9 + 0.1 * azar.nextDouble()));
+                }
+                args.add(clientes[fidelidad.muestra(azar)]);
+                args.add(productos[producto]);
+                args.add(almacenes[reparto.muestra(azar)]);
+                args.add(cantidad(azar));
+                args.add(precio);
+                args.add(fecha);
+                args.add("PED-" + marca + "-" + n);
+                args.add(estadoVenta(fecha, reciente, azar));
+                args.add(fecha);
+            });
+
+            // Las compras siguen a la demanda (misma popularidad) y cubren de
+            // media un 10% más de lo que se vende
+            double mediaCompra = p.getCompras() == 0 ? 0
+                    : UNIDADES_POR_VENTA * p.getVentas() / p.getCompras() * 1.1;
+            insertar(hilos, p, "compras", COLUMNAS_COMPRAS, p.getCompras(), (n, azar, args) -> {
+                int producto = porPopularidad[popularidad.muestra(azar)];
+                // Cada producto tiene su proveedor habitual; 1 de cada 5 va a otro
+                long proveedor = azar.nextInt(5) == 0
+                        ? proveedores[azar.nextInt(proveedores.length)]
+                        : proveedores[(int) ((producto * 7919L) % proveedores.length)];
+                LocalDateTime fecha = estacionalidad.fecha(azar);
+                args.add(proveedor);
+                args.add(productos[producto]);
+                args.add(almacenes[reparto.muestra(azar)]);
+                args.add(Math.max(1, (int) Math.round(mediaCompra * (0.5 + azar.nextDouble()))));
+                args.add(redondear(costos[producto] * (0.95 + 0.1 * azar.nextDouble())));
+                args.add(fecha);
+                args.add("FAC-" + marca + "-" + n);
+                args.add(estadoCompra(fecha, reciente, azar));
+                args.add(fecha);
+            });
+
+            resumen.put("generado", true);
+            resumen.put("marca", marca);
+            resumen.put("almacenes", almacenes.length);
+            resumen.put("proveedores", proveedores.length);
+            resumen.put("clientes", clientes.length);
+            resumen.put("productos", numProductos);
+            resumen.put("ventas", p.getVentas());
+            resumen.put("compras", p.getCompras());
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        recalcularStock(ultimoProducto);
+        long ms = System.currentTimeMillis() - inicio;
+        long filas = p.getProveedores() + p.getClientes() + p.getProductos() + p.getVentas() + p.getCompras();
+        resumen.put("ms", ms);
+        resumen.put("filasPorSegundo", ms == 0 ? filas : filas * 1000 / ms);
+        log.info("Datos generados: {}", resumen);
+        return resumen;
+    }
+
+    private void validar(ParametrosGeneracion p) {
+        if (p.getProductos() <= 0 || p.getClientes() <= 0 || p.getProveedores() <= 0 || p.getAlmacenes() <= 0) {
+            throw new IllegalArgumentException("Hacen falta productos, clientes, proveedores y almacenes");
+        }
+        if (p.getVentas() < 0 || p.getCompras() < 0) {
+            throw new IllegalArgumentException("El número de ventas y compras no puede ser negativo");
+        }
+        if (p.getLote() <= 0 || p.getLote() > 5000) {
+            throw new IllegalArgumentException("El lote debe estar entre 1 y 5000 filas");
+        }
+        if (p.getHilos() <= 0) {
+            throw new IllegalArgumentException("Hace falta al menos un hilo");
+        }
+        if (p.getMeses() <= 0) {
+            throw new IllegalArgumentException("Los meses deben ser mayor a 0");
+        }
+    }
+
+    // Inserta total filas en lotes de p.lote, en paralelo. Cada lote es una
+    // sentencia (autocommit): si una falla se cancela el resto y lo ya
+    // insertado se queda.
+    private void insertar(ExecutorService hilos, ParametrosGeneracion p, String tabla, String columnas, long total,
+                          Fila fila) {
+        if (total == 0) {
+            return;
+        }
+        long inicio = System.currentTimeMillis();
+        int numColumnas = columnas.split(",").length;
+        String sqlLote = sqlInsert(tabla, columnas, numColumnas, p.getLote());
+        long lotes = (total + p.getLote() - 1) / p.getLote();
+        AtomicLong hechas = new AtomicLong();
+        Semaphore inserciones = new Semaphore(insercionesConcurrentes(p.getHilos()));
+
+        List<Future<?>> tareas = new ArrayList<>();
+        for (long l = 0; l < lotes; l++) {
+            long primera = l * p.getLote();
+            int filas = (int) Math.min(p.getLote(), total - primera);
+            long semilla = p.getSemilla() * 1_000_003L + tabla.hashCode() * 31L + l;
+            tareas.add(hilos.submit(() -> {
+                SplittableRandom azar = new SplittableRandom(semilla);
+                List<Object> args = new ArrayList<>(filas * numColumnas);
+                for (int i = 0; i < filas; i++) {
+                    fila.valores(primera + i + 1, azar, args);
+                }
+                String sql = filas == p.getLote() ? sqlLote : sqlInsert(tabla, columnas, numColumnas, filas);
+                inserciones.acquire();
+                try {
+                    jdbcTemplate.update(sql, args.toArray());
+                } finally {
+                    inserciones.release();
+                }
+                long antes = hechas.getAndAdd(filas);
+                if (antes * 10 / total != (antes + filas) * 10 / total) {
+                    log.info("Generando {}: {}%", tabla, (antes + filas) * 100 / total);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            try {
+                tarea.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tareas.forEach(t -> t.cancel(true));
+                throw new IllegalStateException("Generación interrumpida en " + tabla, e);
+            } catch (ExecutionException e) {
+                tareas.forEach(t -> t.cancel(true));
+                throw new IllegalStateException("Error generando " + tabla + ": " + e.getCause().getMessage(),
+                        e.getCause());
+            }
+        }
+        long ms = System.currentTimeMillis() - inicio;
+        log.info("Generadas {} filas en {}: {} ms ({} filas/s)", total, tabla, ms, ms == 0 ? total : total * 1000 / ms);
+    }
+
+    // H2 puede repetir valores de una columna identity con varios INSERT a
+    // la vez: contra H2 las filas se siguen generando en paralelo pero se
+    // insertan de una en una sentencia
+    private int insercionesConcurrentes(int hilos) {
+        String bd = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        return "H2".equalsIgnoreCase(bd) ? 1 : hilos;
+    }
+
+    private static String sqlInsert(String tabla, String columnas, int numColumnas, int filas) {
+        String fila = "(" + "?, ".repeat(numColumnas - 1) + "?)";
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(tabla).append(" (").append(columnas)
+                .append(") VALUES ");
+        for (int i = 0; i < filas; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(fila);
+        }
+        return sql.toString();
+    }
+
+    // Los almacenes activos, creando los que falten hasta el número pedido
+    private long[] asegurarAlmacenes(int cuantos, String marca) {
+        Integer activos = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM almacenes WHERE activo = TRUE",
+                Integer.class);
+        for (int i = activos == null ? 0 : activos; i < cuantos; i++) {
+            String ciudad = CIUDADES[i % CIUDADES.length];
+            jdbcTemplate.update("INSERT INTO almacenes (nombre, ubicacion, capacidad_maxima, stock_actual, activo, "
+                            + "prioritario, fecha_creacion) VALUES (?, ?, ?, 0, TRUE, FALSE, ?)",
+                    "Almacén " + ciudad + " " + marca + "-" + (i + 1), ciudad, 100_000, LocalDateTime.now());
+        }
+        return jdbcTemplate.queryForList("SELECT id FROM almacenes WHERE activo = TRUE ORDER BY id", Long.class)
+                .stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // stock_almacen desde el histórico y de ahí el stock de los productos
+    // generados y de los almacenes; la capacidad crece si no cabe
+    private void recalcularStock(long ultimoProductoAntes) {
+        long inicio = System.currentTimeMillis();
+        stockAlmacenService.sembrar();
+        jdbcTemplate.update("UPDATE productos p SET stock_total = COALESCE((SELECT SUM(s.cantidad) "
+                + "FROM stock_almacen s WHERE s.producto_id = p.id), 0) WHERE p.id > ?", ultimoProductoAntes);
+        jdbcTemplate.update("UPDATE almacenes a SET stock_actual = COALESCE((SELECT SUM(s.cantidad) "
+                + "FROM stock_almacen s WHERE s.almacen_id = a.id), 0)");
+        jdbcTemplate.update("UPDATE almacenes SET capacidad_maxima = CEIL(stock_actual * 1.25) "
+                + "WHERE capacidad_maxima IS NOT NULL AND capacidad_maxima < stock_actual");
+        // Almacenes cambiados por SQL: fuera de la caché de segundo nivel
+        cacheService.vaciarTodo();
+        log.info("Stock recalculado desde el histórico en {} ms", System.currentTimeMillis() - inicio);
+    }
+
+    private long maxId(String tabla) {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + tabla, Long.class);
+        return max == null ? 0 : max;
+    }
+
+    private long[] ids(String tabla, long desdeId) {
+        return jdbcTemplate.queryForList("SELECT id FROM " + tabla + " WHERE id > ? ORDER BY id", Long.class, desdeId)
+                .stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static int[] barajar(int n, SplittableRandom azar) {
+        int[] orden = new int[n];
+        for (int i = 0; i < n; i++) {
+            orden[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = azar.nextInt(i + 1);
+            int tmp = orden[i];
+            orden[i] = orden[j];
+            orden[j] = tmp;
+        }
+        return orden;
+    }
+
+    // 1 a 20 unidades, casi siempre pocas (exponencial de media ~2.5)
+    private static int cantidad(SplittableRandom azar) {
+        return Math.min(20, 1 + (int) (-Math.log(1 - azar.nextDouble()) * 2));
+    }
+
+    private static String estadoVenta(LocalDateTime fecha, LocalDateTime reciente, SplittableRandom azar) {
+        double u = azar.nextDouble();
+        if (fecha.isAfter(reciente)) {
+            return u < 0.5 ? "PENDIENTE" : u < 0.8 ? "ENVIADA" : u < 0.97 ? "ENTREGADA" : "CANCELADA";
+        }
+        return u < 0.93 ? "ENTREGADA" : u < 0.95 ? "ENVIADA" : "CANCELADA";
+    }
+
+    private static String estadoCompra(LocalDateTime fecha, LocalDateTime reciente, SplittableRandom azar) {
+        double u = azar.nextDouble();
+        if (fecha.isAfter(reciente)) {
+            return u < 0.6 ? "PENDIENTE" : u < 0.97 ? "RECIBIDA" : "CANCELADA";
+        }
+        return u < 0.96 ? "RECIBIDA" : "CANCELADA";
+    }
+
+    private static float redondear(double valor) {
+        return Math.round(valor * 100) / 100f;
+    }
+}
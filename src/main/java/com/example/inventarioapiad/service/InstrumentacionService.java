@@ -0,0 +1,67 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.instrumentacion.RegistroSql;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Consulta de la instrumentación SQL: huellas agregadas y últimas peticiones
+// lentas (RegistroSql) y los contadores globales de Hibernate.
+@Service
+@Slf4j
+public class InstrumentacionService {
+
+    @Autowired
+    private RegistroSql registroSql;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    public Map<String, Object> resumen() {
+        Map<String, Object> resumen = registroSql.resumen();
+        resumen.put("hibernate", hibernate());
+        return resumen;
+    }
+
+    public List<Map<String, Object>> huellas(String orden, int limite) {
+        if (limite <= 0) {
+            log.error("Error: límite inválido {}", limite);
+            throw new IllegalArgumentException("El límite debe ser mayor a 0");
+        }
+        return registroSql.huellas(orden, limite);
+    }
+
+    public List<Map<String, Object>> lentas() {
+        return registroSql.lentas();
+    }
+
+    public void reiniciar() {
+        registroSql.reiniciar();
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics().clear();
+        log.info("Instrumentación SQL reiniciada");
+    }
+
+    // Totales de Hibernate desde el arranque (o el último reinicio)
+    private Map<String, Object> hibernate() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("sentenciasPreparadas", estadisticas.getPrepareStatementCount());
+        datos.put("entidadesCargadas", estadisticas.getEntityLoadCount());
+        datos.put("entidadesBuscadas", estadisticas.getEntityFetchCount());
+        datos.put("coleccionesCargadas", estadisticas.getCollectionLoadCount());
+        datos.put("consultas", estadisticas.getQueryExecutionCount());
+        datos.put("consultaMasLentaMs", estadisticas.getQueryExecutionMaxTime());
+        datos.put("consultaMasLenta", estadisticas.getQueryExecutionMaxTimeQueryString());
+        datos.put("transacciones", estadisticas.getTransactionCount());
+        datos.put("flushes", estadisticas.getFlushCount());
+        datos.put("conexiones", estadisticas.getConnectCount());
+        return datos;
+    }
+}
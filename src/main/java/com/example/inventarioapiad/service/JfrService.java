@@ -0,0 +1,177 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.jfr.AjusteStockJfr;
+import com.example.inventarioapiad.jfr.CacheJfr;
+import com.example.inventarioapiad.jfr.CompraJfr;
+import com.example.inventarioapiad.jfr.FiltroJfr;
+import com.example.inventarioapiad.jfr.ValidacionJwtJfr;
+import com.example.inventarioapiad.jfr.VentaJfr;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Grabaciones JFR bajo demanda: los eventos de la JVM con la configuración
+// indicada (profile por defecto) más los eventos del inventario, durante
+// unos segundos, a un fichero temporal que luego se descarga y se abre con
+// JDK Mission Control o "jfr print". Una grabación a la vez; se guardan las
+// últimas y las más viejas se borran con su fichero.
+@Service
+@Slf4j
+public class JfrService {
+
+    private static final List<Class<? extends jdk.jfr.Event>> EVENTOS = List.of(
+            VentaJfr.class, CompraJfr.class, AjusteStockJfr.class, CacheJfr.class,
+            ValidacionJwtJfr.class, FiltroJfr.class);
+
+    @Value("${jfr.grabacion.max-segundos:600}")
+    private int maxSegundos = 600;
+
+    @Value("${jfr.grabacion.configuracion:profile}")
+    private String configuracion = "profile";
+
+    @Value("${jfr.grabacion.guardadas:5}")
+    private int guardadas = 5;
+
+    private final Map<Long, Recording> grabaciones = new LinkedHashMap<>();
+
+    public synchronized Map<String, Object> iniciar(int segundos) {
+        if (segundos <= 0 || segundos > maxSegundos) {
+            log.error("Error: duración de grabación inválida {}", segundos);
+            throw new IllegalArgumentException("La duración debe estar entre 1 y " + maxSegundos + " segundos");
+        }
+        for (Recording grabacion : grabaciones.values()) {
+            if (grabacion.getState() == RecordingState.RUNNING) {
+                throw new IllegalStateException("Ya hay una grabación en curso: " + grabacion.getId());
+            }
+        }
+
+        Recording grabacion;
+        try {
+            grabacion = new Recording(Configuration.getConfiguration(configuracion));
+            grabacion.setDestination(Files.createTempFile("inventario-", ".jfr"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Configuración JFR no válida: " + configuracion, e);
+        }
+        for (Class<? extends jdk.jfr.Event> evento : EVENTOS) {
+            grabacion.enable(evento);
+        }
+        grabacion.setName("inventario-" + grabacion.getId());
+        grabacion.setDuration(Duration.ofSeconds(segundos));
+        grabacion.start();
+        grabaciones.put(grabacion.getId(), grabacion);
+        descartarViejas();
+        log.info("Grabación JFR {} iniciada: {} s con la configuración {}", grabacion.getId(), segundos,
+                configuracion);
+        return datos(grabacion);
+    }
+
+    public synchronized List<Map<String, Object>> listar() {
+        List<Map<String, Object>> lista = new ArrayList<>();
+        for (Recording grabacion : grabaciones.values()) {
+            lista.add(datos(grabacion));
+        }
+        return lista;
+    }
+
+    public synchronized Map<String, Object> parar(long id) {
+        Recording grabacion = buscar(id);
+        if (grabacion.getState() != RecordingState.RUNNING) {
+            throw new IllegalStateException("La grabación " + id + " no está en curso");
+        }
+        grabacion.stop();
+        log.info("Grabación JFR {} parada", id);
+        return datos(grabacion);
+    }
+
+    // El fichero solo existe entero cuando la grabación ha terminado
+    public synchronized Path fichero(long id) {
+        Recording grabacion = buscar(id);
+        if (!terminada(grabacion)) {
+            throw new IllegalStateException("La grabación " + id + " todavía no ha terminado");
+        }
+        return grabacion.getDestination();
+    }
+
+    @PreDestroy
+    public synchronized void cerrar() {
+        for (Recording grabacion : grabaciones.values()) {
+            cerrar(grabacion);
+        }
+        grabaciones.clear();
+    }
+
+    private Recording buscar(long id) {
+        Recording grabacion = grabaciones.get(id);
+        if (grabacion == null) {
+            log.error("Error: grabación JFR no encontrada con ID {}", id);
+            throw new RuntimeException("Grabación no encontrada con ID: " + id);
+        }
+        return grabacion;
+    }
+
+    private void descartarViejas() {
+        Iterator<Recording> it = grabaciones.values().iterator();
+        while (grabaciones.size() > guardadas && it.hasNext()) {
+            Recording grabacion = it.next();
+            if (grabacion.getState() != RecordingState.RUNNING) {
+                cerrar(grabacion);
+                it.remove();
+            }
+        }
+    }
+
+    private void cerrar(Recording grabacion) {
+        Path destino = grabacion.getDestination();
+        grabacion.close();
+        try {
+            if (destino != null) {
+                Files.deleteIfExists(destino);
+            }
+        } catch (IOException e) {
+            log.warn("No se pudo borrar {}: {}", destino, e.getMessage());
+        }
+    }
+
+    private Map<String, Object> datos(Recording grabacion) {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("id", grabacion.getId());
+        datos.put("nombre", grabacion.getName());
+        datos.put("estado", grabacion.getState().name());
+        datos.put("inicio", grabacion.getStartTime());
+        datos.put("fin", grabacion.getStopTime());
+        datos.put("duracionSegundos", grabacion.getDuration() == null ? null : grabacion.getDuration().toSeconds());
+        datos.put("bytes", terminada(grabacion) ? tamano(grabacion.getDestination()) : null);
+        return datos;
+    }
+
+    // Con destino, JFR la cierra en cuanto escribe el fichero al parar
+    private static boolean terminada(Recording grabacion) {
+        return grabacion.getState() == RecordingState.STOPPED || grabacion.getState() == RecordingState.CLOSED;
+    }
+
+    private static Long tamano(Path fichero) {
+        try {
+            return Files.size(fichero);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
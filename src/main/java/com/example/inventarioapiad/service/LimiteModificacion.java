@@ -0,0 +1,50 @@
+package com.example.inventarioapiad.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Hasta qué fecha_modificacion se puede leer sin saltarse filas de
+// transacciones que todavía no han confirmado (ExportacionService,
+// CatalogoLocalService).
+//
+// fecha_modificacion la pone la BD al ejecutar el UPDATE, no al confirmar:
+// una transacción que tarda en confirmar deja filas con fecha anterior a
+// la marca de quien ya leyó ese tramo. Ninguna de esas filas es anterior
+// al inicio de su transacción, así que el límite es la transacción activa
+// más antigua (information_schema.innodb_trx), y además "ahora menos
+// margen" para los relojes y lo que confirma justo al consultar. Sin esa
+// vista (H2, usuario sin permiso PROCESS) queda solo el margen.
+final class LimiteModificacion {
+
+    private static final Logger log = LoggerFactory.getLogger(LimiteModificacion.class);
+
+    private static final AtomicBoolean avisado = new AtomicBoolean(false);
+
+    private LimiteModificacion() {
+    }
+
+    static LocalDateTime calcular(JdbcTemplate jdbcTemplate, long margenMs) {
+        LocalDateTime hasta = jdbcTemplate.queryForObject("SELECT LOCALTIMESTAMP(6)", Timestamp.class)
+                .toLocalDateTime().minusNanos(margenMs * 1_000_000L);
+        try {
+            // trx_started va en segundos: se redondea hacia atrás, que es lo seguro
+            Timestamp masAntigua = jdbcTemplate.queryForObject(
+                    "SELECT MIN(trx_started) FROM information_schema.innodb_trx", Timestamp.class);
+            if (masAntigua != null && masAntigua.toLocalDateTime().isBefore(hasta)) {
+                return masAntigua.toLocalDateTime();
+            }
+        } catch (DataAccessException e) {
+            if (avisado.compareAndSet(false, true)) {
+                log.warn("Sin acceso a information_schema.innodb_trx, el límite de lectura es solo el margen de {} ms: {}",
+                        margenMs, e.getMessage());
+            }
+        }
+        return hasta;
+    }
+}
@@ -0,0 +1,483 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+// Previsión de demanda diaria por producto con Holt-Winters aditivo
+// (nivel + tendencia + estacionalidad semanal de 7 días).
+//
+// El estado de cada producto vive en arrays de primitivos (Modelo): un
+// double por nivel/tendencia/demanda del día y 7 para la estacionalidad,
+// sin un objeto por producto. Cada venta (MovimientoStockEvent con origen
+// VENTA) suma a la demanda del día en curso; al llegar una venta de un día
+// posterior se "cierran" los días pendientes (los que no tuvieron ventas
+// cuentan como 0) y se aplica la actualización de Holt-Winters a cada uno.
+// Una cancelación resta de la demanda solo si es del día todavía abierto.
+//
+// Al arrancar (o con POST /api/prevision/recalcular) se reconstruye desde
+// las ventas de los últimos "prevision.historico-dias" días: una consulta
+// agregada por (producto, día) y el ajuste de cada producto en paralelo.
+// GET /api/productos/{id}/prevision solo lee el estado ya calculado.
+@Service
+@Slf4j
+public class PrevisionDemandaService {
+
+    public static final int TEMPORADA = 7;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Suavizado del nivel, de la tendencia y de la estacionalidad (0..1)
+    @Value("${prevision.alfa:0.3}")
+    private double alfa = 0.3;
+
+    @Value("${prevision.beta:0.05}")
+    private double beta = 0.05;
+
+    @Value("${prevision.gamma:0.2}")
+    private double gamma = 0.2;
+
+    @Value("${prevision.historico-dias:365}")
+    private int historicoDias = 365;
+
+    // 0 = tantos hilos como procesadores
+    @Value("${prevision.paralelismo:0}")
+    private int paralelismo = 0;
+
+    @Value("${prevision.max-dias:90}")
+    private int maxDias = 90;
+
+    private volatile Modelo modelo;
+
+    // Mientras se reconstruye, las ventas que llegan se guardan aquí y se
+    // aplican al modelo nuevo cuando está listo
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean(false);
+    private final ConcurrentLinkedQueue<long[]> pendientes = new ConcurrentLinkedQueue<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        reconstruir();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alMoverStock(MovimientoStockEvent movimiento) {
+        if (movimiento.getProductoId() == null || !"VENTA".equals(movimiento.getOrigen())) {
+            return;
+        }
+        // Salida = venta (+demanda); entrada = venta cancelada (-demanda).
+        // Las dos van al día de la venta: si ese día ya está cerrado,
+        // registrar() no lo toca
+        long unidades = -movimiento.getDelta();
+        int dia = (int) LocalDate.now().toEpochDay();
+        if (movimiento.getFecha() != null) {
+            dia = (int) Math.min(dia, movimiento.getFecha().toLocalDate().toEpochDay());
+        }
+        if (reconstruyendo.get()) {
+            pendientes.add(new long[]{movimiento.getProductoId(), dia, unidades});
+            return;
+        }
+        modelo().registrar(movimiento.getProductoId(), dia, unidades);
+    }
+
+    public Map<String, Object> reconstruir() {
+        if (!reconstruyendo.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una reconstrucción de la previsión en curso");
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            int hoy = (int) LocalDate.now().toEpochDay();
+            Historico historico = new Historico();
+            jdbcTemplate.query("SELECT producto_id, CAST(fecha_venta AS DATE), SUM(cantidad) FROM ventas "
+                            + "WHERE estado <> 'CANCELADA' AND fecha_venta >= ? "
+                            + "GROUP BY producto_id, CAST(fecha_venta AS DATE) "
+                            + "ORDER BY producto_id, CAST(fecha_venta AS DATE)",
+                    rs -> {
+                        historico.anadir(rs.getLong(1), (int) rs.getDate(2).toLocalDate().toEpochDay(), rs.getLong(3));
+                    },
+                    LocalDate.now().minusDays(historicoDias).atStartOfDay());
+            long msCarga = System.currentTimeMillis() - inicio;
+
+            Modelo nuevo = ajustar(historico, hoy);
+            for (long[] venta; (venta = pendientes.poll()) != null; ) {
+                nuevo.registrar(venta[0], (int) venta[1], venta[2]);
+            }
+            modelo = nuevo;
+
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("productos", nuevo.productos());
+            resumen.put("filasHistorico", historico.filas);
+            resumen.put("msCarga", msCarga);
+            resumen.put("msTotal", System.currentTimeMillis() - inicio);
+            log.info("Previsión de demanda reconstruida: {}", resumen);
+            return resumen;
+        } finally {
+            reconstruyendo.set(false);
+            // Lo que haya entrado justo al final
+            for (long[] venta; (venta = pendientes.poll()) != null; ) {
+                modelo().registrar(venta[0], (int) venta[1], venta[2]);
+            }
+        }
+    }
+
+    // Ajusta un modelo nuevo con el histórico: cada producto es un tramo
+    // contiguo de las filas (vienen ordenadas) y se ajusta en paralelo.
+    public Modelo ajustar(Historico historico, int hoy) {
+        List<int[]> tramos = historico.tramos();
+        Modelo nuevo = new Modelo(Math.max(16, tramos.size()), alfa, beta, gamma);
+        int[] slots = new int[tramos.size()];
+        for (int i = 0; i < tramos.size(); i++) {
+            slots[i] = nuevo.slot(historico.productos[tramos.get(i)[0]]);
+        }
+
+        ForkJoinPool pool = paralelismo > 0 ? new ForkJoinPool(paralelismo) : ForkJoinPool.commonPool();
+        try {
+            pool.submit(() -> IntStream.range(0, tramos.size()).parallel().forEach(i -> {
+                int desde = tramos.get(i)[0];
+                int hasta = tramos.get(i)[1];
+                int primerDia = historico.dias[desde];
+                // Serie de días cerrados (hasta ayer); lo de hoy queda abierto
+                double[] serie = new double[Math.max(0, hoy - primerDia)];
+                double demandaHoy = 0;
+                for (int f = desde; f < hasta; f++) {
+                    int dia = historico.dias[f];
+                    if (dia >= hoy) {
+                        demandaHoy += historico.unidades[f];
+                    } else {
+                        serie[dia - primerDia] += historico.unidades[f];
+                    }
+                }
+                nuevo.ajustar(slots[i], primerDia, serie, hoy, demandaHoy);
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconstrucción de la previsión interrumpida");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error ajustando la previsión: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            if (pool != ForkJoinPool.commonPool()) {
+                pool.shutdown();
+            }
+        }
+        return nuevo;
+    }
+
+    public Map<String, Object> prevision(Long productoId, int dias) {
+        if (productoId == null || productoId <= 0) {
+            throw new IllegalArgumentException("El ID debe ser válido");
+        }
+        if (dias < 1 || dias > maxDias) {
+            throw new IllegalArgumentException("dias debe estar entre 1 y " + maxDias);
+        }
+        LocalDate hoy = LocalDate.now();
+        Modelo actual = modelo();
+        double[] estado = new double[3 + TEMPORADA];
+        double[] unidades = actual.prever(productoId, (int) hoy.toEpochDay(), dias, estado);
+
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("productoId", productoId);
+        respuesta.put("dias", dias);
+        respuesta.put("conHistorico", unidades != null);
+        if (unidades == null) {
+            unidades = new double[dias];
+        } else {
+            respuesta.put("diasObservados", (long) estado[2]);
+            respuesta.put("nivel", redondear(estado[0]));
+            respuesta.put("tendencia", redondear(estado[1]));
+            Map<String, Double> estacionalidad = new LinkedHashMap<>();
+            for (int k = 0; k < TEMPORADA; k++) {
+                LocalDate dia = hoy.plusDays(k);
+                estacionalidad.put(dia.getDayOfWeek().toString(),
+                        redondear(estado[3 + Math.floorMod(dia.toEpochDay(), TEMPORADA)]));
+            }
+            respuesta.put("estacionalidad", estacionalidad);
+        }
+        List<Map<String, Object>> porDia = new ArrayList<>(dias);
+        double total = 0;
+        for (int h = 0; h < dias; h++) {
+            Map<String, Object> dia = new LinkedHashMap<>();
+            dia.put("fecha", hoy.plusDays(h));
+            dia.put("unidades", redondear(unidades[h]));
+            porDia.add(dia);
+            total += unidades[h];
+        }
+        respuesta.put("total", redondear(total));
+        respuesta.put("prevision", porDia);
+        return respuesta;
+    }
+
+    private Modelo modelo() {
+        Modelo actual = modelo;
+        if (actual == null) {
+            synchronized (this) {
+                if (modelo == null) {
+                    modelo = new Modelo(16, alfa, beta, gamma);
+                }
+                actual = modelo;
+            }
+        }
+        return actual;
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 100) / 100.0;
+    }
+
+    // ------------------------------------------------------------------
+
+    // Filas (producto, día, unidades) del histórico en arrays que crecen
+    public static final class Historico {
+        long[] productos = new long[1024];
+        int[] dias = new int[1024];
+        long[] unidades = new long[1024];
+        int filas = 0;
+
+        // Las filas deben llegar ordenadas por producto y día
+        public void anadir(long productoId, int dia, long cantidad) {
+            if (filas == productos.length) {
+                productos = Arrays.copyOf(productos, filas * 2);
+                dias = Arrays.copyOf(dias, filas * 2);
+                unidades = Arrays.copyOf(unidades, filas * 2);
+            }
+            productos[filas] = productoId;
+            dias[filas] = dia;
+            unidades[filas] = cantidad;
+            filas++;
+        }
+
+        // [desde, hasta) de las filas de cada producto
+        List<int[]> tramos() {
+            List<int[]> tramos = new ArrayList<>();
+            int desde = 0;
+            for (int f = 1; f <= filas; f++) {
+                if (f == filas || productos[f] != productos[desde]) {
+                    tramos.add(new int[]{desde, f});
+                    desde = f;
+                }
+            }
+            return tramos;
+        }
+    }
+
+    // Estado de Holt-Winters de todos los productos, en arrays indexados por
+    // "slot". Las estacionalidades van seguidas: slot * 7 + (díaEpoch mod 7).
+    // Cada slot se protege con uno de 64 cerrojos; crecer los arrays coge
+    // el cerrojo de escritura y para todo lo demás.
+    public static final class Modelo {
+        private static final int CERROJOS = 64;
+
+        private final double alfa;
+        private final double beta;
+        private final double gamma;
+
+        private final ConcurrentHashMap<Long, Integer> slots = new ConcurrentHashMap<>();
+        private final ReentrantReadWriteLock crecimiento = new ReentrantReadWriteLock();
+        private final Object[] cerrojos = new Object[CERROJOS];
+
+        private double[] nivel;
+        private double[] tendencia;
+        private double[] estacional;
+        private double[] demandaAbierta;
+        // Día (epoch) que se está acumulando; los anteriores ya están aplicados
+        private int[] diaAbierto;
+        private int[] diasObservados;
+
+        public Modelo(int capacidad, double alfa, double beta, double gamma) {
+            this.alfa = alfa;
+            this.beta = beta;
+            this.gamma = gamma;
+            nivel = new double[capacidad];
+            tendencia = new double[capacidad];
+            estacional = new double[capacidad * TEMPORADA];
+            demandaAbierta = new double[capacidad];
+            diaAbierto = new int[capacidad];
+            diasObservados = new int[capacidad];
+            for (int i = 0; i < CERROJOS; i++) {
+                cerrojos[i] = new Object();
+            }
+        }
+
+        public int productos() {
+            return slots.size();
+        }
+
+        int slot(long productoId) {
+            Integer slot = slots.get(productoId);
+            if (slot != null) {
+                return slot;
+            }
+            crecimiento.writeLock().lock();
+            try {
+                return slots.computeIfAbsent(productoId, id -> {
+                    int nuevo = slots.size();
+                    if (nuevo == nivel.length) {
+                        int capacidad = nivel.length * 2;
+                        nivel = Arrays.copyOf(nivel, capacidad);
+                        tendencia = Arrays.copyOf(tendencia, capacidad);
+                        estacional = Arrays.copyOf(estacional, capacidad * TEMPORADA);
+                        demandaAbierta = Arrays.copyOf(demandaAbierta, capacidad);
+                        diaAbierto = Arrays.copyOf(diaAbierto, capacidad);
+                        diasObservados = Arrays.copyOf(diasObservados, capacidad);
+                    }
+                    diaAbierto[nuevo] = Integer.MIN_VALUE;
+                    return nuevo;
+                });
+            } finally {
+                crecimiento.writeLock().unlock();
+            }
+        }
+
+        // Suma unidades vendidas el día "dia" (si es anterior al día abierto
+        // ya no se puede aplicar y se ignora)
+        public void registrar(long productoId, int dia, double unidades) {
+            int slot = slot(productoId);
+            crecimiento.readLock().lock();
+            try {
+                synchronized (cerrojos[slot % CERROJOS]) {
+                    if (diaAbierto[slot] == Integer.MIN_VALUE) {
+                        if (unidades <= 0) {
+                            // Cancelación de un producto sin ventas vistas: nada que restar
+                            return;
+                        }
+                        diaAbierto[slot] = dia;
+                    }
+                    avanzar(slot, dia);
+                    if (dia == diaAbierto[slot]) {
+                        demandaAbierta[slot] = Math.max(0, demandaAbierta[slot] + unidades);
+                    }
+                }
+            } finally {
+                crecimiento.readLock().unlock();
+            }
+        }
+
+        // Carga un producto desde su serie de días cerrados (primerDia..hoy-1)
+        void ajustar(int slot, int primerDia, double[] serie, int hoy, double demandaHoy) {
+            crecimiento.readLock().lock();
+            try {
+                synchronized (cerrojos[slot % CERROJOS]) {
+                    int base = slot * TEMPORADA;
+                    int inicio = 0;
+                    if (serie.length >= 2 * TEMPORADA) {
+                        // Arranque clásico con las dos primeras semanas
+                        double semana1 = media(serie, 0, TEMPORADA);
+                        double semana2 = media(serie, TEMPORADA, 2 * TEMPORADA);
+                        nivel[slot] = semana1;
+                        tendencia[slot] = (semana2 - semana1) / TEMPORADA;
+                        for (int k = 0; k < TEMPORADA; k++) {
+                            int s = Math.floorMod(primerDia + k, TEMPORADA);
+                            estacional[base + s] = ((serie[k] - semana1) + (serie[k + TEMPORADA] - semana2)) / 2;
+                        }
+                        // El nivel inicial corresponde al final de la 1ª semana
+                        nivel[slot] += tendencia[slot] * (TEMPORADA - 1);
+                        inicio = TEMPORADA;
+                        diasObservados[slot] = TEMPORADA;
+                    } else {
+                        diasObservados[slot] = 0;
+                    }
+                    for (int d = inicio; d < serie.length; d++) {
+                        actualizar(slot, primerDia + d, serie[d]);
+                    }
+                    diaAbierto[slot] = Math.max(hoy, primerDia);
+                    demandaAbierta[slot] = demandaHoy;
+                }
+            } finally {
+                crecimiento.readLock().unlock();
+            }
+        }
+
+        // Previsión de los días hoy..hoy+dias-1. "estado" (opcional) recibe
+        // nivel, tendencia, días observados y las 7 estacionalidades.
+        // Devuelve null si el producto no tiene historia.
+        public double[] prever(long productoId, int hoy, int dias, double[] estado) {
+            Integer slot = slots.get(productoId);
+            if (slot == null) {
+                return null;
+            }
+            crecimiento.readLock().lock();
+            try {
+                synchronized (cerrojos[slot % CERROJOS]) {
+                    // Los días sin ventas hasta ayer cuentan como 0
+                    avanzar(slot, hoy);
+                    if (diasObservados[slot] == 0) {
+                        return null;
+                    }
+                    // El día abierto es hoy: la previsión parte del último día cerrado
+                    int ultimoCerrado = diaAbierto[slot] - 1;
+                    int base = slot * TEMPORADA;
+                    double[] prevision = new double[dias];
+                    for (int h = 0; h < dias; h++) {
+                        int dia = hoy + h;
+                        int pasos = dia - ultimoCerrado;
+                        double valor = nivel[slot] + pasos * tendencia[slot]
+                                + estacional[base + Math.floorMod(dia, TEMPORADA)];
+                        prevision[h] = Math.max(0, valor);
+                    }
+                    if (estado != null) {
+                        estado[0] = nivel[slot];
+                        estado[1] = tendencia[slot];
+                        estado[2] = diasObservados[slot];
+                        System.arraycopy(estacional, base, estado, 3, TEMPORADA);
+                    }
+                    return prevision;
+                }
+            } finally {
+                crecimiento.readLock().unlock();
+            }
+        }
+
+        // Cierra los días abiertos anteriores a "dia"
+        private void avanzar(int slot, int dia) {
+            if (diaAbierto[slot] == Integer.MIN_VALUE) {
+                return;
+            }
+            while (diaAbierto[slot] < dia) {
+                actualizar(slot, diaAbierto[slot], demandaAbierta[slot]);
+                demandaAbierta[slot] = 0;
+                diaAbierto[slot]++;
+            }
+        }
+
+        private void actualizar(int slot, int dia, double demanda) {
+            int s = slot * TEMPORADA + Math.floorMod(dia, TEMPORADA);
+            if (diasObservados[slot] == 0) {
+                nivel[slot] = demanda;
+                tendencia[slot] = 0;
+            } else {
+                double nivelAnterior = nivel[slot];
+                nivel[slot] = alfa * (demanda - estacional[s]) + (1 - alfa) * (nivelAnterior + tendencia[slot]);
+                tendencia[slot] = beta * (nivel[slot] - nivelAnterior) + (1 - beta) * tendencia[slot];
+                estacional[s] = gamma * (demanda - nivel[slot]) + (1 - gamma) * estacional[s];
+            }
+            diasObservados[slot]++;
+        }
+
+        private static double media(double[] serie, int desde, int hasta) {
+            double suma = 0;
+            for (int i = desde; i < hasta; i++) {
+                suma += serie[i];
+            }
+            return suma / (hasta - desde);
+        }
+    }
+}
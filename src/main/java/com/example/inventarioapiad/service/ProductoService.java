@@ -1,17 +1,35 @@
 package com.example.inventarioapiad.service;
 
+import com.example.inventarioapiad.coalescencia.Coalescedor;
 import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.event.PrecioCostoCambiadoEvent;
+import com.example.inventarioapiad.event.ProductoCambiadoEvent;
+import com.example.inventarioapiad.event.StockCambiadoEvent;
+import com.example.inventarioapiad.jfr.AjusteStockJfr;
+import com.example.inventarioapiad.jfr.FiltroJfr;
 import com.example.inventarioapiad.repository.ProductoRepository;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static com.example.inventarioapiad.registro.Marcadores.FRECUENTE;
+
 @Service
 @Slf4j
 public class ProductoService {
@@ -19,9 +37,23 @@ public class ProductoService {
     @Autowired
     private ProductoRepository productoRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CatalogoLocalService catalogoLocalService;
+
+    // Lecturas iguales a la vez comparten una sola consulta (GET /api/coalescencia)
+    private final Coalescedor<Long, Producto> lecturasPorId = new Coalescedor<>(ProductoService::copiar);
+    private final Coalescedor<List<Object>, List<Producto>> lecturasFiltradas =
+            new Coalescedor<>(productos -> productos.stream()
+                    .map(ProductoService::copiar)
+                    .collect(Collectors.toList()));
+
     // CREATE
+    @Transactional
     public Producto crear(Producto producto) {
-        log.info("Creando producto: " + producto.getNombre());
+        log.info("Creando producto: {}", producto.getNombre());
 
         if (producto.getNombre() == null || producto.getNombre().isBlank()) {
             log.error("Error: Nombre del producto vacío");
@@ -41,37 +73,84 @@ public class ProductoService {
         }
 
         Producto creado = productoRepository.save(producto);
-        log.info("Producto creado exitosamente con ID: " + creado.getId());
+        log.info("Producto creado exitosamente con ID: {}", creado.getId());
+
+        if (creado.getId() != null && creado.getPrecioCosto() != null) {
+            eventPublisher.publishEvent(new PrecioCostoCambiadoEvent(creado.getId(), creado.getPrecioCosto()));
+        }
+        publicarStock(creado);
+        publicarCambio(creado);
         return creado;
     }
 
-    // READ
+    // READ: del catálogo local si está habilitado y lo tiene, si no de la BD
+    // (coalescida con las lecturas del mismo id que estén en vuelo).
+    // Sin @Transactional a propósito: abrir la transacción ya pide conexión
+    // y con el catálogo local, o esperando a otra lectura, no hace falta.
+    // findById ya va en una de solo lectura.
     public Producto buscarPorId(Long id) {
-        log.info("Buscando producto con ID: " + id);
+        log.info(FRECUENTE, "Buscando producto con ID: {}", id);
 
         if (id == null || id <= 0) {
             log.error("Error: ID inválido");
             throw new IllegalArgumentException("El ID debe ser válido");
         }
+        if (catalogoLocalService.habilitado()) {
+            Producto local = catalogoLocalService.buscarPorId(id);
+            if (local != null) {
+                return local;
+            }
+        }
+        return lecturasPorId.ejecutar(id, () -> buscarEnBd(id));
+    }
+
+    // READ por SKU exacto (mismo orden: catálogo local y luego BD)
+    public Producto buscarPorSku(String sku) {
+        log.info(FRECUENTE, "Buscando producto con SKU: {}", sku);
+
+        if (sku == null || sku.isBlank()) {
+            log.error("Error: SKU vacío");
+            throw new IllegalArgumentException("El SKU es obligatorio");
+        }
+        if (catalogoLocalService.habilitado()) {
+            Producto local = catalogoLocalService.buscarPorSku(sku);
+            if (local != null) {
+                return local;
+            }
+        }
+        return productoRepository.findBySku(sku)
+                .orElseThrow(() -> {
+                    log.error("Producto no encontrado con SKU: {}", sku);
+                    return new RuntimeException("Producto no encontrado con SKU: " + sku);
+                });
+    }
 
+    // Las modificaciones leen siempre de la BD: el catálogo local puede ir
+    // unos segundos por detrás y no se debe guardar encima lo que tenga
+    private Producto buscarEnBd(Long id) {
         return productoRepository.findById(id)
                 .orElseThrow(() -> {
-                    log.error("Producto no encontrado con ID: " + id);
+                    log.error("Producto no encontrado con ID: {}", id);
                     return new RuntimeException("Producto no encontrado con ID: " + id);
                 });
     }
 
     // READ ALL
+    @Transactional(readOnly = true)
     public List<Producto> buscarTodos() {
-        log.info("Listando todos los productos");
+        log.info(FRECUENTE, "Listando todos los productos");
         return (List<Producto>) productoRepository.findAll();
     }
 
     // UPDATE
+    @Transactional
     public Producto actualizar(Long id, Producto productoActualizado) {
-        log.info("Actualizando producto con ID: " + id);
+        log.info("Actualizando producto con ID: {}", id);
 
-        Producto producto = buscarPorId(id);
+        Producto producto = buscarEnBd(id);
+        Float precioCostoAnterior = producto.getPrecioCosto();
+        Integer stockAnterior = producto.getStockTotal();
+        Boolean activoAnterior = producto.getActivo();
 
         if (productoActualizado.getNombre() != null && !productoActualizado.getNombre().isBlank()) {
             producto.setNombre(productoActualizado.getNombre());
@@ -96,25 +175,83 @@ public class ProductoService {
         }
 
         Producto actualizado = productoRepository.save(producto);
-        log.info("Producto actualizado exitosamente con ID: " + id);
+        log.info("Producto actualizado exitosamente con ID: {}", id);
+
+        if (producto.getPrecioCosto() != null && !producto.getPrecioCosto().equals(precioCostoAnterior)) {
+            eventPublisher.publishEvent(new PrecioCostoCambiadoEvent(id, producto.getPrecioCosto()));
+        }
+        if (!Objects.equals(stockAnterior, producto.getStockTotal())
+                || !Objects.equals(activoAnterior, producto.getActivo())) {
+            publicarStock(producto);
+        }
+        publicarCambio(producto);
         return actualizado;
     }
 
     // DELETE
+    @Transactional
     public void eliminar(Long id) {
-        log.info("Eliminando producto con ID: " + id);
+        log.info("Eliminando producto con ID: {}", id);
 
-        Producto producto = buscarPorId(id);
+        Producto producto = buscarEnBd(id);
         producto.setActivo(false);  // Soft delete: marcar como inactivo
         productoRepository.save(producto);
+        publicarStock(producto);
+        publicarCambio(producto);
 
-        log.info("Producto eliminado (soft delete) con ID: " + id);
+        log.info("Producto eliminado (soft delete) con ID: {}", id);
+    }
+
+    // MOVIMIENTOS: las compras recibidas y las ventas mueven el stockTotal.
+    // Justo antes del commit de la compra/venta y dentro de su transacción:
+    // usa su misma conexión (una transacción aparte tras el commit pedía
+    // una segunda con la primera aún cogida y, con el pool agotado, se
+    // quedaban esperando unas a otras) y si falla no se confirma nada.
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void alMoverStock(MovimientoStockEvent movimiento) {
+        // Un traspaso entre almacenes no cambia el stock total del producto
+        if (movimiento.getProductoId() == null || "TRASPASO".equals(movimiento.getOrigen())) {
+            return;
+        }
+        AjusteStockJfr evento = AjusteStockJfr.iniciar();
+        int filas = productoRepository.ajustarStock(movimiento.getProductoId(), movimiento.getDelta());
+        evento.terminar(AjusteStockJfr.PRODUCTO, movimiento.getProductoId(), movimiento.getAlmacenId(),
+                movimiento.getDelta(), movimiento.getOrigen(), filas);
+        if (filas == 0) {
+            log.warn("Movimiento de stock para producto inexistente: {}", movimiento);
+            return;
+        }
+        productoRepository.findStockActual(movimiento.getProductoId()).ifPresent(stock ->
+                eventPublisher.publishEvent(new StockCambiadoEvent(stock.getId(), stock.getSku(),
+                        stock.getStockTotal(), Boolean.TRUE.equals(stock.getActivo()))));
     }
 
     // FILTRADO: Buscar productos con hasta 3 campos
     public List<Producto> buscarConFiltros(String nombre, String sku, Float precioVenta) {
-        log.info("Filtrando productos - nombre: " + nombre + ", sku: " + sku + ", precioVenta: " + precioVenta);
+        return buscarConFiltros(nombre, sku, precioVenta, null);
+    }
 
+    // FILTRADO: Igual que el anterior y además por clase ABC (A, B o C).
+    // Los mismos filtros a la vez comparten la consulta; como buscarPorId,
+    // sin transacción propia (findAll ya es de solo lectura).
+    public List<Producto> buscarConFiltros(String nombre, String sku, Float precioVenta, String claseAbc) {
+        log.info(FRECUENTE, "Filtrando productos - nombre: {}, sku: {}, precioVenta: {}, claseAbc: {}",
+                nombre, sku, precioVenta, claseAbc);
+        FiltroJfr evento = FiltroJfr.iniciar();
+        List<Producto> productos = lecturasFiltradas.ejecutar(Arrays.asList(nombre, sku, precioVenta, claseAbc),
+                () -> filtrar(nombre, sku, precioVenta, claseAbc));
+        evento.terminar("productos", productos.size(), nombre, sku, precioVenta, claseAbc);
+        return productos;
+    }
+
+    public Map<String, Object> estadisticasCoalescencia() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("porId", lecturasPorId.estadisticas());
+        stats.put("filtros", lecturasFiltradas.estadisticas());
+        return stats;
+    }
+
+    private List<Producto> filtrar(String nombre, String sku, Float precioVenta, String claseAbc) {
         List<Producto> productos = ((List<Producto>) productoRepository.findAll()).stream()
                 .filter(p -> Boolean.TRUE.equals(p.getActivo()))
                 .collect(Collectors.toList());
@@ -137,7 +274,35 @@ public class ProductoService {
                     .collect(Collectors.toList());
         }
 
-        log.info("Filtrado completado. Resultados: " + productos.size() + " productos");
+        if (claseAbc != null && !claseAbc.isBlank()) {
+            productos = productos.stream()
+                    .filter(p -> claseAbc.equalsIgnoreCase(p.getClaseAbc()))
+                    .collect(Collectors.toList());
+        }
+
+        log.info(FRECUENTE, "Filtrado completado. Resultados: {} productos", productos.size());
         return productos;
     }
-}
\ No newline at end of file
+
+    // Copia para las lecturas coalescidas (fechaModificacion no se copia:
+    // no tiene setter y no sale en el JSON)
+    private static Producto copiar(Producto producto) {
+        Producto copia = new Producto();
+        BeanUtils.copyProperties(producto, copia);
+        return copia;
+    }
+
+    private void publicarStock(Producto producto) {
+        if (producto.getId() == null || producto.getStockTotal() == null) {
+            return;
+        }
+        eventPublisher.publishEvent(new StockCambiadoEvent(producto.getId(), producto.getSku(), producto.getStockTotal(),
+                Boolean.TRUE.equals(producto.getActivo())));
+    }
+
+    private void publicarCambio(Producto producto) {
+        if (producto.getId() != null) {
+            eventPublisher.publishEvent(new ProductoCambiadoEvent(producto));
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.inventarioapiad.service;
 
 import com.example.inventarioapiad.entity.Proveedor;
+import com.example.inventarioapiad.jfr.FiltroJfr;
 import com.example.inventarioapiad.repository.ProveedorRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
@@ -11,6 +13,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static com.example.inventarioapiad.registro.Marcadores.FRECUENTE;
+
 @Service
 @Slf4j
 public class ProveedorService {
@@ -18,8 +22,9 @@ public class ProveedorService {
     @Autowired
     private ProveedorRepository proveedorRepository;
 
+    @Transactional
     public Proveedor crear(Proveedor proveedor) {
-        log.info("Creando proveedor: " + proveedor.getNombre());
+        log.info("Creando proveedor: {}", proveedor.getNombre());
 
         if (proveedor.getNombre() == null || proveedor.getNombre().isBlank()) {
             log.error("Error: Nombre del proveedor vacío");
@@ -35,12 +40,13 @@ public class ProveedorService {
         }
 
         Proveedor creado = proveedorRepository.save(proveedor);
-        log.info("Proveedor creado exitosamente con ID: " + creado.getId());
+        log.info("Proveedor creado exitosamente con ID: {}", creado.getId());
         return creado;
     }
 
+    @Transactional(readOnly = true)
     public Proveedor buscarPorId(Long id) {
-        log.info("Buscando proveedor con ID: " + id);
+        log.info(FRECUENTE, "Buscando proveedor con ID: {}", id);
 
         if (id == null || id <= 0) {
             log.error("Error: ID inválido");
@@ -49,18 +55,20 @@ public class ProveedorService {
 
         return proveedorRepository.findById(id)
                 .orElseThrow(() -> {
-                    log.error("Proveedor no encontrado con ID: " + id);
+                    log.error("Proveedor no encontrado con ID: {}", id);
                     return new RuntimeException("Proveedor no encontrado con ID: " + id);
                 });
     }
 
+    @Transactional(readOnly = true)
     public List<Proveedor> buscarTodos() {
-        log.info("Listando todos los proveedores");
+        log.info(FRECUENTE, "Listando todos los proveedores");
         return (List<Proveedor>) proveedorRepository.findAll();
     }
 
+    @Transactional
     public Proveedor actualizar(Long id, Proveedor proveedorActualizado) {
-        log.info("Actualizando proveedor con ID: " + id);
+        log.info("Actualizando proveedor con ID: {}", id);
 
         Proveedor proveedor = buscarPorId(id);
 
@@ -84,23 +92,27 @@ public class ProveedorService {
         }
 
         Proveedor actualizado = proveedorRepository.save(proveedor);
-        log.info("Proveedor actualizado exitosamente con ID: " + id);
+        log.info("Proveedor actualizado exitosamente con ID: {}", id);
         return actualizado;
     }
 
+    @Transactional
     public void eliminar(Long id) {
-        log.info("Eliminando proveedor con ID: " + id);
+        log.info("Eliminando proveedor con ID: {}", id);
 
         Proveedor proveedor = buscarPorId(id);
         proveedor.setActivo(false);
         proveedorRepository.save(proveedor);
 
-        log.info("Proveedor eliminado (soft delete) con ID: " + id);
+        log.info("Proveedor eliminado (soft delete) con ID: {}", id);
     }
 
     // FILTRADO: Buscar proveedores con hasta 3 campos
+    @Transactional(readOnly = true)
     public List<Proveedor> buscarConFiltros(String nombre, String email, Integer diasEntrega) {
-        log.info("Filtrando proveedores - nombre: " + nombre + ", email: " + email + ", diasEntrega: " + diasEntrega);
+        log.info(FRECUENTE, "Filtrando proveedores - nombre: {}, email: {}, diasEntrega: {}",
+                nombre, email, diasEntrega);
+        FiltroJfr evento = FiltroJfr.iniciar();
 
         List<Proveedor> proveedores = ((List<Proveedor>) proveedorRepository.findAll()).stream()
                 .filter(p -> Boolean.TRUE.equals(p.getActivo()))
@@ -124,7 +136,8 @@ public class ProveedorService {
                     .collect(Collectors.toList());
         }
 
-        log.info("Filtrado completado. Resultados: " + proveedores.size() + " proveedores");
+        log.info(FRECUENTE, "Filtrado completado. Resultados: {} proveedores", proveedores.size());
+        evento.terminar("proveedores", proveedores.size(), nombre, email, diasEntrega);
         return proveedores;
     }
 }
\ No newline at end of file
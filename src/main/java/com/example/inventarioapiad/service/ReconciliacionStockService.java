@@ -0,0 +1,418 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.dto.DescuadreStock;
+import com.example.inventarioapiad.entity.Almacen;
+import com.example.inventarioapiad.event.AlmacenCambiadoEvent;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.event.StockCambiadoEvent;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Reconciliación de los contadores de stock con el detalle por almacén.
+//
+// Producto.stockTotal y Almacen.stockActual los mantienen listeners
+// distintos, en transacciones distintas, y además se pueden editar a
+// mano. Aquí se recalculan desde stock_almacen:
+//   productos: SUM(cantidad) GROUP BY producto_id
+//   almacenes: SUM(cantidad) GROUP BY almacen_id
+// y se informa de lo que no cuadra.
+//
+// Incremental: cada movimiento, cambio de stock o de almacén marca el
+// producto / almacén como "sucio" y la pasada normal solo revisa esos
+// (cuesta lo que se ha movido, no lo que mide el catálogo). La pasada
+// completa recorre todos los productos por rangos de id. En los dos casos
+// los productos se revisan en trozos de "reconciliacion.tamano-lote" en
+// paralelo.
+//
+// Corregir es opcional. Como los listeners van uno detrás de otro, justo
+// después de un movimiento puede verse un descuadre que se arregla solo
+// en unos milisegundos; por eso antes de corregir se espera
+// "reconciliacion.espera-confirmacion-ms", se vuelve a leer y solo se
+// corrige si la diferencia sigue siendo la misma. El UPDATE además lleva
+// el valor leído en el WHERE: si alguien lo ha cambiado entre medias no se
+// toca y el producto vuelve a quedar sucio para la siguiente pasada.
+@Service
+@Slf4j
+public class ReconciliacionStockService {
+
+    private static final String SQL_PRODUCTOS =
+            "SELECT p.id, p.sku, p.activo, COALESCE(p.stock_total, 0), COALESCE(SUM(s.cantidad), 0) "
+            + "FROM productos p LEFT JOIN stock_almacen s ON s.producto_id = p.id "
+            + "WHERE %s GROUP BY p.id, p.sku, p.activo, p.stock_total";
+
+    private static final String SQL_ALMACENES =
+            "SELECT a.id, a.nombre, a.capacidad_maxima, a.activo, COALESCE(a.stock_actual, 0), COALESCE(SUM(s.cantidad), 0) "
+            + "FROM almacenes a LEFT JOIN stock_almacen s ON s.almacen_id = a.id "
+            + "WHERE %s GROUP BY a.id, a.nombre, a.capacidad_maxima, a.activo, a.stock_actual";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${reconciliacion.tamano-lote:1000}")
+    private int tamanoLote = 1000;
+
+    // 0 = tantos hilos como procesadores
+    @Value("${reconciliacion.paralelismo:0}")
+    private int paralelismo = 0;
+
+    // Si la pasada programada corrige o solo informa
+    @Value("${reconciliacion.corregir:false}")
+    private boolean corregirProgramado = false;
+
+    @Value("${reconciliacion.espera-confirmacion-ms:2000}")
+    private long esperaConfirmacionMs = 2000;
+
+    // Descuadres que se guardan en el informe (el recuento es siempre total)
+    @Value("${reconciliacion.max-descuadres:1000}")
+    private int maxDescuadres = 1000;
+
+    private final Set<Long> productosSucios = ConcurrentHashMap.newKeySet();
+    private final Set<Long> almacenesSucios = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean enCurso = new AtomicBoolean(false);
+    private volatile Map<String, Object> ultimoInforme = Map.of("estado", "SIN_EJECUTAR");
+
+    // ------------------------------------------------------------------
+    // Conjunto de sucios
+    // ------------------------------------------------------------------
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alMoverStock(MovimientoStockEvent movimiento) {
+        marcar(movimiento.getProductoId(), movimiento.getAlmacenId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarStock(StockCambiadoEvent evento) {
+        marcar(evento.getProductoId(), null);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarAlmacen(AlmacenCambiadoEvent evento) {
+        marcar(null, evento.getAlmacenId());
+    }
+
+    public void marcar(Long productoId, Long almacenId) {
+        if (productoId != null) {
+            productosSucios.add(productoId);
+        }
+        if (almacenId != null) {
+            almacenesSucios.add(almacenId);
+        }
+    }
+
+    public Map<String, Object> pendientes() {
+        Map<String, Object> pendientes = new LinkedHashMap<>();
+        pendientes.put("productos", productosSucios.size());
+        pendientes.put("almacenes", almacenesSucios.size());
+        pendientes.put("enCurso", enCurso.get());
+        return pendientes;
+    }
+
+    public Map<String, Object> ultimoInforme() {
+        return ultimoInforme;
+    }
+
+    // ------------------------------------------------------------------
+    // Pasadas
+    // ------------------------------------------------------------------
+
+    @Scheduled(cron = "${reconciliacion.cron:-}")
+    public void reconciliarProgramado() {
+        try {
+            reconciliar(false, corregirProgramado);
+        } catch (IllegalStateException e) {
+            log.warn("Reconciliación programada omitida: {}", e.getMessage());
+        }
+    }
+
+    // completa=false: solo lo marcado como sucio desde la última pasada
+    public Map<String, Object> reconciliar(boolean completa, boolean corregir) {
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una reconciliación en curso");
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            List<Trozo> trozosProductos = completa ? trozosPorRango() : trozosDe(vaciar(productosSucios));
+            Trozo trozoAlmacenes = completa ? new Trozo(null, null, null) : new Trozo(vaciar(almacenesSucios), null, null);
+
+            List<DescuadreStock> descuadres = new ArrayList<>(revisarEnParalelo(trozosProductos));
+            int productosRevisados = trozosProductos.stream().mapToInt(Trozo::tamano).sum();
+            if (trozoAlmacenes.ids == null || trozoAlmacenes.ids.length > 0) {
+                descuadres.addAll(revisarAlmacenes(trozoAlmacenes));
+            }
+
+            int corregidos = 0;
+            if (corregir && !descuadres.isEmpty()) {
+                corregidos = corregir(descuadres);
+            }
+
+            descuadres.sort(Comparator.comparingLong((DescuadreStock d) -> Math.abs(d.getDiferencia())).reversed());
+            Map<String, Object> informe = new LinkedHashMap<>();
+            informe.put("fecha", LocalDateTime.now());
+            informe.put("completa", completa);
+            informe.put("corregir", corregir);
+            if (!completa) {
+                informe.put("productosRevisados", productosRevisados);
+            }
+            informe.put("trozos", trozosProductos.size());
+            informe.put("descuadres", descuadres.size());
+            informe.put("corregidos", corregidos);
+            informe.put("ms", System.currentTimeMillis() - inicio);
+            informe.put("detalle", descuadres.size() > maxDescuadres ? descuadres.subList(0, maxDescuadres) : descuadres);
+            ultimoInforme = informe;
+
+            if (descuadres.isEmpty()) {
+                log.info("Reconciliación de stock sin descuadres ({} ms)", informe.get("ms"));
+            } else {
+                log.warn("Reconciliación de stock: {} descuadres, {} corregidos ({} ms)",
+                        descuadres.size(), corregidos, informe.get("ms"));
+            }
+            return informe;
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    // Un trozo de productos: o una lista de ids o un rango [desde, hasta].
+    // Para almacenes, ids == null y sin rango significa "todos".
+    private static final class Trozo {
+        final long[] ids;
+        final Long desde;
+        final Long hasta;
+
+        Trozo(long[] ids, Long desde, Long hasta) {
+            this.ids = ids;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        int tamano() {
+            return ids != null ? ids.length : 0;
+        }
+
+        String where(String columna) {
+            if (ids != null) {
+                return columna + " IN (" + String.join(",", Collections.nCopies(ids.length, "?")) + ")";
+            }
+            if (desde != null) {
+                return columna + " BETWEEN ? AND ?";
+            }
+            return "1 = 1";
+        }
+
+        Object[] args() {
+            if (ids != null) {
+                return Arrays.stream(ids).boxed().toArray();
+            }
+            if (desde != null) {
+                return new Object[]{desde, hasta};
+            }
+            return new Object[0];
+        }
+    }
+
+    private static long[] vaciar(Set<Long> sucios) {
+        // Se quitan uno a uno: lo que se marque mientras tanto se queda
+        // para la siguiente pasada
+        List<Long> ids = new ArrayList<>(sucios);
+        ids.forEach(sucios::remove);
+        return ids.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private List<Trozo> trozosDe(long[] ids) {
+        List<Trozo> trozos = new ArrayList<>();
+        for (int i = 0; i < ids.length; i += tamanoLote) {
+            trozos.add(new Trozo(Arrays.copyOfRange(ids, i, Math.min(ids.length, i + tamanoLote)), null, null));
+        }
+        return trozos;
+    }
+
+    private List<Trozo> trozosPorRango() {
+        List<Trozo> trozos = new ArrayList<>();
+        jdbcTemplate.query("SELECT MIN(id), MAX(id) FROM productos", rs -> {
+            long min = rs.getLong(1);
+            if (rs.wasNull()) {
+                return;
+            }
+            long max = rs.getLong(2);
+            for (long desde = min; desde <= max; desde += tamanoLote) {
+                trozos.add(new Trozo(null, desde, Math.min(max, desde + tamanoLote - 1)));
+            }
+        });
+        return trozos;
+    }
+
+    private List<DescuadreStock> revisarEnParalelo(List<Trozo> trozos) {
+        if (trozos.isEmpty()) {
+            return List.of();
+        }
+        if (trozos.size() == 1) {
+            return revisarProductos(trozos.get(0));
+        }
+        ForkJoinPool pool = paralelismo > 0 ? new ForkJoinPool(paralelismo) : new ForkJoinPool();
+        try {
+            List<Callable<List<DescuadreStock>>> tareas = new ArrayList<>();
+            for (Trozo trozo : trozos) {
+                tareas.add(() -> revisarProductos(trozo));
+            }
+            List<DescuadreStock> descuadres = new ArrayList<>();
+            for (Future<List<DescuadreStock>> resultado : pool.invokeAll(tareas)) {
+                descuadres.addAll(resultado.get());
+            }
+            return descuadres;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconciliación interrumpida");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error revisando un trozo de productos: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private List<DescuadreStock> revisarProductos(Trozo trozo) {
+        List<DescuadreStock> descuadres = new ArrayList<>();
+        jdbcTemplate.query(String.format(SQL_PRODUCTOS, trozo.where("p.id")), rs -> {
+            long registrado = rs.getLong(4);
+            long calculado = rs.getLong(5);
+            if (registrado != calculado) {
+                descuadres.add(new DescuadreStock("PRODUCTO", rs.getLong(1), rs.getString(2),
+                        registrado, calculado, registrado - calculado, false));
+            }
+        }, trozo.args());
+        return descuadres;
+    }
+
+    private List<DescuadreStock> revisarAlmacenes(Trozo trozo) {
+        List<DescuadreStock> descuadres = new ArrayList<>();
+        jdbcTemplate.query(String.format(SQL_ALMACENES, trozo.where("a.id")), rs -> {
+            long registrado = rs.getLong(5);
+            long calculado = rs.getLong(6);
+            if (registrado != calculado) {
+                descuadres.add(new DescuadreStock("ALMACEN", rs.getLong(1), rs.getString(2),
+                        registrado, calculado, registrado - calculado, false));
+            }
+        }, trozo.args());
+        return descuadres;
+    }
+
+    // ------------------------------------------------------------------
+    // Corrección
+    // ------------------------------------------------------------------
+
+    private int corregir(List<DescuadreStock> descuadres) {
+        try {
+            Thread.sleep(esperaConfirmacionMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+
+        Map<Long, DescuadreStock> productos = porTipo(descuadres, "PRODUCTO");
+        Map<Long, DescuadreStock> almacenes = porTipo(descuadres, "ALMACEN");
+
+        // Segunda lectura: solo se corrige lo que sigue igual
+        List<Object[]> productosConfirmados = new ArrayList<>();
+        for (Trozo trozo : trozosDe(ids(productos))) {
+            jdbcTemplate.query(String.format(SQL_PRODUCTOS, trozo.where("p.id")), rs -> {
+                long id = rs.getLong(1);
+                if (confirmado(productos.get(id), rs.getLong(4), rs.getLong(5))) {
+                    productosConfirmados.add(new Object[]{id, rs.getString(2), rs.getBoolean(3)});
+                } else {
+                    productosSucios.add(id);
+                }
+            }, trozo.args());
+        }
+        List<Object[]> almacenesConfirmados = new ArrayList<>();
+        if (!almacenes.isEmpty()) {
+            Trozo trozo = new Trozo(ids(almacenes), null, null);
+            jdbcTemplate.query(String.format(SQL_ALMACENES, trozo.where("a.id")), rs -> {
+                long id = rs.getLong(1);
+                if (confirmado(almacenes.get(id), rs.getLong(5), rs.getLong(6))) {
+                    Integer capacidad = rs.getInt(3);
+                    if (rs.wasNull()) {
+                        capacidad = null;
+                    }
+                    almacenesConfirmados.add(new Object[]{id, rs.getString(2), capacidad, rs.getBoolean(4)});
+                } else {
+                    almacenesSucios.add(id);
+                }
+            }, trozo.args());
+        }
+
+        // El valor leído va en el WHERE: si ha cambiado entre medias no se toca
+        int corregidos = 0;
+        for (Object[] fila : productosConfirmados) {
+            DescuadreStock descuadre = productos.get((Long) fila[0]);
+            if (jdbcTemplate.update("UPDATE productos SET stock_total = ? WHERE id = ? AND COALESCE(stock_total, 0) = ?",
+                    descuadre.getCalculado(), descuadre.getId(), descuadre.getRegistrado()) == 1) {
+                descuadre.setCorregido(true);
+                corregidos++;
+                eventPublisher.publishEvent(new StockCambiadoEvent(descuadre.getId(), (String) fila[1],
+                        (int) descuadre.getCalculado(), (Boolean) fila[2]));
+            } else {
+                productosSucios.add(descuadre.getId());
+            }
+        }
+        for (Object[] fila : almacenesConfirmados) {
+            DescuadreStock descuadre = almacenes.get((Long) fila[0]);
+            if (jdbcTemplate.update("UPDATE almacenes SET stock_actual = ? WHERE id = ? AND COALESCE(stock_actual, 0) = ?",
+                    descuadre.getCalculado(), descuadre.getId(), descuadre.getRegistrado()) == 1) {
+                descuadre.setCorregido(true);
+                corregidos++;
+                // El UPDATE no pasa por Hibernate: fuera de la caché de segundo nivel
+                entityManagerFactory.getCache().evict(Almacen.class, descuadre.getId());
+                eventPublisher.publishEvent(new AlmacenCambiadoEvent(descuadre.getId(), (String) fila[1],
+                        (Integer) fila[2], (int) descuadre.getCalculado(), (Boolean) fila[3]));
+            } else {
+                almacenesSucios.add(descuadre.getId());
+            }
+        }
+        return corregidos;
+    }
+
+    // Sigue descuadrado y con la misma diferencia que en la primera lectura
+    private static boolean confirmado(DescuadreStock descuadre, long registrado, long calculado) {
+        return descuadre != null && registrado != calculado
+                && descuadre.getRegistrado() == registrado && descuadre.getCalculado() == calculado;
+    }
+
+    private static long[] ids(Map<Long, DescuadreStock> descuadres) {
+        return descuadres.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private static Map<Long, DescuadreStock> porTipo(List<DescuadreStock> descuadres, String tipo) {
+        Map<Long, DescuadreStock> porId = new LinkedHashMap<>();
+        descuadres.stream().filter(d -> tipo.equals(d.getTipo())).forEach(d -> porId.put(d.getId(), d));
+        return porId;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.inventarioapiad.service;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.Appender;
+import com.example.inventarioapiad.registro.AppenderAsincrono;
+import com.example.inventarioapiad.registro.FiltroMuestreo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Contadores de los logs (logback-spring.xml): mensajes encolados y
+// descartados por el appender asíncrono y lo que ha quitado el muestreo.
+// Logback crea esos objetos él mismo, así que se buscan en su contexto.
+@Service
+public class RegistroService {
+
+    private static final String APPENDER = "ASINCRONO";
+
+    public Map<String, Object> estado() {
+        LoggerContext contexto = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+        Map<String, Object> estado = new LinkedHashMap<>();
+        Appender<?> appender = contexto.getLogger(Logger.ROOT_LOGGER_NAME).getAppender(APPENDER);
+        if (appender instanceof AppenderAsincrono asincrono) {
+            long encolados = asincrono.getEncolados();
+            long descartados = asincrono.getDescartados();
+            estado.put("asincrono", true);
+            estado.put("buffer", asincrono.getRingBufferSize());
+            estado.put("pendientes", asincrono.getPendientes());
+            estado.put("encolados", encolados);
+            estado.put("descartados", descartados);
+            estado.put("ratioDescartados", encolados + descartados == 0 ? 0.0
+                    : Math.round(100000.0 * descartados / (encolados + descartados)) / 100000.0);
+        } else {
+            // Arrancado sin logback-spring.xml (configuración por defecto)
+            estado.put("asincrono", false);
+        }
+
+        List<Map<String, Object>> muestreo = new ArrayList<>();
+        for (TurboFilter filtro : contexto.getTurboFilterList()) {
+            if (filtro instanceof FiltroMuestreo muestras) {
+                muestreo.addAll(muestras.estadisticas());
+            }
+        }
+        estado.put("muestreo", muestreo);
+        return estado;
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.entity.EjecucionRepreciado;
+import com.example.inventarioapiad.externo.CircuitBreaker;
+import com.example.inventarioapiad.externo.PrecioExterno;
+import com.example.inventarioapiad.externo.PreciosExternosClient;
+import com.example.inventarioapiad.repository.EjecucionRepreciadoRepository;
+import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.repository.ProductoRepository.PrecioActual;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Repreciado masivo: actualiza Producto.precioVenta con lo que diga el
+// servicio externo de precios (GET /api/precios/{sku}).
+//
+// Cómo funciona cada ejecución:
+//   1. Recorre los productos activos por páginas keyset (id > último id).
+//   2. Para cada página pide los precios en paralelo, pero como mucho
+//      "paralelismo" llamadas a la vez: si no hay hueco el bucle espera
+//      (backpressure), así no se encolan miles de futuros en memoria.
+//   3. Compara con el precioVenta actual y solo escribe los que cambian,
+//      en un único batch JDBC por página.
+//   4. En la misma transacción que el batch guarda el cursor y los
+//      contadores en EjecucionRepreciado. Si la app se cae, la siguiente
+//      ejecución reanuda desde el último lote confirmado.
+//   5. Si una página tiene fallos y el circuito del cliente ha quedado
+//      abierto, la ejecución para como FALLIDA sin confirmar esa página:
+//      la siguiente la vuelve a pedir entera.
+//
+// Se lanza con POST /api/repreciado o con el cron "repreciado.cron".
+@Service
+@Slf4j
+public class RepreciadoService {
+
+    static final String EN_CURSO = "EN_CURSO";
+    static final String COMPLETADA = "COMPLETADA";
+    static final String INTERRUMPIDA = "INTERRUMPIDA";
+    static final String FALLIDA = "FALLIDA";
+
+    // Cuántos SKUs con error guardamos para el informe (no todos)
+    private static final int MAX_MUESTRA_ERRORES = 20;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private EjecucionRepreciadoRepository ejecucionRepository;
+
+    @Autowired
+    private PreciosExternosClient preciosClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${repreciado.tamano-lote:500}")
+    private int tamanoLote = 500;
+
+    @Value("${repreciado.paralelismo:10}")
+    private int paralelismo = 10;
+
+    private final AtomicBoolean enCurso = new AtomicBoolean(false);
+    private final AtomicBoolean detenerSolicitado = new AtomicBoolean(false);
+    private final ExecutorService ejecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "repreciado");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // Estado en memoria de la ejecución activa (para el progreso en vivo)
+    private volatile EjecucionRepreciado actual;
+    private volatile long inicioNanos;
+    private volatile long procesadosAlInicio;
+    private final ConcurrentLinkedQueue<String> muestraErrores = new ConcurrentLinkedQueue<>();
+
+    // Lanza el repreciado en un hilo aparte y vuelve al momento.
+    public EjecucionRepreciado iniciarEnSegundoPlano() {
+        EjecucionRepreciado ejecucion = prepararEjecucion();
+        ejecutor.submit(() -> procesar(ejecucion));
+        return ejecucion;
+    }
+
+    // Ejecuta el repreciado completo en el hilo actual (lo usa el cron).
+    public EjecucionRepreciado ejecutar() {
+        EjecucionRepreciado ejecucion = prepararEjecucion();
+        procesar(ejecucion);
+        return ejecucion;
+    }
+
+    @Scheduled(cron = "${repreciado.cron:-}")
+    public void ejecutarProgramado() {
+        if (enCurso.get()) {
+            log.info("Repreciado programado omitido: ya hay una ejecución en curso");
+            return;
+        }
+        try {
+            ejecutar();
+        } catch (IllegalStateException e) {
+            log.info("Repreciado programado omitido: {}", e.getMessage());
+        }
+    }
+
+    // Pide parar al final del lote actual. El cursor queda guardado y la
+    // próxima ejecución continúa desde ahí.
+    public void detener() {
+        if (!enCurso.get()) {
+            throw new IllegalStateException("No hay ningún repreciado en curso");
+        }
+        log.info("Solicitada la detención del repreciado");
+        detenerSolicitado.set(true);
+    }
+
+    // Progreso de la ejecución activa o, si no hay, de la última.
+    public Map<String, Object> estado() {
+        EjecucionRepreciado ejecucion = actual;
+        boolean activa = enCurso.get() && ejecucion != null;
+        if (!activa) {
+            Optional<EjecucionRepreciado> ultima = ejecucionRepository.findFirstByOrderByIdDesc();
+            if (ultima.isEmpty()) {
+                throw new RuntimeException("Todavía no se ha ejecutado ningún repreciado");
+            }
+            ejecucion = ultima.get();
+        }
+
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("id", ejecucion.getId());
+        estado.put("estado", ejecucion.getEstado());
+        estado.put("enCurso", activa);
+        estado.put("ultimoIdProcesado", ejecucion.getUltimoIdProcesado());
+        estado.put("procesados", ejecucion.getProcesados());
+        estado.put("actualizados", ejecucion.getActualizados());
+        estado.put("sinCambios", ejecucion.getSinCambios());
+        estado.put("noEncontrados", ejecucion.getNoEncontrados());
+        estado.put("fallidos", ejecucion.getFallidos());
+        estado.put("productosPorSegundo", calcularRitmo(ejecucion, activa));
+        estado.put("fechaInicio", ejecucion.getFechaInicio());
+        estado.put("fechaFin", ejecucion.getFechaFin());
+        estado.put("mensaje", ejecucion.getMensaje());
+        if (activa) {
+            estado.put("muestraErrores", new ArrayList<>(muestraErrores));
+        }
+        return estado;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        detenerSolicitado.set(true);
+        ejecutor.shutdown();
+    }
+
+    // ------------------------------------------------------------------
+
+    // Reanuda la última ejecución a medias o crea una nueva.
+    private EjecucionRepreciado prepararEjecucion() {
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay un repreciado en curso");
+        }
+        try {
+            detenerSolicitado.set(false);
+            muestraErrores.clear();
+
+            // Si hay una EN_CURSO es que la app se cayó en mitad (en este
+            // proceso no corre ninguna, lo acabamos de comprobar). Las
+            // detenidas o fallidas también continúan desde su cursor.
+            EjecucionRepreciado ejecucion = ejecucionRepository
+                    .findFirstByEstadoInOrderByIdDesc(List.of(EN_CURSO, INTERRUMPIDA, FALLIDA))
+                    .orElseGet(EjecucionRepreciado::new);
+            if (ejecucion.getId() != null) {
+                log.info("Reanudando repreciado {} desde el producto {}",
+                        ejecucion.getId(), ejecucion.getUltimoIdProcesado());
+            }
+            ejecucion.setEstado(EN_CURSO);
+            ejecucion.setFechaFin(null);
+            ejecucion.setMensaje(null);
+            ejecucion = ejecucionRepository.save(ejecucion);
+
+            actual = ejecucion;
+            inicioNanos = System.nanoTime();
+            procesadosAlInicio = ejecucion.getProcesados();
+            return ejecucion;
+        } catch (RuntimeException e) {
+            enCurso.set(false);
+            throw e;
+        }
+    }
+
+    private void procesar(EjecucionRepreciado ejecucion) {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        Semaphore huecos = new Semaphore(paralelismo);
+
+        try {
+            String motivoParada = null;
+            while (!detenerSolicitado.get()) {
+                List<PrecioActual> pagina = productoRepository.findPaginaPrecios(
+                        ejecucion.getUltimoIdProcesado(), PageRequest.of(0, tamanoLote));
+                if (pagina.isEmpty()) {
+                    break;
+                }
+
+                ResultadoPagina resultado = consultarPrecios(pagina, huecos);
+                long ultimoId = pagina.get(pagina.size() - 1).getId();
+
+                // Circuito abierto: los fallos de esta página no son de los
+                // productos sino del servicio. No se confirma la página y el
+                // cursor se queda al principio de ella para reintentarla.
+                if (resultado.fallidos > 0 && circuitoAbierto()) {
+                    motivoParada = "Circuito abierto en el servicio de precios: "
+                            + resultado.fallidos + " fallos en el lote desde el id " + ejecucion.getUltimoIdProcesado();
+                    break;
+                }
+
+                // Cursor y contadores van en la misma transacción que el batch.
+                // Si no se confirma se deshacen también en memoria, para que
+                // el save final no guarde un cursor por delante de la BD.
+                long cursorAnterior = ejecucion.getUltimoIdProcesado();
+                try {
+                    transaccion.executeWithoutResult(status -> {
+                        resultado.sumarA(ejecucion, ultimoId);
+                        if (!resultado.cambios.isEmpty()) {
+                            jdbcTemplate.batchUpdate("UPDATE productos SET precio_venta = ? WHERE id = ?",
+                                    resultado.cambios);
+                        }
+                        ejecucionRepository.save(ejecucion);
+                    });
+                } catch (RuntimeException e) {
+                    resultado.deshacerEn(ejecucion, cursorAnterior);
+                    throw e;
+                }
+
+                log.info("Repreciado {}: lote hasta id {} ({} cambios de {})", ejecucion.getId(), ultimoId,
+                        resultado.cambios.size(), pagina.size());
+            }
+
+            boolean detenido = detenerSolicitado.get();
+            if (motivoParada != null) {
+                ejecucion.setEstado(FALLIDA);
+                ejecucion.setMensaje(motivoParada);
+                log.warn("Repreciado {} parado: {}", ejecucion.getId(), motivoParada);
+            } else {
+                ejecucion.setEstado(detenido ? INTERRUMPIDA : COMPLETADA);
+                ejecucion.setMensaje((detenido ? "Detenido" : "Completado") + " tras procesar "
+                        + (ejecucion.getProcesados() - procesadosAlInicio) + " productos en esta pasada");
+                log.info("Repreciado {} {}: {} precios actualizados", ejecucion.getId(), ejecucion.getEstado(),
+                        ejecucion.getActualizados());
+            }
+            ejecucion.setFechaFin(LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("Repreciado {} fallido: {}", ejecucion.getId(), e.getMessage());
+            ejecucion.setEstado(FALLIDA);
+            ejecucion.setFechaFin(LocalDateTime.now());
+            ejecucion.setMensaje("Error: " + e.getMessage());
+        } finally {
+            try {
+                ejecucionRepository.save(ejecucion);
+            } finally {
+                enCurso.set(false);
+            }
+        }
+    }
+
+    private boolean circuitoAbierto() {
+        CircuitBreaker.Estado estado = preciosClient.getEstadoCircuito();
+        return estado == CircuitBreaker.Estado.ABIERTO || estado == CircuitBreaker.Estado.SEMIABIERTO;
+    }
+
+    // Pide los precios de una página con como mucho "paralelismo" llamadas
+    // en vuelo. Los contadores se acumulan en el resultado de la página y
+    // solo pasan a la ejecución cuando se confirma.
+    private ResultadoPagina consultarPrecios(List<PrecioActual> pagina, Semaphore huecos) throws InterruptedException {
+        ResultadoPagina resultado = new ResultadoPagina();
+        List<CompletableFuture<Object[]>> futuros = new ArrayList<>(pagina.size());
+
+        for (PrecioActual producto : pagina) {
+            huecos.acquire();  // backpressure: esperamos si ya hay "paralelismo" en vuelo
+            CompletableFuture<Object[]> futuro = preciosClient.obtenerPrecio(producto.getSku())
+                    .handle((precio, error) -> compararPrecio(producto, precio, error, resultado));
+            futuro.whenComplete((r, e) -> huecos.release());
+            futuros.add(futuro);
+        }
+
+        for (CompletableFuture<Object[]> futuro : futuros) {
+            Object[] cambio = futuro.join();
+            if (cambio != null) {
+                resultado.cambios.add(cambio);
+            }
+        }
+        resultado.procesados = futuros.size();
+        return resultado;
+    }
+
+    // Devuelve {nuevoPrecio, id} si hay que actualizar, null si no.
+    private Object[] compararPrecio(PrecioActual producto, Optional<PrecioExterno> precio, Throwable error,
+                                    ResultadoPagina resultado) {
+        if (error != null) {
+            incrementarFallidos(resultado, producto.getSku(), error);
+            return null;
+        }
+        if (precio.isEmpty() || precio.get().getPrecio() == null) {
+            synchronized (resultado) {
+                resultado.noEncontrados++;
+            }
+            return null;
+        }
+
+        float nuevo = precio.get().getPrecio();
+        if (nuevo <= 0) {
+            incrementarFallidos(resultado, producto.getSku(), new IllegalArgumentException("precio no positivo: " + nuevo));
+            return null;
+        }
+        Float viejo = producto.getPrecioVenta();
+        if (viejo != null && Math.abs(viejo - nuevo) < 0.0001f) {
+            synchronized (resultado) {
+                resultado.sinCambios++;
+            }
+            return null;
+        }
+        return new Object[]{nuevo, producto.getId()};
+    }
+
+    private void incrementarFallidos(ResultadoPagina resultado, String sku, Throwable error) {
+        synchronized (resultado) {
+            resultado.fallidos++;
+        }
+        if (muestraErrores.size() < MAX_MUESTRA_ERRORES) {
+            Throwable causa = error.getCause() != null ? error.getCause() : error;
+            muestraErrores.add(sku + ": " + causa.getMessage());
+        }
+    }
+
+    // Productos por segundo. En la ejecución activa solo cuenta esta pasada
+    // (si es una reanudación, lo procesado antes de la caída no computa).
+    private double calcularRitmo(EjecucionRepreciado ejecucion, boolean activa) {
+        long procesados;
+        Duration duracion;
+        if (activa) {
+            procesados = ejecucion.getProcesados() - procesadosAlInicio;
+            duracion = Duration.ofNanos(System.nanoTime() - inicioNanos);
+        } else {
+            procesados = ejecucion.getProcesados();
+            duracion = Duration.between(ejecucion.getFechaInicio(),
+                    ejecucion.getFechaFin() != null ? ejecucion.getFechaFin() : LocalDateTime.now());
+        }
+        double segundos = duracion.toMillis() / 1000.0;
+        return segundos > 0 ? Math.round(procesados / segundos * 10) / 10.0 : 0.0;
+    }
+
+    // Lo que ha salido de una página. Los callbacks de los precios suman en
+    // paralelo (de ahí los synchronized); a la ejecución pasa al confirmar.
+    private static class ResultadoPagina {
+        final List<Object[]> cambios = new ArrayList<>();
+        long procesados;
+        long sinCambios;
+        long noEncontrados;
+        long fallidos;
+
+        void sumarA(EjecucionRepreciado ejecucion, long ultimoId) {
+            ejecucion.setUltimoIdProcesado(ultimoId);
+            ejecucion.setProcesados(ejecucion.getProcesados() + procesados);
+            ejecucion.setActualizados(ejecucion.getActualizados() + cambios.size());
+            ejecucion.setSinCambios(ejecucion.getSinCambios() + sinCambios);
+            ejecucion.setNoEncontrados(ejecucion.getNoEncontrados() + noEncontrados);
+            ejecucion.setFallidos(ejecucion.getFallidos() + fallidos);
+        }
+
+        void deshacerEn(EjecucionRepreciado ejecucion, long cursorAnterior) {
+            ejecucion.setUltimoIdProcesado(cursorAnterior);
+            ejecucion.setProcesados(ejecucion.getProcesados() - procesados);
+            ejecucion.setActualizados(ejecucion.getActualizados() - cambios.size());
+            ejecucion.setSinCambios(ejecucion.getSinCambios() - sinCambios);
+            ejecucion.setNoEncontrados(ejecucion.getNoEncontrados() - noEncontrados);
+            ejecucion.setFallidos(ejecucion.getFallidos() - fallidos);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.entity.StockAlmacen;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.jfr.AjusteStockJfr;
+import com.example.inventarioapiad.repository.StockAlmacenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Stock por (producto, almacén) en la tabla stock_almacen.
+//
+// Cada movimiento de compra/venta suma o resta en su fila con un único
+// INSERT ... ON DUPLICATE KEY UPDATE (crea la fila la primera vez y nunca
+// baja de 0, igual que los contadores). Los traspasos no pasan por el
+// evento: TraspasoService llama a ajustar() dentro de su transacción, con
+// los almacenes bloqueados, para poder comprobar antes que hay unidades
+// de ESE producto en el origen.
+//
+// Si la tabla está vacía al arrancar se siembra desde el histórico de
+// compras recibidas, ventas no canceladas y traspasos.
+@Service
+@Slf4j
+public class StockAlmacenService {
+
+    private static final String SQL_AJUSTAR =
+            "INSERT INTO stock_almacen (producto_id, almacen_id, cantidad, fecha_actualizacion) "
+            + "VALUES (?, ?, GREATEST(?, 0), ?) "
+            + "ON DUPLICATE KEY UPDATE cantidad = GREATEST(cantidad + ?, 0), fecha_actualizacion = ?";
+
+    private static final String SQL_SEMBRAR =
+            "INSERT INTO stock_almacen (producto_id, almacen_id, cantidad, fecha_actualizacion) "
+            + "SELECT producto_id, almacen_id, GREATEST(SUM(cantidad), 0), ? FROM ("
+            + "  SELECT producto_id, almacen_id, cantidad FROM %s c WHERE estado = 'RECIBIDA'"
+            + "  UNION ALL SELECT producto_id, almacen_id, -cantidad FROM %s v WHERE estado <> 'CANCELADA'"
+            + "  UNION ALL SELECT producto_id, almacen_origen_id, -cantidad FROM traspasos WHERE estado <> 'CANCELADO'"
+            + "  UNION ALL SELECT producto_id, almacen_destino_id, cantidad FROM traspasos WHERE estado = 'COMPLETADO'"
+            + ") m GROUP BY producto_id, almacen_id";
+
+    @Autowired
+    private StockAlmacenRepository stockAlmacenRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ArchivoService archivoService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        Integer filas = jdbcTemplate.query("SELECT 1 FROM stock_almacen LIMIT 1",
+                rs -> rs.next() ? 1 : 0);
+        if (filas == null || filas == 0) {
+            sembrar();
+        }
+    }
+
+    // Rehace la tabla desde el histórico. Pensado para el arranque o para
+    // después de una carga masiva; con movimientos entrando a la vez alguno
+    // podría contarse dos veces (lo detectaría la reconciliación).
+    @Transactional
+    public Map<String, Object> sembrar() {
+        long inicio = System.currentTimeMillis();
+        jdbcTemplate.update("DELETE FROM stock_almacen");
+        // Compras y ventas archivadas también cuentan
+        String sql = String.format(SQL_SEMBRAR, archivoService.historico("compras"), archivoService.historico("ventas"));
+        int filas = jdbcTemplate.update(sql, LocalDateTime.now());
+
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("filas", filas);
+        resumen.put("ms", System.currentTimeMillis() - inicio);
+        log.info("Stock por almacén sembrado desde el histórico: {}", resumen);
+        return resumen;
+    }
+
+    // Justo antes del commit de la compra/venta, con su misma conexión: si
+    // falla no se confirma nada (ver ProductoService.alMoverStock)
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void alMoverStock(MovimientoStockEvent movimiento) {
+        // Los traspasos ya se han aplicado en su propia transacción
+        if (movimiento.getProductoId() == null || movimiento.getAlmacenId() == null
+                || "TRASPASO".equals(movimiento.getOrigen())) {
+            return;
+        }
+        ajustar(movimiento.getProductoId(), movimiento.getAlmacenId(), movimiento.getDelta(), movimiento.getOrigen());
+    }
+
+    // Suma (o resta) unidades en la fila del producto en el almacén.
+    // Se une a la transacción del que llama si la hay. Desde fuera solo lo
+    // usa TraspasoService.
+    public void ajustar(Long productoId, Long almacenId, int delta) {
+        ajustar(productoId, almacenId, delta, "TRASPASO");
+    }
+
+    private void ajustar(Long productoId, Long almacenId, int delta, String origen) {
+        AjusteStockJfr evento = AjusteStockJfr.iniciar();
+        LocalDateTime ahora = LocalDateTime.now();
+        int filas = jdbcTemplate.update(SQL_AJUSTAR, productoId, almacenId, delta, ahora, delta, ahora);
+        evento.terminar(AjusteStockJfr.PRODUCTO_ALMACEN, productoId, almacenId, delta, origen, filas);
+    }
+
+    public int disponible(Long productoId, Long almacenId) {
+        List<Integer> cantidad = jdbcTemplate.queryForList(
+                "SELECT cantidad FROM stock_almacen WHERE producto_id = ? AND almacen_id = ?",
+                Integer.class, productoId, almacenId);
+        return cantidad.isEmpty() ? 0 : cantidad.get(0);
+    }
+
+    public List<StockAlmacen> buscar(Long productoId, Long almacenId) {
+        if (productoId != null && almacenId != null) {
+            return stockAlmacenRepository.findByProductoIdOrderByAlmacenId(productoId).stream()
+                    .filter(s -> almacenId.equals(s.getAlmacenId()))
+                    .toList();
+        }
+        if (productoId != null) {
+            return stockAlmacenRepository.findByProductoIdOrderByAlmacenId(productoId);
+        }
+        if (almacenId != null) {
+            return stockAlmacenRepository.findByAlmacenIdOrderByProductoId(almacenId);
+        }
+        throw new IllegalArgumentException("Indica productoId, almacenId o los dos");
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.dto.PedidoSugerido;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Generador de pedidos de compra sugeridos (proceso batch, pensado para la
+// noche).
+//
+// Para cada producto activo:
+//   posición      = stockTotal + unidades en compras PENDIENTE
+//   ventasDiarias = ventas de los últimos "alertas.ventana-dias" / ventana
+//   puntoPedido   = ventasDiarias x (diasEntrega + diasSeguridad)
+//   si posición <= puntoPedido se pide hasta cubrir además
+//   "sugerencias.dias-cobertura" días: ventasDiarias x (diasEntrega +
+//   diasSeguridad + diasCobertura) - posición
+//
+// El proveedor (y su diasEntrega) y el almacén destino son los de la
+// última compra del producto. Las cantidades se reparten respetando la
+// capacidadMaxima libre de cada almacén (stockActual + lo pendiente de
+// recibir cuenta como ocupado): si el almacén habitual no tiene sitio, el
+// resto va al que más hueco tenga. Se reparte primero a los productos con
+// menos días de cobertura.
+//
+// Los datos se cargan en arrays de primitivos (un catálogo de 1M de SKUs
+// son unas decenas de MB, no millones de objetos) y el cálculo por
+// producto se hace en paralelo con fork/join sobre rangos del array.
+@Service
+@Slf4j
+public class SugerenciaCompraService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${alertas.ventana-dias:28}")
+    private int ventanaDias = 28;
+
+    @Value("${alertas.dias-seguridad:3}")
+    private int diasSeguridad = 3;
+
+    @Value("${alertas.dias-entrega-defecto:7}")
+    private int diasEntregaDefecto = 7;
+
+    @Value("${sugerencias.dias-cobertura:14}")
+    private int diasCobertura = 14;
+
+    // 0 = tantos hilos como procesadores
+    @Value("${sugerencias.paralelismo:0}")
+    private int paralelismo = 0;
+
+    // Por debajo de este número de productos una tarea ya no se divide
+    @Value("${sugerencias.umbral-particion:10000}")
+    private int umbralParticion = 10_000;
+
+    // Filas por tanda al recorrer las compras
+    @Value("${sugerencias.tamano-lote:1000}")
+    private int tamanoLote = 1000;
+
+    private final AtomicBoolean enCurso = new AtomicBoolean(false);
+    private volatile List<PedidoSugerido> ultimosPedidos = List.of();
+    private volatile Map<String, Object> ultimoResumen = Map.of("estado", "SIN_EJECUTAR");
+
+    @Scheduled(cron = "${sugerencias.cron:-}")
+    public void generarProgramado() {
+        try {
+            generar();
+        } catch (IllegalStateException e) {
+            log.warn("Sugerencias de compra programadas omitidas: {}", e.getMessage());
+        }
+    }
+
+    // Carga los datos, calcula y deja el resultado como "última generación"
+    public Map<String, Object> generar() {
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una generación de sugerencias en curso");
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            Catalogo catalogo = new Catalogo();
+            Map<Long, CapacidadAlmacen> almacenes = new LinkedHashMap<>();
+            Map<Long, String> proveedores = new HashMap<>();
+            cargar(catalogo, almacenes, proveedores);
+            long msCarga = System.currentTimeMillis() - inicio;
+
+            Map<String, Object> resumen = calcular(catalogo, new ArrayList<>(almacenes.values()), proveedores);
+            resumen.put("msCarga", msCarga);
+            resumen.put("msTotal", System.currentTimeMillis() - inicio);
+            ultimoResumen = resumen;
+
+            log.info("Sugerencias de compra generadas: {}", resumen);
+            return resumen;
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    public Map<String, Object> resumen() {
+        return ultimoResumen;
+    }
+
+    // Pedidos de la última generación, opcionalmente de un proveedor/almacén
+    public List<PedidoSugerido> pedidos(Long proveedorId, Long almacenId) {
+        return ultimosPedidos.stream()
+                .filter(p -> proveedorId == null || proveedorId.equals(p.getProveedorId()))
+                .filter(p -> almacenId == null || almacenId.equals(p.getAlmacenId()))
+                .toList();
+    }
+
+    private void cargar(Catalogo catalogo, Map<Long, CapacidadAlmacen> almacenes, Map<Long, String> proveedores) {
+        jdbcTemplate.query("SELECT id, sku, stock_total FROM productos WHERE activo = true ORDER BY id",
+                rs -> { catalogo.producto(rs.getLong(1), rs.getString(2), rs.getInt(3)); });
+
+        jdbcTemplate.query("SELECT producto_id, SUM(cantidad) FROM ventas "
+                        + "WHERE estado <> 'CANCELADA' AND fecha_venta >= ? GROUP BY producto_id",
+                rs -> { catalogo.vendidas(rs.getLong(1), rs.getInt(2)); },
+                LocalDate.now().minusDays(ventanaDias - 1).atStartOfDay());
+
+        Map<Long, Long> entrantesPorAlmacen = new HashMap<>();
+        // En orden de fecha: la última compra decide proveedor y almacén. Se
+        // recorren todas, así que van en streaming (fetchSize) como en
+        // ClasificacionAbcService
+        String sqlCompras = "SELECT c.producto_id, c.proveedor_id, c.almacen_id, c.cantidad, c.estado, p.dias_entrega "
+                + "FROM compras c JOIN proveedores p ON p.id = c.proveedor_id "
+                + "WHERE c.estado <> 'CANCELADA' AND p.activo = true ORDER BY c.fecha_compra, c.id";
+        jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(sqlCompras, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(tamanoLote);
+                    return ps;
+                },
+                (RowCallbackHandler) rs -> {
+                    long productoId = rs.getLong(1);
+                    long almacenId = rs.getLong(3);
+                    int diasEntrega = rs.getInt(6);
+                    if (rs.wasNull()) {
+                        diasEntrega = 0;
+                    }
+                    catalogo.ultimaCompra(productoId, rs.getLong(2), almacenId, diasEntrega);
+                    if ("PENDIENTE".equals(rs.getString(5))) {
+                        catalogo.pendiente(productoId, rs.getInt(4));
+                        entrantesPorAlmacen.merge(almacenId, (long) rs.getInt(4), Long::sum);
+                    }
+                });
+
+        jdbcTemplate.query("SELECT id, nombre, capacidad_maxima, stock_actual FROM almacenes WHERE activo = true ORDER BY id",
+                rs -> {
+                    long id = rs.getLong(1);
+                    Integer capacidad = rs.getObject(3) != null ? rs.getInt(3) : null;
+                    long ocupado = rs.getLong(4) + entrantesPorAlmacen.getOrDefault(id, 0L);
+                    almacenes.put(id, new CapacidadAlmacen(id, rs.getString(2), capacidad, ocupado));
+                });
+
+        jdbcTemplate.query("SELECT id, nombre FROM proveedores",
+                rs -> { proveedores.put(rs.getLong(1), rs.getString(2)); });
+    }
+
+    // Cálculo puro sobre datos ya cargados (público para poder probarlo sin BD)
+    public Map<String, Object> calcular(Catalogo catalogo, List<CapacidadAlmacen> almacenes,
+                                        Map<Long, String> proveedores) {
+        long inicio = System.currentTimeMillis();
+        int hilos = paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(hilos);
+        List<Propuesta> propuestas;
+        try {
+            propuestas = pool.invoke(new Calculo(catalogo, 0, catalogo.n));
+        } finally {
+            pool.shutdown();
+        }
+        long msCalculo = System.currentTimeMillis() - inicio;
+
+        // Reparto de capacidad: secuencial y por urgencia
+        propuestas.sort(Comparator.comparingDouble(Propuesta::cobertura));
+        Map<Long, CapacidadAlmacen> porId = new HashMap<>();
+        for (CapacidadAlmacen almacen : almacenes) {
+            porId.put(almacen.id, almacen);
+        }
+        Map<Clave, PedidoSugerido> pedidos = new HashMap<>();
+        long sinCapacidad = 0;
+        for (Propuesta propuesta : propuestas) {
+            int i = propuesta.indice();
+            int pendiente = propuesta.cantidad();
+
+            CapacidadAlmacen habitual = porId.get(catalogo.almacen[i]);
+            if (habitual != null) {
+                pendiente -= asignar(catalogo, propuesta, habitual, pendiente, pedidos, proveedores);
+            }
+            while (pendiente > 0) {
+                CapacidadAlmacen conHueco = null;
+                for (CapacidadAlmacen almacen : almacenes) {
+                    if (almacen.libre() > 0 && (conHueco == null || almacen.libre() > conHueco.libre())) {
+                        conHueco = almacen;
+                    }
+                }
+                if (conHueco == null) {
+                    sinCapacidad += pendiente;
+                    break;
+                }
+                pendiente -= asignar(catalogo, propuesta, conHueco, pendiente, pedidos, proveedores);
+            }
+        }
+
+        List<PedidoSugerido> resultado = new ArrayList<>(pedidos.values());
+        resultado.sort(Comparator.comparing(PedidoSugerido::getProveedorId, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(PedidoSugerido::getAlmacenId));
+        ultimosPedidos = resultado;
+
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("estado", "COMPLETADA");
+        resumen.put("fecha", LocalDateTime.now());
+        resumen.put("productosAnalizados", catalogo.n);
+        resumen.put("productosAPedir", propuestas.size());
+        resumen.put("pedidos", resultado.size());
+        resumen.put("unidadesSugeridas", resultado.stream().mapToLong(PedidoSugerido::getTotalUnidades).sum());
+        resumen.put("unidadesSinCapacidad", sinCapacidad);
+        resumen.put("hilos", hilos);
+        resumen.put("msCalculo", msCalculo);
+        return resumen;
+    }
+
+    // Mete en el pedido (proveedor, almacén) lo que quepa; devuelve lo asignado
+    private int asignar(Catalogo catalogo, Propuesta propuesta, CapacidadAlmacen almacen, int cantidad,
+                        Map<Clave, PedidoSugerido> pedidos, Map<Long, String> proveedores) {
+        int asignada = (int) Math.min(cantidad, almacen.libre());
+        if (asignada <= 0) {
+            return 0;
+        }
+        almacen.ocupado += asignada;
+
+        int i = propuesta.indice();
+        Long proveedorId = catalogo.proveedor[i] != 0 ? catalogo.proveedor[i] : null;
+        PedidoSugerido pedido = pedidos.computeIfAbsent(new Clave(proveedorId, almacen.id), k -> {
+            PedidoSugerido nuevo = new PedidoSugerido();
+            nuevo.setProveedorId(proveedorId);
+            nuevo.setProveedorNombre(proveedorId != null ? proveedores.get(proveedorId) : null);
+            nuevo.setAlmacenId(almacen.id);
+            nuevo.setAlmacenNombre(almacen.nombre);
+            return nuevo;
+        });
+        pedido.getLineas().add(new PedidoSugerido.Linea(catalogo.ids[i], catalogo.skus[i], asignada,
+                catalogo.stock[i], catalogo.pendiente[i], propuesta.ventasDiarias(),
+                Math.round(propuesta.cobertura() * 10) / 10.0));
+        pedido.setTotalUnidades(pedido.getTotalUnidades() + asignada);
+        return asignada;
+    }
+
+    // Divide el rango de productos hasta "umbralParticion" y junta las
+    // propuestas de cada trozo.
+    private class Calculo extends RecursiveTask<List<Propuesta>> {
+        private final Catalogo catalogo;
+        private final int desde;
+        private final int hasta;
+
+        Calculo(Catalogo catalogo, int desde, int hasta) {
+            this.catalogo = catalogo;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected List<Propuesta> compute() {
+            if (hasta - desde > umbralParticion) {
+                int medio = (desde + hasta) >>> 1;
+                Calculo izquierda = new Calculo(catalogo, desde, medio);
+                izquierda.fork();
+                List<Propuesta> resultado = new Calculo(catalogo, medio, hasta).compute();
+                resultado.addAll(izquierda.join());
+                return resultado;
+            }
+            List<Propuesta> resultado = new ArrayList<>();
+            for (int i = desde; i < hasta; i++) {
+                double ventasDiarias = (double) catalogo.vendidas[i] / ventanaDias;
+                if (ventasDiarias <= 0) {
+                    continue;
+                }
+                int diasEntrega = catalogo.diasEntrega[i] > 0 ? catalogo.diasEntrega[i] : diasEntregaDefecto;
+                long posicion = (long) catalogo.stock[i] + catalogo.pendiente[i];
+                double puntoPedido = ventasDiarias * (diasEntrega + diasSeguridad);
+                if (posicion > puntoPedido) {
+                    continue;
+                }
+                double objetivo = ventasDiarias * (diasEntrega + diasSeguridad + diasCobertura);
+                int cantidad = (int) Math.ceil(objetivo - posicion);
+                if (cantidad > 0) {
+                    resultado.add(new Propuesta(i, cantidad, Math.round(ventasDiarias * 100) / 100.0,
+                            Math.max(catalogo.stock[i], 0) / ventasDiarias));
+                }
+            }
+            return resultado;
+        }
+    }
+
+    private record Propuesta(int indice, int cantidad, double ventasDiarias, double cobertura) { }
+
+    private record Clave(Long proveedorId, Long almacenId) { }
+
+    // Capacidad de un almacén durante el reparto
+    public static class CapacidadAlmacen {
+        final Long id;
+        final String nombre;
+        final Integer capacidadMaxima;   // null = sin límite
+        long ocupado;
+
+        public CapacidadAlmacen(Long id, String nombre, Integer capacidadMaxima, long ocupado) {
+            this.id = id;
+            this.nombre = nombre;
+            this.capacidadMaxima = capacidadMaxima;
+            this.ocupado = ocupado;
+        }
+
+        long libre() {
+            return capacidadMaxima == null ? Long.MAX_VALUE : Math.max(capacidadMaxima - ocupado, 0);
+        }
+    }
+
+    // Datos por producto en arrays paralelos (posición i = i-ésimo producto
+    // por id). Los ids llegan ordenados, así que buscar uno es binario.
+    public static class Catalogo {
+        long[] ids = new long[1024];
+        String[] skus = new String[1024];
+        int[] stock = new int[1024];
+        int[] pendiente = new int[1024];
+        int[] vendidas = new int[1024];
+        int[] diasEntrega = new int[1024];
+        long[] proveedor = new long[1024];
+        long[] almacen = new long[1024];
+        int n;
+
+        // Hay que añadirlos en orden creciente de id
+        public void producto(long id, String sku, int stockTotal) {
+            if (n > 0 && id <= ids[n - 1]) {
+                throw new IllegalArgumentException("Los productos deben llegar ordenados por id");
+            }
+            if (n == ids.length) {
+                int tam = n * 2;
+                ids = Arrays.copyOf(ids, tam);
+                skus = Arrays.copyOf(skus, tam);
+                stock = Arrays.copyOf(stock, tam);
+                pendiente = Arrays.copyOf(pendiente, tam);
+                vendidas = Arrays.copyOf(vendidas, tam);
+                diasEntrega = Arrays.copyOf(diasEntrega, tam);
+                proveedor = Arrays.copyOf(proveedor, tam);
+                almacen = Arrays.copyOf(almacen, tam);
+            }
+            ids[n] = id;
+            skus[n] = sku;
+            stock[n] = stockTotal;
+            n++;
+        }
+
+        public void vendidas(long productoId, int cantidad) {
+            int i = indice(productoId);
+            if (i >= 0) {
+                vendidas[i] += cantidad;
+            }
+        }
+
+        public void pendiente(long productoId, int cantidad) {
+            int i = indice(productoId);
+            if (i >= 0) {
+                pendiente[i] += cantidad;
+            }
+        }
+
+        public void ultimaCompra(long productoId, long proveedorId, long almacenId, int diasEntregaProveedor) {
+            int i = indice(productoId);
+            if (i >= 0) {
+                proveedor[i] = proveedorId;
+                almacen[i] = almacenId;
+                diasEntrega[i] = diasEntregaProveedor;
+            }
+        }
+
+        // Productos que no están en el catálogo (inactivos): -1
+        private int indice(long productoId) {
+            int i = Arrays.binarySearch(ids, 0, n, productoId);
+            return i >= 0 ? i : -1;
+        }
+    }
+}
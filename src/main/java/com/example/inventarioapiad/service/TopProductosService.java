@@ -0,0 +1,406 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Productos más vendidos (en unidades) en la última hora, 24 horas o 7 días
+// sin consultar la BD: GET /api/analytics/top-productos?ventana=.
+//
+// Cada ventana deslizante se parte en cubos de tiempo (1h = 12 de 5 min,
+// 24h = 24 de 1 h, 7d = 28 de 6 h). Cada cubo tiene:
+//   - un Count-Min sketch (profundidad x anchura contadores) con las
+//     unidades de cada producto, y
+//   - un resumen Space-Saving con los "candidatos" más vendidos del cubo.
+// La ventana guarda además la suma de los sketches de sus cubos; como el
+// Count-Min es lineal, al caducar un cubo basta con restarlo. La consulta
+// junta los candidatos de los cubos vivos, los estima con el sketch de la
+// ventana y se queda con los N mayores: el coste depende del número de
+// cubos y candidatos (fijos), no de cuántas ventas haya, y la memoria es
+// la misma con 10 ventas que con 10 millones.
+//
+// La estimación nunca se queda corta y se pasa como mucho en e/anchura
+// del total de la ventana (con probabilidad 1 - e^-profundidad); la
+// respuesta incluye esa cota.
+//
+// Se alimenta en tiempo real de las ventas que crea VentaService (el
+// MovimientoStockEvent con origen VENTA, en el cubo de su fechaVenta) y se
+// reconstruye al arrancar desde las ventas de los últimos 7 días.
+@Service
+@Slf4j
+public class TopProductosService {
+
+    // nombre, duración del cubo y número de cubos
+    private static final Object[][] VENTANAS = {
+            {"1h", 5 * 60_000L, 12},
+            {"24h", 60 * 60_000L, 24},
+            {"7d", 6 * 60 * 60_000L, 28}
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Contadores por fila del sketch (se redondea a potencia de 2)
+    @Value("${analytics.top.anchura:2048}")
+    private int anchura = 2048;
+
+    @Value("${analytics.top.profundidad:4}")
+    private int profundidad = 4;
+
+    // Candidatos que guarda cada cubo (Space-Saving)
+    @Value("${analytics.top.candidatos:64}")
+    private int candidatos = 64;
+
+    @Value("${analytics.top.max-n:50}")
+    private int maxN = 50;
+
+    private volatile Map<String, Ventana> ventanas;
+
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean(false);
+    private final ConcurrentLinkedQueue<long[]> pendientes = new ConcurrentLinkedQueue<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        reconstruir();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alMoverStock(MovimientoStockEvent movimiento) {
+        if (movimiento.getProductoId() == null || !"VENTA".equals(movimiento.getOrigen())) {
+            return;
+        }
+        // Salida = venta; entrada = venta cancelada, que se descuenta del
+        // cubo en que se contó la venta (su fechaVenta, como en reconstruir).
+        // Si ese cubo ya ha caducado en una ventana, allí no se toca.
+        long unidades = -movimiento.getDelta();
+        long instante = System.currentTimeMillis();
+        if (movimiento.getFecha() != null) {
+            instante = Math.min(instante, movimiento.getFecha().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        if (reconstruyendo.get()) {
+            pendientes.add(new long[]{movimiento.getProductoId(), unidades, instante});
+            return;
+        }
+        registrar(ventanas(), movimiento.getProductoId(), unidades, instante);
+    }
+
+    public Map<String, Object> reconstruir() {
+        if (!reconstruyendo.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una reconstrucción del top de productos en curso");
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            Map<String, Ventana> nuevas = crearVentanas(inicio);
+            long desde = inicio - nuevas.get("7d").duracionMs();
+            long[] filas = {0};
+            jdbcTemplate.query("SELECT producto_id, cantidad, fecha_venta FROM ventas "
+                            + "WHERE estado <> 'CANCELADA' AND fecha_venta >= ?",
+                    rs -> {
+                        Timestamp fecha = rs.getTimestamp(3);
+                        registrar(nuevas, rs.getLong(1), rs.getLong(2), Math.min(fecha.getTime(), inicio));
+                        filas[0]++;
+                    },
+                    new Timestamp(desde));
+            for (long[] venta; (venta = pendientes.poll()) != null; ) {
+                registrar(nuevas, venta[0], venta[1], venta[2]);
+            }
+            ventanas = nuevas;
+
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("ventasLeidas", filas[0]);
+            resumen.put("msTotal", System.currentTimeMillis() - inicio);
+            log.info("Top de productos reconstruido: {}", resumen);
+            return resumen;
+        } finally {
+            reconstruyendo.set(false);
+            for (long[] venta; (venta = pendientes.poll()) != null; ) {
+                registrar(ventanas(), venta[0], venta[1], venta[2]);
+            }
+        }
+    }
+
+    public Map<String, Object> top(String ventana, int n) {
+        Ventana v = ventanas().get(ventana);
+        if (v == null) {
+            throw new IllegalArgumentException("ventana debe ser 1h, 24h o 7d");
+        }
+        if (n < 1 || n > maxN) {
+            throw new IllegalArgumentException("n debe estar entre 1 y " + maxN);
+        }
+        long ahora = System.currentTimeMillis();
+        long[] resultado = v.top(n, ahora);
+        long total = v.total(ahora);
+
+        List<Map<String, Object>> productos = new ArrayList<>(resultado.length / 2);
+        for (int i = 0; i < resultado.length; i += 2) {
+            Map<String, Object> fila = new LinkedHashMap<>();
+            fila.put("productoId", resultado[i]);
+            fila.put("unidades", resultado[i + 1]);
+            productos.add(fila);
+        }
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("ventana", ventana);
+        respuesta.put("desde", LocalDateTime.ofInstant(Instant.ofEpochMilli(v.inicio(ahora)), ZoneId.systemDefault()));
+        respuesta.put("unidadesVentana", total);
+        respuesta.put("errorMaximo", v.errorMaximo(total));
+        respuesta.put("confianza", 1 - Math.exp(-v.profundidad));
+        respuesta.put("productos", productos);
+        return respuesta;
+    }
+
+    private void registrar(Map<String, Ventana> destino, long productoId, long unidades, long instanteMs) {
+        for (Ventana v : destino.values()) {
+            v.sumar(productoId, unidades, instanteMs);
+        }
+    }
+
+    private Map<String, Ventana> crearVentanas(long ahoraMs) {
+        Map<String, Ventana> nuevas = new LinkedHashMap<>();
+        for (Object[] definicion : VENTANAS) {
+            nuevas.put((String) definicion[0], new Ventana((Long) definicion[1], (Integer) definicion[2],
+                    profundidad, anchura, candidatos, ahoraMs));
+        }
+        return nuevas;
+    }
+
+    private Map<String, Ventana> ventanas() {
+        Map<String, Ventana> actuales = ventanas;
+        if (actuales == null) {
+            synchronized (this) {
+                if (ventanas == null) {
+                    ventanas = crearVentanas(System.currentTimeMillis());
+                }
+                actuales = ventanas;
+            }
+        }
+        return actuales;
+    }
+
+    // ------------------------------------------------------------------
+
+    // Una ventana deslizante: cubos de tiempo en anillo, cada uno con su
+    // Count-Min y sus candidatos, y la suma de los sketches vivos.
+    public static final class Ventana {
+        private static final long[] SEMILLAS = {
+                0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+                0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x27D4EB2F165667C5L, 0x94D049BB133111EBL
+        };
+
+        private final long msCubo;
+        private final int cubos;
+        private final int profundidad;
+        private final int anchura;
+        private final int[][] sketchCubo;
+        private final long[] sketchVentana;
+        private final long[] periodoCubo;
+        private final long[] unidadesCubo;
+        private final EspacioAhorro[] candidatosCubo;
+        private long periodoActual;
+        private long unidadesVentana;
+
+        public Ventana(long msCubo, int cubos, int profundidad, int anchura, int candidatos, long ahoraMs) {
+            if (profundidad < 1 || profundidad > SEMILLAS.length) {
+                throw new IllegalArgumentException("La profundidad debe estar entre 1 y " + SEMILLAS.length);
+            }
+            this.msCubo = msCubo;
+            this.cubos = cubos;
+            this.profundidad = profundidad;
+            this.anchura = Integer.highestOneBit(Math.max(16, anchura) - 1) << 1;
+            this.sketchCubo = new int[cubos][profundidad * this.anchura];
+            this.sketchVentana = new long[profundidad * this.anchura];
+            this.periodoCubo = new long[cubos];
+            this.unidadesCubo = new long[cubos];
+            this.candidatosCubo = new EspacioAhorro[cubos];
+            for (int c = 0; c < cubos; c++) {
+                periodoCubo[c] = Long.MIN_VALUE;
+                candidatosCubo[c] = new EspacioAhorro(candidatos);
+            }
+            this.periodoActual = ahoraMs / msCubo;
+        }
+
+        public long duracionMs() {
+            return msCubo * cubos;
+        }
+
+        // Principio del cubo más antiguo que sigue vivo
+        public long inicio(long ahoraMs) {
+            return (ahoraMs / msCubo - cubos + 1) * msCubo;
+        }
+
+        public synchronized void sumar(long productoId, long unidades, long instanteMs) {
+            long periodo = instanteMs / msCubo;
+            avanzar(periodo);
+            if (periodo <= periodoActual - cubos) {
+                return;
+            }
+            int c = (int) Math.floorMod(periodo, (long) cubos);
+            // Si el cubo tenía otro periodo, ya lo ha caducado avanzar()
+            periodoCubo[c] = periodo;
+            int[] sketch = sketchCubo[c];
+            for (int fila = 0; fila < profundidad; fila++) {
+                int celda = fila * anchura + indice(productoId, fila);
+                sketch[celda] += (int) unidades;
+                sketchVentana[celda] += unidades;
+            }
+            unidadesCubo[c] += unidades;
+            unidadesVentana += unidades;
+            candidatosCubo[c].sumar(productoId, unidades);
+        }
+
+        public synchronized long estimar(long productoId, long ahoraMs) {
+            avanzar(ahoraMs / msCubo);
+            return estimarVivo(productoId);
+        }
+
+        public synchronized long total(long ahoraMs) {
+            avanzar(ahoraMs / msCubo);
+            return unidadesVentana;
+        }
+
+        // e/anchura del total: lo más que puede pasarse una estimación
+        public long errorMaximo(long total) {
+            return (long) Math.ceil(Math.E / anchura * total);
+        }
+
+        // Los n más vendidos como pares [productoId, unidades, ...] de mayor a menor
+        public synchronized long[] top(int n, long ahoraMs) {
+            avanzar(ahoraMs / msCubo);
+            int total = 0;
+            for (EspacioAhorro candidatos : candidatosCubo) {
+                total += candidatos.tamano;
+            }
+            long[] ids = new long[total];
+            int k = 0;
+            for (EspacioAhorro candidatos : candidatosCubo) {
+                System.arraycopy(candidatos.ids, 0, ids, k, candidatos.tamano);
+                k += candidatos.tamano;
+            }
+            Arrays.sort(ids);
+
+            // Montículo de mínimos con los n mejores vistos
+            PriorityQueue<long[]> mejores = new PriorityQueue<>(n + 1, (a, b) -> Long.compare(a[1], b[1]));
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0 && ids[i] == ids[i - 1]) {
+                    continue;
+                }
+                long estimacion = estimarVivo(ids[i]);
+                if (estimacion <= 0) {
+                    continue;
+                }
+                if (mejores.size() < n) {
+                    mejores.add(new long[]{ids[i], estimacion});
+                } else if (estimacion > mejores.peek()[1]) {
+                    mejores.poll();
+                    mejores.add(new long[]{ids[i], estimacion});
+                }
+            }
+            long[] resultado = new long[mejores.size() * 2];
+            for (int i = resultado.length - 2; i >= 0; i -= 2) {
+                long[] par = mejores.poll();
+                resultado[i] = par[0];
+                resultado[i + 1] = par[1];
+            }
+            return resultado;
+        }
+
+        private long estimarVivo(long productoId) {
+            long minimo = Long.MAX_VALUE;
+            for (int fila = 0; fila < profundidad; fila++) {
+                minimo = Math.min(minimo, sketchVentana[fila * anchura + indice(productoId, fila)]);
+            }
+            return Math.max(0, minimo);
+        }
+
+        // Caduca los cubos que se han quedado fuera de la ventana restando
+        // su sketch del de la ventana
+        private void avanzar(long periodo) {
+            if (periodo <= periodoActual) {
+                return;
+            }
+            periodoActual = periodo;
+            for (int c = 0; c < cubos; c++) {
+                if (periodoCubo[c] != Long.MIN_VALUE && periodoCubo[c] <= periodoActual - cubos) {
+                    int[] sketch = sketchCubo[c];
+                    for (int celda = 0; celda < sketch.length; celda++) {
+                        sketchVentana[celda] -= sketch[celda];
+                    }
+                    Arrays.fill(sketch, 0);
+                    unidadesVentana -= unidadesCubo[c];
+                    unidadesCubo[c] = 0;
+                    candidatosCubo[c].vaciar();
+                    periodoCubo[c] = Long.MIN_VALUE;
+                }
+            }
+        }
+
+        private int indice(long productoId, int fila) {
+            long h = (productoId ^ SEMILLAS[fila]) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 31;
+            h *= SEMILLAS[(fila + 1) % SEMILLAS.length];
+            h ^= h >>> 29;
+            return (int) h & (anchura - 1);
+        }
+    }
+
+    // Space-Saving: "capacidad" contadores; un producto nuevo con la tabla
+    // llena sustituye al de menor cuenta y hereda esa cuenta. Con pocos
+    // contadores recorrer el array es más barato que un mapa.
+    static final class EspacioAhorro {
+        final long[] ids;
+        final long[] cuentas;
+        int tamano;
+
+        EspacioAhorro(int capacidad) {
+            ids = new long[capacidad];
+            cuentas = new long[capacidad];
+        }
+
+        void sumar(long productoId, long unidades) {
+            int minimo = 0;
+            for (int i = 0; i < tamano; i++) {
+                if (ids[i] == productoId) {
+                    cuentas[i] += unidades;
+                    return;
+                }
+                if (cuentas[i] < cuentas[minimo]) {
+                    minimo = i;
+                }
+            }
+            // Una cancelación de algo que no es candidato no cambia nada
+            if (unidades <= 0) {
+                return;
+            }
+            if (tamano < ids.length) {
+                ids[tamano] = productoId;
+                cuentas[tamano] = unidades;
+                tamano++;
+            } else {
+                ids[minimo] = productoId;
+                cuentas[minimo] += unidades;
+            }
+        }
+
+        void vaciar() {
+            tamano = 0;
+        }
+    }
+}
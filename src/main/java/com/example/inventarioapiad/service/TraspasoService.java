@@ -0,0 +1,328 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.dto.TraspasoRequest;
+import com.example.inventarioapiad.entity.Almacen;
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.entity.Traspaso;
+import com.example.inventarioapiad.event.AlmacenCambiadoEvent;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.event.TraspasoCambiadoEvent;
+import com.example.inventarioapiad.repository.AlmacenRepository;
+import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.repository.TraspasoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+// Traspasos de stock entre almacenes.
+//
+// Cada operación va en UNA transacción y bloquea las filas de los
+// almacenes implicados (SELECT ... FOR UPDATE) SIEMPRE en orden de id
+// ascendente, también en los lotes. Si dos traspasos A->B y B->A llegan a
+// la vez, los dos intentan coger primero el menor id: uno espera al otro
+// en vez de quedarse cada uno con un almacén (deadlock).
+//
+// recibir/cancelar bloquean también el almacén antes que la fila del
+// traspaso (que arrastra sus almacenes al cargarse): así Hibernate no
+// reutiliza una copia del almacén leída sin bloqueo.
+//
+// Con los almacenes bloqueados se comprueba el stock del origen (el total
+// del almacén y el de ESE producto en stock_almacen) y el hueco del
+// destino (stockActual + lo que ya viene en camino), se descuenta del
+// origen y, si el traspaso no queda en tránsito, se suma al destino. Las
+// filas de stock_almacen se ajustan en la misma transacción.
+// Un lote es todo o nada.
+@Service
+@Slf4j
+public class TraspasoService {
+
+    static final String EN_TRANSITO = "EN_TRANSITO";
+    static final String COMPLETADO = "COMPLETADO";
+    static final String CANCELADO = "CANCELADO";
+
+    @Autowired
+    private TraspasoRepository traspasoRepository;
+
+    @Autowired
+    private AlmacenRepository almacenRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private StockAlmacenService stockAlmacenService;
+
+    @Autowired
+    private ValoracionService valoracionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public Traspaso crear(TraspasoRequest peticion) {
+        log.info("Creando traspaso: {}", peticion);
+        return ejecutar(List.of(peticion), null).get(0);
+    }
+
+    // Varios traspasos en la misma transacción (todos o ninguno)
+    @Transactional
+    public List<Traspaso> crearLote(List<TraspasoRequest> peticiones) {
+        if (peticiones == null || peticiones.isEmpty()) {
+            throw new IllegalArgumentException("El lote debe tener al menos un traspaso");
+        }
+        String lote = UUID.randomUUID().toString();
+        log.info("Creando lote de {} traspasos: {}", peticiones.size(), lote);
+        return ejecutar(peticiones, lote);
+    }
+
+    @Transactional
+    public Traspaso recibir(Long id) {
+        log.info("Recibiendo traspaso con ID: {}", id);
+
+        // El almacén antes que el traspaso: al cargar el traspaso se cargan
+        // también sus almacenes y tienen que venir ya bloqueados
+        Almacen destino = bloquearAlmacen(almacenesDe(id).getDestinoId());
+        Traspaso traspaso = bloquearTraspaso(id);
+        if (!EN_TRANSITO.equals(traspaso.getEstado())) {
+            throw new IllegalStateException("Solo se puede recibir un traspaso EN_TRANSITO (estado: "
+                    + traspaso.getEstado() + ")");
+        }
+        // El hueco ya se comprobó al enviarlo
+        destino.setStockActual(stock(destino) + traspaso.getCantidad());
+        stockAlmacenService.ajustar(traspaso.getProducto().getId(), destino.getId(), traspaso.getCantidad());
+        traspaso.setEstado(COMPLETADO);
+        traspaso.setFechaRecepcion(LocalDateTime.now());
+        traspasoRepository.save(traspaso);
+
+        eventPublisher.publishEvent(MovimientoStockEvent.entrada(traspaso.getProducto().getId(),
+                destino.getId(), traspaso.getCantidad(), traspaso.getCosteUnitario(), "TRASPASO", traspaso.getId()));
+        publicarCambio(traspaso, EN_TRANSITO);
+        publicarAlmacen(destino);
+        log.info("Traspaso recibido con ID: {}", id);
+        return traspaso;
+    }
+
+    // Anula un traspaso en tránsito: las unidades vuelven al origen
+    @Transactional
+    public Traspaso cancelar(Long id) {
+        log.info("Cancelando traspaso con ID: {}", id);
+
+        Almacen origen = bloquearAlmacen(almacenesDe(id).getOrigenId());
+        Traspaso traspaso = bloquearTraspaso(id);
+        if (!EN_TRANSITO.equals(traspaso.getEstado())) {
+            throw new IllegalStateException("Solo se puede cancelar un traspaso EN_TRANSITO (estado: "
+                    + traspaso.getEstado() + "). Para deshacer uno completado crea el traspaso inverso.");
+        }
+        origen.setStockActual(stock(origen) + traspaso.getCantidad());
+        stockAlmacenService.ajustar(traspaso.getProducto().getId(), origen.getId(), traspaso.getCantidad());
+        traspaso.setEstado(CANCELADO);
+        traspasoRepository.save(traspaso);
+
+        eventPublisher.publishEvent(MovimientoStockEvent.entrada(traspaso.getProducto().getId(),
+                origen.getId(), traspaso.getCantidad(), traspaso.getCosteUnitario(), "TRASPASO", traspaso.getId()));
+        publicarCambio(traspaso, EN_TRANSITO);
+        publicarAlmacen(origen);
+        log.info("Traspaso cancelado con ID: {}", id);
+        return traspaso;
+    }
+
+    @Transactional(readOnly = true)
+    public Traspaso buscarPorId(Long id) {
+        log.info("Buscando traspaso con ID: {}", id);
+
+        if (id == null || id <= 0) {
+            log.error("Error: ID inválido");
+            throw new IllegalArgumentException("El ID debe ser válido");
+        }
+        return traspasoRepository.findById(id)
+                .orElseThrow(() -> {
+                    log.error("Traspaso no encontrado con ID: {}", id);
+                    return new RuntimeException("Traspaso no encontrado con ID: " + id);
+                });
+    }
+
+    @Transactional(readOnly = true)
+    public List<Traspaso> buscarTodos(String estado, String lote) {
+        if (lote != null && !lote.isBlank()) {
+            return traspasoRepository.findByLoteOrderById(lote);
+        }
+        if (estado != null && !estado.isBlank()) {
+            return traspasoRepository.findByEstadoOrderById(estado.toUpperCase());
+        }
+        return (List<Traspaso>) traspasoRepository.findAll();
+    }
+
+    public List<TraspasoRepository.EnTransito> resumenEnTransito() {
+        return traspasoRepository.resumirEnTransito();
+    }
+
+    // ------------------------------------------------------------------
+
+    private List<Traspaso> ejecutar(List<TraspasoRequest> peticiones, String lote) {
+        // 1. Validar sin tocar la BD
+        TreeSet<Long> idsAlmacenes = new TreeSet<>();
+        for (TraspasoRequest peticion : peticiones) {
+            validar(peticion);
+            idsAlmacenes.add(peticion.getAlmacenOrigenId());
+            idsAlmacenes.add(peticion.getAlmacenDestinoId());
+        }
+
+        // 2. Bloquear todos los almacenes en orden ascendente de id
+        Map<Long, Almacen> almacenes = new TreeMap<>();
+        for (Long almacenId : idsAlmacenes) {
+            almacenes.put(almacenId, bloquearAlmacen(almacenId));
+        }
+
+        // 3. Aplicar (con los almacenes ya bloqueados nadie más los cambia)
+        Map<Long, Long> enTransitoHacia = new HashMap<>();
+        // Unidades de cada producto en cada almacén, según va avanzando el lote
+        Map<String, Integer> disponibles = new HashMap<>();
+        // Unidades que ya salen de cada producto@almacén en este lote: la
+        // valoración aún no las ha visto (los eventos llegan tras el commit)
+        Map<String, Integer> salidas = new HashMap<>();
+        Map<Long, Producto> productos = new HashMap<>();
+        List<Traspaso> creados = new ArrayList<>();
+        LocalDateTime ahora = LocalDateTime.now();
+        for (TraspasoRequest peticion : peticiones) {
+            Almacen origen = almacenes.get(peticion.getAlmacenOrigenId());
+            Almacen destino = almacenes.get(peticion.getAlmacenDestinoId());
+            Producto producto = productos.computeIfAbsent(peticion.getProductoId(), this::buscarProducto);
+            int cantidad = peticion.getCantidad();
+
+            if (!Boolean.TRUE.equals(origen.getActivo()) || !Boolean.TRUE.equals(destino.getActivo())) {
+                throw new IllegalStateException("Los dos almacenes del traspaso deben estar activos");
+            }
+            if (stock(origen) < cantidad) {
+                throw new IllegalStateException("Stock insuficiente en el almacén " + origen.getId()
+                        + ": hay " + stock(origen) + " y se quieren traspasar " + cantidad);
+            }
+            String claveOrigen = producto.getId() + "@" + origen.getId();
+            int disponible = disponibles.computeIfAbsent(claveOrigen,
+                    k -> stockAlmacenService.disponible(producto.getId(), origen.getId()));
+            if (disponible < cantidad) {
+                throw new IllegalStateException("El almacén " + origen.getId() + " solo tiene " + disponible
+                        + " unidades del producto " + producto.getId() + " y se quieren traspasar " + cantidad);
+            }
+            long enCamino = enTransitoHacia.computeIfAbsent(destino.getId(), traspasoRepository::sumarEnTransitoHacia);
+            if (destino.getCapacidadMaxima() != null
+                    && stock(destino) + enCamino + cantidad > destino.getCapacidadMaxima()) {
+                throw new IllegalStateException("El almacén " + destino.getId() + " no tiene capacidad para "
+                        + cantidad + " unidades (libre: " + (destino.getCapacidadMaxima() - stock(destino) - enCamino) + ")");
+            }
+
+            // Coste de lo que sale, con el estado de la valoración de antes
+            // del traspaso: el destino lo recibe a ese coste
+            int yaSalidas = salidas.getOrDefault(claveOrigen, 0);
+            float coste = valoracionService.costeSalida(producto.getId(), origen.getId(), yaSalidas, cantidad);
+            salidas.put(claveOrigen, yaSalidas + cantidad);
+
+            origen.setStockActual(stock(origen) - cantidad);
+            disponibles.put(claveOrigen, disponible - cantidad);
+            stockAlmacenService.ajustar(producto.getId(), origen.getId(), -cantidad);
+            if (peticion.isEnTransito()) {
+                enTransitoHacia.put(destino.getId(), enCamino + cantidad);
+            } else {
+                destino.setStockActual(stock(destino) + cantidad);
+                disponibles.computeIfPresent(producto.getId() + "@" + destino.getId(), (k, v) -> v + cantidad);
+                stockAlmacenService.ajustar(producto.getId(), destino.getId(), cantidad);
+            }
+
+            Traspaso traspaso = new Traspaso();
+            traspaso.setProducto(producto);
+            traspaso.setAlmacenOrigen(origen);
+            traspaso.setAlmacenDestino(destino);
+            traspaso.setCantidad(cantidad);
+            traspaso.setEstado(peticion.isEnTransito() ? EN_TRANSITO : COMPLETADO);
+            traspaso.setLote(lote);
+            traspaso.setObservaciones(peticion.getObservaciones());
+            traspaso.setCosteUnitario(coste);
+            traspaso.setFechaEnvio(ahora);
+            if (!peticion.isEnTransito()) {
+                traspaso.setFechaRecepcion(ahora);
+            }
+            creados.add(traspasoRepository.save(traspaso));
+        }
+
+        // 4. Eventos: se entregan tras el commit (valoración, alertas, capacidad)
+        for (Traspaso traspaso : creados) {
+            Long productoId = traspaso.getProducto().getId();
+            eventPublisher.publishEvent(MovimientoStockEvent.salida(productoId, traspaso.getAlmacenOrigen().getId(),
+                    traspaso.getCantidad(), "TRASPASO", traspaso.getId()));
+            if (COMPLETADO.equals(traspaso.getEstado())) {
+                eventPublisher.publishEvent(MovimientoStockEvent.entrada(productoId, traspaso.getAlmacenDestino().getId(),
+                        traspaso.getCantidad(), traspaso.getCosteUnitario(), "TRASPASO", traspaso.getId()));
+            }
+            publicarCambio(traspaso, null);
+        }
+        almacenes.values().forEach(this::publicarAlmacen);
+
+        log.info("{} traspasos creados entre {} almacenes", creados.size(), almacenes.size());
+        return creados;
+    }
+
+    private void validar(TraspasoRequest peticion) {
+        if (peticion == null) {
+            throw new IllegalArgumentException("El traspaso no puede estar vacío");
+        }
+        if (peticion.getProductoId() == null) {
+            throw new IllegalArgumentException("El producto es obligatorio");
+        }
+        if (peticion.getAlmacenOrigenId() == null || peticion.getAlmacenDestinoId() == null) {
+            throw new IllegalArgumentException("Los almacenes de origen y destino son obligatorios");
+        }
+        if (peticion.getAlmacenOrigenId().equals(peticion.getAlmacenDestinoId())) {
+            throw new IllegalArgumentException("El almacén de origen y el de destino deben ser distintos");
+        }
+        if (peticion.getCantidad() == null || peticion.getCantidad() <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
+        }
+    }
+
+    private Almacen bloquearAlmacen(Long id) {
+        return almacenRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Almacén no encontrado con ID: " + id));
+    }
+
+    private TraspasoRepository.Almacenes almacenesDe(Long id) {
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("El ID debe ser válido");
+        }
+        return traspasoRepository.buscarAlmacenes(id)
+                .orElseThrow(() -> new RuntimeException("Traspaso no encontrado con ID: " + id));
+    }
+
+    private Traspaso bloquearTraspaso(Long id) {
+        return traspasoRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Traspaso no encontrado con ID: " + id));
+    }
+
+    private Producto buscarProducto(Long id) {
+        return productoRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
+    }
+
+    private static int stock(Almacen almacen) {
+        return almacen.getStockActual() != null ? almacen.getStockActual() : 0;
+    }
+
+    private void publicarCambio(Traspaso traspaso, String estadoAnterior) {
+        eventPublisher.publishEvent(new TraspasoCambiadoEvent(traspaso.getId(), traspaso.getAlmacenDestino().getId(),
+                traspaso.getCantidad(), estadoAnterior, traspaso.getEstado()));
+    }
+
+    private void publicarAlmacen(Almacen almacen) {
+        eventPublisher.publishEvent(new AlmacenCambiadoEvent(almacen.getId(), almacen.getNombre(),
+                almacen.getCapacidadMaxima(), stock(almacen), Boolean.TRUE.equals(almacen.getActivo())));
+    }
+}
@@ -0,0 +1,604 @@
+package com.example.inventarioapiad.service;
+
+import com.example.inventarioapiad.entity.ValoracionAlmacen;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.event.PrecioCostoCambiadoEvent;
+import com.example.inventarioapiad.repository.AlmacenRepository;
+import com.example.inventarioapiad.repository.ValoracionAlmacenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Valoración del inventario por almacén y global, mantenida de forma
+// incremental.
+//
+// En memoria se guarda, por cada (almacén, producto), las unidades y su
+// valor a coste. Cada MovimientoStockEvent toca UNA posición y suma la
+// diferencia al total del almacén y al global, así que la lectura
+// (GET /api/almacenes/{id}/valoracion) es O(1): no se recorre nada.
+// El total de cada almacén además se persiste en valoraciones_almacen:
+// los que han cambiado se guardan cada pocos segundos, no en el hilo que
+// hace commit (que ya ha devuelto su conexión).
+//
+// Métodos de coste ("valoracion.metodo"):
+//   PROMEDIO  coste medio ponderado con el precioUnitario de las compras
+//   FIFO      lotes de compra; las salidas consumen primero los más viejos
+//   ESTANDAR  unidades x Producto.precioCosto; cambiar el precioCosto
+//             revaloriza todas las posiciones de ese producto
+//
+// Al arrancar se reconstruye desde el histórico de compras RECIBIDAS,
+// ventas no canceladas y traspasos (una sola pasada, en streaming y en
+// orden de fecha). La reconstrucción monta un estado nuevo sin parar los
+// movimientos, repite sobre él los que hicieron commit mientras leía y
+// solo entonces lo cambia por el actual.
+//
+// Un traspaso mueve valor, no lo crea: entra en el destino al coste con el
+// que salió del origen (costeSalida), que guarda el propio Traspaso.
+@Service
+@Slf4j
+public class ValoracionService {
+
+    public enum Metodo { PROMEDIO, FIFO, ESTANDAR }
+
+    // Todas las compras recibidas y ventas no canceladas (incluidas las
+    // archivadas) y los traspasos, en orden cronológico. Un traspaso es una
+    // salida del origen (si no se canceló) y una entrada en el destino (si
+    // se completó). Para el mismo instante van primero las compras, luego
+    // las salidas y al final las entradas de traspaso, que necesitan el
+    // coste con el que salieron. %s = tabla de compras y de ventas.
+    //   tipo: 1 compra, 2 venta, 3 salida de traspaso, 4 entrada de traspaso
+    private static final String SQL_HISTORICO =
+            "SELECT producto_id, almacen_id, cantidad, precio_unitario, fecha_compra AS fecha, 2 AS orden, id, 1 AS tipo "
+            + "FROM %s c WHERE estado = 'RECIBIDA' "
+            + "UNION ALL "
+            + "SELECT producto_id, almacen_id, cantidad, 0, fecha_venta AS fecha, 1 AS orden, id, 2 AS tipo "
+            + "FROM %s v WHERE estado <> 'CANCELADA' "
+            + "UNION ALL "
+            + "SELECT producto_id, almacen_origen_id, cantidad, 0, fecha_envio AS fecha, 1 AS orden, id, 3 AS tipo "
+            + "FROM traspasos WHERE estado <> 'CANCELADO' "
+            + "UNION ALL "
+            + "SELECT producto_id, almacen_destino_id, cantidad, 0, fecha_recepcion AS fecha, 0 AS orden, id, 4 AS tipo "
+            + "FROM traspasos WHERE estado = 'COMPLETADO' "
+            + "ORDER BY fecha, orden DESC, id";
+
+    @Autowired
+    private ValoracionAlmacenRepository valoracionRepository;
+
+    @Autowired
+    private AlmacenRepository almacenRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ArchivoService archivoService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${valoracion.metodo:PROMEDIO}")
+    private Metodo metodo = Metodo.PROMEDIO;
+
+    // Filas por tanda al leer el histórico en la reconstrucción
+    @Value("${valoracion.tamano-lote:1000}")
+    private int tamanoLote = 1000;
+
+    // Estado en memoria. La reconstrucción monta uno nuevo aparte y lo
+    // cambia entero al terminar; mientras tanto se sigue leyendo y
+    // actualizando el de antes.
+    private volatile Inventario inventario = new Inventario();
+
+    // Con una reconstrucción en marcha, los eventos que se aplican se
+    // guardan también aquí para repetirlos sobre el estado nuevo: son de
+    // transacciones que hicieron commit después del snapshot que lee la
+    // reconstrucción. Null si no hay reconstrucción.
+    private volatile Queue<Object> pendientes;
+
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean(false);
+
+    // La reconstrucción y guardar() no escriben la tabla a la vez
+    private final Object escritura = new Object();
+
+    // Una transacción con movimientos coge el lock de lectura antes de su
+    // commit y lo suelta cuando ya se han aplicado sus eventos; la
+    // reconstrucción coge el de escritura solo para fijar su snapshot y
+    // para cambiar de estado. Así cada evento o está en el snapshot o
+    // llega a "pendientes", nunca en los dos ni en ninguno.
+    private final ReentrantReadWriteLock reconstruccion = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        reconstruir();
+    }
+
+    // Recalcula todo desde el histórico y reescribe la tabla materializada.
+    // La lectura del histórico no para los movimientos ni las consultas.
+    public Map<String, Object> reconstruir() {
+        if (!reconstruyendo.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una reconstrucción de la valoración en curso");
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            // REPEATABLE READ: el histórico se lee con el snapshot de la
+            // primera consulta que toca una tabla
+            TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+            transaccion.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+            Inventario nuevo = new Inventario();
+            long movimientos = transaccion.execute(estado -> {
+                // La conexión se coge antes del lock de escritura (con réplicas
+                // el DataSource la pide en la primera sentencia): con el lock
+                // cogido, las transacciones que esperan para hacer commit no
+                // sueltan las suyas. Sin tabla no fija todavía el snapshot
+                jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+                reconstruccion.writeLock().lock();
+                try {
+                    jdbcTemplate.query("SELECT id, precio_costo FROM productos WHERE precio_costo IS NOT NULL",
+                            rs -> { nuevo.preciosCosto.put(rs.getLong(1), rs.getFloat(2)); });
+                    pendientes = new ConcurrentLinkedQueue<>();
+                } finally {
+                    reconstruccion.writeLock().unlock();
+                }
+                long leidos = leerHistorico(nuevo);
+                cambiarA(nuevo);
+
+                List<ValoracionAlmacen> filas = new ArrayList<>();
+                for (EstadoAlmacen almacen : nuevo.almacenes.values()) {
+                    synchronized (almacen) {
+                        almacen.sucio = false;
+                        filas.add(almacen.aFila(metodo));
+                    }
+                }
+                synchronized (escritura) {
+                    valoracionRepository.deleteAll();
+                    valoracionRepository.saveAll(filas);
+                }
+                return leidos;
+            });
+
+            log.info("Valoración ({}) reconstruida: {} movimientos, {} almacenes en {} ms",
+                    metodo, movimientos, nuevo.almacenes.size(), System.currentTimeMillis() - inicio);
+            return valoracionGlobal();
+        } finally {
+            if (pendientes != null) {
+                // Ha fallado antes del cambio: sigue el estado de antes
+                reconstruccion.writeLock().lock();
+                pendientes = null;
+                reconstruccion.writeLock().unlock();
+            }
+            reconstruyendo.set(false);
+        }
+    }
+
+    // Guarda los totales de los almacenes que han cambiado. Si falla se
+    // quedan marcados y se reintentan en la siguiente pasada.
+    @Scheduled(cron = "${valoracion.cron:*/10 * * * * *}")
+    public int guardar() {
+        if (reconstruyendo.get()) {
+            // Ella reescribe la tabla entera al terminar
+            return 0;
+        }
+        synchronized (escritura) {
+            List<EstadoAlmacen> cambiados = new ArrayList<>();
+            List<ValoracionAlmacen> filas = new ArrayList<>();
+            for (EstadoAlmacen estado : inventario.almacenes.values()) {
+                synchronized (estado) {
+                    if (estado.sucio) {
+                        estado.sucio = false;
+                        cambiados.add(estado);
+                        filas.add(estado.aFila(metodo));
+                    }
+                }
+            }
+            if (filas.isEmpty()) {
+                return 0;
+            }
+            try {
+                valoracionRepository.saveAll(filas);
+            } catch (RuntimeException e) {
+                for (EstadoAlmacen estado : cambiados) {
+                    synchronized (estado) {
+                        estado.sucio = true;
+                    }
+                }
+                log.error("No se han podido guardar {} valoraciones de almacén: {}", filas.size(), e.getMessage());
+                return 0;
+            }
+            return filas.size();
+        }
+    }
+
+    private long leerHistorico(Inventario nuevo) {
+        long[] movimientos = {0};
+        // Coste con el que salió cada traspaso, hasta que entra en el destino
+        Map<Long, Float> costesTraspaso = new HashMap<>();
+        String sqlHistorico = String.format(SQL_HISTORICO,
+                archivoService.historico("compras"), archivoService.historico("ventas"));
+        // Con fetchSize el driver de MariaDB va trayendo el histórico por
+        // tandas en lugar de cargar el resultado completo
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sqlHistorico, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(tamanoLote);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            long productoId = rs.getLong(1);
+            long almacenId = rs.getLong(2);
+            int cantidad = rs.getInt(3);
+            long id = rs.getLong(7);
+            MovimientoStockEvent movimiento = switch (rs.getInt(8)) {
+                case 1 -> MovimientoStockEvent.entrada(productoId, almacenId, cantidad, rs.getFloat(4), "COMPRA", id);
+                case 2 -> MovimientoStockEvent.salida(productoId, almacenId, cantidad, "VENTA", id);
+                case 3 -> {
+                    costesTraspaso.put(id, costeSalida(nuevo, productoId, almacenId, 0, cantidad));
+                    yield MovimientoStockEvent.salida(productoId, almacenId, cantidad, "TRASPASO", id);
+                }
+                default -> MovimientoStockEvent.entrada(productoId, almacenId, cantidad,
+                        costesTraspaso.remove(id), "TRASPASO", id);
+            };
+            aplicarSinPersistir(nuevo, movimiento);
+            movimientos[0]++;
+        });
+        return movimientos[0];
+    }
+
+    // Repite sobre el estado nuevo lo que llegó durante la lectura y lo
+    // deja como actual
+    private void cambiarA(Inventario nuevo) {
+        reconstruccion.writeLock().lock();
+        try {
+            for (Object evento : pendientes) {
+                if (evento instanceof MovimientoStockEvent movimiento) {
+                    aplicarSinPersistir(nuevo, movimiento);
+                } else {
+                    aplicarPrecioCosto(nuevo, (PrecioCostoCambiadoEvent) evento);
+                }
+            }
+            inventario = nuevo;
+            pendientes = null;
+        } finally {
+            reconstruccion.writeLock().unlock();
+        }
+    }
+
+    // O(1): lee el total ya calculado del almacén. Solo si no tiene
+    // movimientos se mira en la BD que exista.
+    public ValoracionAlmacen valoracionDeAlmacen(Long almacenId) {
+        if (almacenId == null || almacenId <= 0) {
+            throw new IllegalArgumentException("El ID debe ser válido");
+        }
+        EstadoAlmacen estado = inventario.almacenes.get(almacenId);
+        if (estado == null) {
+            if (!almacenRepository.existsById(almacenId)) {
+                log.error("Almacén no encontrado con ID: {}", almacenId);
+                throw new RuntimeException("Almacén no encontrado con ID: " + almacenId);
+            }
+            // Almacén sin movimientos valorados: valor cero
+            return new ValoracionAlmacen(almacenId, 0L, 0.0, metodo.name(), LocalDateTime.now());
+        }
+        synchronized (estado) {
+            return estado.aFila(metodo);
+        }
+    }
+
+    public Map<String, Object> valoracionGlobal() {
+        Inventario actual = inventario;
+        List<ValoracionAlmacen> porAlmacen = new ArrayList<>();
+        for (EstadoAlmacen estado : actual.almacenes.values()) {
+            synchronized (estado) {
+                porAlmacen.add(estado.aFila(metodo));
+            }
+        }
+        porAlmacen.sort(Comparator.comparing(ValoracionAlmacen::getAlmacenId));
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("metodo", metodo);
+        synchronized (actual) {
+            resultado.put("unidades", actual.unidades);
+            resultado.put("valorTotal", redondear(actual.valor));
+        }
+        resultado.put("almacenes", porAlmacen);
+        return resultado;
+    }
+
+    // ------------------------------------------------------------------
+    // Actualización incremental
+    // ------------------------------------------------------------------
+
+    // Coste unitario con el que saldrían "cantidad" unidades del producto
+    // del almacén, sin moverlas: el que lleva un traspaso para que entre en
+    // el destino al mismo coste y el valor global no cambie. "yaSalidas" son
+    // unidades que salen antes y que aún no se han aplicado (otros traspasos
+    // del mismo lote). Posición vacía: 0, porque tampoco resta valor.
+    public float costeSalida(Long productoId, Long almacenId, int yaSalidas, int cantidad) {
+        return costeSalida(inventario, productoId, almacenId, yaSalidas, cantidad);
+    }
+
+    private float costeSalida(Inventario origen, Long productoId, Long almacenId, int yaSalidas, int cantidad) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
+        }
+        if (metodo == Metodo.ESTANDAR) {
+            return (float) precioCosto(origen, productoId);
+        }
+        EstadoAlmacen estado = origen.almacenes.get(almacenId);
+        if (estado == null) {
+            return 0f;
+        }
+        synchronized (estado) {
+            Posicion posicion = estado.posiciones.get(productoId);
+            return posicion == null ? 0f : (float) (valorQueSale(posicion, yaSalidas, cantidad) / cantidad);
+        }
+    }
+
+    // Antes del commit de una transacción que mueve stock o cambia un
+    // precioCosto: lock de lectura hasta que terminen sus listeners (el
+    // de AFTER_COMMIT también se ejecuta en afterCompletion, antes que
+    // esta sincronización, que va la última)
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT,
+            classes = {MovimientoStockEvent.class, PrecioCostoCambiadoEvent.class})
+    public void retenerHastaAplicar() {
+        reconstruccion.readLock().lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                reconstruccion.readLock().unlock();
+            }
+        });
+    }
+
+    // Tras el commit de la compra/venta (o al momento si no había transacción)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alMoverStock(MovimientoStockEvent movimiento) {
+        if (movimiento.getProductoId() == null || movimiento.getAlmacenId() == null) {
+            return;
+        }
+        reconstruccion.readLock().lock();
+        try {
+            aplicarSinPersistir(inventario, movimiento);
+            anotarPendiente(movimiento);
+        } finally {
+            reconstruccion.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarPrecioCosto(PrecioCostoCambiadoEvent evento) {
+        if (evento.getProductoId() == null || evento.getPrecioCosto() == null) {
+            return;
+        }
+        reconstruccion.readLock().lock();
+        try {
+            aplicarPrecioCosto(inventario, evento);
+            anotarPendiente(evento);
+        } finally {
+            reconstruccion.readLock().unlock();
+        }
+    }
+
+    private void anotarPendiente(Object evento) {
+        Queue<Object> cola = pendientes;
+        if (cola != null) {
+            cola.add(evento);
+        }
+    }
+
+    private void aplicarPrecioCosto(Inventario destino, PrecioCostoCambiadoEvent evento) {
+        destino.preciosCosto.put(evento.getProductoId(), evento.getPrecioCosto());
+        if (metodo != Metodo.ESTANDAR) {
+            // En PROMEDIO y FIFO el coste sale de las compras, no del producto
+            return;
+        }
+        for (Long almacenId : destino.almacenesPorProducto.getOrDefault(evento.getProductoId(), Set.of())) {
+            EstadoAlmacen estado = destino.almacenes.get(almacenId);
+            synchronized (estado) {
+                Posicion posicion = estado.posiciones.get(evento.getProductoId());
+                double antes = posicion.valor;
+                posicion.valor = Math.max(posicion.unidades, 0) * (double) evento.getPrecioCosto();
+                estado.sumar(0, posicion.valor - antes);
+                destino.sumar(0, posicion.valor - antes);
+            }
+        }
+    }
+
+    private void aplicarSinPersistir(Inventario destino, MovimientoStockEvent movimiento) {
+        Long productoId = movimiento.getProductoId();
+        EstadoAlmacen estado = destino.almacenes.computeIfAbsent(movimiento.getAlmacenId(), EstadoAlmacen::new);
+        destino.almacenesPorProducto.computeIfAbsent(productoId, k -> ConcurrentHashMap.newKeySet())
+                .add(movimiento.getAlmacenId());
+
+        synchronized (estado) {
+            Posicion posicion = estado.posiciones.computeIfAbsent(productoId, k -> new Posicion());
+            long unidadesAntes = posicion.unidades;
+            double antes = posicion.valor;
+            int cantidad = movimiento.getCantidad();
+
+            if (movimiento.getTipo() == MovimientoStockEvent.Tipo.ENTRADA) {
+                double coste = movimiento.getCosteUnitario() != null
+                        ? movimiento.getCosteUnitario()
+                        : costeActual(destino, posicion, productoId);
+                entrada(destino, posicion, productoId, cantidad, coste);
+            } else {
+                salida(destino, posicion, productoId, cantidad);
+            }
+
+            // Con la salida recortada a 0 la posición no cambia en getDelta()
+            estado.sumar(posicion.unidades - unidadesAntes, posicion.valor - antes);
+            destino.sumar(posicion.unidades - unidadesAntes, posicion.valor - antes);
+        }
+    }
+
+    private void entrada(Inventario destino, Posicion posicion, Long productoId, int cantidad, double coste) {
+        posicion.unidades += cantidad;
+        switch (metodo) {
+            case PROMEDIO -> posicion.valor += cantidad * coste;
+            case FIFO -> {
+                posicion.lotes.addLast(new double[]{cantidad, coste});
+                posicion.valor += cantidad * coste;
+            }
+            case ESTANDAR -> posicion.valor = Math.max(posicion.unidades, 0) * precioCosto(destino, productoId);
+        }
+    }
+
+    private void salida(Inventario destino, Posicion posicion, Long productoId, int cantidad) {
+        switch (metodo) {
+            case PROMEDIO -> {
+                if (posicion.unidades > 0) {
+                    double medio = posicion.valor / posicion.unidades;
+                    posicion.valor -= Math.min(cantidad, posicion.unidades) * medio;
+                }
+            }
+            case FIFO -> {
+                double pendiente = cantidad;
+                while (pendiente > 0 && !posicion.lotes.isEmpty()) {
+                    double[] lote = posicion.lotes.peekFirst();
+                    double consumido = Math.min(pendiente, lote[0]);
+                    posicion.valor -= consumido * lote[1];
+                    lote[0] -= consumido;
+                    pendiente -= consumido;
+                    if (lote[0] <= 0) {
+                        posicion.lotes.pollFirst();
+                    }
+                }
+            }
+            case ESTANDAR -> { }
+        }
+        posicion.unidades -= cantidad;
+
+        // Ventas de más (stock negativo por datos incompletos): la posición
+        // se queda vacía, sin unidades ni valor. Si se quedara en negativo
+        // la siguiente compra repartiría su valor entre menos unidades y
+        // el coste medio saldría inflado
+        if (posicion.unidades <= 0) {
+            posicion.unidades = 0;
+            posicion.valor = 0;
+            posicion.lotes.clear();
+        } else if (metodo == Metodo.ESTANDAR) {
+            posicion.valor = posicion.unidades * precioCosto(destino, productoId);
+        }
+    }
+
+    // Lo que restaría salida() tras sacar antes "saltar" unidades
+    private double valorQueSale(Posicion posicion, long saltar, int cantidad) {
+        if (metodo == Metodo.PROMEDIO) {
+            long quedan = posicion.unidades - saltar;
+            return quedan > 0 ? Math.min(cantidad, quedan) * (posicion.valor / posicion.unidades) : 0;
+        }
+        double valor = 0;
+        double pendiente = cantidad;
+        for (double[] lote : posicion.lotes) {
+            double enLote = lote[0];
+            if (saltar > 0) {
+                double saltadas = Math.min(saltar, enLote);
+                saltar -= (long) saltadas;
+                enLote -= saltadas;
+            }
+            double consumido = Math.min(pendiente, enLote);
+            valor += consumido * lote[1];
+            pendiente -= consumido;
+            if (pendiente <= 0) {
+                break;
+            }
+        }
+        return valor;
+    }
+
+    // Coste al que entra una devolución: el medio/último que tenga la
+    // posición o, si está vacía, el precioCosto del producto.
+    private double costeActual(Inventario destino, Posicion posicion, Long productoId) {
+        if (metodo == Metodo.PROMEDIO && posicion.unidades > 0) {
+            return posicion.valor / posicion.unidades;
+        }
+        if (metodo == Metodo.FIFO && !posicion.lotes.isEmpty()) {
+            return posicion.lotes.peekLast()[1];
+        }
+        return precioCosto(destino, productoId);
+    }
+
+    private double precioCosto(Inventario destino, Long productoId) {
+        Float precio = destino.preciosCosto.get(productoId);
+        return precio != null ? precio : 0.0;
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 100) / 100.0;
+    }
+
+    // Todos los almacenes, los precioCosto y los totales globales. Los
+    // totales se tocan siempre dentro del lock de algún almacén, así que
+    // basta con sincronizar sobre el propio Inventario al sumar.
+    private static class Inventario {
+        final ConcurrentHashMap<Long, EstadoAlmacen> almacenes = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, Float> preciosCosto = new ConcurrentHashMap<>();
+        // Para revalorizar en ESTANDAR sin recorrer todos los almacenes
+        final ConcurrentHashMap<Long, Set<Long>> almacenesPorProducto = new ConcurrentHashMap<>();
+        long unidades;
+        double valor;
+
+        synchronized void sumar(long deltaUnidades, double deltaValor) {
+            unidades += deltaUnidades;
+            valor += deltaValor;
+        }
+    }
+
+    // Unidades y valor de un producto en un almacén (+ lotes si es FIFO)
+    private static class Posicion {
+        long unidades;
+        double valor;
+        final ArrayDeque<double[]> lotes = new ArrayDeque<>();
+    }
+
+    // Todo lo de un almacén. Se protege con synchronized sobre el objeto.
+    // "sucio" si ha cambiado desde que se guardó su fila.
+    private static class EstadoAlmacen {
+        final Long almacenId;
+        final Map<Long, Posicion> posiciones = new HashMap<>();
+        long unidades;
+        double valor;
+        boolean sucio;
+        LocalDateTime actualizado = LocalDateTime.now();
+
+        EstadoAlmacen(Long almacenId) {
+            this.almacenId = almacenId;
+        }
+
+        void sumar(long deltaUnidades, double deltaValor) {
+            unidades += deltaUnidades;
+            valor += deltaValor;
+            sucio = true;
+            actualizado = LocalDateTime.now();
+        }
+
+        ValoracionAlmacen aFila(Metodo metodo) {
+            return new ValoracionAlmacen(almacenId, unidades, redondear(valor), metodo.name(), actualizado);
+        }
+    }
+}
@@ -1,18 +1,28 @@
 package com.example.inventarioapiad.service;
 
 import com.example.inventarioapiad.entity.Venta;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.event.VentaCreadaEvent;
+import com.example.inventarioapiad.jfr.FiltroJfr;
+import com.example.inventarioapiad.jfr.VentaJfr;
 import com.example.inventarioapiad.repository.VentaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
 
+import static com.example.inventarioapiad.registro.Marcadores.FRECUENTE;
+
 @Service
 @Slf4j
 public class VentaService {
@@ -20,8 +30,16 @@ public class VentaService {
     @Autowired
     private VentaRepository ventaRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ArchivoService archivoService;
+
+    @Transactional
     public Venta crear(Venta venta) {
-        log.info("Creando venta con número de pedido: " + venta.getNumeroPedido());
+        log.info("Creando venta con número de pedido: {}", venta.getNumeroPedido());
+        VentaJfr evento = VentaJfr.iniciar();
 
         if (venta.getCliente() == null) {
             log.error("Error: Cliente obligatorio");
@@ -53,34 +71,61 @@ public class VentaService {
         }
 
         Venta creada = ventaRepository.save(venta);
-        log.info("Venta creada exitosamente con ID: " + creada.getId());
+        log.info("Venta creada exitosamente con ID: {}", creada.getId());
+
+        if (!"CANCELADA".equals(creada.getEstado())) {
+            publicarMovimiento(creada, MovimientoStockEvent.Tipo.SALIDA);
+            publicarCreada(creada);
+        }
+        evento.terminar(creada);
         return creada;
     }
 
+    @Transactional(readOnly = true)
     public Venta buscarPorId(Long id) {
-        log.info("Buscando venta con ID: " + id);
+        log.info(FRECUENTE, "Buscando venta con ID: {}", id);
 
         if (id == null || id <= 0) {
             log.error("Error: ID inválido");
             throw new IllegalArgumentException("El ID debe ser válido");
         }
 
+        // Si ya no está en ventas puede estar archivada (solo lectura)
+        return ventaRepository.findById(id)
+                .or(() -> archivoService.buscarVenta(id))
+                .orElseThrow(() -> {
+                    log.error("Venta no encontrada con ID: {}", id);
+                    return new RuntimeException("Venta no encontrada con ID: " + id);
+                });
+    }
+
+    // Solo ventas vivas: las archivadas no se modifican
+    private Venta buscarViva(Long id) {
+        if (id == null || id <= 0) {
+            log.error("Error: ID inválido");
+            throw new IllegalArgumentException("El ID debe ser válido");
+        }
         return ventaRepository.findById(id)
                 .orElseThrow(() -> {
-                    log.error("Venta no encontrada con ID: " + id);
+                    log.error("Venta no encontrada con ID: {}", id);
                     return new RuntimeException("Venta no encontrada con ID: " + id);
                 });
     }
 
+    @Transactional(readOnly = true)
     public List<Venta> buscarTodos() {
-        log.info("Listando todas las ventas");
+        log.info(FRECUENTE, "Listando todas las ventas");
         return (List<Venta>) ventaRepository.findAll();
     }
 
+    @Transactional
     public Venta actualizar(Long id, Venta ventaActualizada) {
-        log.info("Actualizando venta con ID: " + id);
+        log.info("Actualizando venta con ID: {}", id);
 
-        Venta venta = buscarPorId(id);
+        Venta venta = buscarViva(id);
+        String estadoAnterior = venta.getEstado();
+        // Lo que sacó del almacén antes de aplicar los cambios
+        Linea lineaAnterior = Linea.de(venta);
 
         if (ventaActualizada.getCliente() != null) {
             venta.setCliente(ventaActualizada.getCliente());
@@ -108,23 +153,46 @@ public class VentaService {
         }
 
         Venta actualizada = ventaRepository.save(venta);
-        log.info("Venta actualizada exitosamente con ID: " + id);
+        log.info("Venta actualizada exitosamente con ID: {}", id);
+
+        // Cancelar una venta devuelve al almacén lo que sacó; reactivarla
+        // saca lo que pide ahora. Si una venta viva cambia de producto,
+        // almacén o cantidad se devuelve lo de antes y se saca lo nuevo.
+        boolean vivaAntes = !"CANCELADA".equals(estadoAnterior);
+        boolean vivaAhora = !"CANCELADA".equals(venta.getEstado());
+        Linea lineaNueva = Linea.de(venta);
+        boolean cambiaLinea = !lineaAnterior.mismoStock(lineaNueva);
+        if (vivaAntes && (!vivaAhora || cambiaLinea)) {
+            publicarMovimiento(venta.getId(), lineaAnterior, MovimientoStockEvent.Tipo.ENTRADA);
+        }
+        if (vivaAhora && (!vivaAntes || cambiaLinea)) {
+            publicarMovimiento(venta.getId(), lineaNueva, MovimientoStockEvent.Tipo.SALIDA);
+        }
         return actualizada;
     }
 
+    @Transactional
     public void eliminar(Long id) {
-        log.info("Eliminando venta con ID: " + id);
+        log.info("Eliminando venta con ID: {}", id);
 
-        Venta venta = buscarPorId(id);
+        Venta venta = buscarViva(id);
+        String estadoAnterior = venta.getEstado();
         venta.setEstado("CANCELADA");
         ventaRepository.save(venta);
 
-        log.info("Venta cancelada (eliminada) con ID: " + id);
+        if (!"CANCELADA".equals(estadoAnterior)) {
+            publicarMovimiento(venta, MovimientoStockEvent.Tipo.ENTRADA);
+        }
+
+        log.info("Venta cancelada (eliminada) con ID: {}", id);
     }
 
     // FILTRADO: Buscar ventas con hasta 3 campos
+    @Transactional(readOnly = true)
     public List<Venta> buscarConFiltros(String estado, Integer cantidad, String numeroPedido) {
-        log.info("Filtrando ventas - estado: " + estado + ", cantidad: " + cantidad + ", numeroPedido: " + numeroPedido);
+        log.info(FRECUENTE, "Filtrando ventas - estado: {}, cantidad: {}, numeroPedido: {}",
+                estado, cantidad, numeroPedido);
+        FiltroJfr evento = FiltroJfr.iniciar();
 
         List<Venta> ventas = new ArrayList<>((Collection) ventaRepository.findAll());
 
@@ -146,7 +214,52 @@ public class VentaService {
                     .collect(Collectors.toList());
         }
 
-        log.info("Filtrado completado. Resultados: " + ventas.size() + " ventas");
+        log.info(FRECUENTE, "Filtrado completado. Resultados: {} ventas", ventas.size());
+        evento.terminar("ventas", ventas.size(), estado, cantidad, numeroPedido);
         return ventas;
     }
-}
\ No newline at end of file
+
+    // Avisa del movimiento de stock (lo escuchan valoración, alertas...).
+    // Las devoluciones entran sin coste: se valoran al coste del stock.
+    private void publicarMovimiento(Venta venta, MovimientoStockEvent.Tipo tipo) {
+        publicarMovimiento(venta.getId(), Linea.de(venta), tipo);
+    }
+
+    private void publicarMovimiento(Long ventaId, Linea linea, MovimientoStockEvent.Tipo tipo) {
+        if (linea.productoId() == null || linea.almacenId() == null || linea.cantidad() == null) {
+            return;
+        }
+        MovimientoStockEvent movimiento = tipo == MovimientoStockEvent.Tipo.SALIDA
+                ? MovimientoStockEvent.salida(linea.productoId(), linea.almacenId(), linea.cantidad(), "VENTA", ventaId)
+                : MovimientoStockEvent.entrada(linea.productoId(), linea.almacenId(), linea.cantidad(), null, "VENTA", ventaId);
+        // Con la fecha de la venta: su cancelación se descuenta del periodo
+        // en que se vendió (top de productos, previsión), no del actual
+        eventPublisher.publishEvent(movimiento.withFecha(linea.fecha()));
+    }
+
+    // Qué saca una venta del stock, y cuándo
+    private record Linea(Long productoId, Long almacenId, Integer cantidad, LocalDateTime fecha) {
+
+        static Linea de(Venta venta) {
+            return new Linea(venta.getProducto() != null ? venta.getProducto().getId() : null,
+                    venta.getAlmacen() != null ? venta.getAlmacen().getId() : null,
+                    venta.getCantidad(), venta.getFechaVenta());
+        }
+
+        boolean mismoStock(Linea otra) {
+            return Objects.equals(productoId, otra.productoId) && Objects.equals(almacenId, otra.almacenId)
+                    && Objects.equals(cantidad, otra.cantidad);
+        }
+    }
+
+    // Avisa de la venta con su cliente y día (recuentos de clientes distintos)
+    private void publicarCreada(Venta venta) {
+        if (venta.getCliente() == null || venta.getCliente().getId() == null
+                || venta.getProducto() == null || venta.getProducto().getId() == null
+                || venta.getAlmacen() == null || venta.getAlmacen().getId() == null) {
+            return;
+        }
+        eventPublisher.publishEvent(new VentaCreadaEvent(venta.getId(), venta.getCliente().getId(),
+                venta.getProducto().getId(), venta.getAlmacen().getId(), venta.getFechaVenta().toLocalDate()));
+    }
+}
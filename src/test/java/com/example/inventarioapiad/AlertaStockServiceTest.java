@@ -0,0 +1,122 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.dto.AlertaStock;
+import com.example.inventarioapiad.event.AlertaStockEvent;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.event.StockCambiadoEvent;
+import com.example.inventarioapiad.service.AlertaStockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class AlertaStockServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private AlertaStockService alertaStockService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    // Ventana de 28 días: 56 unidades vendidas hoy = 2 unidades/día.
+    // Con 7 días de entrega (por defecto) + 3 de seguridad el punto de pedido es 20.
+    private void vender(long productoId, int unidades) {
+        alertaStockService.alMoverStock(MovimientoStockEvent.salida(productoId, 1L, unidades, "VENTA", 1L));
+    }
+
+    private void stock(long productoId, int stock) {
+        alertaStockService.alCambiarStock(new StockCambiadoEvent(productoId, "SKU-" + productoId, stock, true));
+    }
+
+    // TEST 1: Por debajo del punto de pedido -> alerta BAJO y evento NUEVA
+    @Test
+    public void testAlertaBajoPuntoPedido() {
+        vender(1L, 56);
+        stock(1L, 15);
+
+        List<AlertaStock> alertas = alertaStockService.alertas(null, null);
+
+        assertEquals(1, alertas.size());
+        assertEquals(AlertaStock.Nivel.BAJO, alertas.get(0).getNivel());
+        assertEquals(20, alertas.get(0).getPuntoPedido());
+        assertEquals(2.0, alertas.get(0).getVentasDiarias());
+        assertEquals(7.5, alertas.get(0).getDiasCobertura());
+        ArgumentCaptor<AlertaStockEvent> captor = ArgumentCaptor.forClass(AlertaStockEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(AlertaStockEvent.Tipo.NUEVA, captor.getValue().getTipo());
+    }
+
+    // TEST 2: Con stock suficiente no hay alerta
+    @Test
+    public void testSinAlertaConStockSuficiente() {
+        vender(1L, 56);
+        stock(1L, 50);
+
+        assertTrue(alertaStockService.alertas(null, null).isEmpty());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    // TEST 3: La cola sale ordenada por urgencia (menos días de cobertura primero)
+    @Test
+    public void testOrdenPorUrgencia() {
+        vender(1L, 56);
+        vender(2L, 56);
+        vender(3L, 56);
+        stock(1L, 18);
+        stock(2L, 0);
+        stock(3L, 10);
+
+        List<AlertaStock> alertas = alertaStockService.alertas(null, null);
+
+        assertEquals(List.of(2L, 3L, 1L), alertas.stream().map(AlertaStock::getProductoId).toList());
+        assertEquals(AlertaStock.Nivel.AGOTADO, alertas.get(0).getNivel());
+        assertEquals(AlertaStock.Nivel.CRITICO, alertas.get(1).getNivel());
+        assertEquals(1, alertaStockService.alertas(null, 1).size());
+        assertEquals(List.of(3L), alertaStockService.alertas(AlertaStock.Nivel.CRITICO, null)
+                .stream().map(AlertaStock::getProductoId).toList());
+    }
+
+    // TEST 4: Al reponer stock la alerta se resuelve y sale de la cola
+    @Test
+    public void testReponerResuelveAlerta() {
+        vender(1L, 56);
+        stock(1L, 5);
+        stock(1L, 100);
+
+        assertTrue(alertaStockService.alertas(null, null).isEmpty());
+        ArgumentCaptor<AlertaStockEvent> captor = ArgumentCaptor.forClass(AlertaStockEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(captor.capture());
+        assertEquals(AlertaStockEvent.Tipo.RESUELTA, captor.getAllValues().get(1).getTipo());
+    }
+
+    // TEST 5: Un producto desactivado no genera alertas aunque esté agotado
+    @Test
+    public void testProductoInactivoSinAlerta() {
+        alertaStockService.alCambiarStock(new StockCambiadoEvent(1L, "SKU-1", 0, false));
+
+        assertTrue(alertaStockService.alertas(null, null).isEmpty());
+    }
+
+    // TEST 6: Límite inválido -> error (400 en el controller)
+    @Test
+    public void testLimiteInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> alertaStockService.alertas(null, 0));
+    }
+}
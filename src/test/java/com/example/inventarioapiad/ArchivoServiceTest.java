@@ -0,0 +1,163 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.entity.Almacen;
+import com.example.inventarioapiad.entity.Cliente;
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.entity.Venta;
+import com.example.inventarioapiad.repository.AlmacenRepository;
+import com.example.inventarioapiad.repository.ClienteRepository;
+import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.repository.VentaRepository;
+import com.example.inventarioapiad.service.ArchivoService;
+import com.example.inventarioapiad.service.VentaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contra la BD: crea tablas, copia con INSERT ... SELECT y borra por lotes.
+@SpringBootTest
+public class ArchivoServiceTest {
+
+    @Autowired
+    private ArchivoService archivoService;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private AlmacenRepository almacenRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Cliente cliente;
+    private Producto producto;
+    private Almacen almacen;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(archivoService, "tamanoLote", 3);
+        ReflectionTestUtils.setField(archivoService, "maxLotes", 0);
+
+        cliente = new Cliente();
+        cliente.setNombre("Archivo");
+        cliente.setEmail("archivo" + System.nanoTime() + "@test.com");
+        cliente.setTelefono("600000000");
+        cliente = clienteRepository.save(cliente);
+
+        producto = new Producto();
+        producto.setNombre("Archivado");
+        producto.setSku("ARCH-" + System.nanoTime());
+        producto.setPrecioVenta(2f);
+        producto.setStockTotal(0);
+        producto = productoRepository.save(producto);
+
+        almacen = new Almacen();
+        almacen.setNombre("Archivo " + System.nanoTime());
+        almacen.setUbicacion("Test");
+        almacen.setStockActual(0);
+        almacen = almacenRepository.save(almacen);
+    }
+
+    private Venta venta(String estado, LocalDateTime fecha) {
+        Venta venta = new Venta();
+        venta.setCliente(cliente);
+        venta.setProducto(producto);
+        venta.setAlmacen(almacen);
+        venta.setCantidad(1);
+        venta.setPrecioUnitario(2f);
+        venta.setFechaVenta(fecha);
+        venta.setNumeroPedido("ARCH-" + System.nanoTime());
+        venta.setEstado(estado);
+        return ventaRepository.save(venta);
+    }
+
+    private long enVentas(List<Long> ids) {
+        return ids.stream().filter(id -> ventaRepository.existsById(id)).count();
+    }
+
+    // TEST 1: Solo se archiva lo cerrado y antiguo, en la tabla de su mes,
+    // y buscarPorId lo sigue encontrando
+    @Test
+    public void testArchivaCerradasAntiguas() {
+        LocalDateTime antigua = LocalDateTime.of(2019, 3, 15, 10, 0);
+        Venta entregada = venta("ENTREGADA", antigua);
+        Venta cancelada = venta("CANCELADA", antigua.plusMonths(1));
+        Venta pendiente = venta("PENDIENTE", antigua);
+        Venta reciente = venta("ENTREGADA", LocalDateTime.now().minusDays(5));
+
+        archivoService.archivar();
+
+        assertFalse(ventaRepository.existsById(entregada.getId()));
+        assertFalse(ventaRepository.existsById(cancelada.getId()));
+        assertTrue(ventaRepository.existsById(pendiente.getId()));
+        assertTrue(ventaRepository.existsById(reciente.getId()));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ventas_archivo_201903 WHERE id = ?", Integer.class, entregada.getId()));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ventas_archivo_201904 WHERE id = ?", Integer.class, cancelada.getId()));
+
+        Venta leida = ventaService.buscarPorId(entregada.getId());
+        assertEquals(entregada.getNumeroPedido(), leida.getNumeroPedido());
+        assertEquals(cliente.getId(), leida.getCliente().getId());
+        assertThrows(RuntimeException.class, () -> ventaService.eliminar(entregada.getId()));
+    }
+
+    // TEST 2: Por lotes y reanudable: una pasada cortada deja todo
+    // consistente y la siguiente termina sin duplicar
+    @Test
+    public void testReanudable() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            ids.add(venta("ENTREGADA", LocalDateTime.of(2018, 6, 1 + i, 12, 0)).getId());
+        }
+        ReflectionTestUtils.setField(archivoService, "maxLotes", 1);
+
+        Map<String, Object> primera = archivoService.archivar();
+
+        assertEquals("INTERRUMPIDO", primera.get("estado"));
+        long quedan = enVentas(ids);
+        assertTrue(quedan > 0 && quedan < 8);
+
+        ReflectionTestUtils.setField(archivoService, "maxLotes", 0);
+        archivoService.archivar();
+
+        assertEquals(0, enVentas(ids));
+        Integer archivadas = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ventas_archivo_201806 WHERE producto_id = ?",
+                Integer.class, producto.getId());
+        assertEquals(8, archivadas);
+    }
+
+    // TEST 3: El histórico completo incluye lo archivado
+    @Test
+    public void testHistoricoIncluyeArchivo() {
+        venta("ENTREGADA", LocalDateTime.of(2017, 1, 10, 9, 0));
+        venta("ENTREGADA", LocalDateTime.now());
+
+        archivoService.archivar();
+
+        Integer total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + archivoService.historico("ventas")
+                + " v WHERE producto_id = ?", Integer.class, producto.getId());
+        assertEquals(2, total);
+        assertThrows(IllegalArgumentException.class, () -> archivoService.historico("clientes"));
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.dto.AsignacionAlmacen;
+import com.example.inventarioapiad.event.AlmacenCambiadoEvent;
+import com.example.inventarioapiad.service.AsignacionAlmacenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AsignacionAlmacenServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private AsignacionAlmacenService asignacionService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private void almacen(long id, Integer capacidad, int stock, boolean activo) {
+        asignacionService.alCambiarAlmacen(new AlmacenCambiadoEvent(id, "A" + id, capacidad, stock, activo));
+    }
+
+    // TEST 1: Validar contra capacidadMaxima - stockActual
+    @Test
+    public void testValidarCapacidad() {
+        almacen(1L, 1000, 900, true);
+
+        assertDoesNotThrow(() -> asignacionService.validar(1L, 100));
+        assertThrows(IllegalArgumentException.class, () -> asignacionService.validar(1L, 101));
+        assertThrows(IllegalArgumentException.class, () -> asignacionService.validar(99L, 1));
+    }
+
+    // TEST 2: Las reservas (compras PENDIENTE) ocupan hueco y se liberan
+    @Test
+    public void testReservarYLiberar() {
+        almacen(1L, 1000, 0, true);
+
+        asignacionService.reservar(1L, 800);
+        assertEquals(200, asignacionService.libre(1L));
+        assertThrows(IllegalArgumentException.class, () -> asignacionService.reservar(1L, 300));
+
+        asignacionService.liberar(1L, 800);
+        assertEquals(1000, asignacionService.libre(1L));
+    }
+
+    // TEST 3: El índice sigue a los cambios del almacén (stock, capacidad, baja)
+    @Test
+    public void testSigueCambiosDeAlmacen() {
+        almacen(1L, 1000, 0, true);
+        almacen(2L, 500, 0, true);
+        assertEquals(1L, asignacionService.elegir(10).getAlmacenId());
+
+        almacen(1L, 1000, 800, true);
+        assertEquals(2L, asignacionService.elegir(10).getAlmacenId());
+
+        almacen(2L, 500, 0, false);
+        assertEquals(1L, asignacionService.elegir(10).getAlmacenId());
+        assertThrows(IllegalArgumentException.class, () -> asignacionService.validar(2L, 1));
+    }
+
+    // TEST 4: Reparto: primero el preferido y luego el de más hueco
+    @Test
+    public void testRepartoEntreAlmacenes() {
+        almacen(1L, 100, 50, true);
+        almacen(2L, 300, 0, true);
+        almacen(3L, 200, 0, true);
+
+        List<AsignacionAlmacen> reparto = asignacionService.reservarRepartido(400, 1L);
+
+        assertEquals(3, reparto.size());
+        assertEquals(1L, reparto.get(0).getAlmacenId());
+        assertEquals(50, reparto.get(0).getCantidad());
+        assertEquals(2L, reparto.get(1).getAlmacenId());
+        assertEquals(300, reparto.get(1).getCantidad());
+        assertEquals(3L, reparto.get(2).getAlmacenId());
+        assertEquals(50, reparto.get(2).getCantidad());
+        assertEquals(150, asignacionService.libre(3L));
+    }
+
+    // TEST 5: Planificar no reserva; si no cabe en total, error
+    @Test
+    public void testPlanificarSinReservar() {
+        almacen(1L, 100, 0, true);
+        almacen(2L, 100, 0, true);
+
+        assertEquals(2, asignacionService.planificar(150, null).size());
+        assertEquals(100, asignacionService.libre(1L));
+        assertEquals(100, asignacionService.libre(2L));
+        assertThrows(IllegalArgumentException.class, () -> asignacionService.planificar(201, null));
+    }
+
+    // TEST 6: Muchos almacenes (el árbol crece) y sin límite de capacidad
+    @Test
+    public void testMuchosAlmacenes() {
+        for (long id = 1; id <= 100; id++) {
+            almacen(id, (int) (id * 10), 0, true);
+        }
+        almacen(101L, null, 0, true);
+
+        assertEquals(101L, asignacionService.elegir(1_000_000).getAlmacenId());
+        almacen(101L, null, 0, false);
+        assertEquals(100L, asignacionService.elegir(1000).getAlmacenId());
+    }
+
+    // TEST 7: Recargar desde la BD deja el mismo hueco libre (las reservas
+    // no se suman a las de la carga anterior)
+    @Test
+    public void testRecargarNoDuplicaReservas() throws Exception {
+        ResultSet almacen = mock(ResultSet.class);
+        when(almacen.getLong(1)).thenReturn(1L);
+        when(almacen.getString(2)).thenReturn("A1");
+        when(almacen.getObject(3)).thenReturn(100);
+        when(almacen.getInt(3)).thenReturn(100);
+        when(almacen.getInt(4)).thenReturn(10);
+        when(almacen.getBoolean(5)).thenReturn(true);
+        ResultSet reserva = mock(ResultSet.class);
+        when(reserva.getLong(1)).thenReturn(1L);
+        when(reserva.getLong(2)).thenReturn(30L);
+        doAnswer(inv -> {
+            inv.getArgument(1, RowCallbackHandler.class).processRow(almacen);
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT id, nombre"), any(RowCallbackHandler.class));
+        doAnswer(inv -> {
+            inv.getArgument(1, RowCallbackHandler.class).processRow(reserva);
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT almacen_id"), any(RowCallbackHandler.class));
+
+        asignacionService.cargar();
+        assertEquals(60, asignacionService.libre(1L));
+        asignacionService.cargar();
+        assertEquals(60, asignacionService.libre(1L));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.entity.Almacen;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.repository.AlmacenRepository;
+import com.example.inventarioapiad.service.AlmacenService;
+import com.example.inventarioapiad.service.CacheSegundoNivelService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Caché de segundo nivel contra la BD: lecturas servidas sin SQL y
+// entradas al día tras las escrituras.
+@SpringBootTest
+public class CacheSegundoNivelTest {
+
+    @Autowired
+    private AlmacenService almacenService;
+
+    @Autowired
+    private AlmacenRepository almacenRepository;
+
+    @Autowired
+    private CacheSegundoNivelService cacheService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estadisticas;
+    private Long almacenId;
+
+    @BeforeEach
+    public void setUp() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // Otros contextos de test pueden haber recreado el esquema en la misma
+        // BD y reutilizado ids que esta caché aún guarda
+        cacheService.vaciarTodo();
+        Almacen almacen = new Almacen();
+        almacen.setNombre("Cacheado " + System.nanoTime());
+        almacen.setUbicacion("Zaragoza");
+        almacen.setCapacidadMaxima(500);
+        almacen.setStockActual(10);
+        almacenId = almacenRepository.save(almacen).getId();
+    }
+
+    // TEST 1: La segunda lectura por id sale de la caché, sin SQL
+    @Test
+    public void testLecturaPorIdDesdeCache() {
+        almacenService.buscarPorId(almacenId);
+
+        long sentencias = estadisticas.getPrepareStatementCount();
+        long aciertos = estadisticas.getDomainDataRegionStatistics("almacenes").getHitCount();
+        Almacen almacen = almacenService.buscarPorId(almacenId);
+
+        assertEquals("Zaragoza", almacen.getUbicacion());
+        assertEquals(sentencias, estadisticas.getPrepareStatementCount());
+        assertEquals(aciertos + 1, estadisticas.getDomainDataRegionStatistics("almacenes").getHitCount());
+    }
+
+    // TEST 2: Las escrituras (actualizar y movimientos de stock) dejan la
+    // entrada de la caché al día
+    @Test
+    public void testEscriturasActualizanLaCache() {
+        almacenService.buscarPorId(almacenId);
+
+        Almacen cambios = new Almacen();
+        cambios.setActivo(null);
+        cambios.setPrioritario(null);
+        cambios.setStockActual(null);
+        cambios.setUbicacion("Huesca");
+        almacenService.actualizar(almacenId, cambios);
+        almacenService.alMoverStock(MovimientoStockEvent.salida(1L, almacenId, 4, "VENTA", 1L));
+
+        long sentencias = estadisticas.getPrepareStatementCount();
+        Almacen almacen = almacenService.buscarPorId(almacenId);
+        assertEquals(sentencias, estadisticas.getPrepareStatementCount());
+        assertEquals("Huesca", almacen.getUbicacion());
+        assertEquals(6, almacen.getStockActual());
+    }
+
+    // TEST 3: Vaciar una región la deja sin entradas; una región que no
+    // existe da error
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testVaciarRegion() {
+        almacenService.buscarPorId(almacenId);
+
+        Map<String, Object> region = cacheService.vaciar("almacenes");
+        assertEquals(0L, region.get("entradas"));
+
+        long fallos = estadisticas.getDomainDataRegionStatistics("almacenes").getMissCount();
+        almacenService.buscarPorId(almacenId);
+        assertEquals(fallos + 1, estadisticas.getDomainDataRegionStatistics("almacenes").getMissCount());
+
+        List<Map<String, Object>> regiones = (List<Map<String, Object>>) cacheService.estado().get("regiones");
+        assertEquals(4, regiones.size());
+        assertThrows(RuntimeException.class, () -> cacheService.vaciar("productos"));
+    }
+}
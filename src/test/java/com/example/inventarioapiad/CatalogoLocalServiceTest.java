@@ -0,0 +1,84 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.service.CatalogoLocalService;
+import com.example.inventarioapiad.service.ProductoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contra la BD: reconstrucción, parches por evento y sincronización por
+// fecha_modificacion.
+@SpringBootTest
+public class CatalogoLocalServiceTest {
+
+    @Autowired
+    private CatalogoLocalService catalogoLocalService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path directorio;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(catalogoLocalService, "habilitado", true);
+        ReflectionTestUtils.setField(catalogoLocalService, "fichero", directorio.resolve("catalogo.bin").toString());
+        ReflectionTestUtils.setField(catalogoLocalService, "margenMs", 0L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReflectionTestUtils.setField(catalogoLocalService, "habilitado", false);
+    }
+
+    private Producto producto(String nombre) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setSku("LOCAL-" + System.nanoTime());
+        producto.setPrecioVenta(4f);
+        producto.setStockTotal(12);
+        return productoService.crear(producto);
+    }
+
+    // TEST 1: Tras reconstruir se lee del fichero; lo creado después llega
+    // por el evento y lo cambiado con SQL nativo al sincronizar
+    @Test
+    public void testReconstruirParchearYSincronizar() throws Exception {
+        Producto previo = producto("Previo");
+        catalogoLocalService.reconstruir();
+        assertTrue(catalogoLocalService.habilitado());
+
+        Producto local = catalogoLocalService.buscarPorId(previo.getId());
+        assertNotNull(local);
+        assertEquals(previo.getSku(), local.getSku());
+        assertEquals(12, local.getStockTotal());
+
+        Producto nuevo = producto("Nuevo");
+        assertEquals("Nuevo", catalogoLocalService.buscarPorSku(nuevo.getSku()).getNombre());
+
+        Thread.sleep(5);
+        jdbcTemplate.update("UPDATE productos SET nombre = ?, clase_abc = 'B' WHERE id = ?", "Renombrado", previo.getId());
+        assertEquals("Previo", catalogoLocalService.buscarPorId(previo.getId()).getNombre());
+        Thread.sleep(5);
+        catalogoLocalService.sincronizar();
+
+        Producto sincronizado = productoService.buscarPorId(previo.getId());
+        assertEquals("Renombrado", sincronizado.getNombre());
+        assertEquals("B", sincronizado.getClaseAbc());
+        assertTrue((Long) catalogoLocalService.estado().get("aciertos") >= 4);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.catalogo.CatalogoMapeado;
+import com.example.inventarioapiad.entity.Producto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogoMapeadoTest {
+
+    @TempDir
+    Path directorio;
+
+    private Producto producto(long id, String sku, int stock) {
+        Producto producto = new Producto(id, "Producto " + id, sku, "Descripción ñ " + id, 0.5f, 1.25f, stock, true,
+                LocalDateTime.of(2024, 1, 2, 3, 4, 5, 678_000));
+        producto.setClaseAbc("A");
+        return producto;
+    }
+
+    // TEST 1: Lo que se escribe se lee igual por id y por SKU, y sigue ahí
+    // al volver a abrir el fichero
+    @Test
+    public void testEscribirLeerYReabrir() throws Exception {
+        Path fichero = directorio.resolve("catalogo.bin");
+        CatalogoMapeado catalogo = CatalogoMapeado.crear(fichero, 16, 256);
+        Producto original = producto(7L, "TOR-M10", 40);
+        original.setPrecioCosto(null);
+        assertTrue(catalogo.escribir(original));
+        catalogo.guardarMarca(LocalDateTime.of(2024, 5, 1, 0, 0));
+        catalogo.close();
+
+        CatalogoMapeado reabierto = CatalogoMapeado.abrir(fichero, 256);
+        assertNotNull(reabierto);
+        for (Producto leido : new Producto[]{reabierto.buscarPorId(7L), reabierto.buscarPorSku("TOR-M10")}) {
+            assertNotNull(leido);
+            assertEquals(original.getNombre(), leido.getNombre());
+            assertEquals(original.getDescripcion(), leido.getDescripcion());
+            assertEquals(1.25f, leido.getPrecioVenta());
+            assertNull(leido.getPrecioCosto());
+            assertEquals(40, leido.getStockTotal());
+            assertEquals("A", leido.getClaseAbc());
+            assertEquals(original.getFechaCreacion(), leido.getFechaCreacion());
+        }
+        assertEquals(LocalDateTime.of(2024, 5, 1, 0, 0), reabierto.marca());
+        assertNull(reabierto.buscarPorId(8L));
+        assertNull(reabierto.buscarPorSku("OTRO"));
+        assertNull(CatalogoMapeado.abrir(fichero, 512));
+        reabierto.close();
+    }
+
+    // TEST 2: Parches de stock, cambio de SKU y producto que deja de caber
+    @Test
+    public void testParches() throws Exception {
+        CatalogoMapeado catalogo = CatalogoMapeado.crear(directorio.resolve("catalogo.bin"), 16, 256);
+        catalogo.escribir(producto(1L, "SKU-A", 10));
+
+        assertTrue(catalogo.actualizarStock(1L, 3, false));
+        assertEquals(3, catalogo.buscarPorId(1L).getStockTotal());
+        assertFalse(catalogo.buscarPorId(1L).getActivo());
+        assertFalse(catalogo.actualizarStock(99L, 3, true));
+
+        catalogo.escribir(producto(1L, "SKU-B", 10));
+        assertNull(catalogo.buscarPorSku("SKU-A"));
+        assertEquals(1L, catalogo.buscarPorSku("SKU-B").getId());
+
+        Producto largo = producto(1L, "SKU-B", 10);
+        largo.setDescripcion("x".repeat(300));
+        assertTrue(catalogo.escribir(largo));
+        assertNull(catalogo.buscarPorId(1L));
+        assertNull(catalogo.buscarPorSku("SKU-B"));
+        catalogo.close();
+    }
+
+    // TEST 3: Sin sitio escribir() avisa para reconstruir
+    @Test
+    public void testLleno() throws Exception {
+        CatalogoMapeado catalogo = CatalogoMapeado.crear(directorio.resolve("catalogo.bin"), 2, 128);
+        assertTrue(catalogo.escribir(producto(1L, "S1", 1)));
+        assertTrue(catalogo.escribir(producto(2L, "S2", 1)));
+        assertFalse(catalogo.escribir(producto(3L, "S3", 1)));
+        assertNull(catalogo.buscarPorId(3L));
+        assertEquals(2, catalogo.registros());
+        catalogo.close();
+    }
+
+    // TEST 4: Un lector concurrente nunca ve un registro a medias
+    @Test
+    public void testLecturaConcurrente() throws Exception {
+        CatalogoMapeado catalogo = CatalogoMapeado.crear(directorio.resolve("catalogo.bin"), 16, 256);
+        Producto inicial = producto(1L, "SKU-0", 0);
+        inicial.setNombre("N0");
+        catalogo.escribir(inicial);
+        AtomicBoolean parar = new AtomicBoolean(false);
+        AtomicReference<String> error = new AtomicReference<>();
+        Thread lector = new Thread(() -> {
+            while (!parar.get()) {
+                Producto leido = catalogo.buscarPorId(1L);
+                // Nombre, SKU y stock se escriben juntos: siempre coinciden
+                if (!leido.getSku().equals("SKU-" + leido.getStockTotal())
+                        || !leido.getNombre().equals("N" + leido.getStockTotal())) {
+                    error.set(leido.getSku() + " / " + leido.getNombre() + " / " + leido.getStockTotal());
+                }
+            }
+        });
+        lector.start();
+        for (int i = 1; i <= 20000; i++) {
+            Producto p = producto(1L, "SKU-" + i, i);
+            p.setNombre("N" + i);
+            catalogo.escribir(p);
+        }
+        parar.set(true);
+        lector.join();
+        assertNull(error.get());
+        assertTrue(Files.size(directorio.resolve("catalogo.bin")) > 0);
+        catalogo.close();
+    }
+}
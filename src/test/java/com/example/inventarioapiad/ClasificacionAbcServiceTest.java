@@ -0,0 +1,110 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.service.ClasificacionAbcService;
+import com.example.inventarioapiad.service.ClasificacionAbcService.IngresosPorProducto;
+import com.example.inventarioapiad.service.ClasificacionAbcService.Resultado;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ClasificacionAbcServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private ClasificacionAbcService clasificacionService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    // TEST 1: El mapa primitivo acumula igual que un HashMap (y crece)
+    @Test
+    public void testMapaIngresos() {
+        IngresosPorProducto ingresos = new IngresosPorProducto(16);
+        Map<Long, Long> esperado = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long id = 1 + random.nextInt(5000);
+            long valor = random.nextInt(1000);
+            ingresos.sumar(id, valor);
+            esperado.merge(id, valor, Long::sum);
+        }
+
+        assertEquals(esperado.size(), ingresos.tamano());
+        esperado.forEach((id, valor) -> assertEquals(valor, ingresos.obtener(id), "id " + id));
+        assertEquals(0, ingresos.obtener(99_999L));
+        assertThrows(IllegalArgumentException.class, () -> ingresos.sumar(0, 1));
+    }
+
+    // TEST 2: Reparto 80/95 con ingresos conocidos
+    @Test
+    public void testClasesPorUmbral() {
+        IngresosPorProducto ingresos = new IngresosPorProducto(16);
+        // Total 1000: 500 + 300 llegan al 80%, 100 + 50 al 95%, el resto es C
+        ingresos.sumar(1L, 300);
+        ingresos.sumar(2L, 100);
+        ingresos.sumar(3L, 500);
+        ingresos.sumar(4L, 50);
+        ingresos.sumar(5L, 30);
+        ingresos.sumar(6L, 20);
+
+        Resultado resultado = ClasificacionAbcService.calcular(ingresos, 0.80, 0.95);
+
+        assertArrayEquals(new long[]{3L, 1L}, resultado.claseA);
+        assertArrayEquals(new long[]{2L, 4L}, resultado.claseB);
+        assertEquals(1000, resultado.total);
+        assertEquals(800, resultado.ingresosA);
+        assertEquals(150, resultado.ingresosB);
+    }
+
+    // TEST 3: Un solo producto que se lleva casi todo es el único A
+    @Test
+    public void testProductoDominante() {
+        IngresosPorProducto ingresos = new IngresosPorProducto(16);
+        ingresos.sumar(1L, 9_000);
+        for (long id = 2; id <= 101; id++) {
+            ingresos.sumar(id, 10);
+        }
+
+        Resultado resultado = ClasificacionAbcService.calcular(ingresos, 0.80, 0.95);
+
+        assertArrayEquals(new long[]{1L}, resultado.claseA);
+        // 9000 + 50 * 10 = 9500 = 95%
+        assertEquals(50, resultado.claseB.length);
+    }
+
+    // TEST 4: Sin ventas todo queda en C
+    @Test
+    public void testSinVentas() {
+        Resultado resultado = ClasificacionAbcService.calcular(new IngresosPorProducto(16), 0.80, 0.95);
+
+        assertEquals(0, resultado.claseA.length);
+        assertEquals(0, resultado.claseB.length);
+    }
+
+    // TEST 5: Clasificar pone todo a C y guarda A y B por lotes
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testClasificarPersiste() {
+        Map<String, Object> resumen = clasificacionService.clasificar();
+
+        verify(jdbcTemplate).update(contains("clase_abc = 'C'"));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertEquals(0L, resumen.get("ventasLeidas"));
+        assertSame(resumen, clasificacionService.resumen());
+    }
+}
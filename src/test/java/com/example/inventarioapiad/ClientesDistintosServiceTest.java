@@ -0,0 +1,187 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.event.VentaCreadaEvent;
+import com.example.inventarioapiad.service.ArchivoService;
+import com.example.inventarioapiad.service.ClientesDistintosService;
+import com.example.inventarioapiad.service.ClientesDistintosService.HyperLogLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ClientesDistintosServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ArchivoService archivoService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ClientesDistintosService clientesService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private static HyperLogLog hll(long desde, long hasta) {
+        HyperLogLog hll = new HyperLogLog();
+        for (long id = desde; id < hasta; id++) {
+            hll.anadir(id);
+        }
+        return hll;
+    }
+
+    // TEST 1: La estimación queda dentro de 3 errores estándar, con pocos y con muchos
+    @Test
+    public void testEstimacion() {
+        for (int n : new int[]{10, 1_000, 100_000}) {
+            double estimacion = hll(1, n + 1).estimar();
+            assertEquals(n, estimacion, Math.max(1, n * 3 * HyperLogLog.ERROR_ESTANDAR), "n = " + n);
+        }
+        // Repetir clientes no cambia nada
+        HyperLogLog repetidos = hll(1, 501);
+        repetidos.unir(hll(1, 501));
+        assertEquals(500, repetidos.estimar(), 500 * 3 * HyperLogLog.ERROR_ESTANDAR);
+    }
+
+    // TEST 2: Unir dos sketches estima la unión (los comunes cuentan una vez)
+    @Test
+    public void testUnion() {
+        HyperLogLog a = hll(1, 30_001);
+        a.unir(hll(20_001, 50_001));
+
+        assertEquals(50_000, a.estimar(), 50_000 * 3 * HyperLogLog.ERROR_ESTANDAR);
+        assertFalse(a.disperso());
+    }
+
+    // TEST 3: Serializar y leer conserva la estimación; disperso ocupa poco
+    @Test
+    public void testSerializacion() {
+        HyperLogLog pequeno = hll(1, 51);
+        byte[] compacto = pequeno.serializar();
+        assertTrue(pequeno.disperso());
+        assertTrue(compacto.length <= 1 + 3 * 50);
+        assertEquals(pequeno.estimar(), HyperLogLog.deserializar(compacto).estimar(), 1e-9);
+
+        HyperLogLog grande = hll(1, 20_001);
+        byte[] denso = grande.serializar();
+        assertEquals(1 + HyperLogLog.M * 6 / 8, denso.length);
+        assertEquals(grande.estimar(), HyperLogLog.deserializar(denso).estimar(), 1e-9);
+
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.deserializar(new byte[]{9}));
+    }
+
+    // TEST 4: Las ventas alimentan producto, almacén y total, y se unen por días
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConsultaPorDimensiones() {
+        LocalDate hoy = LocalDate.now();
+        long venta = 1;
+        for (long cliente = 1; cliente <= 40; cliente++) {
+            // Los 40 compran el producto 1 en el almacén 1 hoy y ayer
+            clientesService.alCrearVenta(new VentaCreadaEvent(venta++, cliente, 1L, 1L, hoy));
+            clientesService.alCrearVenta(new VentaCreadaEvent(venta++, cliente, 1L, 1L, hoy.minusDays(1)));
+        }
+        for (long cliente = 41; cliente <= 50; cliente++) {
+            clientesService.alCrearVenta(new VentaCreadaEvent(venta++, cliente, 2L, 2L, hoy));
+        }
+
+        Map<String, Object> producto = clientesService.consultar(1L, null, hoy.minusDays(1), hoy, true);
+        assertEquals(40L, producto.get("clientesDistintos"));
+        assertEquals(80L, producto.get("ventas"));
+        assertEquals(2.0, (Double) producto.get("ventasPorCliente"), 0.05);
+        assertEquals(2, ((List<Map<String, Object>>) producto.get("porDia")).size());
+
+        assertEquals(10L, clientesService.consultar(null, 2L, hoy, hoy, false).get("clientesDistintos"));
+        assertEquals(50L, clientesService.consultar(null, null, null, null, false).get("clientesDistintos"));
+    }
+
+    // TEST 5: Guarda solo los sketches modificados
+    @Test
+    public void testGuardarSoloModificados() {
+        clientesService.alCrearVenta(new VentaCreadaEvent(1L, 1L, 1L, 1L, LocalDate.now()));
+
+        assertEquals(3, clientesService.guardar());
+        verify(jdbcTemplate).batchUpdate(contains("ON DUPLICATE KEY UPDATE"), anyList());
+        assertEquals(0, clientesService.guardar());
+    }
+
+    // TEST 6: Validación de la petición
+    @Test
+    public void testPeticionInvalida() {
+        LocalDate hoy = LocalDate.now();
+        assertThrows(IllegalArgumentException.class, () -> clientesService.consultar(1L, 1L, null, null, false));
+        assertThrows(IllegalArgumentException.class, () -> clientesService.consultar(-1L, null, null, null, false));
+        assertThrows(IllegalArgumentException.class, () -> clientesService.consultar(null, null, hoy, hoy.minusDays(1), false));
+        assertThrows(IllegalArgumentException.class, () -> clientesService.consultar(null, null, hoy.minusDays(5000), hoy, false));
+    }
+
+    // TEST 7: La reconstrucción lee también las ventas archivadas (la
+    // retención pasa del horizonte de archivo)
+    @Test
+    public void testReconstruirIncluyeArchivo() {
+        when(archivoService.historico("ventas")).thenReturn("(SELECT * FROM ventas UNION ALL SELECT * FROM ventas_2025_01)");
+
+        clientesService.reconstruir();
+
+        verify(jdbcTemplate).query(contains("FROM (SELECT * FROM ventas UNION ALL SELECT * FROM ventas_2025_01) v"),
+                any(RowCallbackHandler.class), any(Object.class));
+    }
+
+    // TEST 8: Durante la reconstrucción guardar() no escribe, y si la tabla
+    // nueva no se confirma siguen los sketches de antes
+    @Test
+    public void testReconstruirEnUnaTransaccion() {
+        LocalDate hoy = LocalDate.now();
+        when(archivoService.historico("ventas")).thenReturn("ventas");
+        clientesService.alCrearVenta(new VentaCreadaEvent(1L, 1L, 1L, 1L, hoy));
+        int[] guardadosDurante = {-1};
+        doAnswer(inv -> {
+            guardadosDurante[0] = clientesService.guardar();
+            RowCallbackHandler handler = inv.getArgument(1);
+            for (long cliente = 2; cliente <= 3; cliente++) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong(1)).thenReturn(cliente);
+                when(rs.getLong(2)).thenReturn(1L);
+                when(rs.getLong(3)).thenReturn(1L);
+                when(rs.getDate(4)).thenReturn(Date.valueOf(hoy));
+                when(rs.getLong(5)).thenReturn(1L);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT cliente_id"), any(RowCallbackHandler.class), any(Object.class));
+        when(jdbcTemplate.batchUpdate(contains("ON DUPLICATE KEY UPDATE"), anyList()))
+                .thenThrow(new RuntimeException("bloqueo"));
+
+        assertThrows(RuntimeException.class, () -> clientesService.reconstruir());
+        assertEquals(0, guardadosDurante[0]);
+        verify(transactionManager).rollback(any());
+        assertEquals(1L, clientesService.consultar(1L, null, hoy, hoy, false).get("clientesDistintos"));
+
+        doReturn(new int[0]).when(jdbcTemplate).batchUpdate(contains("ON DUPLICATE KEY UPDATE"), anyList());
+        clientesService.reconstruir();
+        verify(transactionManager).commit(any());
+        verify(jdbcTemplate, times(2)).update("DELETE FROM sketch_clientes");
+        assertEquals(2L, clientesService.consultar(1L, null, hoy, hoy, false).get("clientesDistintos"));
+    }
+}
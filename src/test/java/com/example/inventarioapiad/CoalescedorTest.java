@@ -0,0 +1,124 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.coalescencia.Coalescedor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Single-flight: varias lecturas iguales a la vez hacen una sola carga y
+// cada una recibe su propia instancia.
+public class CoalescedorTest {
+
+    private static final int HILOS = 8;
+
+    private final Coalescedor<Long, StringBuilder> coalescedor = new Coalescedor<>(s -> new StringBuilder(s));
+
+    // TEST 1: Con la carga bloqueada, las demás peticiones se unen a ella:
+    // una sola carga y resultados iguales pero no la misma instancia
+    @Test
+    public void testPeticionesSimultaneasHacenUnaCarga() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicInteger cargas = new AtomicInteger();
+        Supplier<StringBuilder> carga = () -> {
+            cargas.incrementAndGet();
+            esperar(liberar);
+            return new StringBuilder("almacén 1");
+        };
+
+        List<StringBuilder> resultados = lanzar(() -> coalescedor.ejecutar(1L, carga), liberar);
+
+        assertEquals(1, cargas.get());
+        for (int i = 0; i < HILOS; i++) {
+            assertEquals("almacén 1", resultados.get(i).toString());
+            for (int j = i + 1; j < HILOS; j++) {
+                assertNotSame(resultados.get(i), resultados.get(j));
+            }
+        }
+        assertEquals((long) HILOS, coalescedor.estadisticas().get("peticiones"));
+        assertEquals(1L, coalescedor.estadisticas().get("cargas"));
+        assertEquals(0, coalescedor.estadisticas().get("enVuelo"));
+    }
+
+    // TEST 2: Si la carga falla, todas las que esperaban ven la misma excepción
+    @Test
+    public void testExcepcionLlegaATodas() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        Supplier<StringBuilder> carga = () -> {
+            esperar(liberar);
+            throw new RuntimeException("Almacén no encontrado con ID: 2");
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        List<Future<StringBuilder>> futuros = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            futuros.add(pool.submit(() -> coalescedor.ejecutar(2L, carga)));
+        }
+        esperarSeguidoras();
+        liberar.countDown();
+        for (Future<StringBuilder> futuro : futuros) {
+            Exception e = assertThrows(Exception.class, () -> futuro.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(RuntimeException.class, e.getCause());
+            assertEquals("Almacén no encontrado con ID: 2", e.getCause().getMessage());
+        }
+        pool.shutdown();
+        assertEquals(0, coalescedor.estadisticas().get("enVuelo"));
+    }
+
+    // TEST 3: Claves distintas no se coalescen y, sin nadie unido, la líder
+    // se queda el objeto cargado
+    @Test
+    public void testClavesDistintasYLlamadasSeguidas() {
+        StringBuilder cargado = new StringBuilder("uno");
+        assertSame(cargado, coalescedor.ejecutar(1L, () -> cargado));
+        coalescedor.ejecutar(2L, () -> new StringBuilder("dos"));
+        coalescedor.ejecutar(1L, () -> new StringBuilder("uno otra vez"));
+
+        assertEquals(3L, coalescedor.estadisticas().get("cargas"));
+        assertEquals(0L, coalescedor.estadisticas().get("coalescidas"));
+        assertEquals(0.0, coalescedor.estadisticas().get("ratioCoalescencia"));
+    }
+
+    private List<StringBuilder> lanzar(java.util.concurrent.Callable<StringBuilder> tarea, CountDownLatch liberar)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        List<Future<StringBuilder>> futuros = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            futuros.add(pool.submit(tarea));
+        }
+        esperarSeguidoras();
+        liberar.countDown();
+        List<StringBuilder> resultados = new ArrayList<>();
+        for (Future<StringBuilder> futuro : futuros) {
+            resultados.add(futuro.get(5, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        return resultados;
+    }
+
+    // Hasta que todas menos la líder se han unido a la carga en vuelo
+    private void esperarSeguidoras() throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((long) coalescedor.estadisticas().get("coalescidas") < HILOS - 1) {
+            assertTrue(System.nanoTime() < limite, "Las peticiones no se han unido a la carga");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,17 +2,26 @@ package com.example.inventarioapiad;
 
 import com.example.inventarioapiad.entity.*;
 import com.example.inventarioapiad.repository.CompraRepository;
+import com.example.inventarioapiad.service.AsignacionAlmacenService;
 import com.example.inventarioapiad.service.CompraService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 public class CompraServiceTest {
@@ -20,6 +29,12 @@ public class CompraServiceTest {
     @Mock
     private CompraRepository compraRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private AsignacionAlmacenService asignacionService;
+
     @InjectMocks
     private CompraService compraService;
 
@@ -50,6 +65,24 @@ public class CompraServiceTest {
         verify(compraRepository, times(1)).save(any(Compra.class));
     }
 
+    // Almacén sin hueco: no se guarda nada
+    @Test
+    public void testCrearCompraSinCapacidad() {
+        Compra compra = new Compra();
+        compra.setProveedor(new Proveedor(1L, "Proveedor", "email@test.com", null, null, null, true, null));
+        compra.setProducto(new Producto(1L, "Producto", "SKU", null, 0.5f, 1.0f, 100, true, null));
+        compra.setAlmacen(new Almacen(1L, "Almacén", "Ubicación", 10000, 9950, null, true, false, null));
+        compra.setCantidad(100);
+        compra.setPrecioUnitario(1.0f);
+        compra.setFechaCompra(LocalDateTime.now());
+
+        doThrow(new IllegalArgumentException("El almacén 1 no tiene capacidad para 100 unidades (libre: 50)"))
+                .when(asignacionService).reservar(1L, 100);
+
+        assertThrows(IllegalArgumentException.class, () -> compraService.crear(compra));
+        verify(compraRepository, never()).save(any(Compra.class));
+    }
+
     @Test
     public void testCrearCompraSinProveedor() {
         Compra compra = new Compra();
@@ -123,4 +156,93 @@ public class CompraServiceTest {
 
         verify(compraRepository, times(1)).save(any(Compra.class));
     }
-}
\ No newline at end of file
+
+    // Dentro de una transacción el hueco de una compra cancelada solo se
+    // suelta tras el commit, y la reserva de una compra nueva se devuelve si
+    // la transacción se deshace
+    @Test
+    public void testReservasSiguenALaTransaccion() {
+        Compra pendiente = new Compra();
+        pendiente.setId(1L);
+        pendiente.setEstado("PENDIENTE");
+        pendiente.setCantidad(40);
+        pendiente.setAlmacen(new Almacen(1L, "Almacén", "Ubicación", 10000, 5000, null, true, false, null));
+        when(compraRepository.findById(1L)).thenReturn(Optional.of(pendiente));
+        when(compraRepository.save(any(Compra.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        List<TransactionSynchronization> sincronizaciones = enTransaccion(() -> compraService.eliminar(1L));
+        verify(asignacionService, never()).liberar(anyLong(), anyInt());
+        sincronizaciones.forEach(TransactionSynchronization::afterCommit);
+        verify(asignacionService).liberar(1L, 40);
+
+        Compra nueva = new Compra();
+        nueva.setProveedor(new Proveedor(1L, "Proveedor", "email@test.com", null, null, null, true, null));
+        nueva.setProducto(new Producto(1L, "Producto", "SKU", null, 0.5f, 1.0f, 100, true, null));
+        nueva.setAlmacen(new Almacen(2L, "Almacén", "Ubicación", 10000, 5000, null, true, false, null));
+        nueva.setCantidad(100);
+        nueva.setPrecioUnitario(1.0f);
+        nueva.setFechaCompra(LocalDateTime.now());
+
+        sincronizaciones = enTransaccion(() -> compraService.crear(nueva));
+        verify(asignacionService).reservar(2L, 100);
+        sincronizaciones.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        verify(asignacionService).liberar(2L, 100);
+    }
+
+    private static List<TransactionSynchronization> enTransaccion(Runnable accion) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            accion.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private Compra compraRecibida() {
+        Compra compra = new Compra();
+        compra.setId(1L);
+        compra.setEstado("RECIBIDA");
+        compra.setCantidad(100);
+        compra.setPrecioUnitario(1.0f);
+        compra.setProducto(new Producto(1L, "Producto", "SKU", null, 0.5f, 1.0f, 100, true, null));
+        compra.setAlmacen(new Almacen(1L, "Almacén", "Ubicación", 10000, 5000, null, true, false, null));
+        when(compraRepository.findById(1L)).thenReturn(Optional.of(compra));
+        when(compraRepository.save(any(Compra.class))).thenAnswer(inv -> inv.getArgument(0));
+        return compra;
+    }
+
+    // Una compra RECIBIDA no vuelve a PENDIENTE (al recibirla otra vez
+    // entraría dos veces) ni cambia lo que entró
+    @Test
+    public void testRecibidaSoloSeCancela() {
+        compraRecibida();
+        Compra aPendiente = new Compra();
+        aPendiente.setEstado("PENDIENTE");
+        Compra otraCantidad = new Compra();
+        otraCantidad.setCantidad(5);
+        otraCantidad.setEstado("CANCELADA");
+
+        assertThrows(IllegalStateException.class, () -> compraService.actualizar(1L, aPendiente));
+        assertThrows(IllegalStateException.class, () -> compraService.actualizar(1L, otraCantidad));
+        verify(compraRepository, never()).save(any(Compra.class));
+        verify(asignacionService, never()).reservar(anyLong(), anyInt());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    // Cancelar una RECIBIDA saca lo que entró, en su almacén
+    @Test
+    public void testCancelarRecibidaSacaLoQueEntro() {
+        compraRecibida();
+        Compra cancelar = new Compra();
+        cancelar.setEstado("CANCELADA");
+
+        compraService.actualizar(1L, cancelar);
+
+        ArgumentCaptor<MovimientoStockEvent> captor = ArgumentCaptor.forClass(MovimientoStockEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(MovimientoStockEvent.Tipo.SALIDA, captor.getValue().getTipo());
+        assertEquals(1L, captor.getValue().getAlmacenId());
+        assertEquals(100, captor.getValue().getCantidad());
+    }
+}
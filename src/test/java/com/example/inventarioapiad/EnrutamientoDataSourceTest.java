@@ -0,0 +1,156 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.config.EnrutamientoDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Dos BDs H2 en memoria independientes (primaria y réplica) con una fila
+// que dice de cuál se ha leído.
+public class EnrutamientoDataSourceTest {
+
+    private EnrutamientoDataSource enrutamiento;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate lectura;
+    private TransactionTemplate escritura;
+    private volatile long retardoReplica = 0;
+
+    private static DataSource bd(String nombre) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + nombre + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS origen (nombre VARCHAR(20))");
+        jdbc.update("DELETE FROM origen");
+        jdbc.update("INSERT INTO origen VALUES (?)", nombre);
+        return dataSource;
+    }
+
+    private void preparar(DataSource replica) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica", replica);
+        enrutamiento = new EnrutamientoDataSource(bd("primaria"), replicas) {
+            @Override
+            protected long medirRetardo(Connection conexion) {
+                return retardoReplica;
+            }
+        };
+        enrutamiento.afterPropertiesSet();
+        enrutamiento.setRetardoMaximoMs(1000);
+        enrutamiento.setLecturaPropiaMs(200);
+        enrutamiento.comprobar();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(enrutamiento);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transacciones = new DataSourceTransactionManager(dataSource);
+        lectura = new TransactionTemplate(transacciones);
+        lectura.setReadOnly(true);
+        escritura = new TransactionTemplate(transacciones);
+    }
+
+    private String leer() {
+        return lectura.execute(estado -> jdbcTemplate.queryForObject("SELECT nombre FROM origen", String.class));
+    }
+
+    @BeforeEach
+    public void setUp() {
+        preparar(bd("replica"));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        RequestContextHolder.resetRequestAttributes();
+        enrutamiento.close();
+    }
+
+    private static <T> T enPeticion(MockHttpServletRequest peticion, MockHttpServletResponse respuesta,
+                                    Supplier<T> accion) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(peticion, respuesta));
+        try {
+            return accion.get();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    // TEST 1: readOnly va a la réplica y el resto a la primaria
+    @Test
+    public void testLecturasAReplica() {
+        assertEquals("replica", leer());
+        assertEquals("primaria", jdbcTemplate.queryForObject("SELECT nombre FROM origen", String.class));
+        assertEquals("primaria", escritura.execute(estado ->
+                jdbcTemplate.queryForObject("SELECT nombre FROM origen", String.class)));
+    }
+
+    // TEST 2: Tras escribir, las lecturas van a la primaria durante la
+    // ventana (retardo medido + margen) y luego vuelven a la réplica
+    @Test
+    public void testLeerLoPropioEscrito() throws Exception {
+        retardoReplica = 300;
+        enrutamiento.comprobar();
+        escritura.executeWithoutResult(estado -> jdbcTemplate.update("UPDATE origen SET nombre = nombre"));
+
+        assertEquals("primaria", leer());
+        Thread.sleep(700);
+        assertEquals("replica", leer());
+    }
+
+    // TEST 3: Réplica con demasiado retardo o caída -> primaria, y vuelve
+    // cuando se recupera
+    @Test
+    public void testRetardoExcesivo() {
+        retardoReplica = 5000;
+        enrutamiento.comprobar();
+        assertFalse(enrutamiento.getReplicas().get(0).isSana());
+        assertEquals("primaria", leer());
+
+        retardoReplica = 0;
+        enrutamiento.comprobar();
+        assertEquals("replica", leer());
+    }
+
+    // TEST 4: Si la réplica no da conexión, la lectura va a la primaria y
+    // la réplica se marca caída
+    @Test
+    public void testReplicaCaida() throws Exception {
+        enrutamiento.close();
+        preparar(new DriverManagerDataSource("jdbc:h2:tcp://127.0.0.1:1/no-existe", "sa", ""));
+
+        assertEquals("primaria", leer());
+        assertFalse(enrutamiento.getReplicas().get(0).isSana());
+        assertEquals(1L, enrutamiento.estado().get("conmutaciones"));
+    }
+
+    // TEST 5: Dos clientes anónimos no comparten la ventana: el que escribe
+    // se lleva la cookie y lee de la primaria, el otro sigue en la réplica
+    @Test
+    public void testLecturaPropiaPorClienteAnonimo() {
+        enrutamiento.setLecturaPropiaMs(5000);
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+        enPeticion(new MockHttpServletRequest(), respuesta, () -> escritura.execute(estado ->
+                jdbcTemplate.update("UPDATE origen SET nombre = nombre")));
+        assertNotNull(respuesta.getCookie(EnrutamientoDataSource.COOKIE_LECTURA_PROPIA));
+
+        MockHttpServletRequest conCookie = new MockHttpServletRequest();
+        conCookie.setCookies(respuesta.getCookie(EnrutamientoDataSource.COOKIE_LECTURA_PROPIA));
+        assertEquals("primaria", enPeticion(conCookie, new MockHttpServletResponse(), this::leer));
+        assertEquals("replica", enPeticion(new MockHttpServletRequest(), new MockHttpServletResponse(), this::leer));
+        // Y fuera de una petición tampoco cuenta la escritura de otro
+        assertEquals("replica", leer());
+    }
+}
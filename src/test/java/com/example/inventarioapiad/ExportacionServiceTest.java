@@ -0,0 +1,132 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.exportacion.FormatoColumnar;
+import com.example.inventarioapiad.exportacion.FormatoColumnar.Columna;
+import com.example.inventarioapiad.exportacion.FormatoColumnar.Tipo;
+import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.service.ExportacionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Formato columnar (ida y vuelta) y exportación incremental contra la BD.
+@SpringBootTest
+public class ExportacionServiceTest {
+
+    @Autowired
+    private ExportacionService exportacionService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path directorio;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(exportacionService, "directorio", directorio.toString());
+        ReflectionTestUtils.setField(exportacionService, "margenMs", 0L);
+        ReflectionTestUtils.setField(exportacionService, "filasPorGrupo", 4);
+    }
+
+    private Producto producto(String nombre) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setSku("EXP-" + System.nanoTime());
+        producto.setPrecioVenta(3.5f);
+        producto.setStockTotal(0);
+        return productoRepository.save(producto);
+    }
+
+    // TEST 1: Cada codificación devuelve lo mismo que se escribió, con
+    // nulos y varios grupos
+    @Test
+    public void testFormatoIdaYVuelta() throws Exception {
+        List<Columna> columnas = List.of(new Columna("id", Tipo.ENTERO), new Columna("repetido", Tipo.ENTERO),
+                new Columna("precio", Tipo.DECIMAL), new Columna("activo", Tipo.BOOLEANO),
+                new Columna("estado", Tipo.TEXTO), new Columna("nombre", Tipo.TEXTO), new Columna("fecha", Tipo.FECHA));
+        LocalDateTime base = LocalDateTime.of(2024, 5, 1, 10, 0, 0, 123_456_000);
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            filas.add(new Object[]{(long) (1000 + i), 7L, i % 5 == 0 ? null : 1.25f * i, i % 3 == 0,
+                    i < 20 ? "ENTREGADA" : "CANCELADA", i == 4 ? null : "Producto ñ " + i,
+                    base.plusSeconds(i * 61L)});
+        }
+        Path salida = directorio.resolve("formato");
+        FormatoColumnar.Escritor escritor = new FormatoColumnar.Escritor(salida, columnas, 8);
+        for (Object[] fila : filas) {
+            escritor.escribir(fila);
+        }
+        escritor.close();
+
+        assertEquals(23, escritor.filas());
+        assertEquals(3, escritor.grupos());
+        assertTrue(escritor.codificaciones().containsKey("id:DELTA"));
+        assertTrue(escritor.codificaciones().containsKey("repetido:RLE"));
+        assertTrue(escritor.codificaciones().containsKey("estado:DICCIONARIO"));
+        assertTrue(escritor.codificaciones().containsKey("nombre:PLANO"));
+        for (int c = 0; c < columnas.size(); c++) {
+            List<Object> leidos = FormatoColumnar.leer(
+                    salida.resolve(columnas.get(c).nombre() + FormatoColumnar.EXTENSION), columnas.get(c).tipo());
+            assertEquals(filas.size(), leidos.size());
+            for (int i = 0; i < filas.size(); i++) {
+                assertEquals(filas.get(i)[c], leidos.get(i), columnas.get(c).nombre() + " fila " + i);
+            }
+        }
+    }
+
+    // TEST 2: La segunda exportación solo trae lo modificado desde la
+    // marca, también si se modifica con SQL nativo
+    @Test
+    public void testExportacionIncremental() throws Exception {
+        Producto a = producto("Exportado A");
+        Producto b = producto("Exportado B");
+
+        Map<String, Object> completa = exportacionService.exportar("productos", true);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> primera = (Map<String, Object>) completa.get("productos");
+        assertTrue((Long) primera.get("filas") >= 2);
+        Path primerDirectorio = Path.of((String) primera.get("directorio"));
+        assertTrue(FormatoColumnar.leer(primerDirectorio.resolve("id.col"), Tipo.ENTERO)
+                .containsAll(List.of(a.getId(), b.getId())));
+        assertTrue(Files.exists(primerDirectorio.resolve("_esquema.json")));
+
+        Thread.sleep(5);
+        jdbcTemplate.update("UPDATE productos SET nombre = ? WHERE id = ?", "Renombrado", b.getId());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> segunda = (Map<String, Object>) exportacionService.exportar("productos", false).get("productos");
+        assertEquals(1L, segunda.get("filas"));
+        Path segundoDirectorio = Path.of((String) segunda.get("directorio"));
+        assertEquals(List.of(b.getId()), FormatoColumnar.leer(segundoDirectorio.resolve("id.col"), Tipo.ENTERO));
+        assertEquals(List.of("Renombrado"), FormatoColumnar.leer(segundoDirectorio.resolve("nombre.col"), Tipo.TEXTO));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> tercera = (Map<String, Object>) exportacionService.exportar("productos", false).get("productos");
+        assertEquals(0L, tercera.get("filas"));
+        assertNull(tercera.get("directorio"));
+    }
+
+    // TEST 3: Tablas desconocidas se rechazan
+    @Test
+    public void testTablaNoExportable() {
+        assertThrows(IllegalArgumentException.class, () -> exportacionService.exportar("usuarios", false));
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.config.FormatosBinariosConfig;
+import com.example.inventarioapiad.entity.Almacen;
+import com.example.inventarioapiad.entity.Cliente;
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.entity.Venta;
+import com.example.inventarioapiad.repository.AlmacenRepository;
+import com.example.inventarioapiad.repository.ClienteRepository;
+import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.repository.VentaRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compresión gzip de Tomcat y negociación de Smile/CBOR, por HTTP de
+// verdad (la compresión no pasa por MockMvc).
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class FormatosRespuestaTest {
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private AlmacenRepository almacenRepository;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private String token;
+    private Long ventaId;
+
+    @BeforeEach
+    public void preparar() throws Exception {
+        String usuario = "formatos" + System.nanoTime();
+        HttpResponse<String> registro = http.send(HttpRequest.newBuilder(uri("/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\": \"" + usuario + "\", \"password\": \"secreta123\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        token = objectMapper.readTree(registro.body()).path("token").asText();
+
+        String marca = Long.toString(System.nanoTime());
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Cliente formatos");
+        cliente.setEmail("formatos" + marca + "@example.com");
+        cliente = clienteRepository.save(cliente);
+        Producto producto = new Producto();
+        producto.setNombre("Producto formatos con un nombre largo");
+        producto.setSku("FMT-" + marca);
+        producto.setPrecioVenta(12.5f);
+        producto.setStockTotal(100);
+        producto = productoRepository.save(producto);
+        Almacen almacen = new Almacen();
+        almacen.setNombre("Almacén formatos");
+        almacen.setUbicacion("Zaragoza");
+        almacen.setCapacidadMaxima(1000);
+        almacen = almacenRepository.save(almacen);
+        for (int i = 0; i < 10; i++) {
+            Venta venta = new Venta();
+            venta.setCliente(cliente);
+            venta.setProducto(producto);
+            venta.setAlmacen(almacen);
+            venta.setCantidad(1 + i);
+            venta.setPrecioUnitario(12.5f);
+            venta.setFechaVenta(LocalDateTime.now());
+            venta.setNumeroPedido("FMT-" + marca + "-" + i);
+            ventaId = ventaRepository.save(venta).getId();
+        }
+    }
+
+    // TEST 1: Un listado grande sale comprimido con gzip si el cliente lo
+    // acepta; una respuesta pequeña (una venta) no se comprime
+    @Test
+    public void testCompresionGzip() throws Exception {
+        HttpResponse<byte[]> listado = get("/api/ventas", "application/json", true);
+        assertEquals(200, listado.statusCode());
+        assertEquals("gzip", listado.headers().firstValue("Content-Encoding").orElse(null));
+        byte[] descomprimido = new GZIPInputStream(new ByteArrayInputStream(listado.body())).readAllBytes();
+        assertTrue(descomprimido.length > listado.body().length);
+        assertTrue(objectMapper.readTree(descomprimido).size() >= 10);
+
+        HttpResponse<byte[]> una = get("/api/ventas/" + ventaId, "application/json", true);
+        assertEquals(200, una.statusCode());
+        assertTrue(una.headers().firstValue("Content-Encoding").isEmpty());
+        assertEquals(una.body().length, una.headers().firstValueAsLong("Content-Length").orElse(-1));
+    }
+
+    // TEST 2: Con Accept Smile o CBOR la misma venta sale en ese formato, con
+    // el mismo contenido que en JSON (fechas incluidas) y en menos bytes
+    @Test
+    public void testSmileYCbor() throws Exception {
+        HttpResponse<byte[]> json = get("/api/ventas/" + ventaId, "application/json", false);
+        JsonNode esperado = objectMapper.readTree(json.body());
+
+        HttpResponse<byte[]> smile = get("/api/ventas/" + ventaId, FormatosBinariosConfig.SMILE, false);
+        assertEquals(200, smile.statusCode());
+        assertTrue(smile.headers().firstValue("Content-Type").orElse("").startsWith(FormatosBinariosConfig.SMILE));
+        assertEquals(esperado, comoJson(new ObjectMapper(new SmileFactory()).readTree(smile.body())));
+        assertTrue(smile.body().length < json.body().length);
+
+        HttpResponse<byte[]> cbor = get("/api/ventas/" + ventaId, FormatosBinariosConfig.CBOR, false);
+        assertEquals(200, cbor.statusCode());
+        assertTrue(cbor.headers().firstValue("Content-Type").orElse("").startsWith(FormatosBinariosConfig.CBOR));
+        assertEquals(esperado, comoJson(new ObjectMapper(new CBORFactory()).readTree(cbor.body())));
+
+        // Sin Accept sigue siendo JSON
+        HttpResponse<byte[]> porDefecto = get("/api/ventas/" + ventaId, null, false);
+        assertTrue(porDefecto.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+    }
+
+    // TEST 3: Un cuerpo en CBOR se lee como el JSON
+    @Test
+    public void testCuerpoCbor() throws Exception {
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        byte[] cuerpo = cbor.writeValueAsBytes(objectMapper.createObjectNode()
+                .put("nombre", "Cliente CBOR")
+                .put("email", "cbor" + System.nanoTime() + "@example.com")
+                .put("ciudad", "Teruel"));
+        HttpResponse<byte[]> respuesta = http.send(HttpRequest.newBuilder(uri("/api/clientes"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", FormatosBinariosConfig.CBOR)
+                .header("Accept", FormatosBinariosConfig.CBOR)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(cuerpo))
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(201, respuesta.statusCode());
+        JsonNode creado = cbor.readTree(respuesta.body());
+        assertEquals("Cliente CBOR", creado.path("nombre").asText());
+        assertTrue(creado.path("id").asLong() > 0);
+    }
+
+    private HttpResponse<byte[]> get(String ruta, String accept, boolean gzip) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri(ruta)).header("Authorization", "Bearer " + token);
+        if (accept != null) {
+            builder.header("Accept", accept);
+        }
+        if (gzip) {
+            builder.header("Accept-Encoding", "gzip");
+        }
+        return http.send(builder.GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    // Los binarios guardan los Float como float y el JSON se lee como double
+    private JsonNode comoJson(JsonNode nodo) throws Exception {
+        return objectMapper.readTree(objectMapper.writeValueAsString(nodo));
+    }
+
+    private URI uri(String ruta) {
+        return URI.create("http://localhost:" + puerto + ruta);
+    }
+}
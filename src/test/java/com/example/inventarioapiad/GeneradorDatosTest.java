@@ -0,0 +1,107 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.dto.ParametrosGeneracion;
+import com.example.inventarioapiad.generador.Zipf;
+import com.example.inventarioapiad.service.GeneradorDatosService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Generador de datos sintéticos contra la BD, con pocas filas
+@SpringBootTest
+public class GeneradorDatosTest {
+
+    @Autowired
+    private GeneradorDatosService generador;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ParametrosGeneracion pequeno() {
+        ParametrosGeneracion p = new ParametrosGeneracion();
+        p.setProductos(200);
+        p.setClientes(300);
+        p.setProveedores(20);
+        p.setAlmacenes(3);
+        p.setVentas(5000);
+        p.setCompras(1500);
+        p.setLote(250);
+        p.setHilos(2);
+        p.setSoloSiVacia(false);
+        return p;
+    }
+
+    // TEST 1: Zipf con s=1 concentra la mayoría de las muestras en los primeros
+    @Test
+    public void testZipf() {
+        Zipf zipf = new Zipf(100, 1.0);
+        SplittableRandom azar = new SplittableRandom(1);
+        int primeros = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int k = zipf.muestra(azar);
+            assertTrue(k >= 0 && k < 100);
+            if (k < 10) {
+                primeros++;
+            }
+        }
+        // H(10)/H(100) ≈ 0.56
+        assertTrue(primeros > 5000 && primeros < 6200, "primeros: " + primeros);
+    }
+
+    // TEST 2: Genera las filas pedidas, con ventas concentradas en pocos
+    // productos, más en diciembre que en agosto y el stock cuadrado
+    @Test
+    public void testGenerar() {
+        Map<String, Object> resumen = generador.generar(pequeno());
+        String marca = (String) resumen.get("marca");
+
+        assertEquals(true, resumen.get("generado"));
+        assertEquals(5000, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ventas WHERE numero_pedido LIKE ?", Integer.class, "PED-" + marca + "-%"));
+        assertEquals(1500, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM compras WHERE numero_factura LIKE ?", Integer.class, "FAC-" + marca + "-%"));
+        assertEquals(200, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM productos WHERE sku LIKE ?", Integer.class, "GEN-" + marca + "-%"));
+
+        // El 10% de productos más vendidos se lleva más de la mitad de las ventas
+        List<Integer> porProducto = jdbcTemplate.queryForList("SELECT COUNT(*) FROM ventas "
+                + "WHERE numero_pedido LIKE ? GROUP BY producto_id ORDER BY COUNT(*) DESC", Integer.class,
+                "PED-" + marca + "-%");
+        int top = porProducto.stream().limit(20).mapToInt(Integer::intValue).sum();
+        assertTrue(top > 2500, "ventas del top 10%: " + top);
+
+        int diciembre = ventasDelMes(marca, 12);
+        int agosto = ventasDelMes(marca, 8);
+        assertTrue(diciembre > agosto * 3 / 2, "diciembre " + diciembre + ", agosto " + agosto);
+
+        Integer descuadrados = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM productos p WHERE p.sku LIKE ? "
+                + "AND p.stock_total <> COALESCE((SELECT SUM(s.cantidad) FROM stock_almacen s "
+                + "WHERE s.producto_id = p.id), 0)", Integer.class, "GEN-" + marca + "-%");
+        assertEquals(0, descuadrados);
+        assertTrue(jdbcTemplate.queryForObject("SELECT SUM(stock_total) FROM productos WHERE sku LIKE ?",
+                Long.class, "GEN-" + marca + "-%") > 0);
+    }
+
+    // TEST 3: Parámetros imposibles se rechazan antes de tocar la BD
+    @Test
+    public void testParametrosInvalidos() {
+        ParametrosGeneracion p = pequeno();
+        p.setLote(0);
+        assertThrows(IllegalArgumentException.class, () -> generador.generar(p));
+        ParametrosGeneracion sinProductos = pequeno();
+        sinProductos.setProductos(0);
+        assertThrows(IllegalArgumentException.class, () -> generador.generar(sinProductos));
+    }
+
+    private int ventasDelMes(String marca, int mes) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ventas WHERE numero_pedido LIKE ? "
+                + "AND MONTH(fecha_venta) = ?", Integer.class, "PED-" + marca + "-%", mes);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.instrumentacion.DataSourceInstrumentado;
+import com.example.inventarioapiad.instrumentacion.MedicionPeticion;
+import com.example.inventarioapiad.instrumentacion.RegistroSql;
+import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.service.InstrumentacionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Instrumentación SQL: huellas, proxy del DataSource y medición por
+// petición a través del filtro (umbral 0: todas las peticiones son "lentas").
+@SpringBootTest(properties = "instrumentacion.lenta-ms=0")
+@AutoConfigureMockMvc
+public class InstrumentacionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private InstrumentacionService instrumentacionService;
+
+    // TEST 1: La huella quita literales, números y listas IN y normaliza
+    // espacios y mayúsculas
+    @Test
+    public void testHuella() {
+        String huella = RegistroSql.huella("SELECT * FROM producto p1_0\n  WHERE p1_0.id = 42 AND sku = 'AB''C' "
+                + "AND precio > 9.95 AND id IN (?, ?, ?)");
+        assertEquals("select * from producto p1_0 where p1_0.id = ? and sku = ? and precio > ? and id in (?)", huella);
+        assertEquals(huella, RegistroSql.huella("select * from producto p1_0 where p1_0.id = 7 and sku = 'X' "
+                + "and precio > 1 and id in (?,?)"));
+    }
+
+    // TEST 2: El proxy cuenta sentencias y filas por huella y una huella
+    // repetida en la misma petición sale como posible N+1
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testProxyYPosibleNMas1() {
+        RegistroSql registro = new RegistroSql(true, 0, 100, 10);
+        JdbcTemplate jdbc = new JdbcTemplate(DataSourceInstrumentado.envolver(new DriverManagerDataSource(
+                "jdbc:h2:mem:instrumentacion;DB_CLOSE_DELAY=-1", "sa", ""), registro));
+        jdbc.execute("create table if not exists linea (id int primary key, pedido int)");
+        jdbc.execute("delete from linea");
+        for (int i = 1; i <= 12; i++) {
+            jdbc.update("insert into linea values (?, ?)", i, i % 3);
+        }
+
+        MedicionPeticion medicion = MedicionPeticion.iniciar();
+        try {
+            for (int i = 1; i <= 12; i++) {
+                jdbc.queryForObject("select pedido from linea where id = " + i, Integer.class);
+            }
+            jdbc.queryForList("select * from linea where pedido = ?", 0);
+        } finally {
+            MedicionPeticion.terminar();
+        }
+        registro.terminarPeticion("GET", "/lineas", 200, medicion);
+
+        assertEquals(13, medicion.getSentencias());
+        assertEquals(16, medicion.getFilas());
+        Map<String, Object> lenta = registro.lentas().get(0);
+        assertEquals(true, lenta.get("posibleNMas1"));
+        Map<String, Object> repetida = ((List<Map<String, Object>>) lenta.get("huellas")).stream()
+                .filter(h -> h.get("sql").equals("select pedido from linea where id = ?"))
+                .findFirst().orElseThrow();
+        assertEquals(12L, repetida.get("veces"));
+
+        Map<String, Object> agregada = registro.huellas("filas", 1).get(0);
+        assertEquals("select pedido from linea where id = ?", agregada.get("sql"));
+        assertEquals(12L, agregada.get("filas"));
+        assertThrows(IllegalArgumentException.class, () -> registro.huellas("nombre", 10));
+    }
+
+    // TEST 3: Una petición real queda medida con su SQL de Hibernate, las
+    // filas y las entidades cargadas
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPeticionMedida() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Producto producto = new Producto();
+            producto.setNombre("Instrumentado " + i);
+            producto.setSku("INS-" + System.nanoTime() + "-" + i);
+            producto.setPrecioVenta(5f);
+            producto.setStockTotal(10);
+            productoRepository.save(producto);
+        }
+        instrumentacionService.reiniciar();
+
+        mockMvc.perform(get("/api/productos").param("nombre", "Instrumentado"))
+                .andExpect(status().isOk());
+
+        Map<String, Object> lenta = instrumentacionService.lentas().stream()
+                .filter(l -> "GET /api/productos".equals(l.get("peticion")))
+                .findFirst().orElseThrow();
+        assertTrue((int) lenta.get("sentencias") >= 1);
+        assertEquals(lenta.get("sentencias"), lenta.get("sentenciasHibernate"));
+        assertTrue((long) lenta.get("filas") >= 3);
+        assertTrue((int) lenta.get("entidades") >= 3);
+        List<Map<String, Object>> huellas = (List<Map<String, Object>>) lenta.get("huellas");
+        assertTrue(huellas.stream().anyMatch(h -> ((String) h.get("sql")).contains("from producto")));
+        assertFalse(instrumentacionService.huellas("tiempo", 50).isEmpty());
+    }
+}
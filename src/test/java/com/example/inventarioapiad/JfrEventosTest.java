@@ -0,0 +1,227 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.entity.Almacen;
+import com.example.inventarioapiad.entity.Cliente;
+import com.example.inventarioapiad.entity.Compra;
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.entity.Proveedor;
+import com.example.inventarioapiad.entity.Venta;
+import com.example.inventarioapiad.repository.AlmacenRepository;
+import com.example.inventarioapiad.repository.ClienteRepository;
+import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.repository.ProveedorRepository;
+import com.example.inventarioapiad.security.JwtService;
+import com.example.inventarioapiad.service.AlmacenService;
+import com.example.inventarioapiad.service.CacheSegundoNivelService;
+import com.example.inventarioapiad.service.CompraService;
+import com.example.inventarioapiad.service.VentaService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Eventos JFR del inventario: se graban de verdad, se vuelca el fichero y se
+// lee con RecordingFile.
+@SpringBootTest
+@AutoConfigureMockMvc
+public class JfrEventosTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private CompraService compraService;
+
+    @Autowired
+    private AlmacenService almacenService;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private CacheSegundoNivelService cacheService;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private ProveedorRepository proveedorRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private AlmacenRepository almacenRepository;
+
+    // TEST 1: Venta, compra, ajustes de stock, filtros, JWT y caché de
+    // segundo nivel emiten sus eventos con ids y resultados
+    @Test
+    public void testEventosEmitidos() throws Exception {
+        cacheService.vaciarTodo();
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Jfr");
+        cliente.setEmail("jfr" + System.nanoTime() + "@test.com");
+        cliente = clienteRepository.save(cliente);
+        Proveedor proveedor = new Proveedor();
+        proveedor.setNombre("Jfr");
+        proveedor.setEmail("jfr" + System.nanoTime() + "@test.com");
+        proveedor = proveedorRepository.save(proveedor);
+        Producto producto = new Producto();
+        producto.setNombre("Grabado");
+        producto.setSku("JFR-" + System.nanoTime());
+        producto.setPrecioVenta(3f);
+        producto.setStockTotal(50);
+        producto = productoRepository.save(producto);
+        Almacen almacen = new Almacen();
+        almacen.setNombre("Jfr " + System.nanoTime());
+        almacen.setUbicacion("Teruel");
+        almacen.setCapacidadMaxima(1000);
+        almacen.setStockActual(50);
+        almacen = almacenRepository.save(almacen);
+
+        Path fichero = Files.createTempFile("jfr-test-", ".jfr");
+        Venta creada;
+        Compra recibida;
+        try (Recording grabacion = new Recording()) {
+            grabacion.enable("inventario.Venta");
+            grabacion.enable("inventario.Compra");
+            grabacion.enable("inventario.AjusteStock");
+            grabacion.enable("inventario.Cache");
+            grabacion.enable("inventario.ValidacionJwt");
+            grabacion.enable("inventario.Filtro");
+            grabacion.start();
+
+            Venta venta = new Venta();
+            venta.setCliente(cliente);
+            venta.setProducto(producto);
+            venta.setAlmacen(almacen);
+            venta.setCantidad(4);
+            venta.setPrecioUnitario(3f);
+            venta.setFechaVenta(LocalDateTime.now());
+            venta.setNumeroPedido("JFR-" + System.nanoTime());
+            creada = ventaService.crear(venta);
+
+            Compra compra = new Compra();
+            compra.setProveedor(proveedor);
+            compra.setProducto(producto);
+            compra.setAlmacen(almacen);
+            compra.setCantidad(7);
+            compra.setPrecioUnitario(1f);
+            compra.setFechaCompra(LocalDateTime.now());
+            compra.setNumeroFactura("JFR-" + System.nanoTime());
+            compra.setEstado("RECIBIDA");
+            recibida = compraService.crear(compra);
+
+            assertTrue(jwtService.esTokenValido(jwtService.generarToken("jfr")));
+            assertFalse(jwtService.esTokenValido("no.es.jwt"));
+
+            almacenService.buscarConFiltros(null, "Teruel", null);
+            almacenService.buscarPorId(almacen.getId());
+            almacenService.buscarPorId(almacen.getId());
+
+            grabacion.stop();
+            grabacion.dump(fichero);
+        }
+
+        List<RecordedEvent> eventos = RecordingFile.readAllEvents(fichero);
+        Files.delete(fichero);
+        Long productoId = producto.getId();
+        Long almacenId = almacen.getId();
+
+        RecordedEvent venta = uno(eventos, "inventario.Venta", e -> e.getLong("ventaId") == creada.getId());
+        assertEquals(productoId, venta.getLong("productoId"));
+        assertEquals(almacenId, venta.getLong("almacenId"));
+        assertEquals(4, venta.getInt("cantidad"));
+        assertFalse(venta.getDuration().isNegative());
+
+        RecordedEvent compra = uno(eventos, "inventario.Compra", e -> e.getLong("compraId") == recibida.getId());
+        assertEquals("RECIBIDA", compra.getString("estado"));
+
+        for (String ambito : List.of("producto", "almacen", "producto-almacen")) {
+            uno(eventos, "inventario.AjusteStock", e -> ambito.equals(e.getString("ambito"))
+                    && e.getLong("almacenId") == almacenId && e.getInt("delta") == -4
+                    && "VENTA".equals(e.getString("origen")) && e.getInt("filas") == 1);
+            uno(eventos, "inventario.AjusteStock", e -> ambito.equals(e.getString("ambito"))
+                    && e.getLong("almacenId") == almacenId && e.getInt("delta") == 7);
+        }
+
+        uno(eventos, "inventario.ValidacionJwt", e -> e.getBoolean("valido"));
+        RecordedEvent invalido = uno(eventos, "inventario.ValidacionJwt", e -> !e.getBoolean("valido"));
+        assertNotNull(invalido.getString("motivo"));
+
+        RecordedEvent filtro = uno(eventos, "inventario.Filtro", e -> "almacenes".equals(e.getString("entidad")));
+        assertTrue(filtro.getInt("resultados") >= 1);
+        assertTrue(filtro.getString("filtros").contains("Teruel"));
+
+        uno(eventos, "inventario.Cache", e -> "almacenes".equals(e.getString("region"))
+                && e.getString("clave").endsWith("Almacen") && e.getBoolean("acierto"));
+    }
+
+    // TEST 2: Grabación bajo demanda por el endpoint: una a la vez, se para
+    // y se descarga un .jfr legible
+    @Test
+    public void testGrabacionBajoDemanda() throws Exception {
+        mockMvc.perform(post("/api/jfr/grabaciones").param("segundos", "0"))
+                .andExpect(status().isBadRequest());
+
+        String cuerpo = mockMvc.perform(post("/api/jfr/grabaciones").param("segundos", "60"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = new ObjectMapper().readTree(cuerpo).get("id").asLong();
+
+        mockMvc.perform(post("/api/jfr/grabaciones").param("segundos", "60"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(get("/api/jfr/grabaciones/" + id + "/fichero"))
+                .andExpect(status().isConflict());
+
+        almacenService.buscarConFiltros("Grabación", null, null);
+        mockMvc.perform(post("/api/jfr/grabaciones/" + id + "/parar"))
+                .andExpect(status().isOk());
+
+        byte[] jfr = mockMvc.perform(get("/api/jfr/grabaciones/" + id + "/fichero"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        Path fichero = Files.createTempFile("jfr-descarga-", ".jfr");
+        Files.write(fichero, jfr);
+        List<RecordedEvent> eventos = RecordingFile.readAllEvents(fichero);
+        Files.delete(fichero);
+        uno(eventos, "inventario.Filtro", e -> e.getString("filtros").contains("Grabación"));
+        // La configuración profile trae también los eventos de la JVM
+        assertTrue(eventos.stream().anyMatch(e -> e.getEventType().getName().startsWith("jdk.")));
+
+        JsonNode lista = new ObjectMapper().readTree(mockMvc.perform(get("/api/jfr/grabaciones"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertEquals(id, lista.get(lista.size() - 1).get("id").asLong());
+        assertTrue(lista.get(lista.size() - 1).get("bytes").asLong() > 0);
+        mockMvc.perform(post("/api/jfr/grabaciones/999999/parar"))
+                .andExpect(status().isNotFound());
+    }
+
+    private static RecordedEvent uno(List<RecordedEvent> eventos, String nombre, Predicate<RecordedEvent> condicion) {
+        return eventos.stream()
+                .filter(e -> e.getEventType().getName().equals(nombre))
+                .filter(condicion)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Sin evento " + nombre + " que cumpla la condición"));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.entity.Almacen;
+import com.example.inventarioapiad.entity.Cliente;
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.entity.Venta;
+import com.example.inventarioapiad.repository.AlmacenRepository;
+import com.example.inventarioapiad.repository.ClienteRepository;
+import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.service.StockAlmacenService;
+import com.example.inventarioapiad.service.VentaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Más hilos vendiendo a la vez que conexiones tiene el pool. Los contadores
+// de stock (producto, almacén y stock_almacen) se ajustan dentro de la
+// transacción de la venta; si pidieran una segunda conexión tras el commit
+// con la primera aún cogida, el pool se quedaría sin conexiones y los
+// ajustes se perderían por timeout.
+@SpringBootTest(properties = {
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "spring.datasource.hikari.connection-timeout=3000"})
+public class MovimientosConcurrenciaTest {
+
+    private static final int HILOS = 12;
+    private static final int VENTAS_POR_HILO = 25;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private AlmacenRepository almacenRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private StockAlmacenService stockAlmacenService;
+
+    @Test
+    public void testVentasConcurrentesConPoolPequeno() throws Exception {
+        Producto producto = new Producto();
+        producto.setNombre("Tornillo concurrente");
+        producto.setSku("MOVIMIENTOS-CARGA-" + System.nanoTime());
+        producto.setPrecioVenta(1f);
+        producto.setStockTotal(1000);
+        Long productoId = productoRepository.save(producto).getId();
+
+        Almacen almacen = new Almacen();
+        almacen.setNombre("Movimientos " + System.nanoTime());
+        almacen.setUbicacion("Test");
+        almacen.setStockActual(1000);
+        Long almacenId = almacenRepository.save(almacen).getId();
+        stockAlmacenService.ajustar(productoId, almacenId, 1000);
+
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Cliente concurrente");
+        cliente.setEmail("concurrente" + System.nanoTime() + "@test.com");
+        Long clienteId = clienteRepository.save(cliente).getId();
+
+        AtomicInteger vendidas = new AtomicInteger();
+        List<Throwable> errores = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            pool.submit(() -> {
+                for (int i = 0; i < VENTAS_POR_HILO; i++) {
+                    try {
+                        Venta venta = ventaService.crear(venta(clienteId, productoId, almacenId,
+                                "CONC-" + productoId + "-" + hilo + "-" + i));
+                        vendidas.addAndGet(venta.getCantidad());
+                        // Una de cada cinco se cancela: devuelve lo vendido
+                        if (i % 5 == 0) {
+                            ventaService.eliminar(venta.getId());
+                            vendidas.addAndGet(-venta.getCantidad());
+                        }
+                    } catch (Throwable e) {
+                        errores.add(e);
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES), "Las ventas no terminan (¿pool agotado?)");
+
+        assertTrue(errores.isEmpty(), "Errores inesperados: " + errores);
+        int esperado = 1000 - vendidas.get();
+        assertEquals(esperado, productoRepository.findById(productoId).orElseThrow().getStockTotal());
+        assertEquals(esperado, almacenRepository.findById(almacenId).orElseThrow().getStockActual());
+        assertEquals(esperado, stockAlmacenService.disponible(productoId, almacenId));
+    }
+
+    private static Venta venta(Long clienteId, Long productoId, Long almacenId, String numeroPedido) {
+        Cliente cliente = new Cliente();
+        cliente.setId(clienteId);
+        Producto producto = new Producto();
+        producto.setId(productoId);
+        Almacen almacen = new Almacen();
+        almacen.setId(almacenId);
+
+        Venta venta = new Venta();
+        venta.setCliente(cliente);
+        venta.setProducto(producto);
+        venta.setAlmacen(almacen);
+        venta.setCantidad(2);
+        venta.setPrecioUnitario(1f);
+        venta.setFechaVenta(LocalDateTime.now());
+        venta.setNumeroPedido(numeroPedido);
+        return venta;
+    }
+}
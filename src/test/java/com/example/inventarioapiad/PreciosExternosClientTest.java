@@ -0,0 +1,207 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.externo.CircuitBreaker;
+import com.example.inventarioapiad.externo.PrecioExterno;
+import com.example.inventarioapiad.externo.PreciosExternosClient;
+import com.example.inventarioapiad.externo.ServicioExternoException;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+// A diferencia de WireMockApiSimulationTest (que necesita el WireMock
+// arrancado a mano en el 8081), aquí levantamos un WireMock embebido en un
+// puerto libre cargando los mismos mappings de src/test/resources/mappings.
+public class PreciosExternosClientTest {
+
+    private WireMockServer wireMock;
+
+    @BeforeEach
+    public void setUp() {
+        wireMock = new WireMockServer(options()
+                .dynamicPort()
+                .usingFilesUnderDirectory("src/test/resources"));
+        wireMock.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        wireMock.stop();
+    }
+
+    private PreciosExternosClient crearCliente(long timeoutMs, long ttlSegundos, long staleSegundos,
+                                               int maxConcurrentes, int umbralFallos) {
+        return crearCliente(timeoutMs, ttlSegundos, staleSegundos, 10_000, maxConcurrentes, umbralFallos);
+    }
+
+    private PreciosExternosClient crearCliente(long timeoutMs, long ttlSegundos, long staleSegundos,
+                                               int maxEntradas, int maxConcurrentes, int umbralFallos) {
+        return new PreciosExternosClient("http://localhost:" + wireMock.port(),
+                timeoutMs, ttlSegundos, staleSegundos, maxEntradas, maxConcurrentes, umbralFallos, 60_000);
+    }
+
+    // TEST 1: Precio de un SKU existente (externo-precio-200.json)
+    @Test
+    public void testObtenerPrecio200() {
+        PreciosExternosClient cliente = crearCliente(2000, 300, 600, 10, 5);
+
+        Optional<PrecioExterno> precio = cliente.obtenerPrecio("TORNILLO-M10").join();
+
+        assertTrue(precio.isPresent());
+        assertEquals("TORNILLO-M10", precio.get().getSku());
+        assertEquals(1.25f, precio.get().getPrecio());
+    }
+
+    // TEST 2: La segunda consulta sale de la caché sin tocar la red
+    @Test
+    public void testPrecioCacheado() {
+        PreciosExternosClient cliente = crearCliente(2000, 300, 600, 10, 5);
+
+        cliente.obtenerPrecio("TORNILLO-M10").join();
+        cliente.obtenerPrecio("TORNILLO-M10").join();
+        cliente.obtenerPrecio("TORNILLO-M10").join();
+
+        wireMock.verify(1, getRequestedFor(urlEqualTo("/api/precios/TORNILLO-M10")));
+    }
+
+    // TEST 3: SKU desconocido (error-404.json) -> Optional vacío, no error
+    @Test
+    public void testPrecioNoExiste404() {
+        PreciosExternosClient cliente = crearCliente(2000, 300, 600, 10, 5);
+
+        Optional<PrecioExterno> precio = cliente.obtenerPrecio("NO-EXISTE").join();
+
+        assertTrue(precio.isEmpty());
+    }
+
+    // TEST 4: Impuestos en texto plano (impuestos-ok.json)
+    @Test
+    public void testObtenerImpuestos() {
+        PreciosExternosClient cliente = crearCliente(2000, 300, 600, 10, 5);
+
+        assertEquals(21f, cliente.obtenerImpuestos().join());
+    }
+
+    // TEST 5: 500 del servicio externo (externo-error-500.json)
+    @Test
+    public void testErrorServidor500() {
+        PreciosExternosClient cliente = crearCliente(2000, 300, 600, 10, 5);
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> cliente.obtenerPrecio("ERROR-SERVER").join());
+        assertInstanceOf(ServicioExternoException.class, error.getCause());
+    }
+
+    // TEST 6: Tras N fallos el circuito se abre y ya no se llama al servicio
+    @Test
+    public void testCircuitoSeAbre() {
+        PreciosExternosClient cliente = crearCliente(2000, 300, 600, 10, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(CompletionException.class, () -> cliente.obtenerPrecio("ERROR-SERVER").join());
+        }
+        assertEquals(CircuitBreaker.Estado.ABIERTO, cliente.getEstadoCircuito());
+
+        // Con el circuito abierto ni siquiera un SKU bueno llega a la red
+        assertThrows(CompletionException.class, () -> cliente.obtenerPrecio("TORNILLO-M10").join());
+        wireMock.verify(3, getRequestedFor(urlEqualTo("/api/precios/ERROR-SERVER")));
+        wireMock.verify(0, getRequestedFor(urlEqualTo("/api/precios/TORNILLO-M10")));
+    }
+
+    // TEST 7: Peticiones concurrentes del mismo SKU comparten UNA llamada
+    @Test
+    public void testCoalescenciaMismoSku() {
+        wireMock.stubFor(get(urlEqualTo("/api/precios/LENTO"))
+                .willReturn(okJson("{\"sku\":\"LENTO\",\"precio\":3.5}").withFixedDelay(300)));
+        PreciosExternosClient cliente = crearCliente(2000, 300, 600, 10, 5);
+
+        List<CompletableFuture<Optional<PrecioExterno>>> futuros = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futuros.add(cliente.obtenerPrecio("LENTO"));
+        }
+        for (CompletableFuture<Optional<PrecioExterno>> f : futuros) {
+            assertEquals(3.5f, f.join().orElseThrow().getPrecio());
+        }
+
+        wireMock.verify(1, getRequestedFor(urlEqualTo("/api/precios/LENTO")));
+    }
+
+    // TEST 8: Si el servicio tarda más que el timeout, falla con ServicioExternoException
+    @Test
+    public void testTimeout() {
+        wireMock.stubFor(get(urlEqualTo("/api/precios/MUY-LENTO"))
+                .willReturn(okJson("{\"sku\":\"MUY-LENTO\",\"precio\":1.0}").withFixedDelay(2000)));
+        PreciosExternosClient cliente = crearCliente(200, 300, 600, 10, 5);
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> cliente.obtenerPrecio("MUY-LENTO").orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(ServicioExternoException.class, error.getCause());
+    }
+
+    // TEST 9: Bulkhead lleno -> se rechaza al momento
+    @Test
+    public void testBulkheadLleno() {
+        wireMock.stubFor(get(urlPathMatching("/api/precios/BULK-.*"))
+                .willReturn(okJson("{\"sku\":\"BULK\",\"precio\":1.0}").withFixedDelay(500)));
+        PreciosExternosClient cliente = crearCliente(2000, 300, 600, 1, 5);
+
+        CompletableFuture<Optional<PrecioExterno>> primero = cliente.obtenerPrecio("BULK-1");
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> cliente.obtenerPrecio("BULK-2").join());
+
+        assertInstanceOf(ServicioExternoException.class, error.getCause());
+        assertTrue(primero.join().isPresent());
+    }
+
+    // TEST 10: Pasado el TTL se sirve el valor viejo y se refresca por detrás
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+        PreciosExternosClient cliente = crearCliente(2000, 0, 600, 10, 5);
+
+        assertEquals(1.25f, cliente.obtenerPrecio("TORNILLO-M10").join().orElseThrow().getPrecio());
+
+        // Cambiamos el precio en origen: la siguiente lectura aún ve el viejo...
+        wireMock.stubFor(get(urlEqualTo("/api/precios/TORNILLO-M10"))
+                .willReturn(okJson("{\"sku\":\"TORNILLO-M10\",\"precio\":1.40}")));
+        assertEquals(1.25f, cliente.obtenerPrecio("TORNILLO-M10").join().orElseThrow().getPrecio());
+
+        // ...y cuando acaba el refresco en segundo plano aparece el nuevo
+        Float precio = null;
+        for (int i = 0; i < 50 && !Float.valueOf(1.40f).equals(precio); i++) {
+            Thread.sleep(50);
+            precio = cliente.obtenerPrecio("TORNILLO-M10").join().orElseThrow().getPrecio();
+        }
+        assertEquals(1.40f, precio);
+    }
+
+    // TEST 11: La caché no pasa de su máximo: se va la clave menos usada
+    @Test
+    public void testCacheAcotadaLru() {
+        wireMock.stubFor(get(urlPathMatching("/api/precios/LRU-.*"))
+                .willReturn(okJson("{\"sku\":\"LRU\",\"precio\":2.00}")));
+        PreciosExternosClient cliente = crearCliente(2000, 300, 600, 2, 10, 5);
+
+        cliente.obtenerPrecio("LRU-A").join();
+        cliente.obtenerPrecio("LRU-B").join();
+        cliente.obtenerPrecio("LRU-A").join();
+        cliente.obtenerPrecio("LRU-C").join();
+        cliente.obtenerPrecio("LRU-A").join();
+        cliente.obtenerPrecio("LRU-B").join();
+
+        assertEquals(2, cliente.estadisticas().get("entradasCache"));
+        assertEquals(2L, cliente.estadisticas().get("desalojosCache"));
+        wireMock.verify(1, getRequestedFor(urlEqualTo("/api/precios/LRU-A")));
+        wireMock.verify(2, getRequestedFor(urlEqualTo("/api/precios/LRU-B")));
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.service.PrevisionDemandaService;
+import com.example.inventarioapiad.service.PrevisionDemandaService.Historico;
+import com.example.inventarioapiad.service.PrevisionDemandaService.Modelo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrevisionDemandaServiceTest {
+
+    private static final int HOY = 20_000;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private PrevisionDemandaService previsionService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    // Demanda de "dias" días hasta ayer: 10/día, 30 en el día de la semana 0
+    private static double demanda(int dia) {
+        return Math.floorMod(dia, 7) == 0 ? 30 : 10;
+    }
+
+    private static Historico historico(long productoId, int dias) {
+        Historico historico = new Historico();
+        for (int dia = HOY - dias; dia < HOY; dia++) {
+            historico.anadir(productoId, dia, (long) demanda(dia));
+        }
+        return historico;
+    }
+
+    // TEST 1: Demanda constante -> previsión plana en ese valor
+    @Test
+    public void testDemandaConstante() {
+        Historico historico = new Historico();
+        for (int dia = HOY - 60; dia < HOY; dia++) {
+            historico.anadir(1L, dia, 12);
+        }
+
+        double[] prevision = previsionService.ajustar(historico, HOY).prever(1L, HOY, 7, null);
+
+        for (double unidades : prevision) {
+            assertEquals(12, unidades, 0.5);
+        }
+    }
+
+    // TEST 2: Aprende la estacionalidad semanal
+    @Test
+    public void testEstacionalidadSemanal() {
+        double[] prevision = previsionService.ajustar(historico(1L, 120), HOY).prever(1L, HOY, 14, null);
+
+        for (int h = 0; h < 14; h++) {
+            assertEquals(demanda(HOY + h), prevision[h], 2.0, "día " + h);
+        }
+    }
+
+    // TEST 3: Ajustar desde el histórico y aplicar las ventas una a una
+    // (incremental) llegan al mismo estado
+    @Test
+    public void testIncrementalIgualQueHistorico() {
+        Modelo incremental = new Modelo(16, 0.3, 0.05, 0.2);
+        for (int dia = HOY - 60; dia < HOY; dia++) {
+            // Varias ventas por día
+            incremental.registrar(1L, dia, demanda(dia) - 4);
+            incremental.registrar(1L, dia, 4);
+        }
+        Modelo backfill = previsionService.ajustar(historico(1L, 60), HOY);
+
+        double[] estadoIncremental = new double[10];
+        double[] estadoBackfill = new double[10];
+        double[] a = incremental.prever(1L, HOY, 7, estadoIncremental);
+        double[] b = backfill.prever(1L, HOY, 7, estadoBackfill);
+
+        // El arranque es distinto (1 día vs 2 semanas) pero tras 60 días convergen
+        for (int h = 0; h < 7; h++) {
+            assertEquals(b[h], a[h], 3.0);
+        }
+        assertEquals(60, (int) estadoIncremental[2]);
+    }
+
+    // TEST 4: Los días sin ventas cuentan como 0 al prever más tarde
+    @Test
+    public void testDiasSinVentas() {
+        Modelo modelo = previsionService.ajustar(historico(1L, 60), HOY);
+        double antes = modelo.prever(1L, HOY, 1, null)[0];
+
+        double[] estado = new double[10];
+        double despues = modelo.prever(1L, HOY + 30, 1, estado)[0];
+
+        assertTrue(despues < antes);
+        assertEquals(90, (int) estado[2]);
+    }
+
+    // TEST 5: Muchos productos en paralelo (el modelo crece) y producto sin historia
+    @Test
+    public void testMuchosProductos() {
+        Historico historico = new Historico();
+        for (long id = 1; id <= 2000; id++) {
+            for (int dia = HOY - 20; dia < HOY; dia++) {
+                historico.anadir(id, dia, id % 5);
+            }
+        }
+
+        Modelo modelo = previsionService.ajustar(historico, HOY);
+
+        assertEquals(2000, modelo.productos());
+        assertEquals(3, modelo.prever(1003L, HOY, 1, null)[0], 0.5);
+        assertNull(modelo.prever(99_999L, HOY, 1, null));
+    }
+
+    // TEST 6: Validación de la petición
+    @Test
+    public void testPeticionInvalida() {
+        assertThrows(IllegalArgumentException.class, () -> previsionService.prevision(1L, 0));
+        assertThrows(IllegalArgumentException.class, () -> previsionService.prevision(1L, 1000));
+        assertThrows(IllegalArgumentException.class, () -> previsionService.prevision(-1L, 7));
+        assertEquals(false, previsionService.prevision(1L, 7).get("conHistorico"));
+    }
+
+    // TEST 7: La cancelación de una venta de un día ya cerrado no resta de
+    // la demanda de hoy
+    @Test
+    public void testCancelacionDeDiaCerrado() {
+        int hoy = (int) LocalDate.now().toEpochDay();
+        Historico historico = new Historico();
+        Historico igual = new Historico();
+        for (int dia = hoy - 28; dia < hoy; dia++) {
+            historico.anadir(1L, dia, 10);
+            igual.anadir(1L, dia, 10);
+        }
+        Modelo modelo = previsionService.ajustar(historico, hoy);
+        Modelo esperado = previsionService.ajustar(igual, hoy);
+        ReflectionTestUtils.setField(previsionService, "modelo", modelo);
+
+        LocalDateTime ahora = LocalDateTime.now();
+        previsionService.alMoverStock(MovimientoStockEvent.salida(1L, 1L, 20, "VENTA", 1L).withFecha(ahora));
+        previsionService.alMoverStock(
+                MovimientoStockEvent.entrada(1L, 1L, 15, null, "VENTA", 2L).withFecha(ahora.minusDays(3)));
+        esperado.registrar(1L, hoy, 20);
+
+        double[] estado = new double[10];
+        double[] estadoEsperado = new double[10];
+        modelo.prever(1L, hoy + 1, 1, estado);
+        esperado.prever(1L, hoy + 1, 1, estadoEsperado);
+        assertArrayEquals(estadoEsperado, estado, 1e-9);
+    }
+}
@@ -1,13 +1,18 @@
 package com.example.inventarioapiad;
 
 import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.event.StockCambiadoEvent;
 import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.service.CatalogoLocalService;
 import com.example.inventarioapiad.service.ProductoService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -21,6 +26,12 @@ public class ProductoServiceTest {
     @Mock
     private ProductoRepository productoRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private CatalogoLocalService catalogoLocalService;
+
     @InjectMocks
     private ProductoService productoService;
 
@@ -161,4 +172,80 @@ public class ProductoServiceTest {
         verify(productoRepository, times(1)).findById(1L);
         verify(productoRepository, times(1)).save(any(Producto.class));
     }
-}
\ No newline at end of file
+
+    // TEST 10: Un movimiento de stock ajusta stockTotal en BD y avisa del nuevo valor
+    @Test
+    public void testMovimientoAjustaStock() {
+        when(productoRepository.ajustarStock(1L, -5)).thenReturn(1);
+        // Dentro de la transacción de la venta findById daría la copia de antes
+        ProductoRepository.StockActual stock = mock(ProductoRepository.StockActual.class);
+        when(stock.getId()).thenReturn(1L);
+        when(stock.getSku()).thenReturn("TORNILLO-M10");
+        when(stock.getStockTotal()).thenReturn(95);
+        when(stock.getActivo()).thenReturn(true);
+        when(productoRepository.findStockActual(1L)).thenReturn(Optional.of(stock));
+
+        productoService.alMoverStock(MovimientoStockEvent.salida(1L, 1L, 5, "VENTA", 1L));
+
+        ArgumentCaptor<StockCambiadoEvent> captor = ArgumentCaptor.forClass(StockCambiadoEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(95, captor.getValue().getStockTotal());
+        verify(productoRepository, never()).save(any(Producto.class));
+    }
+
+    // TEST 11: Filtrar por clase ABC (sin distinguir mayúsculas)
+    @Test
+    public void testFiltrarPorClaseAbc() {
+        Producto p1 = new Producto(1L, "Tornillo", "SKU-1", null, 0.5f, 1.0f, 100, true, null);
+        p1.setClaseAbc("A");
+        Producto p2 = new Producto(2L, "Tuerca", "SKU-2", null, 0.3f, 0.7f, 200, true, null);
+        p2.setClaseAbc("C");
+        Producto p3 = new Producto(3L, "Arandela", "SKU-3", null, 0.1f, 0.2f, 300, true, null);
+
+        when(productoRepository.findAll()).thenReturn(java.util.Arrays.asList(p1, p2, p3));
+
+        java.util.List<Producto> resultado = productoService.buscarConFiltros(null, null, null, "a");
+
+        assertEquals(1, resultado.size());
+        assertEquals(1L, resultado.get(0).getId());
+        assertEquals(3, productoService.buscarConFiltros(null, null, null, null).size());
+    }
+
+    // TEST 12: Con el catálogo local habilitado se lee de él sin ir a la
+    // BD, pero actualizar parte siempre de la BD
+    @Test
+    public void testBuscarPorIdDesdeCatalogoLocal() {
+        Producto local = new Producto(1L, "Tornillo", "SKU-1", null, 0.5f, 1.0f, 90, true, null);
+        Producto enBd = new Producto(1L, "Tornillo", "SKU-1", null, 0.5f, 1.0f, 100, true, null);
+        when(catalogoLocalService.habilitado()).thenReturn(true);
+        when(catalogoLocalService.buscarPorId(1L)).thenReturn(local);
+        when(catalogoLocalService.buscarPorSku("SKU-1")).thenReturn(local);
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(enBd));
+        when(productoRepository.save(any(Producto.class))).thenAnswer(i -> i.getArgument(0));
+
+        assertSame(local, productoService.buscarPorId(1L));
+        assertSame(local, productoService.buscarPorSku("SKU-1"));
+        verify(productoRepository, never()).findById(1L);
+
+        Producto cambios = new Producto();
+        cambios.setActivo(null);
+        cambios.setNombre("Tornillo M10");
+        Producto actualizado = productoService.actualizar(1L, cambios);
+
+        assertEquals(100, actualizado.getStockTotal());
+        assertEquals("Tornillo M10", actualizado.getNombre());
+        verify(productoRepository).findById(1L);
+    }
+
+    // TEST 13: Si el catálogo local no tiene el SKU se busca en la BD
+    @Test
+    public void testBuscarPorSkuCaeEnBd() {
+        Producto enBd = new Producto(2L, "Tuerca", "SKU-2", null, 0.3f, 0.7f, 200, true, null);
+        when(catalogoLocalService.habilitado()).thenReturn(true);
+        when(productoRepository.findBySku("SKU-2")).thenReturn(Optional.of(enBd));
+
+        assertEquals(2L, productoService.buscarPorSku("SKU-2").getId());
+        assertThrows(RuntimeException.class, () -> productoService.buscarPorSku("NO-EXISTE"));
+        assertThrows(IllegalArgumentException.class, () -> productoService.buscarPorSku(" "));
+    }
+}
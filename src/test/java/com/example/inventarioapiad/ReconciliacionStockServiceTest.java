@@ -0,0 +1,141 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.dto.DescuadreStock;
+import com.example.inventarioapiad.entity.Almacen;
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.repository.AlmacenRepository;
+import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.service.ReconciliacionStockService;
+import com.example.inventarioapiad.service.StockAlmacenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contra la BD: las consultas de suma por producto/almacén y el upsert de
+// stock_almacen son SQL nativo.
+@SpringBootTest
+public class ReconciliacionStockServiceTest {
+
+    @Autowired
+    private ReconciliacionStockService reconciliacionService;
+
+    @Autowired
+    private StockAlmacenService stockAlmacenService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private AlmacenRepository almacenRepository;
+
+    private Long productoId;
+    private Long almacen1;
+    private Long almacen2;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(reconciliacionService, "esperaConfirmacionMs", 0L);
+
+        Producto producto = new Producto();
+        producto.setNombre("Reconciliado");
+        producto.setSku("RECON-" + System.nanoTime());
+        producto.setPrecioVenta(1f);
+        producto.setStockTotal(100);
+        productoId = productoRepository.save(producto).getId();
+        almacen1 = almacen(60);
+        almacen2 = almacen(40);
+
+        stockAlmacenService.ajustar(productoId, almacen1, 60);
+        stockAlmacenService.ajustar(productoId, almacen2, 40);
+    }
+
+    private Long almacen(int stock) {
+        Almacen almacen = new Almacen();
+        almacen.setNombre("Recon " + System.nanoTime());
+        almacen.setUbicacion("Test");
+        almacen.setStockActual(stock);
+        return almacenRepository.save(almacen).getId();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<DescuadreStock> descuadresPropios(Map<String, Object> informe) {
+        return ((List<DescuadreStock>) informe.get("detalle")).stream()
+                .filter(d -> ("PRODUCTO".equals(d.getTipo()) && d.getId().equals(productoId))
+                        || ("ALMACEN".equals(d.getTipo()) && (d.getId().equals(almacen1) || d.getId().equals(almacen2))))
+                .toList();
+    }
+
+    // TEST 1: Si todo cuadra no hay descuadres
+    @Test
+    public void testSinDescuadre() {
+        reconciliacionService.marcar(productoId, almacen1);
+        reconciliacionService.marcar(null, almacen2);
+
+        assertTrue(descuadresPropios(reconciliacionService.reconciliar(false, false)).isEmpty());
+    }
+
+    // TEST 2: Detecta el descuadre de producto y de almacén y solo informa
+    @Test
+    public void testDetectaDescuadre() {
+        // Alguien edita el total a mano y una fila se desvía sin pasar por el almacén
+        Producto producto = productoRepository.findById(productoId).orElseThrow();
+        producto.setStockTotal(103);
+        productoRepository.save(producto);
+        stockAlmacenService.ajustar(productoId, almacen2, -10);
+        reconciliacionService.marcar(productoId, almacen2);
+
+        List<DescuadreStock> descuadres = descuadresPropios(reconciliacionService.reconciliar(false, false));
+
+        assertEquals(2, descuadres.size());
+        DescuadreStock deProducto = descuadres.stream().filter(d -> "PRODUCTO".equals(d.getTipo())).findFirst().orElseThrow();
+        assertEquals(103, deProducto.getRegistrado());
+        assertEquals(90, deProducto.getCalculado());
+        assertEquals(13, deProducto.getDiferencia());
+        assertFalse(deProducto.isCorregido());
+        assertEquals(103, productoRepository.findById(productoId).orElseThrow().getStockTotal());
+    }
+
+    // TEST 3: Con corregir=true los contadores pasan a la suma de sus filas
+    @Test
+    public void testCorrige() {
+        stockAlmacenService.ajustar(productoId, almacen1, 5);
+        reconciliacionService.marcar(productoId, almacen1);
+
+        List<DescuadreStock> descuadres = descuadresPropios(reconciliacionService.reconciliar(false, true));
+
+        assertEquals(2, descuadres.size());
+        assertTrue(descuadres.stream().allMatch(DescuadreStock::isCorregido));
+        assertEquals(105, productoRepository.findById(productoId).orElseThrow().getStockTotal());
+        assertEquals(65, almacenRepository.findById(almacen1).orElseThrow().getStockActual());
+    }
+
+    // TEST 4: La pasada incremental vacía los pendientes; la completa los
+    // encuentra igualmente aunque no estén marcados
+    @Test
+    public void testIncrementalYCompleta() {
+        reconciliacionService.marcar(productoId, null);
+        reconciliacionService.reconciliar(false, false);
+        assertEquals(0, reconciliacionService.pendientes().get("productos"));
+
+        stockAlmacenService.ajustar(productoId, almacen1, 1);
+        ReflectionTestUtils.setField(reconciliacionService, "tamanoLote", 7);
+        List<DescuadreStock> descuadres = descuadresPropios(reconciliacionService.reconciliar(true, false));
+        ReflectionTestUtils.setField(reconciliacionService, "tamanoLote", 1000);
+
+        assertEquals(2, descuadres.size());
+    }
+
+    // TEST 5: Las filas nunca bajan de 0
+    @Test
+    public void testFilaNoNegativa() {
+        stockAlmacenService.ajustar(productoId, almacen1, -500);
+        assertEquals(0, stockAlmacenService.disponible(productoId, almacen1));
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.inventarioapiad;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.util.Duration;
+import com.example.inventarioapiad.registro.AppenderAsincrono;
+import com.example.inventarioapiad.registro.FiltroMuestreo;
+import com.example.inventarioapiad.registro.Marcadores;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Benchmark de la latencia que añaden los logs a una "petición" (tres
+// lecturas FRECUENTE y una escritura, como un GET con filtros y un POST)
+// con varios hilos a la vez, cada uno con una pausa entre peticiones. No
+// corre con "test": ./gradlew benchmark
+//
+//   síncrono:   appender que escribe en el hilo de la petición, patrón de
+//               texto y mensajes concatenados (como antes)
+//   asíncrono:  buffer circular + JSON, mensajes parametrizados
+//   + muestreo: lo mismo con 1 de cada 10 FRECUENTE
+//
+// Se escribe a un fichero temporal con flush por mensaje, como la consola,
+// y luego igual pero parando la escritura cada poco, como una consola que
+// va por una tubería (docker logs, un recolector).
+@Tag("benchmark")
+public class RegistroBenchmarkTest {
+
+    private static final int HILOS = 8;
+    private static final int CALENTAMIENTO = 5_000;
+    private static final int PETICIONES = 10_000;
+    // Pausa entre peticiones de cada hilo (el resto de la petición: BD, red).
+    // Sin ella los hilos solo loguean y ningún buffer da abasto.
+    private static final long PAUSA_NANOS = 200_000;
+
+    @Test
+    public void benchmarkLatenciaPorPeticion() throws Exception {
+        for (boolean lenta : new boolean[] {false, true}) {
+            System.out.println(lenta ? "Salida lenta (tubería que se llena):" : "Salida a fichero:");
+            Resultado sincrono = medir("síncrono", lenta, false, false);
+            Resultado asincrono = medir("asíncrono", lenta, true, false);
+            Resultado muestreo = medir("asíncrono + muestreo", lenta, true, true);
+
+            System.out.println(sincrono);
+            System.out.println(asincrono);
+            System.out.println(muestreo);
+
+            assertEquals(0, sincrono.descartados);
+            assertTrue(asincrono.p99 > 0 && muestreo.p99 > 0);
+        }
+    }
+
+    private Resultado medir(String nombre, boolean lenta, boolean asincrono, boolean muestreo) throws Exception {
+        Path fichero = Files.createTempFile("registro-benchmark", ".log");
+        LoggerContext contexto = new LoggerContext();
+        contexto.setMDCAdapter(new LogbackMDCAdapter());
+        try (OutputStream salida = lenta ? new SalidaLenta(fichero) : new FileOutputStream(fichero.toFile())) {
+            OutputStreamAppender<ILoggingEvent> destino = new OutputStreamAppender<>();
+            destino.setContext(contexto);
+            destino.setEncoder(asincrono ? json(contexto) : patron(contexto));
+            destino.setOutputStream(salida);
+            destino.start();
+
+            AppenderAsincrono buffer = null;
+            Logger root = contexto.getLogger(Logger.ROOT_LOGGER_NAME);
+            if (asincrono) {
+                buffer = new AppenderAsincrono();
+                buffer.setContext(contexto);
+                buffer.setRingBufferSize(8192);
+                buffer.setAppendTimeout(Duration.buildByMilliseconds(0));
+                buffer.addAppender(destino);
+                buffer.start();
+                root.addAppender(buffer);
+            } else {
+                root.addAppender(destino);
+            }
+            if (muestreo) {
+                FiltroMuestreo filtro = new FiltroMuestreo();
+                filtro.setContext(contexto);
+                filtro.setReglas("com.example.inventarioapiad.service=10");
+                filtro.start();
+                contexto.addTurboFilter(filtro);
+            }
+
+            Logger logger = contexto.getLogger("com.example.inventarioapiad.service.ProductoService");
+            ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+            List<Future<long[]>> tareas = new ArrayList<>();
+            for (int h = 0; h < HILOS; h++) {
+                tareas.add(pool.submit(() -> {
+                    for (int i = 0; i < CALENTAMIENTO; i++) {
+                        peticion(logger, asincrono, i);
+                        LockSupport.parkNanos(PAUSA_NANOS);
+                    }
+                    long[] tiempos = new long[PETICIONES];
+                    for (int i = 0; i < PETICIONES; i++) {
+                        long inicio = System.nanoTime();
+                        peticion(logger, asincrono, i);
+                        tiempos[i] = System.nanoTime() - inicio;
+                        LockSupport.parkNanos(PAUSA_NANOS);
+                    }
+                    return tiempos;
+                }));
+            }
+            long[] todos = new long[HILOS * PETICIONES];
+            for (int h = 0; h < HILOS; h++) {
+                System.arraycopy(tareas.get(h).get(5, TimeUnit.MINUTES), 0, todos, h * PETICIONES, PETICIONES);
+            }
+            pool.shutdown();
+
+            long descartados = buffer != null ? buffer.getDescartados() : 0;
+            contexto.stop();
+            Arrays.sort(todos);
+            return new Resultado(nombre, percentil(todos, 0.50), percentil(todos, 0.99), percentil(todos, 0.999),
+                    descartados, Files.size(fichero));
+        } finally {
+            Files.deleteIfExists(fichero);
+        }
+    }
+
+    // Lo que loguean un GET con filtros (buscar, filtrar, resultado) y un
+    // POST; cada "petición" hace además un poco de trabajo propio
+    private static void peticion(Logger logger, boolean parametrizado, int i) {
+        long id = ThreadLocalRandom.current().nextLong(1, 10_000);
+        if (parametrizado) {
+            logger.info(Marcadores.FRECUENTE, "Buscando producto con ID: {}", id);
+            logger.info(Marcadores.FRECUENTE, "Filtrando productos - nombre: {}, sku: {}, precioVenta: {}, claseAbc: {}",
+                    "tornillo", null, 9.95f, "A");
+            logger.info(Marcadores.FRECUENTE, "Filtrado completado. Resultados: {} productos", i % 40);
+            logger.info("Producto creado exitosamente con ID: {}", id);
+        } else {
+            logger.info("Buscando producto con ID: " + id);
+            logger.info("Filtrando productos - nombre: " + "tornillo" + ", sku: " + null + ", precioVenta: " + 9.95f
+                    + ", claseAbc: " + "A");
+            logger.info("Filtrado completado. Resultados: " + (i % 40) + " productos");
+            logger.info("Producto creado exitosamente con ID: " + id);
+        }
+        double trabajo = 0;
+        for (int k = 0; k < 200; k++) {
+            trabajo += Math.sqrt(k + id);
+        }
+        if (trabajo < 0) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static Encoder<ILoggingEvent> patron(LoggerContext contexto) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(contexto);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n");
+        encoder.start();
+        return encoder;
+    }
+
+    private static Encoder<ILoggingEvent> json(LoggerContext contexto) {
+        LogstashEncoder encoder = new LogstashEncoder();
+        encoder.setContext(contexto);
+        encoder.start();
+        return encoder;
+    }
+
+    // Como la consola cuando va por una tubería a un recolector de logs: cada
+    // 64 KiB escritos se para 1 ms, lo que tarda el otro lado en vaciarla
+    private static final class SalidaLenta extends FilterOutputStream {
+        private static final int TUBERIA = 64 * 1024;
+        private int escritos;
+
+        SalidaLenta(Path fichero) throws IOException {
+            super(new FileOutputStream(fichero.toFile()));
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            escritos += len;
+            if (escritos >= TUBERIA) {
+                escritos = 0;
+                LockSupport.parkNanos(1_000_000);
+            }
+        }
+    }
+
+    private static long percentil(long[] ordenados, double p) {
+        return ordenados[(int) Math.min(ordenados.length - 1, Math.ceil(p * ordenados.length) - 1)];
+    }
+
+    private record Resultado(String nombre, long p50, long p99, long p999, long descartados, long bytes) {
+        @Override
+        public String toString() {
+            return String.format("%-22s p50 %7.1f µs | p99 %7.1f µs | p99.9 %8.1f µs | descartados %,9d | %,d bytes",
+                    nombre, p50 / 1000.0, p99 / 1000.0, p999 / 1000.0, descartados, bytes);
+        }
+    }
+}
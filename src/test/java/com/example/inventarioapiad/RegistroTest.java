@@ -0,0 +1,122 @@
+package com.example.inventarioapiad;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.read.ListAppender;
+import ch.qos.logback.core.util.Duration;
+import com.example.inventarioapiad.registro.AppenderAsincrono;
+import com.example.inventarioapiad.registro.FiltroMuestreo;
+import com.example.inventarioapiad.registro.Marcadores;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Muestreo de los mensajes FRECUENTE y contador de descartes del appender
+// asíncrono, sobre un LoggerContext propio (no toca los logs de la app).
+public class RegistroTest {
+
+    private LoggerContext contexto;
+    private ListAppender<ILoggingEvent> lista;
+
+    @BeforeEach
+    public void setUp() {
+        contexto = new LoggerContext();
+        contexto.setMDCAdapter(new LogbackMDCAdapter());
+        lista = new ListAppender<>();
+        lista.setContext(contexto);
+        lista.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        contexto.stop();
+    }
+
+    // TEST 1: De los FRECUENTE sale 1 de cada N según el prefijo más largo;
+    // los que no llevan el marcador y los WARN salen todos
+    @Test
+    public void testMuestreoPorPaquete() {
+        FiltroMuestreo filtro = new FiltroMuestreo();
+        filtro.setContext(contexto);
+        filtro.setReglas("com.example.service=10, com.example.service.VentaService=2");
+        filtro.start();
+        contexto.addTurboFilter(filtro);
+        contexto.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(lista);
+
+        Logger productos = contexto.getLogger("com.example.service.ProductoService");
+        Logger ventas = contexto.getLogger("com.example.service.VentaService");
+        Logger otro = contexto.getLogger("com.example.controller.ProductoController");
+        for (int i = 0; i < 100; i++) {
+            productos.info(Marcadores.FRECUENTE, "Buscando producto con ID: {}", i);
+            ventas.info(Marcadores.FRECUENTE, "Buscando venta con ID: {}", i);
+            otro.info(Marcadores.FRECUENTE, "Sin regla {}", i);
+            productos.info("Producto creado exitosamente con ID: {}", i);
+            productos.warn(Marcadores.FRECUENTE, "Aviso {}", i);
+            assertTrue(productos.isInfoEnabled());
+        }
+
+        assertEquals(10, contar("Buscando producto"));
+        assertEquals(50, contar("Buscando venta"));
+        assertEquals(100, contar("Sin regla"));
+        assertEquals(100, contar("Producto creado"));
+        assertEquals(100, contar("Aviso"));
+
+        List<Map<String, Object>> stats = filtro.estadisticas();
+        assertEquals("com.example.service.VentaService", stats.get(0).get("paquete"));
+        assertEquals(50L, stats.get(0).get("descartados"));
+        assertEquals(90L, stats.get(1).get("descartados"));
+    }
+
+    // TEST 2: Con el buffer lleno el appender asíncrono no bloquea: descarta
+    // y lo cuenta
+    @Test
+    public void testBufferLlenoDescartaYCuenta() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        AppenderBase<ILoggingEvent> lento = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent evento) {
+                try {
+                    liberar.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        lento.setContext(contexto);
+        lento.start();
+
+        AppenderAsincrono asincrono = new AppenderAsincrono();
+        asincrono.setContext(contexto);
+        asincrono.setRingBufferSize(4);
+        asincrono.setAppendTimeout(Duration.buildByMilliseconds(0));
+        asincrono.addAppender(lento);
+        asincrono.start();
+        Logger logger = contexto.getLogger("com.example.service.ProductoService");
+        logger.addAppender(asincrono);
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            logger.info("Mensaje {}", i);
+        }
+        long duracionMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        liberar.countDown();
+
+        assertTrue(duracionMs < 2000, "El log no debería esperar al appender lento: " + duracionMs + " ms");
+        assertEquals(100, asincrono.getEncolados() + asincrono.getDescartados());
+        assertTrue(asincrono.getDescartados() >= 90, "Descartados: " + asincrono.getDescartados());
+    }
+
+    private long contar(String prefijo) {
+        return lista.list.stream().filter(e -> e.getFormattedMessage().startsWith(prefijo)).count();
+    }
+}
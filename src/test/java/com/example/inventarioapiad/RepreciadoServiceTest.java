@@ -0,0 +1,185 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.entity.EjecucionRepreciado;
+import com.example.inventarioapiad.externo.CircuitBreaker;
+import com.example.inventarioapiad.externo.PrecioExterno;
+import com.example.inventarioapiad.externo.PreciosExternosClient;
+import com.example.inventarioapiad.externo.ServicioExternoException;
+import com.example.inventarioapiad.repository.EjecucionRepreciadoRepository;
+import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.repository.ProductoRepository.PrecioActual;
+import com.example.inventarioapiad.service.RepreciadoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RepreciadoServiceTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private EjecucionRepreciadoRepository ejecucionRepository;
+
+    @Mock
+    private PreciosExternosClient preciosClient;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private RepreciadoService repreciadoService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(ejecucionRepository.save(any(EjecucionRepreciado.class))).thenAnswer(inv -> {
+            EjecucionRepreciado e = inv.getArgument(0);
+            if (e.getId() == null) {
+                e.setId(1L);
+            }
+            return e;
+        });
+        when(ejecucionRepository.findFirstByEstadoInOrderByIdDesc(anyCollection())).thenReturn(Optional.empty());
+    }
+
+    private static PrecioActual producto(long id, String sku, float precioVenta) {
+        return new PrecioActual() {
+            public Long getId() { return id; }
+            public String getSku() { return sku; }
+            public Float getPrecioVenta() { return precioVenta; }
+        };
+    }
+
+    private static CompletableFuture<Optional<PrecioExterno>> precio(String sku, float precio) {
+        return CompletableFuture.completedFuture(Optional.of(new PrecioExterno(sku, precio)));
+    }
+
+    // TEST 1: Solo se escriben los precios que cambian, en un único batch
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRepreciadoSoloEscribeCambios() {
+        when(productoRepository.findPaginaPrecios(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                producto(1, "A", 1.0f), producto(2, "B", 2.0f), producto(3, "C", 3.0f), producto(4, "D", 4.0f)));
+        when(productoRepository.findPaginaPrecios(eq(4L), any(Pageable.class))).thenReturn(List.of());
+        when(preciosClient.obtenerPrecio("A")).thenReturn(precio("A", 1.5f));
+        when(preciosClient.obtenerPrecio("B")).thenReturn(precio("B", 2.0f));
+        when(preciosClient.obtenerPrecio("C")).thenReturn(
+                CompletableFuture.failedFuture(new ServicioExternoException("timeout")));
+        when(preciosClient.obtenerPrecio("D")).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        EjecucionRepreciado resultado = repreciadoService.ejecutar();
+
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertArrayEquals(new Object[]{1.5f, 1L}, captor.getValue().get(0));
+
+        assertEquals("COMPLETADA", resultado.getEstado());
+        assertEquals(4L, resultado.getProcesados());
+        assertEquals(1L, resultado.getActualizados());
+        assertEquals(1L, resultado.getSinCambios());
+        assertEquals(1L, resultado.getFallidos());
+        assertEquals(1L, resultado.getNoEncontrados());
+        assertEquals(4L, resultado.getUltimoIdProcesado());
+    }
+
+    // TEST 2: Una ejecución que quedó a medias se reanuda desde su cursor
+    @Test
+    public void testReanudaDesdeUltimoId() {
+        EjecucionRepreciado aMedias = new EjecucionRepreciado();
+        aMedias.setId(7L);
+        aMedias.setEstado("EN_CURSO");
+        aMedias.setUltimoIdProcesado(500L);
+        aMedias.setProcesados(500L);
+        when(ejecucionRepository.findFirstByEstadoInOrderByIdDesc(anyCollection())).thenReturn(Optional.of(aMedias));
+        when(productoRepository.findPaginaPrecios(eq(500L), any(Pageable.class)))
+                .thenReturn(List.of(producto(501, "X", 9.0f)));
+        when(productoRepository.findPaginaPrecios(eq(501L), any(Pageable.class))).thenReturn(List.of());
+        when(preciosClient.obtenerPrecio("X")).thenReturn(precio("X", 9.0f));
+
+        EjecucionRepreciado resultado = repreciadoService.ejecutar();
+
+        assertEquals(7L, resultado.getId());
+        assertEquals("COMPLETADA", resultado.getEstado());
+        assertEquals(501L, resultado.getProcesados());
+        verify(productoRepository, never()).findPaginaPrecios(eq(0L), any(Pageable.class));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    // TEST 3: Si falla la BD la ejecución queda FALLIDA con el cursor del último lote bueno
+    @Test
+    public void testErrorBaseDatosDejaFallida() {
+        when(productoRepository.findPaginaPrecios(eq(0L), any(Pageable.class)))
+                .thenThrow(new RuntimeException("conexión perdida"));
+
+        EjecucionRepreciado resultado = repreciadoService.ejecutar();
+
+        assertEquals("FALLIDA", resultado.getEstado());
+        assertEquals(0L, resultado.getUltimoIdProcesado());
+    }
+
+    // TEST 4: Detener sin ninguna ejecución en curso -> error (409 en el controller)
+    @Test
+    public void testDetenerSinEjecucion() {
+        assertThrows(IllegalStateException.class, () -> repreciadoService.detener());
+    }
+
+    // TEST 5: Con el circuito abierto la ejecución para sin confirmar la
+    // página: cursor al principio de ella y contadores sin tocar
+    @Test
+    public void testCircuitoAbiertoParaSinAvanzarCursor() {
+        when(productoRepository.findPaginaPrecios(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(producto(1, "A", 1.0f), producto(2, "B", 2.0f)));
+        when(preciosClient.obtenerPrecio("A")).thenReturn(precio("A", 1.5f));
+        when(preciosClient.obtenerPrecio("B")).thenReturn(
+                CompletableFuture.failedFuture(new ServicioExternoException("Circuito abierto")));
+        when(preciosClient.getEstadoCircuito()).thenReturn(CircuitBreaker.Estado.ABIERTO);
+
+        EjecucionRepreciado resultado = repreciadoService.ejecutar();
+
+        assertEquals("FALLIDA", resultado.getEstado());
+        assertEquals(0L, resultado.getUltimoIdProcesado());
+        assertEquals(0L, resultado.getProcesados());
+        assertEquals(0L, resultado.getActualizados());
+        assertEquals(0L, resultado.getFallidos());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(productoRepository, times(1)).findPaginaPrecios(anyLong(), any(Pageable.class));
+    }
+
+    // TEST 6: Si el batch no se confirma, cursor y contadores quedan como
+    // estaban antes de la página
+    @Test
+    public void testBatchFallidoNoAvanzaContadores() {
+        when(productoRepository.findPaginaPrecios(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(producto(1, "A", 1.0f), producto(2, "B", 2.0f)));
+        when(preciosClient.obtenerPrecio("A")).thenReturn(precio("A", 1.5f));
+        when(preciosClient.obtenerPrecio("B")).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("bloqueo"));
+
+        EjecucionRepreciado resultado = repreciadoService.ejecutar();
+
+        assertEquals("FALLIDA", resultado.getEstado());
+        assertEquals(0L, resultado.getUltimoIdProcesado());
+        assertEquals(0L, resultado.getProcesados());
+        assertEquals(0L, resultado.getActualizados());
+        assertEquals(0L, resultado.getNoEncontrados());
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.entity.Almacen;
+import com.example.inventarioapiad.entity.Cliente;
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.entity.Venta;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Benchmark de serialización de las respuestas típicas en JSON, Smile y
+// CBOR, con los ObjectMapper de los conversores de la aplicación. No corre
+// con "test": ./gradlew benchmark
+//
+// Para cada formato: tiempo de serializar (mediana), bytes, y bytes y
+// tiempo con gzip encima (lo que hace Tomcat con server.compression).
+// Las cargas: un listado de ventas con Cliente/Producto/Almacen anidados
+// (GET /api/ventas), una venta sola (GET /api/ventas/{id}) y un listado de
+// productos (GET /api/productos).
+@Tag("benchmark")
+@SpringBootTest
+public class SerializacionBenchmarkTest {
+
+    private static final int VENTAS = 2000;
+    private static final int PRODUCTOS = 500;
+    private static final int CALENTAMIENTO = 30;
+    private static final int REPETICIONES = 40;
+
+    @Autowired
+    private ObjectMapper json;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smile;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cbor;
+
+    @Test
+    public void benchmarkFormatos() throws Exception {
+        List<Producto> productos = productos(PRODUCTOS);
+        List<Venta> ventas = ventas(VENTAS, productos);
+
+        for (Object[] carga : new Object[][] {
+                {"Listado de " + VENTAS + " ventas", ventas},
+                {"Una venta", ventas.get(0)},
+                {"Listado de " + PRODUCTOS + " productos", productos}}) {
+            System.out.println(carga[0] + ":");
+            System.out.println(String.format("  %-6s %12s %10s %12s %12s", "", "serializar", "bytes",
+                    "bytes gzip", "+ gzip"));
+            Resultado enJson = medir("JSON", json, carga[1]);
+            Resultado enSmile = medir("Smile", smile.getObjectMapper(), carga[1]);
+            Resultado enCbor = medir("CBOR", cbor.getObjectMapper(), carga[1]);
+            System.out.println(enJson);
+            System.out.println(enSmile);
+            System.out.println(enCbor);
+
+            // Los binarios no repiten nombres de campo ni escriben números en texto
+            assertTrue(enSmile.bytes < enJson.bytes);
+            assertTrue(enCbor.bytes < enJson.bytes);
+        }
+    }
+
+    private Resultado medir(String formato, ObjectMapper mapper, Object carga) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(carga);
+        byte[] comprimidos = gzip(bytes);
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            gzip(mapper.writeValueAsBytes(carga));
+        }
+        long[] serializar = new long[REPETICIONES];
+        long[] comprimir = new long[REPETICIONES];
+        for (int i = 0; i < REPETICIONES; i++) {
+            long inicio = System.nanoTime();
+            byte[] salida = mapper.writeValueAsBytes(carga);
+            long medio = System.nanoTime();
+            gzip(salida);
+            comprimir[i] = System.nanoTime() - medio;
+            serializar[i] = medio - inicio;
+        }
+        return new Resultado(formato, mediana(serializar), bytes.length, comprimidos.length, mediana(comprimir));
+    }
+
+    private static byte[] gzip(byte[] datos) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(datos.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(datos);
+        }
+        return salida.toByteArray();
+    }
+
+    private static long mediana(long[] valores) {
+        long[] ordenados = valores.clone();
+        Arrays.sort(ordenados);
+        return ordenados[ordenados.length / 2];
+    }
+
+    private static List<Producto> productos(int n) {
+        Random azar = new Random(42);
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 1; i <= n; i++) {
+            Producto producto = new Producto();
+            producto.setId((long) i);
+            producto.setNombre("Tornillo hexagonal " + i + " acero inoxidable");
+            producto.setSku("TOR-" + (10000 + i));
+            producto.setDescripcion(i % 3 == 0 ? "Caja de 100 unidades" : null);
+            producto.setPrecioCosto(1 + azar.nextInt(5000) / 100f);
+            producto.setPrecioVenta(producto.getPrecioCosto() * 1.4f);
+            producto.setStockTotal(azar.nextInt(1000));
+            producto.setClaseAbc(i % 5 == 0 ? "A" : "C");
+            productos.add(producto);
+        }
+        return productos;
+    }
+
+    private static List<Venta> ventas(int n, List<Producto> productos) {
+        Random azar = new Random(7);
+        List<Almacen> almacenes = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            Almacen almacen = new Almacen();
+            almacen.setId((long) i);
+            almacen.setNombre("Almacén " + i);
+            almacen.setUbicacion("Polígono industrial " + i + ", Zaragoza");
+            almacen.setCapacidadMaxima(50_000);
+            almacen.setStockActual(azar.nextInt(50_000));
+            almacen.setResponsable("Responsable " + i);
+            almacenes.add(almacen);
+        }
+        List<Cliente> clientes = new ArrayList<>();
+        for (int i = 1; i <= 300; i++) {
+            Cliente cliente = new Cliente();
+            cliente.setId((long) i);
+            cliente.setNombre("Cliente " + i + " S.L.");
+            cliente.setEmail("cliente" + i + "@example.com");
+            cliente.setTelefono("976" + (100000 + i));
+            cliente.setCiudad("Zaragoza");
+            clientes.add(cliente);
+        }
+        List<Venta> ventas = new ArrayList<>();
+        LocalDateTime fecha = LocalDateTime.of(2026, 1, 1, 9, 0);
+        for (int i = 1; i <= n; i++) {
+            Venta venta = new Venta();
+            venta.setId((long) i);
+            venta.setCliente(clientes.get(azar.nextInt(clientes.size())));
+            venta.setProducto(productos.get(azar.nextInt(productos.size())));
+            venta.setAlmacen(almacenes.get(azar.nextInt(almacenes.size())));
+            venta.setCantidad(1 + azar.nextInt(20));
+            venta.setPrecioUnitario(venta.getProducto().getPrecioVenta());
+            venta.setFechaVenta(fecha.plusMinutes(i * 7L));
+            venta.setNumeroPedido("PED-2026-" + (100000 + i));
+            venta.setEstado(i % 4 == 0 ? "ENTREGADA" : "PENDIENTE");
+            ventas.add(venta);
+        }
+        return ventas;
+    }
+
+    private record Resultado(String formato, long serializarNanos, int bytes, int bytesGzip, long gzipNanos) {
+        @Override
+        public String toString() {
+            return String.format("  %-6s %9.3f ms %10d %12d %9.3f ms", formato, serializarNanos / 1e6, bytes,
+                    bytesGzip, gzipNanos / 1e6);
+        }
+    }
+}
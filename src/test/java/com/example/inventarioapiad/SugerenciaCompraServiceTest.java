@@ -0,0 +1,135 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.dto.PedidoSugerido;
+import com.example.inventarioapiad.service.SugerenciaCompraService;
+import com.example.inventarioapiad.service.SugerenciaCompraService.CapacidadAlmacen;
+import com.example.inventarioapiad.service.SugerenciaCompraService.Catalogo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SugerenciaCompraServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private SugerenciaCompraService sugerenciaCompraService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    // Ventana de 28 días: 56 vendidas = 2/día. Con 7 días de entrega y 3 de
+    // seguridad el punto de pedido es 20, y se pide hasta 2 x (7+3+14) = 48.
+
+    // TEST 1: Pide hasta el objetivo descontando stock y compras pendientes
+    @Test
+    public void testCantidadSugerida() {
+        Catalogo catalogo = new Catalogo();
+        catalogo.producto(1L, "A", 10);
+        catalogo.vendidas(1L, 56);
+        catalogo.pendiente(1L, 5);
+        catalogo.ultimaCompra(1L, 100L, 1L, 7);
+
+        sugerenciaCompraService.calcular(catalogo,
+                List.of(new CapacidadAlmacen(1L, "Central", null, 0)), Map.of(100L, "Tornillos SA"));
+
+        List<PedidoSugerido> pedidos = sugerenciaCompraService.pedidos(null, null);
+        assertEquals(1, pedidos.size());
+        assertEquals("Tornillos SA", pedidos.get(0).getProveedorNombre());
+        assertEquals(33, pedidos.get(0).getLineas().get(0).getCantidad());
+    }
+
+    // TEST 2: Sin ventas o por encima del punto de pedido no se sugiere nada
+    @Test
+    public void testSinNecesidad() {
+        Catalogo catalogo = new Catalogo();
+        catalogo.producto(1L, "SIN-VENTAS", 0);
+        catalogo.producto(2L, "CON-STOCK", 30);
+        catalogo.vendidas(2L, 56);
+
+        Map<String, Object> resumen = sugerenciaCompraService.calcular(catalogo,
+                List.of(new CapacidadAlmacen(1L, "Central", null, 0)), Map.of());
+
+        assertEquals(0, resumen.get("productosAPedir"));
+        assertTrue(sugerenciaCompraService.pedidos(null, null).isEmpty());
+    }
+
+    // TEST 3: Se agrupa por proveedor y almacén
+    @Test
+    public void testAgrupaPorProveedorYAlmacen() {
+        Catalogo catalogo = new Catalogo();
+        for (long id = 1; id <= 3; id++) {
+            catalogo.producto(id, "P" + id, 0);
+            catalogo.vendidas(id, 56);
+        }
+        catalogo.ultimaCompra(1L, 100L, 1L, 7);
+        catalogo.ultimaCompra(2L, 100L, 1L, 7);
+        catalogo.ultimaCompra(3L, 200L, 2L, 7);
+
+        sugerenciaCompraService.calcular(catalogo, List.of(
+                new CapacidadAlmacen(1L, "Central", null, 0),
+                new CapacidadAlmacen(2L, "Norte", null, 0)), Map.of());
+
+        assertEquals(2, sugerenciaCompraService.pedidos(null, null).size());
+        PedidoSugerido pedido = sugerenciaCompraService.pedidos(100L, null).get(0);
+        assertEquals(1L, pedido.getAlmacenId());
+        assertEquals(2, pedido.getLineas().size());
+        assertEquals(96L, pedido.getTotalUnidades());
+    }
+
+    // TEST 4: Si el almacén habitual no tiene sitio el resto va a otro;
+    // lo que no cabe en ninguno se informa
+    @Test
+    public void testRespetaCapacidadMaxima() {
+        Catalogo catalogo = new Catalogo();
+        catalogo.producto(1L, "A", 0);
+        catalogo.vendidas(1L, 56);
+        catalogo.ultimaCompra(1L, 100L, 1L, 7);
+
+        Map<String, Object> resumen = sugerenciaCompraService.calcular(catalogo, List.of(
+                new CapacidadAlmacen(1L, "Central", 100, 80),
+                new CapacidadAlmacen(2L, "Norte", 30, 10)), Map.of());
+
+        assertEquals(20L, sugerenciaCompraService.pedidos(100L, 1L).get(0).getTotalUnidades());
+        assertEquals(20L, sugerenciaCompraService.pedidos(100L, 2L).get(0).getTotalUnidades());
+        assertEquals(8L, resumen.get("unidadesSinCapacidad"));
+    }
+
+    // TEST 5: El resultado en paralelo es el mismo que en un solo trozo
+    @Test
+    public void testParticionesForkJoin() {
+        ReflectionTestUtils.setField(sugerenciaCompraService, "umbralParticion", 100);
+        Catalogo catalogo = new Catalogo();
+        for (long id = 1; id <= 5000; id++) {
+            catalogo.producto(id, "P" + id, (int) (id % 40));
+            catalogo.vendidas(id, 56);
+        }
+
+        Map<String, Object> resumen = sugerenciaCompraService.calcular(catalogo,
+                List.of(new CapacidadAlmacen(1L, "Central", null, 0)), Map.of());
+
+        // stock <= 20 pide (ids con id % 40 en 0..20): 21 de cada 40
+        assertEquals(5000, resumen.get("productosAnalizados"));
+        assertEquals(125 * 21, resumen.get("productosAPedir"));
+    }
+
+    // TEST 6: Los productos deben cargarse ordenados por id
+    @Test
+    public void testCatalogoDesordenado() {
+        Catalogo catalogo = new Catalogo();
+        catalogo.producto(5L, "B", 0);
+        assertThrows(IllegalArgumentException.class, () -> catalogo.producto(3L, "A", 0));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.service.TopProductosService;
+import com.example.inventarioapiad.service.TopProductosService.Ventana;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopProductosServiceTest {
+
+    private static final long MINUTO = 60_000L;
+    private static final long T0 = 1_000_000 * MINUTO;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private TopProductosService topProductosService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    // TEST 1: Con pocos productos el sketch es exacto y el orden correcto
+    @Test
+    public void testTopExacto() {
+        Ventana ventana = new Ventana(5 * MINUTO, 12, 4, 1024, 16, T0);
+        ventana.sumar(1L, 5, T0);
+        ventana.sumar(2L, 50, T0);
+        ventana.sumar(3L, 20, T0);
+        ventana.sumar(2L, 10, T0 + MINUTO);
+
+        long[] top = ventana.top(2, T0 + MINUTO);
+
+        assertArrayEquals(new long[]{2L, 60, 3L, 20}, top);
+        assertEquals(85, ventana.total(T0 + MINUTO));
+    }
+
+    // TEST 2: Lo que sale de la ventana deja de contar
+    @Test
+    public void testVentanaDeslizante() {
+        Ventana ventana = new Ventana(5 * MINUTO, 12, 4, 1024, 16, T0);
+        ventana.sumar(1L, 100, T0);
+        ventana.sumar(2L, 10, T0 + 30 * MINUTO);
+
+        assertEquals(1L, ventana.top(1, T0 + 30 * MINUTO)[0]);
+        // Una hora después el cubo de T0 ha caducado
+        long[] top = ventana.top(5, T0 + 61 * MINUTO);
+        assertArrayEquals(new long[]{2L, 10}, top);
+        assertEquals(0, ventana.estimar(1L, T0 + 61 * MINUTO));
+        // Una venta anterior a la ventana se ignora
+        ventana.sumar(3L, 7, T0);
+        assertEquals(10, ventana.total(T0 + 61 * MINUTO));
+    }
+
+    // TEST 3: Muchos productos con pocos contadores: los más vendidos
+    // aparecen y la estimación respeta la cota de error
+    @Test
+    public void testHeavyHittersConRuido() {
+        Ventana ventana = new Ventana(5 * MINUTO, 12, 4, 256, 32, T0);
+        Random random = new Random(3);
+        long[] reales = new long[5001];
+        for (int i = 0; i < 100_000; i++) {
+            // 5 productos estrella y mucho ruido repartido
+            long id = random.nextInt(4) == 0 ? 1 + random.nextInt(5) : 6 + random.nextInt(4995);
+            ventana.sumar(id, 1, T0 + random.nextInt(50) * MINUTO);
+            reales[(int) id]++;
+        }
+        long ahora = T0 + 55 * MINUTO;
+        long total = ventana.total(ahora);
+
+        long[] top = ventana.top(5, ahora);
+
+        for (int i = 0; i < top.length; i += 2) {
+            long id = top[i];
+            assertTrue(id >= 1 && id <= 5, "producto " + id + " no debería estar en el top");
+            assertTrue(top[i + 1] >= reales[(int) id]);
+            assertTrue(top[i + 1] - reales[(int) id] <= ventana.errorMaximo(total));
+        }
+        assertEquals(10, top.length);
+    }
+
+    // TEST 4: Las ventas y cancelaciones llegan por el evento de movimiento
+    @Test
+    public void testAlimentadoPorEventos() {
+        topProductosService.alMoverStock(MovimientoStockEvent.salida(7L, 1L, 4, "VENTA", 1L));
+        topProductosService.alMoverStock(MovimientoStockEvent.salida(8L, 1L, 3, "VENTA", 2L));
+        topProductosService.alMoverStock(MovimientoStockEvent.entrada(7L, 1L, 2, null, "VENTA", 1L));
+        topProductosService.alMoverStock(MovimientoStockEvent.salida(9L, 1L, 50, "TRASPASO", 3L));
+
+        Map<String, Object> respuesta = topProductosService.top("1h", 10);
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> productos = (List<Map<String, Object>>) respuesta.get("productos");
+        assertEquals(2, productos.size());
+        assertEquals(8L, productos.get(0).get("productoId"));
+        assertEquals(3L, productos.get(0).get("unidades"));
+        assertEquals(2L, productos.get(1).get("unidades"));
+        assertEquals(5L, respuesta.get("unidadesVentana"));
+    }
+
+    // TEST 5: Validación de la petición
+    @Test
+    public void testPeticionInvalida() {
+        assertThrows(IllegalArgumentException.class, () -> topProductosService.top("2h", 10));
+        assertThrows(IllegalArgumentException.class, () -> topProductosService.top("24h", 0));
+        assertThrows(IllegalArgumentException.class, () -> topProductosService.top("24h", 1000));
+    }
+
+    // TEST 6: La cancelación de una venta antigua se descuenta del cubo de
+    // su fechaVenta: no toca la ventana de 1h, donde esa venta no estaba
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCancelacionEnElCuboDeLaVenta() {
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime haceDosHoras = ahora.minusHours(2);
+        topProductosService.alMoverStock(MovimientoStockEvent.salida(7L, 1L, 5, "VENTA", 1L).withFecha(ahora));
+        topProductosService.alMoverStock(MovimientoStockEvent.salida(7L, 1L, 3, "VENTA", 2L).withFecha(haceDosHoras));
+        assertEquals(8L, topProductosService.top("24h", 10).get("unidadesVentana"));
+
+        topProductosService.alMoverStock(
+                MovimientoStockEvent.entrada(7L, 1L, 3, null, "VENTA", 2L).withFecha(haceDosHoras));
+
+        Map<String, Object> hora = topProductosService.top("1h", 10);
+        assertEquals(5L, hora.get("unidadesVentana"));
+        assertEquals(5L, ((List<Map<String, Object>>) hora.get("productos")).get(0).get("unidades"));
+        assertEquals(5L, topProductosService.top("24h", 10).get("unidadesVentana"));
+    }
+}
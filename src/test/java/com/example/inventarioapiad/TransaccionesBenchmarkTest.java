@@ -0,0 +1,169 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.service.ProductoService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Benchmarks de las fronteras transaccionales de los servicios. No corren
+// con "test" (etiqueta benchmark): ./gradlew benchmark
+//
+// Miden con las estadísticas de Hibernate (sentencias, transacciones,
+// flushes) y con los bytes reservados por el hilo
+// (com.sun.management.ThreadMXBean), mediana de varias repeticiones.
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+public class TransaccionesBenchmarkTest {
+
+    private static final int PRODUCTOS = 2000;
+    private static final int CALENTAMIENTO = 5;
+    private static final int REPETICIONES = 15;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics estadisticas;
+    private final com.sun.management.ThreadMXBean hilos =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @BeforeEach
+    public void setUp() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long faltan = PRODUCTOS - productoRepository.count();
+        List<Producto> nuevos = new ArrayList<>();
+        for (int i = 0; i < faltan; i++) {
+            Producto producto = new Producto();
+            producto.setNombre("Producto benchmark " + i);
+            producto.setSku("BEN-" + System.nanoTime() + "-" + i);
+            producto.setDescripcion("Descripción del producto " + i);
+            producto.setPrecioVenta(10f + i % 50);
+            producto.setPrecioCosto(5f + i % 50);
+            producto.setStockTotal(i % 100);
+            nuevos.add(producto);
+        }
+        productoRepository.saveAll(nuevos);
+    }
+
+    // BENCHMARK 1: El mismo listado en una transacción de lectura-escritura
+    // y en una de solo lectura. En solo lectura la sesión no guarda el estado
+    // cargado ni hace dirty checking al confirmar (flush MANUAL).
+    @Test
+    public void benchmarkListadoSoloLectura() {
+        Medida escritura = medirListado(false);
+        Medida lectura = medirListado(true);
+
+        System.out.printf("Listado de %d productos (mediana de %d):%n", PRODUCTOS, REPETICIONES);
+        System.out.printf("  lectura-escritura: %,d bytes, %d flush%n", escritura.bytes, escritura.flushes);
+        System.out.printf("  solo lectura:      %,d bytes, %d flush (%.0f%% de la memoria)%n",
+                lectura.bytes, lectura.flushes, 100.0 * lectura.bytes / escritura.bytes);
+
+        assertEquals(1, escritura.flushes);
+        assertEquals(0, lectura.flushes);
+        assertEquals(escritura.sentencias, lectura.sentencias);
+        assertTrue(lectura.bytes < escritura.bytes,
+                "solo lectura debería reservar menos: " + lectura.bytes + " >= " + escritura.bytes);
+    }
+
+    // BENCHMARK 2: PATCH de un producto. Antes: buscarPorId en el controller,
+    // actualizar() volvía a leerlo y el save() de la entidad ya separada
+    // hacía merge (otro SELECT), cada paso en su transacción. Ahora: una
+    // sola transacción, una lectura y el UPDATE.
+    @Test
+    public void benchmarkPatchEnUnaTransaccion() {
+        Long id = productoRepository.findAll().iterator().next().getId();
+
+        long[] antesSentencias = new long[REPETICIONES];
+        long[] antesTransacciones = new long[REPETICIONES];
+        long[] ahoraSentencias = new long[REPETICIONES];
+        long[] ahoraTransacciones = new long[REPETICIONES];
+        for (int i = 0; i < REPETICIONES; i++) {
+            float precio = 20f + i;
+
+            estadisticas.clear();
+            Producto existente = productoRepository.findById(id).orElseThrow();
+            existente.setPrecioVenta(precio);
+            Producto producto = productoRepository.findById(id).orElseThrow();
+            producto.setPrecioVenta(existente.getPrecioVenta());
+            productoRepository.save(producto);
+            antesSentencias[i] = estadisticas.getPrepareStatementCount();
+            antesTransacciones[i] = estadisticas.getTransactionCount();
+
+            estadisticas.clear();
+            Producto cambios = new Producto();
+            cambios.setActivo(null);
+            cambios.setPrecioVenta(precio + 0.5f);
+            productoService.actualizar(id, cambios);
+            ahoraSentencias[i] = estadisticas.getPrepareStatementCount();
+            ahoraTransacciones[i] = estadisticas.getTransactionCount();
+        }
+
+        System.out.printf("PATCH de un producto (mediana de %d):%n", REPETICIONES);
+        System.out.printf("  antes: %d sentencias, %d transacciones%n",
+                mediana(antesSentencias), mediana(antesTransacciones));
+        System.out.printf("  ahora: %d sentencias, %d transacciones%n",
+                mediana(ahoraSentencias), mediana(ahoraTransacciones));
+
+        assertEquals(20f + REPETICIONES - 1 + 0.5f, productoRepository.findById(id).orElseThrow().getPrecioVenta());
+        assertEquals(1, mediana(ahoraTransacciones));
+        assertTrue(mediana(ahoraSentencias) < mediana(antesSentencias));
+        assertTrue(mediana(ahoraTransacciones) < mediana(antesTransacciones));
+    }
+
+    private Medida medirListado(boolean soloLectura) {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setReadOnly(soloLectura);
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            transaccion.execute(estado -> productoRepository.findAll());
+        }
+
+        long[] bytes = new long[REPETICIONES];
+        long[] flushes = new long[REPETICIONES];
+        long[] sentencias = new long[REPETICIONES];
+        for (int i = 0; i < REPETICIONES; i++) {
+            estadisticas.clear();
+            long antes = hilos.getCurrentThreadAllocatedBytes();
+            transaccion.execute(estado -> productoRepository.findAll());
+            bytes[i] = hilos.getCurrentThreadAllocatedBytes() - antes;
+            flushes[i] = estadisticas.getFlushCount();
+            sentencias[i] = estadisticas.getPrepareStatementCount();
+        }
+        return new Medida(mediana(bytes), mediana(flushes), mediana(sentencias));
+    }
+
+    private static long mediana(long[] valores) {
+        long[] copia = valores.clone();
+        Arrays.sort(copia);
+        return copia[copia.length / 2];
+    }
+
+    private record Medida(long bytes, long flushes, long sentencias) {
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.dto.TraspasoRequest;
+import com.example.inventarioapiad.entity.Almacen;
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.entity.Traspaso;
+import com.example.inventarioapiad.repository.AlmacenRepository;
+import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.repository.TraspasoRepository;
+import com.example.inventarioapiad.service.StockAlmacenService;
+import com.example.inventarioapiad.service.TraspasoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Prueba de carga de los traspasos: varios hilos moviendo stock a la vez
+// entre los mismos almacenes, en los dos sentidos y en lotes. Si el orden
+// de bloqueo no fuera fijo acabaría en deadlock (o en timeouts de bloqueo);
+// si no fuera atómico se perderían o duplicarían unidades.
+@SpringBootTest
+public class TraspasoConcurrenciaTest {
+
+    private static final int HILOS = 8;
+    private static final int OPERACIONES_POR_HILO = 60;
+
+    @Autowired
+    private TraspasoService traspasoService;
+
+    @Autowired
+    private AlmacenRepository almacenRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private TraspasoRepository traspasoRepository;
+
+    @Autowired
+    private StockAlmacenService stockAlmacenService;
+
+    @Test
+    public void testTraspasosConcurrentesConservanElStock() throws Exception {
+        Producto producto = new Producto();
+        producto.setNombre("Palé de prueba");
+        producto.setSku("TRASPASO-CARGA-" + System.nanoTime());
+        producto.setPrecioVenta(1f);
+        producto.setStockTotal(4000);
+        Long productoId = productoRepository.save(producto).getId();
+
+        List<Long> almacenes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Almacen almacen = new Almacen();
+            almacen.setNombre("Carga " + i + " " + System.nanoTime());
+            almacen.setUbicacion("Test");
+            almacen.setStockActual(1000);
+            Long almacenId = almacenRepository.save(almacen).getId();
+            stockAlmacenService.ajustar(productoId, almacenId, 1000);
+            almacenes.add(almacenId);
+        }
+
+        AtomicInteger completados = new AtomicInteger();
+        AtomicInteger rechazados = new AtomicInteger();
+        List<Throwable> errores = java.util.Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        long inicio = System.nanoTime();
+        for (int h = 0; h < HILOS; h++) {
+            pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int op = 0; op < OPERACIONES_POR_HILO; op++) {
+                    try {
+                        if (random.nextInt(4) == 0) {
+                            // Lote que cruza almacenes en sentidos opuestos
+                            traspasoService.crearLote(List.of(
+                                    peticion(productoId, almacenes, random, false),
+                                    peticion(productoId, almacenes, random, false),
+                                    peticion(productoId, almacenes, random, false)));
+                        } else {
+                            Traspaso traspaso = traspasoService.crear(
+                                    peticion(productoId, almacenes, random, random.nextBoolean()));
+                            if ("EN_TRANSITO".equals(traspaso.getEstado())) {
+                                if (random.nextBoolean()) {
+                                    traspasoService.recibir(traspaso.getId());
+                                } else {
+                                    traspasoService.cancelar(traspaso.getId());
+                                }
+                            }
+                        }
+                        completados.incrementAndGet();
+                    } catch (IllegalStateException | ConcurrencyFailureException e) {
+                        // Sin stock suficiente o timeout de bloqueo: se rechaza entero
+                        rechazados.incrementAndGet();
+                    } catch (Throwable e) {
+                        errores.add(e);
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES), "Los traspasos no terminan (¿deadlock?)");
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        assertTrue(errores.isEmpty(), "Errores inesperados: " + errores);
+
+        long total = 0;
+        long totalProducto = 0;
+        for (Long id : almacenes) {
+            int stock = almacenRepository.findById(id).orElseThrow().getStockActual();
+            assertTrue(stock >= 0, "Stock negativo en el almacén " + id);
+            // Aquí solo hay un producto: su fila tiene que ir a la par del almacén
+            assertEquals(stock, stockAlmacenService.disponible(productoId, id));
+            long enCamino = traspasoRepository.sumarEnTransitoHacia(id);
+            total += stock + enCamino;
+            totalProducto += stockAlmacenService.disponible(productoId, id) + enCamino;
+        }
+        assertEquals(4000, total);
+        assertEquals(4000, totalProducto);
+        assertTrue(completados.get() > 0);
+
+        System.out.printf("Traspasos: %d operaciones ok, %d rechazadas en %.2f s (%.0f op/s)%n",
+                completados.get(), rechazados.get(), segundos, completados.get() / segundos);
+    }
+
+    private static TraspasoRequest peticion(Long productoId, List<Long> almacenes,
+                                            ThreadLocalRandom random, boolean enTransito) {
+        int origen = random.nextInt(almacenes.size());
+        int destino = (origen + 1 + random.nextInt(almacenes.size() - 1)) % almacenes.size();
+        return new TraspasoRequest(productoId, almacenes.get(origen), almacenes.get(destino),
+                1 + random.nextInt(50), enTransito, null);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.dto.TraspasoRequest;
+import com.example.inventarioapiad.entity.Almacen;
+import com.example.inventarioapiad.entity.Producto;
+import com.example.inventarioapiad.entity.Traspaso;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.repository.AlmacenRepository;
+import com.example.inventarioapiad.repository.ProductoRepository;
+import com.example.inventarioapiad.repository.TraspasoRepository;
+import com.example.inventarioapiad.service.StockAlmacenService;
+import com.example.inventarioapiad.service.TraspasoService;
+import com.example.inventarioapiad.service.ValoracionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class TraspasoServiceTest {
+
+    @Mock
+    private TraspasoRepository traspasoRepository;
+
+    @Mock
+    private AlmacenRepository almacenRepository;
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private StockAlmacenService stockAlmacenService;
+
+    @Mock
+    private ValoracionService valoracionService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private TraspasoService traspasoService;
+
+    private Almacen a1;
+    private Almacen a2;
+    private Almacen a3;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        a1 = almacen(1L, 1000, 500);
+        a2 = almacen(2L, 1000, 100);
+        a3 = almacen(3L, 200, 150);
+
+        Producto producto = new Producto();
+        producto.setId(10L);
+        when(productoRepository.findById(10L)).thenReturn(Optional.of(producto));
+        when(traspasoRepository.save(any(Traspaso.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(stockAlmacenService.disponible(anyLong(), anyLong())).thenReturn(10_000);
+    }
+
+    private Almacen almacen(Long id, Integer capacidad, int stock) {
+        Almacen almacen = new Almacen();
+        almacen.setId(id);
+        almacen.setNombre("A" + id);
+        almacen.setCapacidadMaxima(capacidad);
+        almacen.setStockActual(stock);
+        when(almacenRepository.findByIdForUpdate(id)).thenReturn(Optional.of(almacen));
+        return almacen;
+    }
+
+    private void enTransito(Traspaso traspaso) {
+        TraspasoRepository.Almacenes almacenes = mock(TraspasoRepository.Almacenes.class);
+        when(almacenes.getOrigenId()).thenReturn(traspaso.getAlmacenOrigen().getId());
+        when(almacenes.getDestinoId()).thenReturn(traspaso.getAlmacenDestino().getId());
+        when(traspasoRepository.buscarAlmacenes(traspaso.getId())).thenReturn(Optional.of(almacenes));
+        when(traspasoRepository.findByIdForUpdate(traspaso.getId())).thenReturn(Optional.of(traspaso));
+    }
+
+    // TEST 1: Traspaso inmediato: sale del origen y entra en el destino
+    @Test
+    public void testTraspasoInmediato() {
+        Traspaso traspaso = traspasoService.crear(new TraspasoRequest(10L, 1L, 2L, 200, false, null));
+
+        assertEquals("COMPLETADO", traspaso.getEstado());
+        assertNotNull(traspaso.getFechaRecepcion());
+        assertEquals(300, a1.getStockActual());
+        assertEquals(300, a2.getStockActual());
+        verify(stockAlmacenService).ajustar(10L, 1L, -200);
+        verify(stockAlmacenService).ajustar(10L, 2L, 200);
+        verify(eventPublisher, times(2)).publishEvent(any(MovimientoStockEvent.class));
+    }
+
+    // TEST 2: Los almacenes se bloquean siempre en orden de id, aunque el
+    // traspaso vaya del mayor al menor
+    @Test
+    public void testBloqueoEnOrdenDeId() {
+        traspasoService.crear(new TraspasoRequest(10L, 2L, 1L, 50, false, null));
+
+        InOrder orden = inOrder(almacenRepository);
+        orden.verify(almacenRepository).findByIdForUpdate(1L);
+        orden.verify(almacenRepository).findByIdForUpdate(2L);
+    }
+
+    // TEST 3: Sin stock en origen o sin hueco en destino -> conflicto y nada cambia
+    @Test
+    public void testStockYCapacidad() {
+        assertThrows(IllegalStateException.class,
+                () -> traspasoService.crear(new TraspasoRequest(10L, 2L, 1L, 101, false, null)));
+
+        when(traspasoRepository.sumarEnTransitoHacia(3L)).thenReturn(30L);
+        assertThrows(IllegalStateException.class,
+                () -> traspasoService.crear(new TraspasoRequest(10L, 1L, 3L, 21, false, null)));
+
+        assertEquals(500, a1.getStockActual());
+        assertEquals(150, a3.getStockActual());
+        verify(traspasoRepository, never()).save(any(Traspaso.class));
+    }
+
+    // TEST 4: Validación de la petición
+    @Test
+    public void testPeticionInvalida() {
+        assertThrows(IllegalArgumentException.class,
+                () -> traspasoService.crear(new TraspasoRequest(10L, 1L, 1L, 5, false, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> traspasoService.crear(new TraspasoRequest(10L, 1L, 2L, 0, false, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> traspasoService.crear(new TraspasoRequest(null, 1L, 2L, 5, false, null)));
+        verify(almacenRepository, never()).findByIdForUpdate(any());
+    }
+
+    // TEST 5: Lote: el hueco del destino se va consumiendo dentro del propio lote
+    @Test
+    public void testLoteComparteCapacidad() {
+        List<TraspasoRequest> lote = List.of(
+                new TraspasoRequest(10L, 1L, 3L, 30, true, null),
+                new TraspasoRequest(10L, 2L, 3L, 30, true, null));
+
+        assertThrows(IllegalStateException.class, () -> traspasoService.crearLote(lote));
+
+        List<Traspaso> creados = traspasoService.crearLote(List.of(
+                new TraspasoRequest(10L, 1L, 3L, 20, true, null),
+                new TraspasoRequest(10L, 2L, 3L, 30, true, null)));
+        assertEquals(2, creados.size());
+        assertEquals(creados.get(0).getLote(), creados.get(1).getLote());
+        assertEquals(150, a3.getStockActual());
+    }
+
+    // TEST 6: En tránsito: se recibe en el destino o se cancela y vuelve al origen
+    @Test
+    public void testRecibirYCancelar() {
+        Traspaso enCamino = traspasoService.crear(new TraspasoRequest(10L, 1L, 2L, 100, true, null));
+        assertEquals("EN_TRANSITO", enCamino.getEstado());
+        assertEquals(400, a1.getStockActual());
+        assertEquals(100, a2.getStockActual());
+
+        enCamino.setId(7L);
+        enTransito(enCamino);
+        traspasoService.recibir(7L);
+        assertEquals(200, a2.getStockActual());
+        assertThrows(IllegalStateException.class, () -> traspasoService.cancelar(7L));
+
+        Traspaso otro = traspasoService.crear(new TraspasoRequest(10L, 1L, 2L, 100, true, null));
+        otro.setId(8L);
+        enTransito(otro);
+        traspasoService.cancelar(8L);
+        assertEquals("CANCELADO", otro.getEstado());
+        assertEquals(400, a1.getStockActual());
+    }
+
+    // TEST 7: Hay sitio y stock en el almacén, pero no de ESE producto; en un
+    // lote lo que ya ha salido del origen no vuelve a estar disponible
+    @Test
+    public void testStockDelProductoEnOrigen() {
+        when(stockAlmacenService.disponible(10L, 1L)).thenReturn(40);
+
+        assertThrows(IllegalStateException.class,
+                () -> traspasoService.crear(new TraspasoRequest(10L, 1L, 2L, 41, false, null)));
+        assertThrows(IllegalStateException.class, () -> traspasoService.crearLote(List.of(
+                new TraspasoRequest(10L, 1L, 2L, 30, false, null),
+                new TraspasoRequest(10L, 1L, 3L, 20, false, null))));
+        assertDoesNotThrow(() -> traspasoService.crear(new TraspasoRequest(10L, 1L, 2L, 40, false, null)));
+    }
+}
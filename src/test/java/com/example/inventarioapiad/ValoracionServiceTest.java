@@ -0,0 +1,284 @@
+package com.example.inventarioapiad;
+
+import com.example.inventarioapiad.entity.ValoracionAlmacen;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import com.example.inventarioapiad.event.PrecioCostoCambiadoEvent;
+import com.example.inventarioapiad.repository.AlmacenRepository;
+import com.example.inventarioapiad.repository.ValoracionAlmacenRepository;
+import com.example.inventarioapiad.service.ArchivoService;
+import com.example.inventarioapiad.service.ValoracionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+public class ValoracionServiceTest {
+
+    @Mock
+    private ValoracionAlmacenRepository valoracionRepository;
+
+    @Mock
+    private AlmacenRepository almacenRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ArchivoService archivoService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ValoracionService valoracionService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private void usarMetodo(ValoracionService.Metodo metodo) {
+        ReflectionTestUtils.setField(valoracionService, "metodo", metodo);
+    }
+
+    private void compra(long productoId, long almacenId, int cantidad, float precio) {
+        valoracionService.alMoverStock(
+                MovimientoStockEvent.entrada(productoId, almacenId, cantidad, precio, "COMPRA", 1L));
+    }
+
+    private void venta(long productoId, long almacenId, int cantidad) {
+        valoracionService.alMoverStock(
+                MovimientoStockEvent.salida(productoId, almacenId, cantidad, "VENTA", 1L));
+    }
+
+    // Como TraspasoService: el coste se calcula antes de mover nada
+    private void traspaso(long productoId, long origen, long destino, int cantidad) {
+        float coste = valoracionService.costeSalida(productoId, origen, 0, cantidad);
+        valoracionService.alMoverStock(
+                MovimientoStockEvent.salida(productoId, origen, cantidad, "TRASPASO", 1L));
+        valoracionService.alMoverStock(
+                MovimientoStockEvent.entrada(productoId, destino, cantidad, coste, "TRASPASO", 1L));
+    }
+
+    // TEST 1: PROMEDIO - las salidas se valoran al coste medio ponderado
+    @Test
+    public void testPromedioPonderado() {
+        usarMetodo(ValoracionService.Metodo.PROMEDIO);
+        compra(1L, 1L, 10, 2.0f);
+        compra(1L, 1L, 10, 4.0f);
+        venta(1L, 1L, 5);
+
+        ValoracionAlmacen valoracion = valoracionService.valoracionDeAlmacen(1L);
+
+        assertEquals(15L, valoracion.getUnidades());
+        assertEquals(45.0, valoracion.getValorTotal());
+        assertEquals("PROMEDIO", valoracion.getMetodo());
+    }
+
+    // TEST 2: FIFO - las salidas consumen primero los lotes más antiguos
+    @Test
+    public void testFifoConsumeLotesAntiguos() {
+        usarMetodo(ValoracionService.Metodo.FIFO);
+        compra(1L, 1L, 10, 2.0f);
+        compra(1L, 1L, 10, 4.0f);
+        venta(1L, 1L, 15);
+
+        ValoracionAlmacen valoracion = valoracionService.valoracionDeAlmacen(1L);
+
+        assertEquals(5L, valoracion.getUnidades());
+        assertEquals(20.0, valoracion.getValorTotal());
+    }
+
+    // TEST 3: ESTANDAR - cambiar el precioCosto revaloriza el stock existente
+    @Test
+    public void testEstandarRevalorizaAlCambiarPrecioCosto() {
+        usarMetodo(ValoracionService.Metodo.ESTANDAR);
+        valoracionService.alCambiarPrecioCosto(new PrecioCostoCambiadoEvent(1L, 3.0f));
+        compra(1L, 1L, 10, 99.0f);
+        compra(1L, 2L, 4, 99.0f);
+        assertEquals(30.0, valoracionService.valoracionDeAlmacen(1L).getValorTotal());
+
+        valoracionService.alCambiarPrecioCosto(new PrecioCostoCambiadoEvent(1L, 5.0f));
+
+        assertEquals(50.0, valoracionService.valoracionDeAlmacen(1L).getValorTotal());
+        assertEquals(20.0, valoracionService.valoracionDeAlmacen(2L).getValorTotal());
+        assertEquals(70.0, valoracionService.valoracionGlobal().get("valorTotal"));
+    }
+
+    // TEST 4: El total global suma todos los almacenes; los que cambian se
+    // guardan en la siguiente pasada (y si falla, en la otra)
+    @Test
+    public void testGlobalYPersistencia() {
+        usarMetodo(ValoracionService.Metodo.PROMEDIO);
+        compra(1L, 1L, 10, 1.0f);
+        compra(2L, 2L, 5, 2.0f);
+
+        Map<String, Object> global = valoracionService.valoracionGlobal();
+
+        assertEquals(15L, global.get("unidades"));
+        assertEquals(20.0, global.get("valorTotal"));
+        verify(valoracionRepository, never()).save(any(ValoracionAlmacen.class));
+
+        when(valoracionRepository.saveAll(anyList())).thenThrow(new RuntimeException("sin conexión"))
+                .thenReturn(List.of());
+        assertEquals(0, valoracionService.guardar());
+        assertEquals(2, valoracionService.guardar());
+        assertEquals(0, valoracionService.guardar());
+        compra(1L, 1L, 1, 1.0f);
+        assertEquals(1, valoracionService.guardar());
+    }
+
+    // TEST 5: Almacén sin movimientos -> valor cero; almacén que no existe
+    // o ID inválido -> error
+    @Test
+    public void testAlmacenSinMovimientosEIdInvalido() {
+        when(almacenRepository.existsById(99L)).thenReturn(true);
+        ValoracionAlmacen valoracion = valoracionService.valoracionDeAlmacen(99L);
+
+        assertEquals(0L, valoracion.getUnidades());
+        assertEquals(0.0, valoracion.getValorTotal());
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> valoracionService.valoracionDeAlmacen(98L));
+        assertEquals("Almacén no encontrado con ID: 98", error.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> valoracionService.valoracionDeAlmacen(0L));
+    }
+
+    // TEST 6: Un traspaso mueve valor entre almacenes pero no cambia el global
+    @Test
+    public void testTraspasoNoCambiaValorGlobal() {
+        for (ValoracionService.Metodo metodo : ValoracionService.Metodo.values()) {
+            valoracionService = new ValoracionService();
+            ReflectionTestUtils.setField(valoracionService, "valoracionRepository", valoracionRepository);
+            usarMetodo(metodo);
+            valoracionService.alCambiarPrecioCosto(new PrecioCostoCambiadoEvent(1L, 3.0f));
+            compra(1L, 1L, 10, 2.0f);
+            compra(1L, 1L, 10, 4.0f);
+            compra(1L, 2L, 5, 9.0f);
+            Object antes = valoracionService.valoracionGlobal().get("valorTotal");
+
+            traspaso(1L, 1L, 2L, 15);
+
+            assertEquals(antes, valoracionService.valoracionGlobal().get("valorTotal"), metodo.name());
+            assertEquals(25L, valoracionService.valoracionGlobal().get("unidades"), metodo.name());
+            assertEquals(5L, valoracionService.valoracionDeAlmacen(1L).getUnidades(), metodo.name());
+        }
+    }
+
+    // TEST 7: La reconstrucción incluye los traspasos y da el mismo valor
+    // que la actualización incremental
+    @Test
+    public void testReconstruirConTraspasos() throws Exception {
+        usarMetodo(ValoracionService.Metodo.FIFO);
+        // compra 10@2, compra 10@4, traspaso 15 de 1 a 2 (salida y entrada)
+        PreparedStatement sentencia = historico(new Object[][]{
+                {1L, 1L, 10, 2.0f, 1L, 1},
+                {1L, 1L, 10, 4.0f, 2L, 1},
+                {1L, 1L, 15, 0f, 7L, 3},
+                {1L, 2L, 15, 0f, 7L, 4}}, () -> { });
+
+        Map<String, Object> global = valoracionService.reconstruir();
+
+        assertEquals(60.0, global.get("valorTotal"));
+        assertEquals(20.0, valoracionService.valoracionDeAlmacen(1L).getValorTotal());
+        assertEquals(40.0, valoracionService.valoracionDeAlmacen(2L).getValorTotal());
+        // El histórico se lee en streaming
+        verify(sentencia).setFetchSize(1000);
+    }
+
+    // TEST 8: Vender de más deja la posición a cero (unidades y valor): la
+    // compra siguiente entra a su propio coste, no a un medio inflado
+    @Test
+    public void testVentaDeMasNoInflaElCoste() {
+        for (ValoracionService.Metodo metodo : new ValoracionService.Metodo[]{
+                ValoracionService.Metodo.PROMEDIO, ValoracionService.Metodo.FIFO}) {
+            valoracionService = new ValoracionService();
+            ReflectionTestUtils.setField(valoracionService, "valoracionRepository", valoracionRepository);
+            usarMetodo(metodo);
+            venta(1L, 1L, 5);
+            compra(1L, 1L, 10, 10.0f);
+            venta(1L, 1L, 4);
+
+            ValoracionAlmacen valoracion = valoracionService.valoracionDeAlmacen(1L);
+            assertEquals(6L, valoracion.getUnidades(), metodo.name());
+            assertEquals(60.0, valoracion.getValorTotal(), metodo.name());
+            assertEquals(10.0f, valoracionService.costeSalida(1L, 1L, 0, 1), metodo.name());
+        }
+    }
+
+    // TEST 9: Lo que hace commit mientras se lee el histórico entra una vez
+    // en el estado nuevo, lo que ya estaba en el histórico no se cuenta dos
+    // veces y las consultas no esperan a la reconstrucción
+    @Test
+    public void testReconstruirConMovimientosALaVez() throws Exception {
+        usarMetodo(ValoracionService.Metodo.PROMEDIO);
+        compra(1L, 1L, 10, 2.0f);
+        historico(new Object[][]{{1L, 1L, 10, 2.0f, 1L, 1}}, () -> {
+            float coste = CompletableFuture.supplyAsync(() -> valoracionService.costeSalida(1L, 1L, 0, 5))
+                    .orTimeout(5, TimeUnit.SECONDS).join();
+            assertEquals(2.0f, coste);
+            // Commit después del snapshot: no está en el histórico
+            compra(1L, 2L, 5, 4.0f);
+            assertEquals(20.0, valoracionService.valoracionDeAlmacen(2L).getValorTotal());
+        });
+
+        Map<String, Object> global = valoracionService.reconstruir();
+
+        assertEquals(40.0, global.get("valorTotal"));
+        assertEquals(15L, global.get("unidades"));
+        assertEquals(20.0, valoracionService.valoracionDeAlmacen(1L).getValorTotal());
+        assertEquals(20.0, valoracionService.valoracionDeAlmacen(2L).getValorTotal());
+    }
+
+    // El histórico que lee reconstruir(): "alLeer" se ejecuta en mitad de
+    // la lectura, después de la primera fila
+    private PreparedStatement historico(Object[][] filas, Runnable alLeer) throws Exception {
+        when(archivoService.historico(anyString())).thenAnswer(inv -> inv.getArgument(0));
+        Connection conexion = mock(Connection.class);
+        PreparedStatement sentencia = mock(PreparedStatement.class);
+        when(conexion.prepareStatement(startsWith("SELECT producto_id"), eq(ResultSet.TYPE_FORWARD_ONLY),
+                eq(ResultSet.CONCUR_READ_ONLY))).thenReturn(sentencia);
+        doAnswer(inv -> {
+            PreparedStatementCreator creador = inv.getArgument(0);
+            assertSame(sentencia, creador.createPreparedStatement(conexion));
+            RowCallbackHandler handler = inv.getArgument(1);
+            for (int i = 0; i < filas.length; i++) {
+                Object[] fila = filas[i];
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong(1)).thenReturn((Long) fila[0]);
+                when(rs.getLong(2)).thenReturn((Long) fila[1]);
+                when(rs.getInt(3)).thenReturn((Integer) fila[2]);
+                when(rs.getFloat(4)).thenReturn((Float) fila[3]);
+                when(rs.getLong(7)).thenReturn((Long) fila[4]);
+                when(rs.getInt(8)).thenReturn((Integer) fila[5]);
+                handler.processRow(rs);
+                if (i == 0) {
+                    alLeer.run();
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        return sentencia;
+    }
+}
@@ -2,13 +2,18 @@ package com.example.inventarioapiad;
 
 import com.example.inventarioapiad.entity.*;
 import com.example.inventarioapiad.repository.VentaRepository;
+import com.example.inventarioapiad.service.ArchivoService;
 import com.example.inventarioapiad.service.VentaService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import com.example.inventarioapiad.event.MovimientoStockEvent;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -20,6 +25,12 @@ public class VentaServiceTest {
     @Mock
     private VentaRepository ventaRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ArchivoService archivoService;
+
     @InjectMocks
     private VentaService ventaService;
 
@@ -80,6 +91,21 @@ public class VentaServiceTest {
         assertThrows(RuntimeException.class, () -> ventaService.buscarPorId(999L));
     }
 
+    @Test
+    public void testBuscarPorIdArchivada() {
+        Venta archivada = new Venta();
+        archivada.setId(5L);
+        archivada.setEstado("ENTREGADA");
+
+        when(ventaRepository.findById(5L)).thenReturn(Optional.empty());
+        when(archivoService.buscarVenta(5L)).thenReturn(Optional.of(archivada));
+
+        assertSame(archivada, ventaService.buscarPorId(5L));
+        // Las archivadas son de solo lectura
+        assertThrows(RuntimeException.class, () -> ventaService.eliminar(5L));
+        verify(ventaRepository, never()).save(any(Venta.class));
+    }
+
     @Test
     public void testBuscarTodos() {
         when(ventaRepository.findAll()).thenReturn(java.util.Arrays.asList(
@@ -124,4 +150,60 @@ public class VentaServiceTest {
 
         verify(ventaRepository, times(1)).save(any(Venta.class));
     }
-}
\ No newline at end of file
+
+    private Venta ventaViva(int cantidad) {
+        Venta venta = new Venta();
+        venta.setId(1L);
+        venta.setEstado("PENDIENTE");
+        venta.setProducto(new Producto(1L, "Producto", "SKU", null, 0.5f, 1.0f, 100, true, null));
+        venta.setAlmacen(new Almacen(1L, "Almacén", "Ubicación", 10000, 5000, null, true, false, null));
+        venta.setCantidad(cantidad);
+        venta.setFechaVenta(LocalDateTime.now());
+        when(ventaRepository.findById(1L)).thenReturn(Optional.of(venta));
+        when(ventaRepository.save(any(Venta.class))).thenAnswer(inv -> inv.getArgument(0));
+        return venta;
+    }
+
+    private List<MovimientoStockEvent> movimientos() {
+        ArgumentCaptor<MovimientoStockEvent> captor = ArgumentCaptor.forClass(MovimientoStockEvent.class);
+        verify(eventPublisher, atLeast(0)).publishEvent(captor.capture());
+        return captor.getAllValues();
+    }
+
+    // Cancelar cambiando a la vez la cantidad devuelve lo que se vendió
+    @Test
+    public void testCancelarDevuelveLoVendido() {
+        ventaViva(10);
+        Venta cambios = new Venta();
+        cambios.setEstado("CANCELADA");
+        cambios.setCantidad(1);
+
+        ventaService.actualizar(1L, cambios);
+
+        List<MovimientoStockEvent> publicados = movimientos();
+        assertEquals(1, publicados.size());
+        assertEquals(MovimientoStockEvent.Tipo.ENTRADA, publicados.get(0).getTipo());
+        assertEquals(10, publicados.get(0).getCantidad());
+    }
+
+    // Cambiar cantidad y almacén de una venta viva devuelve lo de antes y
+    // saca lo nuevo
+    @Test
+    public void testCambioDeLineaEnVentaViva() {
+        ventaViva(10);
+        Venta cambios = new Venta();
+        cambios.setCantidad(4);
+        cambios.setAlmacen(new Almacen(2L, "Otro", "Ubicación", 10000, 0, null, true, false, null));
+
+        ventaService.actualizar(1L, cambios);
+
+        List<MovimientoStockEvent> publicados = movimientos();
+        assertEquals(2, publicados.size());
+        assertEquals(MovimientoStockEvent.Tipo.ENTRADA, publicados.get(0).getTipo());
+        assertEquals(1L, publicados.get(0).getAlmacenId());
+        assertEquals(10, publicados.get(0).getCantidad());
+        assertEquals(MovimientoStockEvent.Tipo.SALIDA, publicados.get(1).getTipo());
+        assertEquals(2L, publicados.get(1).getAlmacenId());
+        assertEquals(4, publicados.get(1).getCantidad());
+    }
+}